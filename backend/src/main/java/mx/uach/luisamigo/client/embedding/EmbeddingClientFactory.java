@@ -14,13 +14,16 @@ public class EmbeddingClientFactory {
     private static final Logger log = LoggerFactory.getLogger(EmbeddingClientFactory.class);
 
     private final EmbeddingClient openAIEmbeddingClient;
+    private final EmbeddingClient localEmbeddingClient;
     private final EmbeddingProperties embeddingProperties;
 
     public EmbeddingClientFactory(
         OpenAIEmbeddingClient openAIEmbeddingClient,
+        LocalHashEmbeddingClient localEmbeddingClient,
         EmbeddingProperties embeddingProperties
     ) {
         this.openAIEmbeddingClient = openAIEmbeddingClient;
+        this.localEmbeddingClient = localEmbeddingClient;
         this.embeddingProperties = embeddingProperties;
     }
 
@@ -45,6 +48,13 @@ public class EmbeddingClientFactory {
                 log.debug("Using OpenAI embedding client: {}", openAIEmbeddingClient.getModelName());
                 yield openAIEmbeddingClient;
             }
+            case "local" -> {
+                if (!localEmbeddingClient.isAvailable()) {
+                    throw new IllegalStateException("Local embedding client not available. Check n-gram/dimension configuration.");
+                }
+                log.debug("Using local embedding client: {}", localEmbeddingClient.getModelName());
+                yield localEmbeddingClient;
+            }
             default -> throw new IllegalStateException("Unknown embedding provider: " + provider);
         };
     }
@@ -55,6 +65,9 @@ public class EmbeddingClientFactory {
      * @return true si hay un proveedor disponible
      */
     public boolean hasAvailableProvider() {
+        if ("local".equalsIgnoreCase(embeddingProperties.getProvider())) {
+            return localEmbeddingClient.isAvailable();
+        }
         return openAIEmbeddingClient.isAvailable();
     }
 }
@@ -0,0 +1,164 @@
+package mx.uach.luisamigo.client.embedding;
+
+import mx.uach.luisamigo.config.EmbeddingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementación local de EmbeddingClient basada en feature hashing de n-gramas de caracteres.
+ * Es determinística y solo usa CPU: el mismo texto siempre produce el mismo vector.
+ * No tiene calidad semántica comparable a un modelo real; se usa para pruebas de carga,
+ * benchmarks de ingesta y CI sin acceso a red.
+ */
+@Component
+public class LocalHashEmbeddingClient implements EmbeddingClient {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalHashEmbeddingClient.class);
+    private static final String PROVIDER_NAME = "Local";
+    private static final int MAX_TOKENS = Integer.MAX_VALUE;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final EmbeddingProperties.LocalConfig config;
+
+    public LocalHashEmbeddingClient(EmbeddingProperties embeddingProperties) {
+        this.config = embeddingProperties.getLocal();
+    }
+
+    @Override
+    public float[] generateEmbedding(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Text cannot be null or empty");
+        }
+        return embed(text);
+    }
+
+    @Override
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        if (texts == null || texts.isEmpty()) {
+            throw new IllegalArgumentException("Texts list cannot be null or empty");
+        }
+
+        List<float[]> results = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            results.add(generateEmbedding(text));
+        }
+
+        log.debug("Local batch embeddings generated. Count: {}", results.size());
+        return results;
+    }
+
+    /**
+     * Proyecta los n-gramas del texto normalizado sobre el vector usando hashing con signo
+     * y normaliza el resultado a norma L2 = 1 (para que cosine similarity sea consistente).
+     */
+    private float[] embed(String text) {
+        int dimensions = config.getDimensions();
+        float[] vector = new float[dimensions];
+        String folded = " " + fold(text) + " ";
+
+        for (int n = config.getMinNgram(); n <= config.getMaxNgram(); n++) {
+            for (int start = 0; start + n <= folded.length(); start++) {
+                long hash = hashNgram(folded, start, n);
+                int index = (int) Long.remainderUnsigned(hash >>> 1, dimensions);
+                vector[index] += (hash & 1L) == 0 ? 1.0f : -1.0f;
+            }
+        }
+
+        double norm = 0.0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+
+        if (norm == 0.0) {
+            // Texto más corto que el n-grama mínimo: vector unitario fijo para evitar NaN en pgvector
+            vector[0] = 1.0f;
+            return vector;
+        }
+
+        float inverseNorm = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= inverseNorm;
+        }
+
+        return vector;
+    }
+
+    /**
+     * Minúsculas, sin acentos y con espacios colapsados.
+     */
+    private String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean lastWasSpace = false;
+
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                if (!lastWasSpace) {
+                    sb.append(' ');
+                }
+                lastWasSpace = true;
+            } else {
+                sb.append(c);
+                lastWasSpace = false;
+            }
+        }
+
+        return sb.toString().trim();
+    }
+
+    /**
+     * FNV-1a sobre los caracteres del n-grama seguido del finalizador de MurmurHash3
+     * para distribuir mejor los bits bajos.
+     */
+    private long hashNgram(String text, int start, int length) {
+        long hash = FNV_OFFSET_BASIS ^ length;
+        for (int i = start; i < start + length; i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public int getDimensions() {
+        return config.getDimensions();
+    }
+
+    @Override
+    public String getModelName() {
+        return config.getModel();
+    }
+
+    @Override
+    public String getProviderName() {
+        return PROVIDER_NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return config.getDimensions() > 0 && config.getMinNgram() > 0
+            && config.getMaxNgram() >= config.getMinNgram();
+    }
+
+    @Override
+    public int getMaxTokens() {
+        return MAX_TOKENS;
+    }
+}
@@ -1,8 +1,12 @@
 package mx.uach.luisamigo.client.embedding;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import mx.uach.luisamigo.client.hedging.RequestHedger;
+import mx.uach.luisamigo.client.ratelimit.ApiKeyPool;
+import mx.uach.luisamigo.client.ratelimit.ProviderRateLimiterRegistry;
 import mx.uach.luisamigo.config.EmbeddingProperties;
 import mx.uach.luisamigo.exception.EmbeddingException;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -30,12 +34,23 @@ public class OpenAIEmbeddingClient implements EmbeddingClient {
 
     private final WebClient webClient;
     private final EmbeddingProperties.OpenAIConfig config;
-
-    public OpenAIEmbeddingClient(EmbeddingProperties embeddingProperties, WebClient.Builder webClientBuilder) {
+    private final ApiKeyPool keyPool;
+    private final RequestHedger requestHedger;
+    private final TokenizerService tokenizerService;
+
+    public OpenAIEmbeddingClient(
+        EmbeddingProperties embeddingProperties,
+        WebClient.Builder webClientBuilder,
+        ProviderRateLimiterRegistry rateLimiterRegistry,
+        RequestHedger requestHedger,
+        TokenizerService tokenizerService
+    ) {
         this.config = embeddingProperties.getOpenai();
+        this.keyPool = rateLimiterRegistry.pool(ProviderRateLimiterRegistry.OPENAI_EMBEDDING, config.getAllApiKeys());
+        this.requestHedger = requestHedger;
+        this.tokenizerService = tokenizerService;
         this.webClient = webClientBuilder
             .baseUrl(OPENAI_API_URL)
-            .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + config.getApiKey())
             .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
             .build();
     }
@@ -49,17 +64,25 @@ public class OpenAIEmbeddingClient implements EmbeddingClient {
         try {
             log.debug("Generating embedding for text (length: {})", text.length());
 
+            String input = fitToLimit(text);
             EmbeddingRequest request = new EmbeddingRequest(
                 config.getModel(),
-                text
+                input
             );
 
-            EmbeddingResponse response = webClient.post()
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(EmbeddingResponse.class)
-                .timeout(Duration.ofSeconds(DEFAULT_TIMEOUT_SECONDS))
-                .block();
+            EmbeddingResponse response = requestHedger.execute(
+                ProviderRateLimiterRegistry.OPENAI_EMBEDDING,
+                () -> keyPool.execute(
+                    tokenizerService.countTokens(input),
+                    apiKey -> webClient.post()
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                        .bodyValue(request)
+                        .retrieve()
+                        .toEntity(EmbeddingResponse.class)
+                        .timeout(Duration.ofSeconds(DEFAULT_TIMEOUT_SECONDS))
+                        .block()
+                )
+            ).getBody();
 
             if (response == null || response.data() == null || response.data().isEmpty()) {
                 throw new EmbeddingException("Empty response from OpenAI", PROVIDER_NAME);
@@ -102,17 +125,26 @@ public class OpenAIEmbeddingClient implements EmbeddingClient {
         try {
             log.debug("Generating embeddings for {} texts", texts.size());
 
+            List<String> inputs = texts.stream().map(this::fitToLimit).toList();
             EmbeddingRequest request = new EmbeddingRequest(
                 config.getModel(),
-                texts
+                inputs
             );
 
-            EmbeddingResponse response = webClient.post()
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(EmbeddingResponse.class)
-                .timeout(Duration.ofSeconds(DEFAULT_TIMEOUT_SECONDS * 2)) // Más tiempo para batch
-                .block();
+            int estimatedTokens = inputs.stream().mapToInt(tokenizerService::countTokens).sum();
+            EmbeddingResponse response = requestHedger.execute(
+                ProviderRateLimiterRegistry.OPENAI_EMBEDDING,
+                () -> keyPool.execute(
+                    estimatedTokens,
+                    apiKey -> webClient.post()
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                        .bodyValue(request)
+                        .retrieve()
+                        .toEntity(EmbeddingResponse.class)
+                        .timeout(Duration.ofSeconds(DEFAULT_TIMEOUT_SECONDS * 2)) // Más tiempo para batch
+                        .block()
+                )
+            ).getBody();
 
             if (response == null || response.data() == null || response.data().isEmpty()) {
                 throw new EmbeddingException("Empty response from OpenAI", PROVIDER_NAME);
@@ -167,7 +199,7 @@ public class OpenAIEmbeddingClient implements EmbeddingClient {
 
     @Override
     public boolean isAvailable() {
-        return config.getApiKey() != null && !config.getApiKey().isBlank();
+        return !config.getAllApiKeys().isEmpty();
     }
 
     @Override
@@ -175,6 +207,18 @@ public class OpenAIEmbeddingClient implements EmbeddingClient {
         return MAX_TOKENS;
     }
 
+    /**
+     * Recorta la entrada al límite de tokens del modelo; la API rechaza entradas más largas con 400.
+     */
+    private String fitToLimit(String text) {
+        String fitted = tokenizerService.truncate(text, MAX_TOKENS);
+        if (fitted.length() < text.length()) {
+            log.warn("Embedding input truncated from {} to {} characters to fit {} tokens",
+                text.length(), fitted.length(), MAX_TOKENS);
+        }
+        return fitted;
+    }
+
     // DTOs para OpenAI Embeddings API
     private record EmbeddingRequest(String model, Object input) {}
 
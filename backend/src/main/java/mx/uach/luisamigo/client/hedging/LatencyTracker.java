@@ -0,0 +1,50 @@
+package mx.uach.luisamigo.client.hedging;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Ventana deslizante de latencias para calcular el umbral adaptativo de hedging.
+ * Mantiene las últimas N muestras en un ring buffer y recalcula el percentil cada
+ * RECOMPUTE_EVERY muestras para no ordenar en cada llamada.
+ */
+class LatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final long[] samples;
+    private final int minSamples;
+    private final double percentile;
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private volatile long thresholdNanos = -1;
+
+    LatencyTracker(int windowSize, int minSamples, double percentile) {
+        this.samples = new long[windowSize];
+        this.minSamples = Math.min(minSamples, windowSize);
+        this.percentile = percentile;
+    }
+
+    synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+
+        if (count >= minSamples && ++sinceRecompute >= RECOMPUTE_EVERY) {
+            sinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.min(count - 1, Math.ceil(percentile * count) - 1);
+            thresholdNanos = sorted[Math.max(0, index)];
+        }
+    }
+
+    /**
+     * Umbral actual (percentil configurado) o null si aún no hay muestras suficientes.
+     */
+    Duration threshold() {
+        long current = thresholdNanos;
+        return current < 0 ? null : Duration.ofNanos(current);
+    }
+}
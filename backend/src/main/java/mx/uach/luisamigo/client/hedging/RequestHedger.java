@@ -0,0 +1,185 @@
+package mx.uach.luisamigo.client.hedging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import mx.uach.luisamigo.config.HedgingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Hedging de requests para reducir la latencia de cola de los proveedores.
+ *
+ * Si la llamada primaria no responde dentro del percentil configurado de latencias recientes,
+ * se dispara un duplicado; gana la primera respuesta exitosa y la otra se cancela
+ * (interrumpiendo su hilo, lo que cancela la request HTTP subyacente). Un error no gana: si la
+ * primaria falla con el duplicado en curso, se espera al duplicado; si falla antes de dispararlo,
+ * el duplicado ya no se dispara y se relanza el error de la primaria.
+ *
+ * Los duplicados están limitados por un presupuesto: cada request aporta maxExtraRatio créditos
+ * y cada hedge consume uno, de modo que la tasa extra nunca supera maxExtraRatio a largo plazo.
+ */
+@Component
+public class RequestHedger {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestHedger.class);
+
+    private final HedgingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ClientState> states = new ConcurrentHashMap<>();
+
+    public RequestHedger(HedgingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Ejecuta una llamada bloqueante con hedging si está habilitado para el cliente.
+     * La llamada debe ser idempotente (se puede ejecutar dos veces).
+     *
+     * @param client Nombre del cliente (e.g., "openai-chat")
+     * @param call Llamada bloqueante al proveedor
+     * @return Resultado de la primera llamada que responda
+     */
+    public <T> T execute(String client, Supplier<T> call) {
+        if (!properties.appliesTo(client)) {
+            return call.get();
+        }
+
+        ClientState state = states.computeIfAbsent(client, ClientState::new);
+        state.requests.increment();
+        state.depositCredit();
+
+        Duration threshold = state.tracker.threshold();
+        long start = System.nanoTime();
+
+        if (threshold == null) {
+            // Calentamiento: sin muestras suficientes no hay umbral confiable
+            T result = call.get();
+            state.recordPrimary(System.nanoTime() - start);
+            state.effectiveLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        }
+
+        Duration delay = threshold.compareTo(Duration.ofMillis(properties.getMinDelayMs())) < 0
+            ? Duration.ofMillis(properties.getMinDelayMs())
+            : threshold;
+
+        // Los errores se guardan y se convierten en vacío: firstWithValue solo deja ganar a un valor
+        AtomicReference<Throwable> primaryError = new AtomicReference<>();
+        AtomicReference<Throwable> hedgeError = new AtomicReference<>();
+        AtomicBoolean hedgeStarted = new AtomicBoolean();
+        Sinks.Empty<Void> primaryFailed = Sinks.empty();
+
+        Mono<T> primary = Mono.fromSupplier(call)
+            .subscribeOn(Schedulers.boundedElastic())
+            .doOnSuccess(result -> state.recordPrimary(System.nanoTime() - start))
+            // Si pierde, su latencia real es al menos el tiempo transcurrido (cota inferior)
+            .doOnCancel(() -> state.recordPrimary(System.nanoTime() - start))
+            .onErrorResume(e -> {
+                primaryError.set(e);
+                if (!hedgeStarted.get()) {
+                    primaryFailed.tryEmitEmpty();
+                }
+                return Mono.empty();
+            });
+
+        // El duplicado sale al vencer el delay, salvo que la primaria ya haya fallado
+        Mono<T> hedge = Mono.firstWithSignal(Mono.delay(delay).thenReturn(true), primaryFailed.asMono().thenReturn(false))
+            .flatMap(fire -> {
+                if (!fire) {
+                    return Mono.<T>empty();
+                }
+                if (!state.tryConsumeCredit()) {
+                    state.denied.increment();
+                    return Mono.<T>empty();
+                }
+                hedgeStarted.set(true);
+                state.fired.increment();
+                log.debug("Hedging {} request after {} ms", client, delay.toMillis());
+                return Mono.fromSupplier(call)
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnSuccess(result -> state.won.increment())
+                    .onErrorResume(e -> {
+                        hedgeError.set(e);
+                        return Mono.empty();
+                    });
+            });
+
+        try {
+            return Mono.firstWithValue(primary, hedge).block();
+        } catch (NoSuchElementException e) {
+            // Ninguna respondió: se relanza el error original (el de la primaria si lo hay)
+            Throwable error = primaryError.get() != null ? primaryError.get() : hedgeError.get();
+            if (error == null) {
+                throw e;
+            }
+            throw Exceptions.propagate(error);
+        } finally {
+            state.effectiveLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Estado y métricas de hedging por cliente.
+     */
+    private class ClientState {
+        private final LatencyTracker tracker;
+        private final Counter requests;
+        private final Counter fired;
+        private final Counter won;
+        private final Counter denied;
+        private final Timer primaryLatency;
+        private final Timer effectiveLatency;
+        private double credits;
+
+        ClientState(String client) {
+            this.tracker = new LatencyTracker(
+                properties.getWindowSize(), properties.getMinSamples(), properties.getPercentile());
+            this.requests = meterRegistry.counter("luisamigo.hedge.requests", "client", client);
+            this.fired = meterRegistry.counter("luisamigo.hedge.fired", "client", client);
+            this.won = meterRegistry.counter("luisamigo.hedge.won", "client", client);
+            this.denied = meterRegistry.counter("luisamigo.hedge.budget_denied", "client", client);
+            // Comparar p99 primaria vs. efectiva muestra la mejora; fired/requests muestra el gasto extra
+            this.primaryLatency = Timer.builder("luisamigo.hedge.latency")
+                .tag("client", client).tag("kind", "primary")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+            this.effectiveLatency = Timer.builder("luisamigo.hedge.latency")
+                .tag("client", client).tag("kind", "effective")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        }
+
+        void recordPrimary(long nanos) {
+            tracker.record(nanos);
+            primaryLatency.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        synchronized void depositCredit() {
+            credits = Math.min(properties.getMaxCredits(), credits + properties.getMaxExtraRatio());
+        }
+
+        synchronized boolean tryConsumeCredit() {
+            if (credits < 1.0) {
+                return false;
+            }
+            credits -= 1.0;
+            return true;
+        }
+    }
+}
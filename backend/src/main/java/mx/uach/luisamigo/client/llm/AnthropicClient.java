@@ -1,15 +1,26 @@
 package mx.uach.luisamigo.client.llm;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mx.uach.luisamigo.client.hedging.RequestHedger;
+import mx.uach.luisamigo.client.ratelimit.ApiKeyPool;
+import mx.uach.luisamigo.client.ratelimit.ProviderRateLimiterRegistry;
 import mx.uach.luisamigo.config.LLMProperties;
 import mx.uach.luisamigo.exception.LLMProviderException;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 
 import java.time.Duration;
 import java.util.List;
@@ -24,52 +35,86 @@ public class AnthropicClient implements LLMClient {
     private static final String ANTHROPIC_API_URL = "https://api.anthropic.com/v1/messages";
     private static final String ANTHROPIC_VERSION = "2023-06-01";
     private static final String PROVIDER_NAME = "Anthropic";
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+        new ParameterizedTypeReference<>() {};
 
     private final WebClient webClient;
     private final LLMProperties.AnthropicConfig config;
+    private final ApiKeyPool keyPool;
+    private final RequestHedger requestHedger;
+    private final ObjectMapper objectMapper;
+    private final LLMUsageMetrics usageMetrics;
+    private final TokenizerService tokenizerService;
 
-    public AnthropicClient(LLMProperties llmProperties, WebClient.Builder webClientBuilder) {
+    public AnthropicClient(
+        LLMProperties llmProperties,
+        WebClient.Builder webClientBuilder,
+        ProviderRateLimiterRegistry rateLimiterRegistry,
+        RequestHedger requestHedger,
+        ObjectMapper objectMapper,
+        LLMUsageMetrics usageMetrics,
+        TokenizerService tokenizerService
+    ) {
         this.config = llmProperties.getAnthropic();
+        this.keyPool = rateLimiterRegistry.pool(ProviderRateLimiterRegistry.ANTHROPIC, config.getAllApiKeys());
+        this.requestHedger = requestHedger;
+        this.objectMapper = objectMapper;
+        this.usageMetrics = usageMetrics;
+        this.tokenizerService = tokenizerService;
         this.webClient = webClientBuilder
             .baseUrl(ANTHROPIC_API_URL)
-            .defaultHeader("x-api-key", config.getApiKey())
             .defaultHeader("anthropic-version", ANTHROPIC_VERSION)
             .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
             .build();
     }
 
     @Override
-    public String generateResponse(String prompt, LLMConfig llmConfig) {
-        if (prompt == null || prompt.isBlank()) {
+    public String generateResponse(LLMPrompt prompt, LLMConfig llmConfig) {
+        if (prompt == null || prompt.user() == null || prompt.user().isBlank()) {
             throw new IllegalArgumentException("Prompt cannot be null or empty");
         }
 
         try {
-            log.debug("Calling Anthropic API with model: {}", config.getModel());
+            String model = getModelName(llmConfig);
+            log.debug("Calling Anthropic API with model: {}", model);
 
             AnthropicRequest request = new AnthropicRequest(
-                config.getModel(),
-                List.of(new Message("user", prompt)),
+                model,
+                buildSystem(prompt),
+                List.of(new Message("user", prompt.user())),
                 llmConfig.getMaxTokens(),
-                llmConfig.getTemperature()
+                llmConfig.getTemperature(),
+                false
             );
 
-            AnthropicResponse response = webClient.post()
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(AnthropicResponse.class)
-                .timeout(Duration.ofSeconds(llmConfig.getTimeoutSeconds()))
-                .block();
+            // TPM cuenta prompt + completion máxima
+            int estimatedTokens = estimateTokens(prompt, model) + llmConfig.getMaxTokens();
+            AnthropicResponse response = requestHedger.execute(
+                ProviderRateLimiterRegistry.ANTHROPIC,
+                () -> keyPool.execute(
+                    estimatedTokens,
+                    apiKey -> webClient.post()
+                        .header("x-api-key", apiKey)
+                        .bodyValue(request)
+                        .retrieve()
+                        .toEntity(AnthropicResponse.class)
+                        .timeout(Duration.ofSeconds(llmConfig.getTimeoutSeconds()))
+                        .block()
+                )
+            ).getBody();
 
             if (response == null || response.content() == null || response.content().isEmpty()) {
                 throw new LLMProviderException("Empty response from Anthropic", PROVIDER_NAME);
             }
 
             String content = response.content().get(0).text();
-            log.info("Anthropic API call successful. Tokens used: {} (input: {}, output: {})",
+            log.info("Anthropic API call successful. Tokens used: {} (input: {}, cache read: {}, cache write: {}, output: {})",
                 response.usage().inputTokens() + response.usage().outputTokens(),
                 response.usage().inputTokens(),
+                response.usage().cacheRead(),
+                response.usage().cacheWrite(),
                 response.usage().outputTokens());
+            recordUsage(model, response.usage());
 
             return content;
 
@@ -90,9 +135,111 @@ public class AnthropicClient implements LLMClient {
         }
     }
 
+    @Override
+    public Flux<String> streamResponse(LLMPrompt prompt, LLMConfig llmConfig) {
+        if (prompt == null || prompt.user() == null || prompt.user().isBlank()) {
+            return Flux.error(new IllegalArgumentException("Prompt cannot be null or empty"));
+        }
+
+        String model = getModelName(llmConfig);
+        log.debug("Streaming from Anthropic API with model: {}", model);
+
+        AnthropicRequest request = new AnthropicRequest(
+            model,
+            buildSystem(prompt),
+            List.of(new Message("user", prompt.user())),
+            llmConfig.getMaxTokens(),
+            llmConfig.getTemperature(),
+            true
+        );
+
+        int estimatedTokens = estimateTokens(prompt, model) + llmConfig.getMaxTokens();
+        return keyPool.stream(
+                estimatedTokens,
+                apiKey -> webClient.post()
+                    .header("x-api-key", apiKey)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(request)
+                    .retrieve()
+                    .toEntityFlux(SSE_TYPE)
+            )
+            // Timeout de inactividad: aplica entre eventos, no a la generación completa
+            .timeout(Duration.ofSeconds(llmConfig.getTimeoutSeconds()))
+            .takeWhile(event -> !"message_stop".equals(event.event()))
+            .mapNotNull(event -> extractDelta(model, event))
+            .onErrorMap(e -> !(e instanceof LLMProviderException), this::toProviderException);
+    }
+
+    /**
+     * Extrae el texto de los eventos content_block_delta; el resto (message_start, ping, etc.) se ignora.
+     */
+    private String extractDelta(String model, ServerSentEvent<String> event) {
+        String type = event.event();
+        if ("error".equals(type)) {
+            throw new LLMProviderException("Anthropic stream error: " + event.data(), PROVIDER_NAME);
+        }
+        boolean usageEvent = "message_start".equals(type) || "message_delta".equals(type);
+        if (!(usageEvent || "content_block_delta".equals(type)) || event.data() == null) {
+            return null;
+        }
+        try {
+            JsonNode data = objectMapper.readTree(event.data());
+            if (usageEvent) {
+                // message_start trae el uso de entrada (incluido el cache); message_delta el de salida acumulado
+                if ("message_start".equals(type)) {
+                    JsonNode startUsage = data.path("message").path("usage");
+                    if (startUsage.isObject()) {
+                        Usage usage = objectMapper.treeToValue(startUsage, Usage.class);
+                        recordUsage(model, new Usage(usage.inputTokens(), 0,
+                            usage.cacheCreationInputTokens(), usage.cacheReadInputTokens()));
+                    }
+                } else if (data.path("usage").isObject()) {
+                    recordUsage(model, objectMapper.treeToValue(data.path("usage"), Usage.class));
+                }
+                return null;
+            }
+            JsonNode text = data.path("delta").path("text");
+            return text.isTextual() && !text.asText().isEmpty() ? text.asText() : null;
+        } catch (JsonProcessingException e) {
+            throw new LLMProviderException("Malformed Anthropic stream event: " + e.getOriginalMessage(), PROVIDER_NAME, e);
+        }
+    }
+
+    /**
+     * El bloque de sistema se marca con cache_control para que Anthropic lo cachee como prefijo
+     * (a partir de 1024 tokens; por debajo del mínimo la marca se ignora sin error).
+     */
+    private List<SystemBlock> buildSystem(LLMPrompt prompt) {
+        if (!prompt.hasSystem()) {
+            return null;
+        }
+        return List.of(new SystemBlock("text", prompt.system(), CacheControl.EPHEMERAL));
+    }
+
+    private int estimateTokens(LLMPrompt prompt, String model) {
+        return tokenizerService.countTokens(prompt.system(), model) + tokenizerService.countTokens(prompt.user(), model);
+    }
+
+    private void recordUsage(String model, Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        usageMetrics.record(PROVIDER_NAME, model,
+            usage.inputTokens(), usage.outputTokens(), usage.cacheRead(), usage.cacheWrite());
+    }
+
+    private LLMProviderException toProviderException(Throwable e) {
+        if (e instanceof WebClientResponseException responseError) {
+            log.error("Anthropic API stream error: {} - {}", responseError.getStatusCode(), responseError.getResponseBodyAsString());
+            return new LLMProviderException("Anthropic API error: " + e.getMessage(), PROVIDER_NAME, e);
+        }
+        log.error("Error streaming from Anthropic API", e);
+        return new LLMProviderException("Error streaming from Anthropic: " + e.getMessage(), PROVIDER_NAME, e);
+    }
+
     @Override
     public boolean isAvailable() {
-        return config.getApiKey() != null && !config.getApiKey().isBlank();
+        return !config.getAllApiKeys().isEmpty();
     }
 
     @Override
@@ -105,6 +252,11 @@ public class AnthropicClient implements LLMClient {
         return config.getModel();
     }
 
+    @Override
+    public String getModelName(LLMConfig llmConfig) {
+        return config.modelFor(llmConfig.getTier() == LLMConfig.ModelTier.FAST);
+    }
+
     @Override
     public double estimateCost(int estimatedTokens) {
         // Costos aproximados para Claude 3
@@ -121,11 +273,23 @@ public class AnthropicClient implements LLMClient {
     // DTOs para Anthropic API
     private record AnthropicRequest(
         String model,
+        @JsonInclude(JsonInclude.Include.NON_NULL) List<SystemBlock> system,
         List<Message> messages,
         @JsonProperty("max_tokens") int maxTokens,
-        double temperature
+        double temperature,
+        boolean stream
     ) {}
 
+    private record SystemBlock(
+        String type,
+        String text,
+        @JsonProperty("cache_control") CacheControl cacheControl
+    ) {}
+
+    private record CacheControl(String type) {
+        static final CacheControl EPHEMERAL = new CacheControl("ephemeral");
+    }
+
     private record Message(String role, String content) {}
 
     private record AnthropicResponse(
@@ -143,6 +307,16 @@ public class AnthropicClient implements LLMClient {
 
     private record Usage(
         @JsonProperty("input_tokens") int inputTokens,
-        @JsonProperty("output_tokens") int outputTokens
-    ) {}
+        @JsonProperty("output_tokens") int outputTokens,
+        @JsonProperty("cache_creation_input_tokens") Integer cacheCreationInputTokens,
+        @JsonProperty("cache_read_input_tokens") Integer cacheReadInputTokens
+    ) {
+        int cacheWrite() {
+            return cacheCreationInputTokens != null ? cacheCreationInputTokens : 0;
+        }
+
+        int cacheRead() {
+            return cacheReadInputTokens != null ? cacheReadInputTokens : 0;
+        }
+    }
 }
@@ -1,5 +1,9 @@
 package mx.uach.luisamigo.client.llm;
 
+import reactor.core.publisher.Flux;
+
+import java.util.function.Consumer;
+
 /**
  * Abstracción de clientes LLM (Large Language Model).
  * Permite intercambiar proveedores (OpenAI, Anthropic, etc.) sin modificar lógica de negocio.
@@ -8,13 +12,41 @@ public interface LLMClient {
 
     /**
      * Genera una respuesta usando el modelo LLM configurado.
+     * El bloque de sistema se envía por separado para aprovechar el cache de prefijo del proveedor.
+     *
+     * @param prompt Prompt con bloque de sistema (estático) y de usuario (dinámico)
+     * @param config Configuración específica para esta llamada
+     * @return La respuesta generada por el modelo
+     * @throws LLMProviderException si hay error al comunicarse con el proveedor
+     */
+    String generateResponse(LLMPrompt prompt, LLMConfig config);
+
+    /**
+     * Genera una respuesta e informa qué proveedor la produjo.
+     * Los clientes de un solo proveedor reportan una decisión DIRECT; el cliente de ruteo
+     * reporta la elección real (preferido, latencia, probe o failover).
+     *
+     * @param prompt Prompt con bloque de sistema (estático) y de usuario (dinámico)
+     * @param config Configuración específica para esta llamada
+     * @return Respuesta con la decisión de ruteo
+     * @throws LLMProviderException si hay error al comunicarse con el proveedor
+     */
+    default LLMResponse generate(LLMPrompt prompt, LLMConfig config) {
+        String content = generateResponse(prompt, config);
+        return new LLMResponse(content, RoutingDecision.direct(getProviderName(), getModelName(config)));
+    }
+
+    /**
+     * Genera una respuesta a partir de un prompt de texto único (sin bloque de sistema).
      *
      * @param prompt El prompt completo a enviar al modelo
      * @param config Configuración específica para esta llamada
      * @return La respuesta generada por el modelo
      * @throws LLMProviderException si hay error al comunicarse con el proveedor
      */
-    String generateResponse(String prompt, LLMConfig config);
+    default String generateResponse(String prompt, LLMConfig config) {
+        return generateResponse(LLMPrompt.of(prompt), config);
+    }
 
     /**
      * Genera una respuesta usando la configuración por defecto.
@@ -27,6 +59,33 @@ public interface LLMClient {
         return generateResponse(prompt, LLMConfig.defaultConfig());
     }
 
+    /**
+     * Genera una respuesta en streaming: emite fragmentos de texto conforme el modelo los produce.
+     * La concatenación de los fragmentos equivale a la respuesta completa.
+     *
+     * @param prompt Prompt con bloque de sistema (estático) y de usuario (dinámico)
+     * @param config Configuración específica para esta llamada
+     * @return Flux de fragmentos de la respuesta
+     * @throws LLMProviderException (como señal de error) si hay error al comunicarse con el proveedor
+     */
+    Flux<String> streamResponse(LLMPrompt prompt, LLMConfig config);
+
+    /**
+     * Igual que {@link #streamResponse(LLMPrompt, LLMConfig)}, notificando la decisión de ruteo
+     * cuando se conoce el proveedor que está respondiendo (antes del primer fragmento).
+     */
+    default Flux<String> streamResponse(LLMPrompt prompt, LLMConfig config, Consumer<RoutingDecision> onRouted) {
+        return streamResponse(prompt, config)
+            .doOnSubscribe(subscription -> onRouted.accept(RoutingDecision.direct(getProviderName(), getModelName(config))));
+    }
+
+    /**
+     * Genera una respuesta en streaming a partir de un prompt de texto único.
+     */
+    default Flux<String> streamResponse(String prompt, LLMConfig config) {
+        return streamResponse(LLMPrompt.of(prompt), config);
+    }
+
     /**
      * Verifica si el cliente está disponible y configurado correctamente.
      *
@@ -48,6 +107,16 @@ public interface LLMClient {
      */
     String getModelName();
 
+    /**
+     * Retorna el modelo que se usará con la configuración dada (según su nivel FAST/STRONG).
+     *
+     * @param config Configuración de la llamada
+     * @return Nombre del modelo
+     */
+    default String getModelName(LLMConfig config) {
+        return getModelName();
+    }
+
     /**
      * Estima el costo aproximado de una llamada basado en tokens.
      *
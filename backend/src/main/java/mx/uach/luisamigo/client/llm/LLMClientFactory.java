@@ -17,25 +17,37 @@ public class LLMClientFactory {
 
     private final LLMClient openAIClient;
     private final LLMClient anthropicClient;
+    private final RoutingLLMClient routingClient;
     private final LLMProperties llmProperties;
 
     public LLMClientFactory(
         @Qualifier("openaiLLMClient") LLMClient openAIClient,
         @Qualifier("anthropicLLMClient") LLMClient anthropicClient,
+        RoutingLLMClient routingClient,
         LLMProperties llmProperties
     ) {
         this.openAIClient = openAIClient;
         this.anthropicClient = anthropicClient;
+        this.routingClient = routingClient;
         this.llmProperties = llmProperties;
     }
 
     /**
-     * Retorna el cliente LLM según la configuración (luisamigo.llm.provider).
+     * Retorna el cliente LLM según la configuración.
+     * Con ruteo habilitado (luisamigo.llm.routing.enabled) retorna el cliente de ruteo, que usa
+     * luisamigo.llm.provider como preferido y hace failover al otro proveedor; si no, el proveedor fijo.
      *
      * @return Cliente LLM configurado
      * @throws IllegalStateException si el proveedor no está configurado o disponible
      */
     public LLMClient getClient() {
+        if (llmProperties.getRouting().isEnabled()) {
+            if (!routingClient.isAvailable()) {
+                throw new IllegalStateException("No LLM provider available. Check API key configuration.");
+            }
+            return routingClient;
+        }
+
         String provider = llmProperties.getProvider();
 
         if (provider == null || provider.isBlank()) {
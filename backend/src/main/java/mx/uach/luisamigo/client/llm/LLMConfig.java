@@ -6,11 +6,18 @@ package mx.uach.luisamigo.client.llm;
  */
 public class LLMConfig {
 
+    /**
+     * Nivel de modelo: FAST para consultas de alta confianza (modelo chico y rápido),
+     * STRONG para el resto (modelo configurado por defecto).
+     */
+    public enum ModelTier { FAST, STRONG }
+
     private final double temperature;
     private final int maxTokens;
     private final double topP;
     private final int timeoutSeconds;
     private final boolean stream;
+    private final ModelTier tier;
 
     private LLMConfig(Builder builder) {
         this.temperature = builder.temperature;
@@ -18,6 +25,7 @@ public class LLMConfig {
         this.topP = builder.topP;
         this.timeoutSeconds = builder.timeoutSeconds;
         this.stream = builder.stream;
+        this.tier = builder.tier;
     }
 
     public static LLMConfig defaultConfig() {
@@ -34,12 +42,30 @@ public class LLMConfig {
         return new Builder();
     }
 
+    /**
+     * Copia de esta configuración con otro nivel de modelo.
+     */
+    public LLMConfig withTier(ModelTier tier) {
+        return toBuilder().tier(tier).build();
+    }
+
+    private Builder toBuilder() {
+        return builder()
+            .temperature(temperature)
+            .maxTokens(maxTokens)
+            .topP(topP)
+            .timeoutSeconds(timeoutSeconds)
+            .stream(stream)
+            .tier(tier);
+    }
+
     // Getters
     public double getTemperature() { return temperature; }
     public int getMaxTokens() { return maxTokens; }
     public double getTopP() { return topP; }
     public int getTimeoutSeconds() { return timeoutSeconds; }
     public boolean isStream() { return stream; }
+    public ModelTier getTier() { return tier; }
 
     public static class Builder {
         private double temperature = 0.1;
@@ -47,6 +73,7 @@ public class LLMConfig {
         private double topP = 1.0;
         private int timeoutSeconds = 30;
         private boolean stream = false;
+        private ModelTier tier = ModelTier.STRONG;
 
         public Builder temperature(double temperature) {
             this.temperature = temperature;
@@ -73,6 +100,11 @@ public class LLMConfig {
             return this;
         }
 
+        public Builder tier(ModelTier tier) {
+            this.tier = tier;
+            return this;
+        }
+
         public LLMConfig build() {
             return new LLMConfig(this);
         }
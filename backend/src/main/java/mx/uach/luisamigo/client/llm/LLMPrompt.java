@@ -0,0 +1,39 @@
+package mx.uach.luisamigo.client.llm;
+
+/**
+ * Prompt separado en un bloque de sistema estático y un bloque de usuario dinámico.
+ *
+ * El bloque de sistema es idéntico entre requests y se envía primero, de modo que los
+ * proveedores puedan reutilizarlo como prefijo cacheado (cache_control en Anthropic,
+ * prefix caching automático en OpenAI).
+ */
+public record LLMPrompt(
+    String system,  // Instrucciones estáticas (puede ser null)
+    String user     // Contexto recuperado + pregunta
+) {
+
+    /**
+     * Prompt sin bloque de sistema.
+     */
+    public static LLMPrompt of(String user) {
+        return new LLMPrompt(null, user);
+    }
+
+    public boolean hasSystem() {
+        return system != null && !system.isBlank();
+    }
+
+    /**
+     * Longitud total en caracteres (para estimaciones de tokens).
+     */
+    public int length() {
+        return (hasSystem() ? system.length() : 0) + (user != null ? user.length() : 0);
+    }
+
+    /**
+     * Prompt como texto único, para proveedores o logs que no distinguen bloques.
+     */
+    public String toText() {
+        return hasSystem() ? system + "\n\n" + user : user;
+    }
+}
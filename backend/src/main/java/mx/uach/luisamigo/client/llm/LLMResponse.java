@@ -0,0 +1,18 @@
+package mx.uach.luisamigo.client.llm;
+
+/**
+ * Respuesta de un LLM junto con el proveedor/modelo que la generó y la decisión de ruteo.
+ */
+public record LLMResponse(
+    String content,
+    RoutingDecision routing
+) {
+
+    public String provider() {
+        return routing.provider();
+    }
+
+    public String model() {
+        return routing.model();
+    }
+}
@@ -0,0 +1,40 @@
+package mx.uach.luisamigo.client.llm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registra el uso de tokens reportado por los proveedores LLM, incluyendo lecturas y
+ * escrituras del cache de prefijo (luisamigo.llm.tokens con tags provider, model y type).
+ */
+@Component
+public class LLMUsageMetrics {
+
+    private static final String METRIC = "luisamigo.llm.tokens";
+
+    private final MeterRegistry meterRegistry;
+
+    public LLMUsageMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param inputTokens Tokens de entrada no cacheados
+     * @param outputTokens Tokens generados
+     * @param cacheReadTokens Tokens de entrada servidos desde el cache de prefijo
+     * @param cacheWriteTokens Tokens de entrada escritos al cache (solo Anthropic)
+     */
+    public void record(String provider, String model, long inputTokens, long outputTokens,
+                       long cacheReadTokens, long cacheWriteTokens) {
+        increment(provider, model, "input", inputTokens);
+        increment(provider, model, "output", outputTokens);
+        increment(provider, model, "cache_read", cacheReadTokens);
+        increment(provider, model, "cache_write", cacheWriteTokens);
+    }
+
+    private void increment(String provider, String model, String type, long tokens) {
+        if (tokens > 0) {
+            meterRegistry.counter(METRIC, "provider", provider, "model", model, "type", type).increment(tokens);
+        }
+    }
+}
@@ -1,17 +1,29 @@
 package mx.uach.luisamigo.client.llm;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mx.uach.luisamigo.client.hedging.RequestHedger;
+import mx.uach.luisamigo.client.ratelimit.ApiKeyPool;
+import mx.uach.luisamigo.client.ratelimit.ProviderRateLimiterRegistry;
 import mx.uach.luisamigo.config.LLMProperties;
 import mx.uach.luisamigo.exception.LLMProviderException;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -23,51 +35,85 @@ public class OpenAIClient implements LLMClient {
     private static final Logger log = LoggerFactory.getLogger(OpenAIClient.class);
     private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
     private static final String PROVIDER_NAME = "OpenAI";
+    private static final String STREAM_DONE = "[DONE]";
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+        new ParameterizedTypeReference<>() {};
 
     private final WebClient webClient;
     private final LLMProperties.OpenAIConfig config;
+    private final ApiKeyPool keyPool;
+    private final RequestHedger requestHedger;
+    private final ObjectMapper objectMapper;
+    private final LLMUsageMetrics usageMetrics;
+    private final TokenizerService tokenizerService;
 
-    public OpenAIClient(LLMProperties llmProperties, WebClient.Builder webClientBuilder) {
+    public OpenAIClient(
+        LLMProperties llmProperties,
+        WebClient.Builder webClientBuilder,
+        ProviderRateLimiterRegistry rateLimiterRegistry,
+        RequestHedger requestHedger,
+        ObjectMapper objectMapper,
+        LLMUsageMetrics usageMetrics,
+        TokenizerService tokenizerService
+    ) {
         this.config = llmProperties.getOpenai();
+        this.keyPool = rateLimiterRegistry.pool(ProviderRateLimiterRegistry.OPENAI_CHAT, config.getAllApiKeys());
+        this.requestHedger = requestHedger;
+        this.objectMapper = objectMapper;
+        this.usageMetrics = usageMetrics;
+        this.tokenizerService = tokenizerService;
         this.webClient = webClientBuilder
             .baseUrl(OPENAI_API_URL)
-            .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + config.getApiKey())
             .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
             .build();
     }
 
     @Override
-    public String generateResponse(String prompt, LLMConfig llmConfig) {
-        if (prompt == null || prompt.isBlank()) {
+    public String generateResponse(LLMPrompt prompt, LLMConfig llmConfig) {
+        if (prompt == null || prompt.user() == null || prompt.user().isBlank()) {
             throw new IllegalArgumentException("Prompt cannot be null or empty");
         }
 
         try {
-            log.debug("Calling OpenAI API with model: {}", config.getModel());
+            String model = getModelName(llmConfig);
+            log.debug("Calling OpenAI API with model: {}", model);
 
             OpenAIRequest request = new OpenAIRequest(
-                config.getModel(),
-                List.of(new Message("user", prompt)),
+                model,
+                buildMessages(prompt),
                 llmConfig.getTemperature(),
-                llmConfig.getMaxTokens()
+                llmConfig.getMaxTokens(),
+                false,
+                null
             );
 
-            OpenAIResponse response = webClient.post()
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(OpenAIResponse.class)
-                .timeout(Duration.ofSeconds(llmConfig.getTimeoutSeconds()))
-                .block();
+            // TPM cuenta prompt + completion máxima
+            int estimatedTokens = estimateTokens(prompt, model) + llmConfig.getMaxTokens();
+            OpenAIResponse response = requestHedger.execute(
+                ProviderRateLimiterRegistry.OPENAI_CHAT,
+                () -> keyPool.execute(
+                    estimatedTokens,
+                    apiKey -> webClient.post()
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                        .bodyValue(request)
+                        .retrieve()
+                        .toEntity(OpenAIResponse.class)
+                        .timeout(Duration.ofSeconds(llmConfig.getTimeoutSeconds()))
+                        .block()
+                )
+            ).getBody();
 
             if (response == null || response.choices() == null || response.choices().isEmpty()) {
                 throw new LLMProviderException("Empty response from OpenAI", PROVIDER_NAME);
             }
 
             String content = response.choices().get(0).message().content();
-            log.info("OpenAI API call successful. Tokens used: {} (prompt: {}, completion: {})",
+            log.info("OpenAI API call successful. Tokens used: {} (prompt: {}, cached: {}, completion: {})",
                 response.usage().totalTokens(),
                 response.usage().promptTokens(),
+                response.usage().cachedTokens(),
                 response.usage().completionTokens());
+            recordUsage(model, response.usage());
 
             return content;
 
@@ -88,9 +134,99 @@ public class OpenAIClient implements LLMClient {
         }
     }
 
+    @Override
+    public Flux<String> streamResponse(LLMPrompt prompt, LLMConfig llmConfig) {
+        if (prompt == null || prompt.user() == null || prompt.user().isBlank()) {
+            return Flux.error(new IllegalArgumentException("Prompt cannot be null or empty"));
+        }
+
+        String model = getModelName(llmConfig);
+        log.debug("Streaming from OpenAI API with model: {}", model);
+
+        OpenAIRequest request = new OpenAIRequest(
+            model,
+            buildMessages(prompt),
+            llmConfig.getTemperature(),
+            llmConfig.getMaxTokens(),
+            true,
+            new StreamOptions(true) // El último chunk trae el uso de tokens
+        );
+
+        int estimatedTokens = estimateTokens(prompt, model) + llmConfig.getMaxTokens();
+        return keyPool.stream(
+                estimatedTokens,
+                apiKey -> webClient.post()
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(request)
+                    .retrieve()
+                    .toEntityFlux(SSE_TYPE)
+            )
+            // Timeout de inactividad: aplica entre fragmentos, no a la generación completa
+            .timeout(Duration.ofSeconds(llmConfig.getTimeoutSeconds()))
+            .takeWhile(event -> !STREAM_DONE.equals(event.data()))
+            .mapNotNull(event -> extractDelta(model, event.data()))
+            .onErrorMap(e -> !(e instanceof LLMProviderException), this::toProviderException);
+    }
+
+    /**
+     * Extrae el fragmento de texto de un chunk SSE (choices[0].delta.content).
+     */
+    private String extractDelta(String model, String data) {
+        if (data == null || data.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode chunk = objectMapper.readTree(data);
+            JsonNode usage = chunk.path("usage");
+            if (usage.isObject()) {
+                recordUsage(model, objectMapper.treeToValue(usage, Usage.class));
+            }
+            JsonNode content = chunk.path("choices").path(0).path("delta").path("content");
+            return content.isTextual() && !content.asText().isEmpty() ? content.asText() : null;
+        } catch (JsonProcessingException e) {
+            throw new LLMProviderException("Malformed OpenAI stream chunk: " + e.getOriginalMessage(), PROVIDER_NAME, e);
+        }
+    }
+
+    /**
+     * El bloque de sistema va primero y sin cambios entre requests: OpenAI cachea automáticamente
+     * el prefijo común más largo (a partir de 1024 tokens).
+     */
+    private List<Message> buildMessages(LLMPrompt prompt) {
+        List<Message> messages = new ArrayList<>(2);
+        if (prompt.hasSystem()) {
+            messages.add(new Message("system", prompt.system()));
+        }
+        messages.add(new Message("user", prompt.user()));
+        return messages;
+    }
+
+    private int estimateTokens(LLMPrompt prompt, String model) {
+        return tokenizerService.countTokens(prompt.system(), model) + tokenizerService.countTokens(prompt.user(), model);
+    }
+
+    private void recordUsage(String model, Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        int cached = usage.cachedTokens();
+        usageMetrics.record(PROVIDER_NAME, model,
+            usage.promptTokens() - cached, usage.completionTokens(), cached, 0);
+    }
+
+    private LLMProviderException toProviderException(Throwable e) {
+        if (e instanceof WebClientResponseException responseError) {
+            log.error("OpenAI API stream error: {} - {}", responseError.getStatusCode(), responseError.getResponseBodyAsString());
+            return new LLMProviderException("OpenAI API error: " + e.getMessage(), PROVIDER_NAME, e);
+        }
+        log.error("Error streaming from OpenAI API", e);
+        return new LLMProviderException("Error streaming from OpenAI: " + e.getMessage(), PROVIDER_NAME, e);
+    }
+
     @Override
     public boolean isAvailable() {
-        return config.getApiKey() != null && !config.getApiKey().isBlank();
+        return !config.getAllApiKeys().isEmpty();
     }
 
     @Override
@@ -103,6 +239,11 @@ public class OpenAIClient implements LLMClient {
         return config.getModel();
     }
 
+    @Override
+    public String getModelName(LLMConfig llmConfig) {
+        return config.modelFor(llmConfig.getTier() == LLMConfig.ModelTier.FAST);
+    }
+
     @Override
     public double estimateCost(int estimatedTokens) {
         // Costos aproximados (varían según modelo)
@@ -121,9 +262,13 @@ public class OpenAIClient implements LLMClient {
         String model,
         List<Message> messages,
         double temperature,
-        @JsonProperty("max_tokens") int maxTokens
+        @JsonProperty("max_tokens") int maxTokens,
+        boolean stream,
+        @JsonProperty("stream_options") @JsonInclude(JsonInclude.Include.NON_NULL) StreamOptions streamOptions
     ) {}
 
+    private record StreamOptions(@JsonProperty("include_usage") boolean includeUsage) {}
+
     private record Message(String role, String content) {}
 
     private record OpenAIResponse(
@@ -140,6 +285,14 @@ public class OpenAIClient implements LLMClient {
     private record Usage(
         @JsonProperty("prompt_tokens") int promptTokens,
         @JsonProperty("completion_tokens") int completionTokens,
-        @JsonProperty("total_tokens") int totalTokens
-    ) {}
+        @JsonProperty("total_tokens") int totalTokens,
+        @JsonProperty("prompt_tokens_details") PromptTokensDetails promptTokensDetails
+    ) {
+        int cachedTokens() {
+            return promptTokensDetails != null && promptTokensDetails.cachedTokens() != null
+                ? promptTokensDetails.cachedTokens() : 0;
+        }
+    }
+
+    private record PromptTokensDetails(@JsonProperty("cached_tokens") Integer cachedTokens) {}
 }
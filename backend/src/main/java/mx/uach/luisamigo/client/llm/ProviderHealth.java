@@ -0,0 +1,104 @@
+package mx.uach.luisamigo.client.llm;
+
+import mx.uach.luisamigo.config.LLMProperties;
+
+/**
+ * Salud de un proveedor LLM: latencia y tasa de error como promedios móviles exponenciales (EWMA)
+ * más un circuit breaker CLOSED → OPEN → HALF_OPEN.
+ *
+ * En OPEN el proveedor no recibe tráfico hasta que pasa openDurationMs; entonces una sola llamada
+ * de prueba (half-open) decide si vuelve a CLOSED o a OPEN. Un probe que termina sin veredicto
+ * (error del request, cancelación) devuelve el circuito a OPEN para que haya otro probe después.
+ */
+class ProviderHealth {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String provider;
+    private final LLMProperties.RoutingConfig config;
+
+    private State state = State.CLOSED;
+    private double latencyMs = -1;  // -1 = sin muestras
+    private double errorRate;
+    private int consecutiveFailures;
+    private long openUntilNanos;
+
+    ProviderHealth(String provider, LLMProperties.RoutingConfig config) {
+        this.provider = provider;
+        this.config = config;
+    }
+
+    /**
+     * Si el circuito está abierto y ya pasó el tiempo de espera, lo pasa a HALF_OPEN
+     * y concede la única llamada de prueba.
+     */
+    synchronized boolean tryAcquireProbe(long nowNanos) {
+        if (state == State.OPEN && nowNanos - openUntilNanos >= 0) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cierra un probe que terminó sin registrar éxito ni falla: vuelve a OPEN con un nuevo
+     * tiempo de espera. No hace nada si el probe ya decidió el estado.
+     */
+    synchronized void releaseProbe(long nowNanos) {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openUntilNanos = nowNanos + config.getOpenDurationMs() * 1_000_000L;
+        }
+    }
+
+    synchronized void recordSuccess(long latencyMillis) {
+        double alpha = config.getEwmaAlpha();
+        latencyMs = latencyMs < 0 ? latencyMillis : alpha * latencyMillis + (1 - alpha) * latencyMs;
+        errorRate = (1 - alpha) * errorRate;
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    synchronized void recordFailure(long nowNanos) {
+        double alpha = config.getEwmaAlpha();
+        errorRate = alpha + (1 - alpha) * errorRate;
+        consecutiveFailures++;
+
+        if (state == State.HALF_OPEN
+            || consecutiveFailures >= config.getFailureThreshold()
+            || errorRate >= config.getErrorRateThreshold()) {
+            state = State.OPEN;
+            openUntilNanos = nowNanos + config.getOpenDurationMs() * 1_000_000L;
+        }
+    }
+
+    /**
+     * Score de ruteo (menor es mejor): latencia reciente penalizada por la tasa de error.
+     * Sin muestras de latencia el score es 0 para que el proveedor reciba tráfico y se mida.
+     */
+    synchronized double score(boolean preferred) {
+        double latency = Math.max(0, latencyMs);
+        double score = latency * (1 + config.getErrorPenalty() * errorRate);
+        return preferred ? score * config.getPreferredBias() : score;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    synchronized double latencyMs() {
+        return latencyMs;
+    }
+
+    synchronized double errorRate() {
+        return errorRate;
+    }
+
+    String provider() {
+        return provider;
+    }
+
+    LLMProperties.RoutingConfig config() {
+        return config;
+    }
+}
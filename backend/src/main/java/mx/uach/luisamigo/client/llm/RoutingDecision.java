@@ -0,0 +1,36 @@
+package mx.uach.luisamigo.client.llm;
+
+import java.util.List;
+
+/**
+ * Decisión de ruteo de una llamada LLM: qué proveedor respondió y por qué.
+ */
+public record RoutingDecision(
+    String provider,
+    String model,
+    Reason reason,
+    List<String> failedProviders  // Proveedores intentados antes (en orden), vacío si no hubo failover
+) {
+
+    public enum Reason {
+        DIRECT,     // Sin ruteo: proveedor fijo por configuración
+        PREFERRED,  // Proveedor configurado y sano
+        LATENCY,    // Otro proveedor sano con menor latencia reciente
+        PROBE,      // Prueba half-open de un proveedor que estaba fuera de servicio
+        FAILOVER    // El proveedor elegido falló y respondió el siguiente
+    }
+
+    public static RoutingDecision direct(String provider, String model) {
+        return new RoutingDecision(provider, model, Reason.DIRECT, List.of());
+    }
+
+    /**
+     * Descripción corta para la metadata de la respuesta (e.g., "failover from OpenAI").
+     */
+    public String describe() {
+        if (failedProviders.isEmpty()) {
+            return reason.name().toLowerCase();
+        }
+        return reason.name().toLowerCase() + " from " + String.join(", ", failedProviders);
+    }
+}
@@ -0,0 +1,319 @@
+package mx.uach.luisamigo.client.llm;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.LLMProperties;
+import mx.uach.luisamigo.exception.ProviderThrottledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Cliente LLM que rutea entre proveedores según su salud reciente.
+ *
+ * - Elige el proveedor sano con mejor score (latencia EWMA penalizada por errores), con
+ *   preferencia por el configurado en luisamigo.llm.provider
+ * - Ante timeout, error de conexión, 5xx o 429 hace failover al siguiente proveedor de forma
+ *   transparente (en streaming, solo si aún no se emitió ningún fragmento)
+ * - Los demás errores (4xx, prompt inválido) son del request, no del proveedor: se relanzan
+ *   sin afectar su salud ni reintentar con otro proveedor
+ * - Un proveedor con el circuito abierto se reincorpora mediante una llamada de prueba half-open:
+ *   la request del usuario, con su timeout normal (en streaming se acota el primer fragmento)
+ */
+@Component("routingLLMClient")
+public class RoutingLLMClient implements LLMClient {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutingLLMClient.class);
+    private static final String PROVIDER_NAME = "Routing";
+
+    private final Map<LLMClient, ProviderHealth> providers = new LinkedHashMap<>();
+    private final LLMProperties llmProperties;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public RoutingLLMClient(
+        @Qualifier("openaiLLMClient") LLMClient openAIClient,
+        @Qualifier("anthropicLLMClient") LLMClient anthropicClient,
+        LLMProperties llmProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this(List.of(openAIClient, anthropicClient), llmProperties, meterRegistry);
+    }
+
+    RoutingLLMClient(List<LLMClient> clients, LLMProperties llmProperties, MeterRegistry meterRegistry) {
+        this.llmProperties = llmProperties;
+        this.meterRegistry = meterRegistry;
+        for (LLMClient client : clients) {
+            ProviderHealth health = new ProviderHealth(client.getProviderName(), llmProperties.getRouting());
+            providers.put(client, health);
+            Gauge.builder("luisamigo.llm.circuit.state", health, h -> h.state().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .tag("provider", client.getProviderName())
+                .register(meterRegistry);
+            Gauge.builder("luisamigo.llm.latency.ewma", health, h -> Math.max(0, h.latencyMs()))
+                .tag("provider", client.getProviderName())
+                .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public String generateResponse(LLMPrompt prompt, LLMConfig config) {
+        return generate(prompt, config).content();
+    }
+
+    @Override
+    public LLMResponse generate(LLMPrompt prompt, LLMConfig config) {
+        validate(prompt);
+        List<Route> plan = plan();
+        List<String> failed = new ArrayList<>();
+        RuntimeException lastError = null;
+
+        for (Route route : plan) {
+            String provider = route.client().getProviderName();
+            long start = System.nanoTime();
+            try {
+                String content = route.client().generateResponse(prompt, config);
+                route.health().recordSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                count(provider, "success");
+                return new LLMResponse(content, decision(route, config, failed));
+
+            } catch (RuntimeException e) {
+                if (!isProviderFailure(e)) {
+                    count(provider, "rejected");
+                    throw e;
+                }
+                route.health().recordFailure(System.nanoTime());
+                count(provider, "failure");
+                failed.add(provider);
+                lastError = e;
+                log.warn("LLM provider {} failed after {} ms ({}); {}", provider,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e.getMessage(),
+                    failed.size() < plan.size() ? "failing over" : "no providers left");
+
+            } finally {
+                // Un probe rechazado o interrumpido no decide nada: el circuito vuelve a OPEN
+                if (route.probe()) {
+                    route.health().releaseProbe(System.nanoTime());
+                }
+            }
+        }
+
+        throw lastError;
+    }
+
+    @Override
+    public Flux<String> streamResponse(LLMPrompt prompt, LLMConfig config) {
+        return streamResponse(prompt, config, decision -> { });
+    }
+
+    @Override
+    public Flux<String> streamResponse(LLMPrompt prompt, LLMConfig config, Consumer<RoutingDecision> onRouted) {
+        return Flux.defer(() -> {
+            validate(prompt);
+            return streamFrom(plan(), 0, new ArrayList<>(), prompt, config, onRouted);
+        });
+    }
+
+    /**
+     * Intenta el stream con la ruta index; si falla antes del primer fragmento pasa a la siguiente.
+     * La latencia registrada es el tiempo al primer fragmento (o a completar, si no hubo ninguno).
+     */
+    private Flux<String> streamFrom(List<Route> plan, int index, List<String> failed,
+                                    LLMPrompt prompt, LLMConfig config, Consumer<RoutingDecision> onRouted) {
+        Route route = plan.get(index);
+        String provider = route.client().getProviderName();
+        AtomicBoolean emitted = new AtomicBoolean();
+        long start = System.nanoTime();
+
+        Flux<String> stream = route.client().streamResponse(prompt, config);
+        if (route.probe()) {
+            Duration firstToken = Duration.ofSeconds(route.health().config().getProbeFirstTokenTimeoutSeconds());
+            stream = stream.timeout(Mono.delay(firstToken), token -> Mono.never());
+        }
+
+        return stream
+            .doOnSubscribe(subscription -> onRouted.accept(decision(route, config, failed)))
+            .doOnNext(token -> {
+                if (emitted.compareAndSet(false, true)) {
+                    route.health().recordSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            })
+            .doOnComplete(() -> {
+                if (emitted.compareAndSet(false, true)) {
+                    route.health().recordSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+                count(provider, "success");
+            })
+            // Cancelado o rechazado antes de decidir: el probe no deja el circuito en HALF_OPEN
+            .doFinally(signal -> {
+                if (route.probe()) {
+                    route.health().releaseProbe(System.nanoTime());
+                }
+            })
+            .onErrorResume(e -> {
+                if (!isProviderFailure(e)) {
+                    count(provider, "rejected");
+                    return Flux.error(e);
+                }
+                route.health().recordFailure(System.nanoTime());
+                count(provider, "failure");
+                if (emitted.get() || index + 1 >= plan.size()) {
+                    return Flux.error(e);
+                }
+                log.warn("LLM provider {} failed before first token ({}); failing over", provider, e.getMessage());
+                failed.add(provider);
+                return streamFrom(plan, index + 1, failed, prompt, config, onRouted);
+            });
+    }
+
+    /**
+     * Orden de intentos: primero un probe half-open si corresponde, luego los proveedores con
+     * circuito cerrado por score. Si todos están abiertos se intentan igual (mejor que fallar sin intentar).
+     */
+    List<Route> plan() {
+        long now = System.nanoTime();
+        String preferred = llmProperties.getProvider();
+
+        List<Route> closed = new ArrayList<>();
+        List<Route> open = new ArrayList<>();
+        Route probe = null;
+
+        for (Map.Entry<LLMClient, ProviderHealth> entry : providers.entrySet()) {
+            LLMClient client = entry.getKey();
+            if (!client.isAvailable()) {
+                continue;
+            }
+            ProviderHealth health = entry.getValue();
+            boolean isPreferred = client.getProviderName().equalsIgnoreCase(preferred);
+
+            if (health.state() == ProviderHealth.State.CLOSED) {
+                closed.add(new Route(client, health, isPreferred, false));
+            } else if (probe == null && health.tryAcquireProbe(now)) {
+                probe = new Route(client, health, isPreferred, true);
+            } else {
+                open.add(new Route(client, health, isPreferred, false));
+            }
+        }
+
+        // Empates (e.g., sin muestras aún) se resuelven a favor del preferido
+        closed.sort(Comparator.comparingDouble((Route route) -> route.health().score(route.preferred()))
+            .thenComparing(route -> !route.preferred()));
+
+        List<Route> plan = new ArrayList<>(closed.size() + 1);
+        if (probe != null) {
+            plan.add(probe);
+        }
+        plan.addAll(closed);
+        if (plan.isEmpty()) {
+            plan.addAll(open);
+        }
+        if (plan.isEmpty()) {
+            throw new IllegalStateException("No LLM provider available. Check API key configuration.");
+        }
+        return plan;
+    }
+
+    private RoutingDecision decision(Route route, LLMConfig config, List<String> failed) {
+        RoutingDecision.Reason reason;
+        if (!failed.isEmpty()) {
+            reason = RoutingDecision.Reason.FAILOVER;
+        } else if (route.probe()) {
+            reason = RoutingDecision.Reason.PROBE;
+        } else if (route.preferred()) {
+            reason = RoutingDecision.Reason.PREFERRED;
+        } else {
+            reason = RoutingDecision.Reason.LATENCY;
+        }
+        return new RoutingDecision(route.client().getProviderName(), route.client().getModelName(config),
+            reason, List.copyOf(failed));
+    }
+
+    /**
+     * Si el error indica un proveedor degradado (timeout, conexión, 5xx, 429 o cuota local agotada).
+     * Recorre la cadena de causas porque los clientes envuelven el error en LLMProviderException.
+     */
+    static boolean isProviderFailure(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof WebClientResponseException response) {
+                return response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429;
+            }
+            if (e instanceof IllegalArgumentException) {
+                return false;
+            }
+            if (e instanceof TimeoutException || e instanceof WebClientRequestException
+                || e instanceof IOException || e instanceof ProviderThrottledException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void validate(LLMPrompt prompt) {
+        if (prompt == null || prompt.user() == null || prompt.user().isBlank()) {
+            throw new IllegalArgumentException("Prompt cannot be null or empty");
+        }
+    }
+
+    private void count(String provider, String outcome) {
+        meterRegistry.counter("luisamigo.llm.routing.calls", "provider", provider, "outcome", outcome).increment();
+    }
+
+    ProviderHealth health(String provider) {
+        return providers.entrySet().stream()
+            .filter(entry -> entry.getKey().getProviderName().equals(provider))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElseThrow();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return providers.keySet().stream().anyMatch(LLMClient::isAvailable);
+    }
+
+    @Override
+    public String getProviderName() {
+        return PROVIDER_NAME;
+    }
+
+    @Override
+    public String getModelName() {
+        return preferredClient().getModelName();
+    }
+
+    @Override
+    public double estimateCost(int estimatedTokens) {
+        return preferredClient().estimateCost(estimatedTokens);
+    }
+
+    private LLMClient preferredClient() {
+        String preferred = llmProperties.getProvider();
+        return providers.keySet().stream()
+            .filter(client -> client.getProviderName().equalsIgnoreCase(preferred))
+            .findFirst()
+            .orElse(providers.keySet().iterator().next());
+    }
+
+    /**
+     * Un intento dentro del plan de ruteo.
+     */
+    record Route(LLMClient client, ProviderHealth health, boolean preferred, boolean probe) {}
+}
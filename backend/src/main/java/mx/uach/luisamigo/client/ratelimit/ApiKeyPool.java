@@ -0,0 +1,220 @@
+package mx.uach.luisamigo.client.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RateLimitProperties;
+import mx.uach.luisamigo.exception.ProviderThrottledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Pool de API keys de un proveedor, cada una con su propio rate limiter.
+ *
+ * Cada request se asigna a la key con más capacidad libre (slots de concurrencia y cuota
+ * RPM/TPM restante reportada por el proveedor). Una key que recibe 429 o agota su cuota queda
+ * pausada hasta su reset y no se elige mientras haya otra disponible, de modo que el throughput
+ * agregado escala con el número de keys.
+ */
+public class ApiKeyPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyPool.class);
+
+    private final String provider;
+    private final boolean enabled;
+    private final RateLimitProperties.Limits limits;
+    private final List<KeySlot> slots;
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    public ApiKeyPool(String provider, List<String> apiKeys, boolean enabled,
+                      RateLimitProperties.Limits limits, MeterRegistry meterRegistry) {
+        this.provider = provider;
+        this.enabled = enabled;
+        this.limits = limits;
+        this.slots = new ArrayList<>(apiKeys.size());
+        for (int i = 0; i < apiKeys.size(); i++) {
+            String label = "key-" + i;
+            ProviderRateLimiter limiter = new ProviderRateLimiter(provider, label, limits, meterRegistry);
+            limiter.registerMetrics(meterRegistry);
+            slots.add(new KeySlot(
+                apiKeys.get(i),
+                limiter,
+                meterRegistry.counter("luisamigo.provider.key.ejected", "provider", provider, "key", label)
+            ));
+        }
+    }
+
+    /**
+     * Ejecuta una llamada HTTP con la key menos cargada, reintentando ante 429/5xx.
+     * Tras un 429 el reintento va a otra key si hay alguna disponible.
+     *
+     * @param estimatedTokens Tokens estimados que consumirá la llamada (para el bucket TPM)
+     * @param call Llamada bloqueante que recibe la API key a usar
+     * @return Respuesta del proveedor
+     * @throws IllegalStateException si no hay keys configuradas
+     * @throws ProviderThrottledException si ninguna key obtiene permiso antes del deadline
+     * @throws WebClientResponseException si el proveedor responde error y no quedan reintentos
+     */
+    public <T> ResponseEntity<T> execute(int estimatedTokens, Function<String, ResponseEntity<T>> call) {
+        if (slots.isEmpty()) {
+            throw new IllegalStateException("No API keys configured for " + provider);
+        }
+        if (!enabled) {
+            return call.apply(slots.get(Math.floorMod(nextStart.getAndIncrement(), slots.size())).apiKey());
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limits.getMaxWaitMs());
+
+        for (int attempt = 0; ; attempt++) {
+            KeySlot slot = select();
+            ProviderRateLimiter limiter = slot.limiter();
+            ProviderRateLimiter.Permit permit = limiter.acquire(estimatedTokens, deadline);
+            try {
+                ResponseEntity<T> response = call.apply(slot.apiKey());
+                limiter.release(permit, response.getStatusCode().value(), response.getHeaders());
+                return response;
+
+            } catch (WebClientResponseException e) {
+                int status = e.getStatusCode().value();
+                limiter.release(permit, status, e.getHeaders());
+
+                if (!ProviderRateLimiter.isRetryable(status) || attempt >= limits.getMaxRetries()) {
+                    throw e;
+                }
+
+                if (status == ProviderRateLimiter.STATUS_TOO_MANY_REQUESTS) {
+                    // El limiter de la key quedó pausado; select() la evita hasta su reset
+                    slot.ejected().increment();
+                    log.warn("{} {} throttled (429); retrying on next available key (attempt {}/{})",
+                        provider, limiter.getKey(), attempt + 1, limits.getMaxRetries());
+                } else {
+                    long sleepNanos = limiter.backoffNanos(attempt);
+                    if (System.nanoTime() + sleepNanos > deadline) {
+                        throw e;
+                    }
+                    limiter.sleepUninterruptibly(sleepNanos);
+                    log.warn("{} responded {}; retrying (attempt {}/{})",
+                        provider, status, attempt + 1, limits.getMaxRetries());
+                }
+
+            } catch (RuntimeException e) {
+                limiter.release(permit, 0, null);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una llamada en streaming con la key menos cargada. El permiso se mantiene mientras
+     * el stream está abierto y se libera al completar, fallar o cancelar.
+     * No reintenta: parte de la respuesta ya pudo haberse emitido al consumidor.
+     * Al completar se sincronizan los buckets con los headers de cuota de la respuesta.
+     *
+     * @param estimatedTokens Tokens estimados que consumirá la llamada (para el bucket TPM)
+     * @param call Llamada reactiva que recibe la API key a usar (p. ej. retrieve().toEntityFlux(...))
+     * @return Stream del proveedor
+     */
+    public <T> Flux<T> stream(int estimatedTokens, Function<String, Mono<ResponseEntity<Flux<T>>>> call) {
+        return Flux.defer(() -> {
+            if (slots.isEmpty()) {
+                return Flux.error(new IllegalStateException("No API keys configured for " + provider));
+            }
+            if (!enabled) {
+                return call.apply(slots.get(Math.floorMod(nextStart.getAndIncrement(), slots.size())).apiKey())
+                    .flatMapMany(ResponseEntity::getBody);
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limits.getMaxWaitMs());
+            KeySlot slot = select();
+            ProviderRateLimiter limiter = slot.limiter();
+            ProviderRateLimiter.Permit permit = limiter.acquire(estimatedTokens, deadline);
+            AtomicBoolean released = new AtomicBoolean();
+            AtomicReference<ResponseEntity<Flux<T>>> head = new AtomicReference<>();
+
+            return call.apply(slot.apiKey())
+                .flatMapMany(response -> {
+                    head.set(response);
+                    return response.getBody();
+                })
+                .doOnComplete(() -> {
+                    if (released.compareAndSet(false, true)) {
+                        ResponseEntity<Flux<T>> response = head.get();
+                        int status = response != null ? response.getStatusCode().value() : 200;
+                        HttpHeaders headers = response != null ? response.getHeaders() : null;
+                        limiter.release(permit, status, headers);
+                    }
+                })
+                .doOnError(e -> {
+                    if (released.compareAndSet(false, true)) {
+                        if (e instanceof WebClientResponseException responseError) {
+                            limiter.release(permit, responseError.getStatusCode().value(), responseError.getHeaders());
+                        } else {
+                            limiter.release(permit, 0, null);
+                        }
+                    }
+                })
+                .doFinally(signal -> {
+                    if (released.compareAndSet(false, true)) {
+                        limiter.release(permit, 0, null); // Cancelado por el consumidor
+                    }
+                });
+        }).subscribeOn(Schedulers.boundedElastic()); // acquire() puede bloquear
+    }
+
+    /**
+     * Elige la key con mayor capacidad libre; si todas están pausadas, la que se reanuda primero.
+     * El recorrido empieza en una posición rotatoria para repartir los empates.
+     */
+    KeySlot select() {
+        int size = slots.size();
+        if (size == 1) {
+            return slots.get(0);
+        }
+
+        int start = Math.floorMod(nextStart.getAndIncrement(), size);
+        KeySlot best = null;
+        double bestHeadroom = -1;
+        KeySlot soonest = null;
+        long soonestResume = Long.MAX_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            KeySlot slot = slots.get((start + i) % size);
+            double headroom = slot.limiter().headroom();
+            if (headroom > bestHeadroom) {
+                best = slot;
+                bestHeadroom = headroom;
+            }
+            if (headroom < 0) {
+                long resume = slot.limiter().pausedUntilNanos();
+                if (soonest == null || resume - soonestResume < 0) {
+                    soonest = slot;
+                    soonestResume = resume;
+                }
+            }
+        }
+        return best != null ? best : soonest;
+    }
+
+    public String getProvider() { return provider; }
+
+    public int size() { return slots.size(); }
+
+    List<ProviderRateLimiter> limiters() {
+        return slots.stream().map(KeySlot::limiter).toList();
+    }
+
+    record KeySlot(String apiKey, ProviderRateLimiter limiter, Counter ejected) {}
+}
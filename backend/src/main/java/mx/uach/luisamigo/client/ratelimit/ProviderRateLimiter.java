@@ -0,0 +1,334 @@
+package mx.uach.luisamigo.client.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RateLimitProperties;
+import mx.uach.luisamigo.exception.ProviderThrottledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rate limiter adaptativo para un proveedor externo.
+ *
+ * Combina:
+ * - Token buckets para requests por minuto (RPM) y tokens por minuto (TPM)
+ * - Límite de concurrencia AIMD: +1/límite por éxito, ×decreaseFactor ante 429/5xx
+ * - Pausas dictadas por el proveedor (Retry-After y headers de cuota restante)
+ * - Espera en cola con deadline: si no hay permiso a tiempo se lanza ProviderThrottledException
+ *
+ * Es thread-safe; las llamadas bloqueadas esperan en una Condition en lugar de fallar.
+ * ApiKeyPool crea uno por key y ejecuta las llamadas (con sus reintentos) bajo acquire/release.
+ */
+public class ProviderRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderRateLimiter.class);
+    static final int STATUS_TOO_MANY_REQUESTS = 429;
+
+    private final String provider;
+    private final String key;
+    private final RateLimitProperties.Limits limits;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition stateChanged = lock.newCondition();
+
+    private final TokenBucket requestBucket;
+    private final TokenBucket tokenBucket;
+    private double concurrencyLimit;
+    private int inFlight;
+    private long pausedUntilNanos;
+
+    private final Counter throttledCounter;
+    private final Counter serverErrorCounter;
+    private final Counter timeoutCounter;
+
+    /**
+     * @param key Etiqueta de la API key cuya cuota controla este limiter (nunca la key en sí)
+     */
+    public ProviderRateLimiter(String provider, String key, RateLimitProperties.Limits limits,
+                               MeterRegistry meterRegistry) {
+        this.provider = provider;
+        this.key = key;
+        this.limits = limits;
+        this.requestBucket = new TokenBucket(limits.getRequestsPerMinute());
+        this.tokenBucket = new TokenBucket(limits.getTokensPerMinute());
+        this.concurrencyLimit = Math.max(limits.getMinConcurrency(),
+            Math.min(limits.getInitialConcurrency(), limits.getMaxConcurrency()));
+
+        this.throttledCounter = meterRegistry.counter("luisamigo.provider.throttled",
+            "provider", provider, "key", key, "reason", "429");
+        this.serverErrorCounter = meterRegistry.counter("luisamigo.provider.throttled",
+            "provider", provider, "key", key, "reason", "5xx");
+        this.timeoutCounter = meterRegistry.counter("luisamigo.provider.throttled",
+            "provider", provider, "key", key, "reason", "queue_timeout");
+    }
+
+    /**
+     * Registra los gauges de concurrencia; se llama una vez ya construido el limiter.
+     */
+    void registerMetrics(MeterRegistry meterRegistry) {
+        Gauge.builder("luisamigo.provider.concurrency.limit", this, ProviderRateLimiter::getConcurrencyLimit)
+            .tag("provider", provider).tag("key", key)
+            .register(meterRegistry);
+        Gauge.builder("luisamigo.provider.inflight", this, ProviderRateLimiter::getInFlight)
+            .tag("provider", provider).tag("key", key)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Bloquea hasta obtener un permiso (slot de concurrencia + cuota RPM/TPM) o hasta el deadline.
+     */
+    Permit acquire(int estimatedTokens, long deadlineNanos) {
+        double tokens = Math.max(0, estimatedTokens);
+
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                requestBucket.refill(now);
+                tokenBucket.refill(now);
+
+                long waitNanos;
+                if (now < pausedUntilNanos) {
+                    waitNanos = pausedUntilNanos - now;
+                } else if (inFlight >= (int) concurrencyLimit) {
+                    waitNanos = deadlineNanos - now; // Esperar a que se libere un slot
+                } else {
+                    waitNanos = Math.max(requestBucket.nanosUntil(1), tokenBucket.nanosUntil(tokens));
+                }
+
+                if (waitNanos <= 0) {
+                    requestBucket.consume(1);
+                    tokenBucket.consume(tokens);
+                    inFlight++;
+                    return new Permit(tokens);
+                }
+
+                long remaining = deadlineNanos - now;
+                if (remaining <= 0 || (now < pausedUntilNanos && pausedUntilNanos > deadlineNanos)) {
+                    timeoutCounter.increment();
+                    throw new ProviderThrottledException(
+                        "Timed out waiting for " + provider + " rate limit (in flight: " + inFlight +
+                        ", concurrency limit: " + (int) concurrencyLimit + ")",
+                        provider
+                    );
+                }
+
+                try {
+                    stateChanged.awaitNanos(Math.min(waitNanos, remaining));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ProviderThrottledException("Interrupted while waiting for " + provider + " rate limit", provider);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Libera el permiso y ajusta límites según el resultado.
+     *
+     * @param statusCode Código HTTP (0 si la llamada falló sin respuesta, e.g. timeout)
+     * @param headers Headers de la respuesta (pueden ser null)
+     */
+    void release(Permit permit, int statusCode, HttpHeaders headers) {
+        RateLimitHeaders quota = RateLimitHeaders.from(headers);
+
+        lock.lock();
+        try {
+            inFlight--;
+            long now = System.nanoTime();
+
+            if (statusCode == STATUS_TOO_MANY_REQUESTS) {
+                throttledCounter.increment();
+                decreaseConcurrency();
+                Duration pause = quota.retryAfter() != null ? quota.retryAfter() : Duration.ofMillis(limits.getBackoffMs());
+                pauseUntil(now + pause.toNanos());
+            } else if (statusCode >= 500) {
+                serverErrorCounter.increment();
+                decreaseConcurrency();
+            } else if (statusCode >= 200 && statusCode < 300) {
+                // Incremento aditivo: +1 slot cada "límite" éxitos
+                concurrencyLimit = Math.min(limits.getMaxConcurrency(), concurrencyLimit + 1.0 / concurrencyLimit);
+            }
+
+            applyQuota(quota, now);
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sincroniza los buckets locales con la cuota restante reportada por el proveedor.
+     */
+    private void applyQuota(RateLimitHeaders quota, long now) {
+        if (quota.remainingRequests() != null) {
+            requestBucket.clampTo(quota.remainingRequests());
+            if (quota.remainingRequests() == 0 && quota.requestsReset() != null) {
+                pauseUntil(now + quota.requestsReset().toNanos());
+            }
+        }
+        if (quota.remainingTokens() != null) {
+            tokenBucket.clampTo(quota.remainingTokens());
+            if (quota.remainingTokens() == 0 && quota.tokensReset() != null) {
+                pauseUntil(now + quota.tokensReset().toNanos());
+            }
+        }
+    }
+
+    private void decreaseConcurrency() {
+        double previous = concurrencyLimit;
+        concurrencyLimit = Math.max(limits.getMinConcurrency(), concurrencyLimit * limits.getDecreaseFactor());
+        if ((int) previous != (int) concurrencyLimit) {
+            log.info("{} concurrency limit decreased: {} -> {}", provider, (int) previous, (int) concurrencyLimit);
+        }
+    }
+
+    private void pauseUntil(long nanos) {
+        pausedUntilNanos = Math.max(pausedUntilNanos, nanos);
+    }
+
+    /**
+     * Capacidad libre de esta key en [0, 1]: fracción de slots de concurrencia libres por la
+     * cuota RPM/TPM restante. Retorna -1 si la key está pausada (expulsada) por el proveedor.
+     */
+    double headroom() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (now < pausedUntilNanos) {
+                return -1;
+            }
+            requestBucket.refill(now);
+            tokenBucket.refill(now);
+            double freeSlots = Math.max(0, 1.0 - inFlight / Math.max(1.0, Math.floor(concurrencyLimit)));
+            return freeSlots * Math.min(requestBucket.fraction(), tokenBucket.fraction());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Instante (System.nanoTime) en que termina la pausa actual; en el pasado si no está pausada.
+     */
+    long pausedUntilNanos() {
+        lock.lock();
+        try {
+            return pausedUntilNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static boolean isRetryable(int status) {
+        return status == STATUS_TOO_MANY_REQUESTS || status >= 500;
+    }
+
+    /**
+     * Backoff exponencial con jitter para reintentos ante 5xx.
+     */
+    long backoffNanos(int attempt) {
+        long backoffMs = limits.getBackoffMs() * (1L << attempt);
+        long jitterMs = ThreadLocalRandom.current().nextLong(limits.getBackoffMs() + 1);
+        return TimeUnit.MILLISECONDS.toNanos(backoffMs + jitterMs);
+    }
+
+    void sleepUninterruptibly(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProviderThrottledException("Interrupted during " + provider + " retry backoff", provider);
+        }
+    }
+
+    public String getProvider() { return provider; }
+
+    public String getKey() { return key; }
+
+    public double getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Permiso obtenido del limiter; se debe liberar exactamente una vez.
+     */
+    record Permit(double tokens) {}
+
+    /**
+     * Token bucket con recarga continua. Capacidad por minuto; 0 = sin límite.
+     * No es thread-safe por sí mismo: se usa bajo el lock del limiter.
+     */
+    private static class TokenBucket {
+        private final double capacity;
+        private final double refillPerNano;
+        private double available;
+        private long lastRefillNanos;
+
+        TokenBucket(int perMinute) {
+            this.capacity = perMinute;
+            this.refillPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.available = perMinute;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        boolean isUnlimited() {
+            return capacity <= 0;
+        }
+
+        void refill(long now) {
+            if (isUnlimited()) {
+                return;
+            }
+            available = Math.min(capacity, available + (now - lastRefillNanos) * refillPerNano);
+            lastRefillNanos = now;
+        }
+
+        long nanosUntil(double amount) {
+            if (isUnlimited()) {
+                return 0;
+            }
+            double needed = Math.min(amount, capacity) - available;
+            return needed <= 0 ? 0 : (long) Math.ceil(needed / refillPerNano);
+        }
+
+        double fraction() {
+            return isUnlimited() ? 1.0 : Math.max(0, available) / capacity;
+        }
+
+        void consume(double amount) {
+            if (!isUnlimited()) {
+                available -= Math.min(amount, capacity);
+            }
+        }
+
+        void clampTo(long remaining) {
+            if (!isUnlimited()) {
+                available = Math.min(available, remaining);
+            }
+        }
+    }
+}
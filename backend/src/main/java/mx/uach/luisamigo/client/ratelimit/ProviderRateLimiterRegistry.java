@@ -0,0 +1,44 @@
+package mx.uach.luisamigo.client.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RateLimitProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de rate limiters por proveedor.
+ * Todos los clientes que comparten un proveedor (y por lo tanto una cuota) usan la misma instancia;
+ * con varias API keys cada key tiene su propio limiter dentro de un ApiKeyPool.
+ */
+@Component
+public class ProviderRateLimiterRegistry {
+
+    public static final String OPENAI_CHAT = "openai-chat";
+    public static final String OPENAI_EMBEDDING = "openai-embedding";
+    public static final String ANTHROPIC = "anthropic";
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ApiKeyPool> pools = new ConcurrentHashMap<>();
+
+    public ProviderRateLimiterRegistry(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Retorna el pool de API keys del proveedor, creándolo la primera vez.
+     * Los límites configurados para el proveedor se aplican a cada key.
+     *
+     * @param provider Clave del proveedor (e.g., "openai-chat")
+     * @param apiKeys Keys configuradas para el proveedor
+     * @return Pool compartido del proveedor
+     */
+    public ApiKeyPool pool(String provider, List<String> apiKeys) {
+        return pools.computeIfAbsent(provider, key ->
+            new ApiKeyPool(key, apiKeys, properties.isEnabled(), properties.forProvider(key), meterRegistry));
+    }
+}
@@ -0,0 +1,130 @@
+package mx.uach.luisamigo.client.ratelimit;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estado de cuota reportado por el proveedor en los headers de respuesta.
+ * Soporta los formatos de OpenAI (x-ratelimit-*) y Anthropic (anthropic-ratelimit-*),
+ * además del header estándar Retry-After. Los campos son null si el proveedor no los envía.
+ */
+public record RateLimitHeaders(
+    Long remainingRequests,
+    Long remainingTokens,
+    Duration requestsReset,
+    Duration tokensReset,
+    Duration retryAfter
+) {
+
+    // OpenAI expresa los resets como "1s", "6m0s", "20ms", "1h2m3.5s"
+    private static final Pattern GO_DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    public static RateLimitHeaders empty() {
+        return new RateLimitHeaders(null, null, null, null, null);
+    }
+
+    /**
+     * Extrae el estado de cuota de los headers de una respuesta (exitosa o de error).
+     */
+    public static RateLimitHeaders from(HttpHeaders headers) {
+        if (headers == null || headers.isEmpty()) {
+            return empty();
+        }
+
+        Long remainingRequests = parseLong(first(headers,
+            "x-ratelimit-remaining-requests", "anthropic-ratelimit-requests-remaining"));
+        Long remainingTokens = parseLong(first(headers,
+            "x-ratelimit-remaining-tokens", "anthropic-ratelimit-tokens-remaining"));
+        Duration requestsReset = parseReset(first(headers,
+            "x-ratelimit-reset-requests", "anthropic-ratelimit-requests-reset"));
+        Duration tokensReset = parseReset(first(headers,
+            "x-ratelimit-reset-tokens", "anthropic-ratelimit-tokens-reset"));
+        Duration retryAfter = parseRetryAfter(headers.getFirst(HttpHeaders.RETRY_AFTER));
+
+        return new RateLimitHeaders(remainingRequests, remainingTokens, requestsReset, tokensReset, retryAfter);
+    }
+
+    private static String first(HttpHeaders headers, String... names) {
+        for (String name : names) {
+            String value = headers.getFirst(name);
+            if (value != null && !value.isBlank()) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Retry-After puede ser segundos (e.g., "20") o una fecha HTTP.
+     */
+    static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1000));
+        } catch (NumberFormatException ignored) {
+            // No es numérico, intentar como fecha HTTP
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return positive(Duration.between(Instant.now(), date.toInstant()));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reset de cuota: duración estilo Go (OpenAI) o timestamp RFC 3339 (Anthropic).
+     */
+    static Duration parseReset(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        if (Character.isDigit(value.charAt(0)) && value.contains("T")) {
+            try {
+                return positive(Duration.between(Instant.now(), Instant.parse(value)));
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+
+        Matcher matcher = GO_DURATION.matcher(value);
+        double millis = 0;
+        boolean matched = false;
+        while (matcher.find()) {
+            matched = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+        }
+        return matched ? Duration.ofMillis((long) millis) : null;
+    }
+
+    private static Duration positive(Duration duration) {
+        return duration.isNegative() ? Duration.ZERO : duration;
+    }
+}
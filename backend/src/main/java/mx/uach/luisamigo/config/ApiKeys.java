@@ -0,0 +1,31 @@
+package mx.uach.luisamigo.config;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Utilidad para combinar la API key individual (api-key) con la lista de keys (api-keys).
+ */
+final class ApiKeys {
+
+    private ApiKeys() {}
+
+    /**
+     * Retorna las keys configuradas sin duplicados ni vacías, conservando el orden.
+     */
+    static List<String> merge(String apiKey, List<String> apiKeys) {
+        Set<String> merged = new LinkedHashSet<>();
+        add(merged, apiKey);
+        if (apiKeys != null) {
+            apiKeys.forEach(key -> add(merged, key));
+        }
+        return List.copyOf(merged);
+    }
+
+    private static void add(Set<String> keys, String key) {
+        if (key != null && !key.isBlank()) {
+            keys.add(key.trim());
+        }
+    }
+}
@@ -3,6 +3,9 @@ package mx.uach.luisamigo.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Propiedades de configuración para Embedding providers.
  * Mapeadas desde application.yml (luisamigo.embedding.*).
@@ -11,8 +14,9 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "luisamigo.embedding")
 public class EmbeddingProperties {
 
-    private String provider; // "openai"
+    private String provider; // "openai" o "local"
     private OpenAIConfig openai = new OpenAIConfig();
+    private LocalConfig local = new LocalConfig();
 
     // Getters and Setters
     public String getProvider() { return provider; }
@@ -21,19 +25,54 @@ public class EmbeddingProperties {
     public OpenAIConfig getOpenai() { return openai; }
     public void setOpenai(OpenAIConfig openai) { this.openai = openai; }
 
+    public LocalConfig getLocal() { return local; }
+    public void setLocal(LocalConfig local) { this.local = local; }
+
     // Nested configuration class
     public static class OpenAIConfig {
         private String apiKey;
+        private List<String> apiKeys = new ArrayList<>(); // keys adicionales para repartir la cuota
         private String model = "text-embedding-3-small";
         private int dimensions = 1536;
 
         public String getApiKey() { return apiKey; }
         public void setApiKey(String apiKey) { this.apiKey = apiKey; }
 
+        public List<String> getApiKeys() { return apiKeys; }
+        public void setApiKeys(List<String> apiKeys) { this.apiKeys = apiKeys; }
+
+        /**
+         * Todas las keys configuradas (api-key + api-keys), sin duplicados.
+         */
+        public List<String> getAllApiKeys() { return ApiKeys.merge(apiKey, apiKeys); }
+
         public String getModel() { return model; }
         public void setModel(String model) { this.model = model; }
 
         public int getDimensions() { return dimensions; }
         public void setDimensions(int dimensions) { this.dimensions = dimensions; }
     }
+
+    /**
+     * Configuración del proveedor local (hashing de n-gramas de caracteres).
+     * No requiere red ni API key; pensado para pruebas de carga y benchmarks.
+     */
+    public static class LocalConfig {
+        private String model = "local-hash-ngram";
+        private int dimensions = 1536;
+        private int minNgram = 3;
+        private int maxNgram = 5;
+
+        public String getModel() { return model; }
+        public void setModel(String model) { this.model = model; }
+
+        public int getDimensions() { return dimensions; }
+        public void setDimensions(int dimensions) { this.dimensions = dimensions; }
+
+        public int getMinNgram() { return minNgram; }
+        public void setMinNgram(int minNgram) { this.minNgram = minNgram; }
+
+        public int getMaxNgram() { return maxNgram; }
+        public void setMaxNgram(int maxNgram) { this.maxNgram = maxNgram; }
+    }
 }
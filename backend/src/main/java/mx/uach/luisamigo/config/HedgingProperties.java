@@ -0,0 +1,57 @@
+package mx.uach.luisamigo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Propiedades de hedging de requests a proveedores.
+ * Mapeadas desde application.yml (luisamigo.hedging.*).
+ */
+@Component
+@ConfigurationProperties(prefix = "luisamigo.hedging")
+public class HedgingProperties {
+
+    private boolean enabled = false;
+    private Set<String> clients = new HashSet<>(); // vacío = todos los clientes
+    private double percentile = 0.95;
+    private long minDelayMs = 50;
+    private double maxExtraRatio = 0.05;
+    private double maxCredits = 10;
+    private int windowSize = 256;
+    private int minSamples = 50;
+
+    /**
+     * Indica si el hedging aplica a un cliente específico.
+     */
+    public boolean appliesTo(String client) {
+        return enabled && (clients.isEmpty() || clients.contains(client));
+    }
+
+    // Getters and Setters
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Set<String> getClients() { return clients; }
+    public void setClients(Set<String> clients) { this.clients = clients; }
+
+    public double getPercentile() { return percentile; }
+    public void setPercentile(double percentile) { this.percentile = percentile; }
+
+    public long getMinDelayMs() { return minDelayMs; }
+    public void setMinDelayMs(long minDelayMs) { this.minDelayMs = minDelayMs; }
+
+    public double getMaxExtraRatio() { return maxExtraRatio; }
+    public void setMaxExtraRatio(double maxExtraRatio) { this.maxExtraRatio = maxExtraRatio; }
+
+    public double getMaxCredits() { return maxCredits; }
+    public void setMaxCredits(double maxCredits) { this.maxCredits = maxCredits; }
+
+    public int getWindowSize() { return windowSize; }
+    public void setWindowSize(int windowSize) { this.windowSize = windowSize; }
+
+    public int getMinSamples() { return minSamples; }
+    public void setMinSamples(int minSamples) { this.minSamples = minSamples; }
+}
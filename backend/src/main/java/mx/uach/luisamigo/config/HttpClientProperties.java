@@ -0,0 +1,115 @@
+package mx.uach.luisamigo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Propiedades del cliente HTTP compartido (Reactor Netty) usado por todos los WebClient.
+ * Mapeadas desde application.yml (luisamigo.http.*).
+ */
+@Component
+@ConfigurationProperties(prefix = "luisamigo.http")
+public class HttpClientProperties {
+
+    private int connectTimeoutMs = 5000;
+    private int readTimeoutMs = 120000;
+    private int writeTimeoutMs = 30000;
+    private long responseTimeoutMs = 120000;
+    private boolean http2 = true;
+    private boolean compression = true;
+    private boolean keepAlive = true;
+    private int dnsCacheMinTtlSeconds = 30;
+    private int dnsCacheMaxTtlSeconds = 300;
+    private boolean metrics = true;
+    private PoolConfig pool = new PoolConfig();
+    private Map<String, PoolConfig> hosts = new HashMap<>(); // host -> pool específico
+    private WarmupConfig warmup = new WarmupConfig();
+
+    // Getters and Setters
+    public int getConnectTimeoutMs() { return connectTimeoutMs; }
+    public void setConnectTimeoutMs(int connectTimeoutMs) { this.connectTimeoutMs = connectTimeoutMs; }
+
+    public int getReadTimeoutMs() { return readTimeoutMs; }
+    public void setReadTimeoutMs(int readTimeoutMs) { this.readTimeoutMs = readTimeoutMs; }
+
+    public int getWriteTimeoutMs() { return writeTimeoutMs; }
+    public void setWriteTimeoutMs(int writeTimeoutMs) { this.writeTimeoutMs = writeTimeoutMs; }
+
+    public long getResponseTimeoutMs() { return responseTimeoutMs; }
+    public void setResponseTimeoutMs(long responseTimeoutMs) { this.responseTimeoutMs = responseTimeoutMs; }
+
+    public boolean isHttp2() { return http2; }
+    public void setHttp2(boolean http2) { this.http2 = http2; }
+
+    public boolean isCompression() { return compression; }
+    public void setCompression(boolean compression) { this.compression = compression; }
+
+    public boolean isKeepAlive() { return keepAlive; }
+    public void setKeepAlive(boolean keepAlive) { this.keepAlive = keepAlive; }
+
+    public int getDnsCacheMinTtlSeconds() { return dnsCacheMinTtlSeconds; }
+    public void setDnsCacheMinTtlSeconds(int dnsCacheMinTtlSeconds) { this.dnsCacheMinTtlSeconds = dnsCacheMinTtlSeconds; }
+
+    public int getDnsCacheMaxTtlSeconds() { return dnsCacheMaxTtlSeconds; }
+    public void setDnsCacheMaxTtlSeconds(int dnsCacheMaxTtlSeconds) { this.dnsCacheMaxTtlSeconds = dnsCacheMaxTtlSeconds; }
+
+    public boolean isMetrics() { return metrics; }
+    public void setMetrics(boolean metrics) { this.metrics = metrics; }
+
+    public PoolConfig getPool() { return pool; }
+    public void setPool(PoolConfig pool) { this.pool = pool; }
+
+    public Map<String, PoolConfig> getHosts() { return hosts; }
+    public void setHosts(Map<String, PoolConfig> hosts) { this.hosts = hosts; }
+
+    public WarmupConfig getWarmup() { return warmup; }
+    public void setWarmup(WarmupConfig warmup) { this.warmup = warmup; }
+
+    // Nested configuration classes
+    public static class PoolConfig {
+        private int maxConnections = 50;
+        private int pendingAcquireMaxCount = 500;
+        private long pendingAcquireTimeoutMs = 10000;
+        private long maxIdleTimeMs = 30000;
+        private long maxLifeTimeMs = 300000;
+        private long evictionIntervalMs = 15000;
+
+        public int getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+
+        public int getPendingAcquireMaxCount() { return pendingAcquireMaxCount; }
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) { this.pendingAcquireMaxCount = pendingAcquireMaxCount; }
+
+        public long getPendingAcquireTimeoutMs() { return pendingAcquireTimeoutMs; }
+        public void setPendingAcquireTimeoutMs(long pendingAcquireTimeoutMs) { this.pendingAcquireTimeoutMs = pendingAcquireTimeoutMs; }
+
+        public long getMaxIdleTimeMs() { return maxIdleTimeMs; }
+        public void setMaxIdleTimeMs(long maxIdleTimeMs) { this.maxIdleTimeMs = maxIdleTimeMs; }
+
+        public long getMaxLifeTimeMs() { return maxLifeTimeMs; }
+        public void setMaxLifeTimeMs(long maxLifeTimeMs) { this.maxLifeTimeMs = maxLifeTimeMs; }
+
+        public long getEvictionIntervalMs() { return evictionIntervalMs; }
+        public void setEvictionIntervalMs(long evictionIntervalMs) { this.evictionIntervalMs = evictionIntervalMs; }
+    }
+
+    public static class WarmupConfig {
+        private boolean enabled = false;
+        private int connectionsPerHost = 2;
+        private List<String> urls = new ArrayList<>();
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getConnectionsPerHost() { return connectionsPerHost; }
+        public void setConnectionsPerHost(int connectionsPerHost) { this.connectionsPerHost = connectionsPerHost; }
+
+        public List<String> getUrls() { return urls; }
+        public void setUrls(List<String> urls) { this.urls = urls; }
+    }
+}
@@ -0,0 +1,77 @@
+package mx.uach.luisamigo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+
+/**
+ * Pre-calienta el cliente HTTP compartido al arrancar: inicializa event loops, resolver DNS
+ * y abre conexiones TLS hacia los proveedores para que las primeras requests no paguen el handshake.
+ * Es asíncrono y tolerante a fallos; un proveedor inaccesible no afecta el arranque.
+ * Desactivado por defecto (http.warmup.enabled): cada arranque enviaría HEADs a todas las URLs.
+ */
+@Component
+public class HttpClientWarmup {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpClientWarmup.class);
+    private static final Duration WARMUP_TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient httpClient;
+    private final HttpClientProperties properties;
+
+    public HttpClientWarmup(HttpClient httpClient, HttpClientProperties properties) {
+        this.httpClient = httpClient;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmup() {
+        HttpClientProperties.WarmupConfig config = properties.getWarmup();
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        preconnectAll(config).subscribe(
+                connections -> log.info("HTTP client warmed up: {} connections to {} hosts",
+                    connections, config.getUrls().size()),
+                error -> log.warn("HTTP client warmup failed: {}", error.getMessage())
+            );
+    }
+
+    /**
+     * Inicializa el cliente y abre connections-per-host conexiones hacia cada URL.
+     *
+     * @return Número de conexiones abiertas (las fallidas no cuentan)
+     */
+    Mono<Long> preconnectAll(HttpClientProperties.WarmupConfig config) {
+        return httpClient.warmup()
+            .thenMany(Flux.fromIterable(config.getUrls()))
+            .flatMap(url -> Flux.range(0, Math.max(1, config.getConnectionsPerHost()))
+                .flatMap(i -> preconnect(url)))
+            .count();
+    }
+
+    /**
+     * HEAD ligero para abrir (y devolver al pool) una conexión; cualquier status sirve.
+     */
+    private Flux<Integer> preconnect(String url) {
+        return httpClient.head()
+            .uri(url)
+            .response()
+            .map(response -> response.status().code())
+            .timeout(WARMUP_TIMEOUT)
+            .doOnNext(status -> log.debug("Warmup connection to {} ready (HTTP {})", url, status))
+            .onErrorResume(e -> {
+                log.debug("Warmup connection to {} failed: {}", url, e.getMessage());
+                return Mono.empty();
+            })
+            .flux();
+    }
+}
@@ -3,6 +3,9 @@ package mx.uach.luisamigo.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Propiedades de configuración para LLM providers.
  * Mapeadas desde application.yml (luisamigo.llm.*).
@@ -14,6 +17,7 @@ public class LLMProperties {
     private String provider; // "openai" o "anthropic"
     private OpenAIConfig openai = new OpenAIConfig();
     private AnthropicConfig anthropic = new AnthropicConfig();
+    private RoutingConfig routing = new RoutingConfig();
 
     // Getters and Setters
     public String getProvider() { return provider; }
@@ -25,19 +29,42 @@ public class LLMProperties {
     public AnthropicConfig getAnthropic() { return anthropic; }
     public void setAnthropic(AnthropicConfig anthropic) { this.anthropic = anthropic; }
 
+    public RoutingConfig getRouting() { return routing; }
+    public void setRouting(RoutingConfig routing) { this.routing = routing; }
+
     // Nested configuration classes
     public static class OpenAIConfig {
         private String apiKey;
+        private List<String> apiKeys = new ArrayList<>(); // keys adicionales para repartir la cuota
         private String model = "gpt-4";
+        private String fastModel = "gpt-4o-mini"; // consultas de alta confianza (luisamigo.rag.model-routing)
         private double temperature = 0.1;
         private int maxTokens = 2000;
 
         public String getApiKey() { return apiKey; }
         public void setApiKey(String apiKey) { this.apiKey = apiKey; }
 
+        public List<String> getApiKeys() { return apiKeys; }
+        public void setApiKeys(List<String> apiKeys) { this.apiKeys = apiKeys; }
+
+        /**
+         * Todas las keys configuradas (api-key + api-keys), sin duplicados.
+         */
+        public List<String> getAllApiKeys() { return ApiKeys.merge(apiKey, apiKeys); }
+
         public String getModel() { return model; }
         public void setModel(String model) { this.model = model; }
 
+        public String getFastModel() { return fastModel; }
+        public void setFastModel(String fastModel) { this.fastModel = fastModel; }
+
+        /**
+         * Modelo para el nivel pedido; sin fast-model configurado se usa el modelo principal.
+         */
+        public String modelFor(boolean fast) {
+            return fast && fastModel != null && !fastModel.isBlank() ? fastModel : model;
+        }
+
         public double getTemperature() { return temperature; }
         public void setTemperature(double temperature) { this.temperature = temperature; }
 
@@ -47,20 +74,79 @@ public class LLMProperties {
 
     public static class AnthropicConfig {
         private String apiKey;
+        private List<String> apiKeys = new ArrayList<>(); // keys adicionales para repartir la cuota
         private String model = "claude-3-sonnet-20240229";
+        private String fastModel = "claude-3-haiku-20240307"; // consultas de alta confianza (luisamigo.rag.model-routing)
         private double temperature = 0.1;
         private int maxTokens = 2000;
 
         public String getApiKey() { return apiKey; }
         public void setApiKey(String apiKey) { this.apiKey = apiKey; }
 
+        public List<String> getApiKeys() { return apiKeys; }
+        public void setApiKeys(List<String> apiKeys) { this.apiKeys = apiKeys; }
+
+        /**
+         * Todas las keys configuradas (api-key + api-keys), sin duplicados.
+         */
+        public List<String> getAllApiKeys() { return ApiKeys.merge(apiKey, apiKeys); }
+
         public String getModel() { return model; }
         public void setModel(String model) { this.model = model; }
 
+        public String getFastModel() { return fastModel; }
+        public void setFastModel(String fastModel) { this.fastModel = fastModel; }
+
+        /**
+         * Modelo para el nivel pedido; sin fast-model configurado se usa el modelo principal.
+         */
+        public String modelFor(boolean fast) {
+            return fast && fastModel != null && !fastModel.isBlank() ? fastModel : model;
+        }
+
         public double getTemperature() { return temperature; }
         public void setTemperature(double temperature) { this.temperature = temperature; }
 
         public int getMaxTokens() { return maxTokens; }
         public void setMaxTokens(int maxTokens) { this.maxTokens = maxTokens; }
     }
+
+    /**
+     * Ruteo entre proveedores: el configurado en "provider" es el preferido, pero se usa otro
+     * si está más sano (menor latencia/errores) y se hace failover ante timeouts o errores.
+     */
+    public static class RoutingConfig {
+        private boolean enabled = true;
+        private double ewmaAlpha = 0.2;             // Peso de la muestra más reciente
+        private double preferredBias = 0.75;        // Descuento al score del proveedor preferido
+        private double errorPenalty = 4.0;          // Cuánto penaliza la tasa de error al score
+        private int failureThreshold = 3;           // Fallos consecutivos para abrir el circuito
+        private double errorRateThreshold = 0.5;    // Tasa de error (EWMA) para abrir el circuito
+        private long openDurationMs = 30000;        // Tiempo fuera de servicio antes del probe
+        private int probeFirstTokenTimeoutSeconds = 10; // Espera máxima al primer fragmento de un probe en streaming
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getEwmaAlpha() { return ewmaAlpha; }
+        public void setEwmaAlpha(double ewmaAlpha) { this.ewmaAlpha = ewmaAlpha; }
+
+        public double getPreferredBias() { return preferredBias; }
+        public void setPreferredBias(double preferredBias) { this.preferredBias = preferredBias; }
+
+        public double getErrorPenalty() { return errorPenalty; }
+        public void setErrorPenalty(double errorPenalty) { this.errorPenalty = errorPenalty; }
+
+        public int getFailureThreshold() { return failureThreshold; }
+        public void setFailureThreshold(int failureThreshold) { this.failureThreshold = failureThreshold; }
+
+        public double getErrorRateThreshold() { return errorRateThreshold; }
+        public void setErrorRateThreshold(double errorRateThreshold) { this.errorRateThreshold = errorRateThreshold; }
+
+        public long getOpenDurationMs() { return openDurationMs; }
+        public void setOpenDurationMs(long openDurationMs) { this.openDurationMs = openDurationMs; }
+
+        public int getProbeFirstTokenTimeoutSeconds() { return probeFirstTokenTimeoutSeconds; }
+        public void setProbeFirstTokenTimeoutSeconds(int probeFirstTokenTimeoutSeconds) { this.probeFirstTokenTimeoutSeconds = probeFirstTokenTimeoutSeconds; }
+    }
 }
@@ -0,0 +1,452 @@
+package mx.uach.luisamigo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Propiedades del pipeline RAG.
+ * Mapeadas desde application.yml (luisamigo.rag.*).
+ */
+@Component
+@ConfigurationProperties(prefix = "luisamigo.rag")
+public class RagProperties {
+
+    private int defaultTopK = 5;
+    private int maxTopK = 20;
+    private double minSimilarityScore = 0.7;
+    private AdaptiveRetrievalConfig adaptiveRetrieval = new AdaptiveRetrievalConfig();
+    private DirectMatchConfig directMatch = new DirectMatchConfig();
+    private FaqIndexConfig faqIndex = new FaqIndexConfig();
+    private SemanticCacheConfig semanticCache = new SemanticCacheConfig();
+    private RetrievalCacheConfig retrievalCache = new RetrievalCacheConfig();
+    private CitationLookupConfig citationLookup = new CitationLookupConfig();
+    private MateriaClassifierConfig materiaClassifier = new MateriaClassifierConfig();
+    private CorpusChangeBusConfig corpusChangeBus = new CorpusChangeBusConfig();
+    private CoalescingConfig coalescing = new CoalescingConfig();
+    private PipelineConfig pipeline = new PipelineConfig();
+    private ValidationConfig validation = new ValidationConfig();
+    private ModelRoutingConfig modelRouting = new ModelRoutingConfig();
+    private ContextPackingConfig contextPacking = new ContextPackingConfig();
+    private SectionedGenerationConfig sectionedGeneration = new SectionedGenerationConfig();
+    private InsufficientContextConfig insufficientContext = new InsufficientContextConfig();
+
+    // Getters and Setters
+    public int getDefaultTopK() { return defaultTopK; }
+    public void setDefaultTopK(int defaultTopK) { this.defaultTopK = defaultTopK; }
+
+    public int getMaxTopK() { return maxTopK; }
+    public void setMaxTopK(int maxTopK) { this.maxTopK = maxTopK; }
+
+    public double getMinSimilarityScore() { return minSimilarityScore; }
+    public void setMinSimilarityScore(double minSimilarityScore) { this.minSimilarityScore = minSimilarityScore; }
+
+    public AdaptiveRetrievalConfig getAdaptiveRetrieval() { return adaptiveRetrieval; }
+    public void setAdaptiveRetrieval(AdaptiveRetrievalConfig adaptiveRetrieval) { this.adaptiveRetrieval = adaptiveRetrieval; }
+
+    public DirectMatchConfig getDirectMatch() { return directMatch; }
+    public void setDirectMatch(DirectMatchConfig directMatch) { this.directMatch = directMatch; }
+
+    public FaqIndexConfig getFaqIndex() { return faqIndex; }
+    public void setFaqIndex(FaqIndexConfig faqIndex) { this.faqIndex = faqIndex; }
+
+    public SemanticCacheConfig getSemanticCache() { return semanticCache; }
+    public void setSemanticCache(SemanticCacheConfig semanticCache) { this.semanticCache = semanticCache; }
+
+    public RetrievalCacheConfig getRetrievalCache() { return retrievalCache; }
+    public void setRetrievalCache(RetrievalCacheConfig retrievalCache) { this.retrievalCache = retrievalCache; }
+
+    public CitationLookupConfig getCitationLookup() { return citationLookup; }
+    public void setCitationLookup(CitationLookupConfig citationLookup) { this.citationLookup = citationLookup; }
+
+    public MateriaClassifierConfig getMateriaClassifier() { return materiaClassifier; }
+    public void setMateriaClassifier(MateriaClassifierConfig materiaClassifier) { this.materiaClassifier = materiaClassifier; }
+
+    public CorpusChangeBusConfig getCorpusChangeBus() { return corpusChangeBus; }
+    public void setCorpusChangeBus(CorpusChangeBusConfig corpusChangeBus) { this.corpusChangeBus = corpusChangeBus; }
+
+    public CoalescingConfig getCoalescing() { return coalescing; }
+    public void setCoalescing(CoalescingConfig coalescing) { this.coalescing = coalescing; }
+
+    public PipelineConfig getPipeline() { return pipeline; }
+    public void setPipeline(PipelineConfig pipeline) { this.pipeline = pipeline; }
+
+    public ValidationConfig getValidation() { return validation; }
+    public void setValidation(ValidationConfig validation) { this.validation = validation; }
+
+    public ModelRoutingConfig getModelRouting() { return modelRouting; }
+    public void setModelRouting(ModelRoutingConfig modelRouting) { this.modelRouting = modelRouting; }
+
+    public ContextPackingConfig getContextPacking() { return contextPacking; }
+    public void setContextPacking(ContextPackingConfig contextPacking) { this.contextPacking = contextPacking; }
+
+    public SectionedGenerationConfig getSectionedGeneration() { return sectionedGeneration; }
+    public void setSectionedGeneration(SectionedGenerationConfig sectionedGeneration) { this.sectionedGeneration = sectionedGeneration; }
+
+    public InsufficientContextConfig getInsufficientContext() { return insufficientContext; }
+    public void setInsufficientContext(InsufficientContextConfig insufficientContext) { this.insufficientContext = insufficientContext; }
+
+    /**
+     * Recuperación adaptativa: se piden hasta maxTopK documentos y se corta en minSimilarityScore
+     * o en la mayor caída de similitud entre documentos consecutivos. Con enabled=false se usan
+     * topK (o defaultTopK) documentos sin cortes, como antes.
+     */
+    public static class AdaptiveRetrievalConfig {
+        private boolean enabled = true;
+        private int minDocuments = 1;       // nunca cortar por caída antes de este número
+        private double minDropOff = 0.08;   // caída mínima de similitud para considerarla un corte
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getMinDocuments() { return minDocuments; }
+        public void setMinDocuments(int minDocuments) { this.minDocuments = minDocuments; }
+
+        public double getMinDropOff() { return minDropOff; }
+        public void setMinDropOff(double minDropOff) { this.minDropOff = minDropOff; }
+    }
+
+    /**
+     * Respuesta directa: si la pregunta del estudiante coincide casi textualmente con la pregunta de
+     * un par del dataset (embedding solo de la pregunta), se devuelve la respuesta almacenada sin
+     * llamar al LLM. Requiere que la ingesta genere los embeddings de pregunta (se hace con enabled=true).
+     */
+    public static class DirectMatchConfig {
+        private boolean enabled = false;
+        private double minSimilarity = 0.95;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getMinSimilarity() { return minSimilarity; }
+        public void setMinSimilarity(double minSimilarity) { this.minSimilarity = minSimilarity; }
+    }
+
+    /**
+     * Índice en memoria de preguntas exactas (forma canónica + materia), consultado antes de generar
+     * el embedding. Se siembra con las preguntas del dataset y guarda las respuestas generadas.
+     */
+    public static class FaqIndexConfig {
+        private boolean enabled = true;
+        private boolean seedFromDataset = true;
+        private boolean cacheGeneratedAnswers = true;
+        private int maxGeneratedEntries = 5000;           // LRU de respuestas generadas
+        private long seedRetryIntervalSeconds = 30;       // reintento si la siembra falló (e.g., BD caída)
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public boolean isSeedFromDataset() { return seedFromDataset; }
+        public void setSeedFromDataset(boolean seedFromDataset) { this.seedFromDataset = seedFromDataset; }
+
+        public boolean isCacheGeneratedAnswers() { return cacheGeneratedAnswers; }
+        public void setCacheGeneratedAnswers(boolean cacheGeneratedAnswers) { this.cacheGeneratedAnswers = cacheGeneratedAnswers; }
+
+        public int getMaxGeneratedEntries() { return maxGeneratedEntries; }
+        public void setMaxGeneratedEntries(int maxGeneratedEntries) { this.maxGeneratedEntries = maxGeneratedEntries; }
+
+        public long getSeedRetryIntervalSeconds() { return seedRetryIntervalSeconds; }
+        public void setSeedRetryIntervalSeconds(long seedRetryIntervalSeconds) { this.seedRetryIntervalSeconds = seedRetryIntervalSeconds; }
+    }
+
+    /**
+     * Cache semántico de respuestas compartido entre nodos (tabla semantic_answer_cache): una
+     * paráfrasis de una pregunta ya respondida, con los mismos filtros, reutiliza la respuesta.
+     * Se vacía al cambiar el corpus.
+     */
+    public static class SemanticCacheConfig {
+        private boolean enabled = false;
+        private double minSimilarity = 0.97;    // estricto: solo paráfrasis muy cercanas
+        private long ttlHours = 24;
+        private long purgeIntervalSeconds = 300;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getMinSimilarity() { return minSimilarity; }
+        public void setMinSimilarity(double minSimilarity) { this.minSimilarity = minSimilarity; }
+
+        public long getTtlHours() { return ttlHours; }
+        public void setTtlHours(long ttlHours) { this.ttlHours = ttlHours; }
+
+        public long getPurgeIntervalSeconds() { return purgeIntervalSeconds; }
+        public void setPurgeIntervalSeconds(long purgeIntervalSeconds) { this.purgeIntervalSeconds = purgeIntervalSeconds; }
+    }
+
+    /**
+     * Cache en memoria de búsquedas vectoriales: la misma consulta (o una casi idéntica) con los
+     * mismos filtros y topK reutiliza los ids del resultado en lugar de repetir la búsqueda.
+     */
+    public static class RetrievalCacheConfig {
+        private boolean enabled = true;
+        private int maxEntries = 2000;
+        private int hashBits = 16;              // hiperplanos del SimHash de la consulta
+        private double minSimilarity = 0.995;   // coseno exacto contra la consulta guardada
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+
+        public int getHashBits() { return hashBits; }
+        public void setHashBits(int hashBits) { this.hashBits = hashBits; }
+
+        public double getMinSimilarity() { return minSimilarity; }
+        public void setMinSimilarity(double minSimilarity) { this.minSimilarity = minSimilarity; }
+    }
+
+    /**
+     * Búsqueda directa por cita: si la pregunta menciona un artículo de una ley ("artículo 123
+     * constitucional"), los documentos que lo citan (tabla legal_citations) van antes de los
+     * resultados vectoriales.
+     */
+    public static class CitationLookupConfig {
+        private boolean enabled = true;
+        private int maxDocuments = 3;       // total de documentos fijos por pregunta
+        private int maxCitations = 3;       // citas de la pregunta que se buscan
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getMaxDocuments() { return maxDocuments; }
+        public void setMaxDocuments(int maxDocuments) { this.maxDocuments = maxDocuments; }
+
+        public int getMaxCitations() { return maxCitations; }
+        public void setMaxCitations(int maxCitations) { this.maxCitations = maxCitations; }
+    }
+
+    /**
+     * Clasificador de materia por centroide: promedio de los embeddings de cada materia, recalculado
+     * al cambiar el corpus. Con confianza suficiente (similitud y ventaja sobre la segunda materia)
+     * etiqueta los documentos en la ingesta y restringe la búsqueda de preguntas sin materia.
+     */
+    public static class MateriaClassifierConfig {
+        private boolean enabled = true;
+        private boolean filterQueries = false;      // materia automática en SearchFilters
+        private boolean classifyDocuments = true;   // en lugar de las palabras clave de la ingesta
+        private double minSimilarity = 0.45;
+        private double minMargin = 0.08;            // ventaja mínima sobre la segunda materia
+        private int minDocuments = 20;              // documentos mínimos para tener centroide
+        private List<String> excludedMaterias = new ArrayList<>(List.of("General"));
+        private long refreshDelaySeconds = 5;       // agrupa cambios seguidos del corpus
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public boolean isFilterQueries() { return filterQueries; }
+        public void setFilterQueries(boolean filterQueries) { this.filterQueries = filterQueries; }
+
+        public boolean isClassifyDocuments() { return classifyDocuments; }
+        public void setClassifyDocuments(boolean classifyDocuments) { this.classifyDocuments = classifyDocuments; }
+
+        public double getMinSimilarity() { return minSimilarity; }
+        public void setMinSimilarity(double minSimilarity) { this.minSimilarity = minSimilarity; }
+
+        public double getMinMargin() { return minMargin; }
+        public void setMinMargin(double minMargin) { this.minMargin = minMargin; }
+
+        public int getMinDocuments() { return minDocuments; }
+        public void setMinDocuments(int minDocuments) { this.minDocuments = minDocuments; }
+
+        public List<String> getExcludedMaterias() { return excludedMaterias; }
+        public void setExcludedMaterias(List<String> excludedMaterias) { this.excludedMaterias = excludedMaterias; }
+
+        public long getRefreshDelaySeconds() { return refreshDelaySeconds; }
+        public void setRefreshDelaySeconds(long refreshDelaySeconds) { this.refreshDelaySeconds = refreshDelaySeconds; }
+    }
+
+    /**
+     * Propagación de cambios del corpus entre nodos con LISTEN/NOTIFY de PostgreSQL, para que
+     * cada nodo invalide sus caches locales.
+     */
+    public static class CorpusChangeBusConfig {
+        private boolean enabled = true;
+        private String channel = "luisamigo_corpus_changes";
+        private long pollTimeoutMillis = 1000;
+        private long reconnectDelaySeconds = 5;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public String getChannel() { return channel; }
+        public void setChannel(String channel) { this.channel = channel; }
+
+        public long getPollTimeoutMillis() { return pollTimeoutMillis; }
+        public void setPollTimeoutMillis(long pollTimeoutMillis) { this.pollTimeoutMillis = pollTimeoutMillis; }
+
+        public long getReconnectDelaySeconds() { return reconnectDelaySeconds; }
+        public void setReconnectDelaySeconds(long reconnectDelaySeconds) { this.reconnectDelaySeconds = reconnectDelaySeconds; }
+    }
+
+    /**
+     * Coalescencia de requests idénticos en curso: el primero hace el trabajo y los duplicados
+     * concurrentes reciben su misma respuesta (o se unen a su stream).
+     */
+    public static class CoalescingConfig {
+        private boolean enabled = true;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    }
+
+    /**
+     * Deadlines del pipeline por etapa. El deadline efectivo de cada etapa es el menor entre su
+     * tope y lo que queda del presupuesto total del request.
+     */
+    public static class PipelineConfig {
+        private long totalBudgetMs = 90000;
+        private long embedMs = 10000;
+        private long lookupMs = 2000;       // respuesta directa y cache semántico: si vencen, cuentan como miss
+        private long retrieveMs = 10000;
+        private long generateMs = 85000;
+        private long validateMs = 5000;     // validación inline; si vence, la respuesta sale sin validar
+
+        public long getTotalBudgetMs() { return totalBudgetMs; }
+        public void setTotalBudgetMs(long totalBudgetMs) { this.totalBudgetMs = totalBudgetMs; }
+
+        public long getEmbedMs() { return embedMs; }
+        public void setEmbedMs(long embedMs) { this.embedMs = embedMs; }
+
+        public long getLookupMs() { return lookupMs; }
+        public void setLookupMs(long lookupMs) { this.lookupMs = lookupMs; }
+
+        public long getRetrieveMs() { return retrieveMs; }
+        public void setRetrieveMs(long retrieveMs) { this.retrieveMs = retrieveMs; }
+
+        public long getGenerateMs() { return generateMs; }
+        public void setGenerateMs(long generateMs) { this.generateMs = generateMs; }
+
+        public long getValidateMs() { return validateMs; }
+        public void setValidateMs(long validateMs) { this.validateMs = validateMs; }
+    }
+
+    /**
+     * Validación anti-alucinación de las respuestas generadas.
+     * INLINE valida antes de responder; ASYNC valida todas en segundo plano; SAMPLED valida en
+     * segundo plano una fracción (sampleRate) de las respuestas.
+     */
+    public static class ValidationConfig {
+        public enum Mode { INLINE, ASYNC, SAMPLED }
+
+        private Mode mode = Mode.ASYNC;
+        private double sampleRate = 0.2;
+        private int workers = 2;
+        private int queueCapacity = 500;        // si se llena, la validación se descarta (nunca bloquea)
+        private boolean persistWarnings = true; // tabla answer_validation_warnings
+
+        public Mode getMode() { return mode; }
+        public void setMode(Mode mode) { this.mode = mode; }
+
+        public double getSampleRate() { return sampleRate; }
+        public void setSampleRate(double sampleRate) { this.sampleRate = sampleRate; }
+
+        public int getWorkers() { return workers; }
+        public void setWorkers(int workers) { this.workers = workers; }
+
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+        public boolean isPersistWarnings() { return persistWarnings; }
+        public void setPersistWarnings(boolean persistWarnings) { this.persistWarnings = persistWarnings; }
+    }
+
+    /**
+     * Ruteo por confianza de recuperación: las consultas casi textuales a un par pregunta/respuesta
+     * del dataset van al modelo rápido; el resto escala al modelo fuerte.
+     */
+    public static class ModelRoutingConfig {
+        private boolean enabled = false;
+        private double minTopSimilarity = 0.88; // similitud coseno del mejor documento
+        private double minScoreGap = 0.05;      // ventaja del mejor sobre el segundo
+        private int maxContextChars = 6000;     // contexto largo = pregunta que necesita síntesis
+        private boolean insufficientContextFast = true; // la respuesta de "sin información" no requiere modelo fuerte
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getMinTopSimilarity() { return minTopSimilarity; }
+        public void setMinTopSimilarity(double minTopSimilarity) { this.minTopSimilarity = minTopSimilarity; }
+
+        public double getMinScoreGap() { return minScoreGap; }
+        public void setMinScoreGap(double minScoreGap) { this.minScoreGap = minScoreGap; }
+
+        public int getMaxContextChars() { return maxContextChars; }
+        public void setMaxContextChars(int maxContextChars) { this.maxContextChars = maxContextChars; }
+
+        public boolean isInsufficientContextFast() { return insufficientContextFast; }
+        public void setInsufficientContextFast(boolean insufficientContextFast) { this.insufficientContextFast = insufficientContextFast; }
+    }
+
+    /**
+     * Empaquetado del contexto en un presupuesto de tokens: reparto por rank y similitud,
+     * recorte a las oraciones más relevantes y descarte de pasajes casi duplicados.
+     */
+    public static class ContextPackingConfig {
+        private boolean enabled = true;
+        private int maxContextTokens = 1500;
+        private int minDocumentTokens = 60;         // ningún documento admitido recibe menos que esto
+        private double rankDecay = 0.5;             // peso = similitud / (1 + rankDecay * rank)
+        private double duplicateThreshold = 0.8;    // Jaccard de shingles de 3 palabras
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getMaxContextTokens() { return maxContextTokens; }
+        public void setMaxContextTokens(int maxContextTokens) { this.maxContextTokens = maxContextTokens; }
+
+        public int getMinDocumentTokens() { return minDocumentTokens; }
+        public void setMinDocumentTokens(int minDocumentTokens) { this.minDocumentTokens = minDocumentTokens; }
+
+        public double getRankDecay() { return rankDecay; }
+        public void setRankDecay(double rankDecay) { this.rankDecay = rankDecay; }
+
+        public double getDuplicateThreshold() { return duplicateThreshold; }
+        public void setDuplicateThreshold(double duplicateThreshold) { this.duplicateThreshold = duplicateThreshold; }
+    }
+
+    /**
+     * Generación seccionada: resumen, explicación y ejemplo se piden en llamadas concurrentes que
+     * comparten el mismo prefijo (sistema + contexto), cada una con su propio tope de tokens.
+     * La latencia queda en la de la sección más larga en lugar de la suma de las tres.
+     */
+    public static class SectionedGenerationConfig {
+        private boolean enabled = false;
+        private int summaryMaxTokens = 200;
+        private int explanationMaxTokens = 900;
+        private int exampleMaxTokens = 450;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getSummaryMaxTokens() { return summaryMaxTokens; }
+        public void setSummaryMaxTokens(int summaryMaxTokens) { this.summaryMaxTokens = summaryMaxTokens; }
+
+        public int getExplanationMaxTokens() { return explanationMaxTokens; }
+        public void setExplanationMaxTokens(int explanationMaxTokens) { this.explanationMaxTokens = explanationMaxTokens; }
+
+        public int getExampleMaxTokens() { return exampleMaxTokens; }
+        public void setExampleMaxTokens(int exampleMaxTokens) { this.exampleMaxTokens = exampleMaxTokens; }
+    }
+
+    /**
+     * Respuesta sin contexto suficiente: por defecto se arma desde plantillas (por materia y motivo)
+     * con preguntas cercanas del dataset como sugerencias, sin llamar al LLM.
+     */
+    public static class InsufficientContextConfig {
+        private boolean useLlm = false;                 // true = comportamiento anterior (el LLM redacta la negativa)
+        private int maxSuggestions = 3;
+        private double minSuggestionSimilarity = 0.6;   // similitud coseno mínima de una pregunta sugerida
+
+        public boolean isUseLlm() { return useLlm; }
+        public void setUseLlm(boolean useLlm) { this.useLlm = useLlm; }
+
+        public int getMaxSuggestions() { return maxSuggestions; }
+        public void setMaxSuggestions(int maxSuggestions) { this.maxSuggestions = maxSuggestions; }
+
+        public double getMinSuggestionSimilarity() { return minSuggestionSimilarity; }
+        public void setMinSuggestionSimilarity(double minSuggestionSimilarity) { this.minSuggestionSimilarity = minSuggestionSimilarity; }
+    }
+}
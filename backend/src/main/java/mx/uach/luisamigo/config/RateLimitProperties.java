@@ -0,0 +1,73 @@
+package mx.uach.luisamigo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Propiedades de rate limiting para llamadas a proveedores externos.
+ * Mapeadas desde application.yml (luisamigo.rate-limit.*).
+ * Cada proveedor (e.g., "openai-chat", "openai-embedding", "anthropic") tiene sus propios límites.
+ */
+@Component
+@ConfigurationProperties(prefix = "luisamigo.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private Map<String, Limits> providers = new HashMap<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Map<String, Limits> getProviders() { return providers; }
+    public void setProviders(Map<String, Limits> providers) { this.providers = providers; }
+
+    /**
+     * Retorna los límites de un proveedor o los valores por defecto si no está configurado.
+     */
+    public Limits forProvider(String provider) {
+        return providers.getOrDefault(provider, new Limits());
+    }
+
+    // Nested configuration class
+    public static class Limits {
+        private int requestsPerMinute = 0;   // 0 = sin límite
+        private int tokensPerMinute = 0;     // 0 = sin límite
+        private int initialConcurrency = 8;
+        private int minConcurrency = 1;
+        private int maxConcurrency = 32;
+        private double decreaseFactor = 0.5;
+        private long maxWaitMs = 30000;
+        private int maxRetries = 3;
+        private long backoffMs = 500;
+
+        public int getRequestsPerMinute() { return requestsPerMinute; }
+        public void setRequestsPerMinute(int requestsPerMinute) { this.requestsPerMinute = requestsPerMinute; }
+
+        public int getTokensPerMinute() { return tokensPerMinute; }
+        public void setTokensPerMinute(int tokensPerMinute) { this.tokensPerMinute = tokensPerMinute; }
+
+        public int getInitialConcurrency() { return initialConcurrency; }
+        public void setInitialConcurrency(int initialConcurrency) { this.initialConcurrency = initialConcurrency; }
+
+        public int getMinConcurrency() { return minConcurrency; }
+        public void setMinConcurrency(int minConcurrency) { this.minConcurrency = minConcurrency; }
+
+        public int getMaxConcurrency() { return maxConcurrency; }
+        public void setMaxConcurrency(int maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+
+        public double getDecreaseFactor() { return decreaseFactor; }
+        public void setDecreaseFactor(double decreaseFactor) { this.decreaseFactor = decreaseFactor; }
+
+        public long getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+
+        public int getMaxRetries() { return maxRetries; }
+        public void setMaxRetries(int maxRetries) { this.maxRetries = maxRetries; }
+
+        public long getBackoffMs() { return backoffMs; }
+        public void setBackoffMs(long backoffMs) { this.backoffMs = backoffMs; }
+    }
+}
@@ -1,14 +1,119 @@
 package mx.uach.luisamigo.config;
 
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Scope;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cliente HTTP compartido para todos los WebClient de la aplicación.
+ *
+ * Un solo pool de conexiones Reactor Netty (con límites por host) reutiliza las conexiones
+ * TLS entre requests, acota el número de sockets bajo carga y expulsa conexiones ociosas
+ * antes de que el proveedor o un balanceador intermedio las cierre.
+ */
 @Configuration
 public class WebClientConfig {
 
+    private static final int HTTPS_PORT = 443;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider connectionProvider(HttpClientProperties properties) {
+        HttpClientProperties.PoolConfig defaults = properties.getPool();
+
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("luisamigo-http")
+            .maxConnections(defaults.getMaxConnections())
+            .pendingAcquireMaxCount(defaults.getPendingAcquireMaxCount())
+            .pendingAcquireTimeout(Duration.ofMillis(defaults.getPendingAcquireTimeoutMs()))
+            .maxIdleTime(Duration.ofMillis(defaults.getMaxIdleTimeMs()))
+            .maxLifeTime(Duration.ofMillis(defaults.getMaxLifeTimeMs()))
+            .evictInBackground(Duration.ofMillis(defaults.getEvictionIntervalMs()))
+            .metrics(properties.isMetrics());
+
+        for (Map.Entry<String, HttpClientProperties.PoolConfig> entry : properties.getHosts().entrySet()) {
+            HttpClientProperties.PoolConfig host = entry.getValue();
+            builder.forRemoteHost(remoteAddress(entry.getKey()), spec -> spec
+                .maxConnections(host.getMaxConnections())
+                .pendingAcquireMaxCount(host.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(host.getPendingAcquireTimeoutMs()))
+                .maxIdleTime(Duration.ofMillis(host.getMaxIdleTimeMs()))
+                .maxLifeTime(Duration.ofMillis(host.getMaxLifeTimeMs()))
+                .evictInBackground(Duration.ofMillis(host.getEvictionIntervalMs())));
+        }
+
+        return builder.build();
+    }
+
+    @Bean
+    public HttpClient httpClient(ConnectionProvider connectionProvider, HttpClientProperties properties) {
+        HttpClient client = HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, properties.getConnectTimeoutMs())
+            .option(ChannelOption.SO_KEEPALIVE, properties.isKeepAlive())
+            .keepAlive(properties.isKeepAlive())
+            .responseTimeout(Duration.ofMillis(properties.getResponseTimeoutMs()))
+            // Los handlers agregados por request se retiran al devolver la conexión al pool,
+            // así una conexión ociosa no se cierra por read timeout
+            .doOnRequest((request, connection) -> connection
+                .addHandlerLast(new ReadTimeoutHandler(properties.getReadTimeoutMs(), TimeUnit.MILLISECONDS))
+                .addHandlerLast(new WriteTimeoutHandler(properties.getWriteTimeoutMs(), TimeUnit.MILLISECONDS)))
+            .compress(properties.isCompression())
+            .resolver(spec -> spec
+                .cacheMinTimeToLive(Duration.ofSeconds(properties.getDnsCacheMinTtlSeconds()))
+                .cacheMaxTimeToLive(Duration.ofSeconds(properties.getDnsCacheMaxTtlSeconds())));
+
+        if (properties.isHttp2()) {
+            // ALPN negocia HTTP/2 y cae a HTTP/1.1 si el servidor no lo soporta
+            client = client
+                .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                .secure(spec -> spec.sslContext(Http2SslContextSpec.forClient()));
+        }
+
+        if (properties.isMetrics()) {
+            // Los URIs de proveedores son fijos, no hay riesgo de cardinalidad
+            client = client.metrics(true, Function.identity());
+        }
+
+        return client;
+    }
+
     @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public ReactorClientHttpConnector clientHttpConnector(HttpClient httpClient) {
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    /**
+     * Prototype: cada cliente obtiene su propio builder (los defaultHeader de uno no se filtran
+     * a otro), pero todos comparten el mismo conector y pool.
+     */
+    @Bean
+    @Scope("prototype")
+    public WebClient.Builder webClientBuilder(ReactorClientHttpConnector clientHttpConnector) {
+        return WebClient.builder().clientConnector(clientHttpConnector);
+    }
+
+    /**
+     * Convierte "host" o "host:puerto" en la dirección usada como llave del pool por host.
+     */
+    static InetSocketAddress remoteAddress(String hostKey) {
+        int colon = hostKey.lastIndexOf(':');
+        if (colon > 0) {
+            return InetSocketAddress.createUnresolved(
+                hostKey.substring(0, colon), Integer.parseInt(hostKey.substring(colon + 1)));
+        }
+        return InetSocketAddress.createUnresolved(hostKey, HTTPS_PORT);
     }
 }
@@ -9,12 +9,20 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import mx.uach.luisamigo.dto.request.AskRequest;
 import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.dto.response.AskStreamEvent;
 import mx.uach.luisamigo.dto.response.ErrorResponse;
+import mx.uach.luisamigo.exception.EmbeddingException;
+import mx.uach.luisamigo.exception.LLMProviderException;
+import mx.uach.luisamigo.exception.PipelineTimeoutException;
 import mx.uach.luisamigo.service.rag.RAGService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 @RestController
 @RequestMapping("/ask")
@@ -41,4 +49,36 @@ public class AskController {
         AskResponse response = ragService.ask(request);
         return ResponseEntity.ok(response);
     }
+
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Consultar al asistente jurídico con respuesta en streaming (SSE)",
+        description = "Eventos: sources, token (fragmentos de la respuesta), disclaimer, done (metadata) o error")
+    public Flux<ServerSentEvent<Object>> askStream(@Valid @RequestBody AskRequest request) {
+        log.info("Received streaming ask request: '{}'", request.question());
+        return ragService.askStream(request)
+            // Los headers ya se enviaron: los errores se reportan como evento, no como status HTTP
+            .onErrorResume(e -> Flux.just(AskStreamEvent.error(toErrorResponse(e))))
+            .map(event -> ServerSentEvent.builder(event.data()).event(event.event()).build());
+    }
+
+    private ErrorResponse toErrorResponse(Throwable e) {
+        if (e instanceof LLMProviderException) {
+            log.error("LLM provider error during stream: {}", e.getMessage());
+            return new ErrorResponse("LLM Provider Error",
+                "Error al comunicarse con el proveedor de IA: " + e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+        if (e instanceof EmbeddingException) {
+            log.error("Embedding error during stream: {}", e.getMessage());
+            return new ErrorResponse("Embedding Error",
+                "Error al generar embeddings: " + e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+        if (e instanceof PipelineTimeoutException) {
+            log.warn("RAG pipeline deadline exceeded during stream: {}", e.getMessage());
+            return new ErrorResponse("Gateway Timeout",
+                "La consulta excedió el tiempo máximo de respuesta", HttpStatus.GATEWAY_TIMEOUT.value());
+        }
+        log.error("Unexpected error during stream", e);
+        return new ErrorResponse("Internal Server Error",
+            "Ha ocurrido un error inesperado", HttpStatus.INTERNAL_SERVER_ERROR.value());
+    }
 }
@@ -140,6 +140,9 @@ public class IngestionController {
         if (request.chunkOverlap() != null) {
             builder.chunkOverlap(request.chunkOverlap());
         }
+        if (request.maxChunkTokens() != null) {
+            builder.maxChunkTokens(request.maxChunkTokens());
+        }
 
         return builder.build();
     }
@@ -161,6 +164,9 @@ public class IngestionController {
         Integer maxChunkSize,
 
         @Schema(description = "Overlap entre chunks en caracteres", example = "100")
-        Integer chunkOverlap
+        Integer chunkOverlap,
+
+        @Schema(description = "Tamaño máximo de chunk en tokens; si se indica, reemplaza a maxChunkSize", example = "256")
+        Integer maxChunkTokens
     ) {}
 }
@@ -0,0 +1,10 @@
+package mx.uach.luisamigo.domain;
+
+/**
+ * Cita legal normalizada de un documento (tabla legal_citations).
+ *
+ * @param law Clave canónica de la ley ("cpeum", "lft"), o null si el texto no la indica
+ * @param article Número de artículo ("123", "27 bis")
+ * @param fraction Fracción en romanos ("IV"), o null
+ */
+public record LegalCitation(String law, String article, String fraction) {}
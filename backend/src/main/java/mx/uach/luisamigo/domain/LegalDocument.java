@@ -36,6 +36,10 @@ public class LegalDocument {
     @Column(name = "materia", length = 100)
     private String materia;
 
+    // Artículos y leyes citados, extraídos en la ingesta (LegalReferenceMatcher.encode)
+    @Column(name = "legal_references", columnDefinition = "TEXT")
+    private String legalReferences;
+
     @ElementCollection
     @CollectionTable(name = "legal_document_tags", joinColumns = @JoinColumn(name = "document_id"))
     @Column(name = "tag")
@@ -107,6 +111,9 @@ public class LegalDocument {
     public String getMateria() { return materia; }
     public void setMateria(String materia) { this.materia = materia; }
 
+    public String getLegalReferences() { return legalReferences; }
+    public void setLegalReferences(String legalReferences) { this.legalReferences = legalReferences; }
+
     public Set<String> getTags() { return tags; }
     public void setTags(Set<String> tags) { this.tags = tags; }
     public void addTag(String tag) { this.tags.add(tag); }
@@ -160,6 +167,11 @@ public class LegalDocument {
             return this;
         }
 
+        public Builder legalReferences(String legalReferences) {
+            document.legalReferences = legalReferences;
+            return this;
+        }
+
         public Builder tags(Set<String> tags) {
             document.tags = new HashSet<>(tags);
             return this;
@@ -19,20 +19,14 @@ public record AskRequest(
     @Max(value = 10, message = "El semestre debe ser entre 1 y 10")
     Integer semesterLevel,
 
-    // Opcional: número de documentos a recuperar (default: 5)
+    // Opcional: máximo de documentos a recuperar (default: luisamigo.rag.max-top-k);
+    // la recuperación adaptativa puede usar menos
     @Min(value = 1, message = "topK debe ser al menos 1")
     @Max(value = 20, message = "topK no puede exceder 20")
     Integer topK
 ) {
-    // Constructor compacto con defaults
-    public AskRequest {
-        if (topK == null) {
-            topK = 5;
-        }
-    }
-
     // Constructor simplificado solo con pregunta
     public AskRequest(String question) {
-        this(question, null, null, 5);
+        this(question, null, null, null);
     }
 }
@@ -12,10 +12,12 @@ public record AskResponse(
     ResponseMetadata metadata,
     String disclaimer
 ) {
+    public static final String DEFAULT_DISCLAIMER =
+        "Esto es material académico y no constituye asesoría jurídica profesional.";
+
     // Constructor con disclaimer por defecto
     public AskResponse(String answer, List<SourceReference> sources, ResponseMetadata metadata) {
-        this(answer, sources, metadata,
-            "Esto es material académico y no constituye asesoría jurídica profesional.");
+        this(answer, sources, metadata, DEFAULT_DISCLAIMER);
     }
 
     /**
@@ -25,6 +27,13 @@ public record AskResponse(
         int documentsRetrieved,
         String materia,
         Instant timestamp,
-        long processingTimeMs
-    ) {}
+        long processingTimeMs,
+        String llmProvider,  // Proveedor que generó la respuesta (e.g., "OpenAI")
+        String llmModel,
+        String routing       // Decisión de ruteo (e.g., "preferred", "failover from OpenAI")
+    ) {
+        public ResponseMetadata(int documentsRetrieved, String materia, Instant timestamp, long processingTimeMs) {
+            this(documentsRetrieved, materia, timestamp, processingTimeMs, null, null, null);
+        }
+    }
 }
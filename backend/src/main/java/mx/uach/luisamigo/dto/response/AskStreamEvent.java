@@ -0,0 +1,38 @@
+package mx.uach.luisamigo.dto.response;
+
+import java.util.List;
+
+/**
+ * Evento del endpoint de streaming (/ask/stream).
+ * Orden: sources → token* → disclaimer → done (o error si falla a mitad del stream).
+ */
+public record AskStreamEvent(
+    String event,
+    Object data
+) {
+    public static final String SOURCES = "sources";
+    public static final String TOKEN = "token";
+    public static final String DISCLAIMER = "disclaimer";
+    public static final String DONE = "done";
+    public static final String ERROR = "error";
+
+    public static AskStreamEvent sources(List<SourceReference> sources) {
+        return new AskStreamEvent(SOURCES, sources);
+    }
+
+    public static AskStreamEvent token(String token) {
+        return new AskStreamEvent(TOKEN, token);
+    }
+
+    public static AskStreamEvent disclaimer(String disclaimer) {
+        return new AskStreamEvent(DISCLAIMER, disclaimer);
+    }
+
+    public static AskStreamEvent done(AskResponse.ResponseMetadata metadata) {
+        return new AskStreamEvent(DONE, metadata);
+    }
+
+    public static AskStreamEvent error(ErrorResponse error) {
+        return new AskStreamEvent(ERROR, error);
+    }
+}
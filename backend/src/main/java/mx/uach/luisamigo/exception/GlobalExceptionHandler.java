@@ -53,6 +53,14 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
     }
 
+    @ExceptionHandler(PipelineTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handlePipelineTimeout(PipelineTimeoutException ex) {
+        log.warn("RAG pipeline deadline exceeded at stage {}: {}", ex.getStage(), ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Gateway Timeout",
+            "La consulta excedió el tiempo máximo de respuesta", HttpStatus.GATEWAY_TIMEOUT.value());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(errorResponse);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
         log.error("Unexpected error", ex);
@@ -0,0 +1,19 @@
+package mx.uach.luisamigo.exception;
+
+/**
+ * Excepción lanzada cuando una etapa del pipeline RAG no termina antes de su deadline
+ * (derivado del presupuesto total del request).
+ */
+public class PipelineTimeoutException extends RuntimeException {
+
+    private final String stage;
+
+    public PipelineTimeoutException(String message, String stage) {
+        super(message);
+        this.stage = stage;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+}
@@ -0,0 +1,19 @@
+package mx.uach.luisamigo.exception;
+
+/**
+ * Excepción lanzada cuando una llamada a un proveedor externo no obtiene permiso
+ * del rate limiter antes de su deadline (cuota agotada o concurrencia saturada).
+ */
+public class ProviderThrottledException extends RuntimeException {
+
+    private final String provider;
+
+    public ProviderThrottledException(String message, String provider) {
+        super(message);
+        this.provider = provider;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+}
@@ -2,6 +2,7 @@ package mx.uach.luisamigo.repository;
 
 import mx.uach.luisamigo.domain.DocumentEmbedding;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -75,6 +76,91 @@ public interface DocumentEmbeddingRepository extends JpaRepository<DocumentEmbed
         @Param("limit") int limit
     );
 
+    /**
+     * Embeddings de los documentos que citan el artículo de la ley (tabla legal_citations),
+     * opcionalmente dentro de una materia. Primero los que citan la misma fracción; después, por
+     * similitud a la consulta.
+     */
+    @Query(value = "SELECT e.* FROM legal_citations c " +
+                   "JOIN document_embeddings e ON e.document_id = c.document_id " +
+                   "JOIN legal_documents d ON d.id = c.document_id " +
+                   "WHERE c.law = :law AND c.article = :article " +
+                   "AND (CAST(:materia AS text) IS NULL OR d.materia = CAST(:materia AS text)) " +
+                   "GROUP BY e.id " +
+                   "ORDER BY bool_or(c.fraction IS NOT DISTINCT FROM CAST(:fraction AS text)) DESC, " +
+                   "e.embedding <=> CAST(:queryVector AS vector) " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<DocumentEmbedding> findByCitation(
+        @Param("law") String law,
+        @Param("article") String article,
+        @Param("fraction") String fraction,
+        @Param("materia") String materia,
+        @Param("queryVector") String queryVector,
+        @Param("limit") int limit
+    );
+
+    /**
+     * Busca la pregunta del dataset más cercana usando el embedding solo de la pregunta
+     * (columna question_embedding), opcionalmente dentro de una materia.
+     */
+    @Query(value = "SELECT e.document_id AS documentId, " +
+                   "(1 - (e.question_embedding <=> CAST(:queryVector AS vector))) AS similarity " +
+                   "FROM document_embeddings e " +
+                   "JOIN legal_documents d ON e.document_id = d.id " +
+                   "WHERE e.question_embedding IS NOT NULL " +
+                   "AND (CAST(:materia AS text) IS NULL OR d.materia = CAST(:materia AS text)) " +
+                   "ORDER BY e.question_embedding <=> CAST(:queryVector AS vector) " +
+                   "LIMIT 1",
+           nativeQuery = true)
+    Optional<QuestionSimilarity> findClosestQuestion(
+        @Param("queryVector") String queryVector,
+        @Param("materia") String materia
+    );
+
+    /**
+     * Guarda el embedding solo de la pregunta de un documento (usado por la respuesta directa).
+     */
+    @Modifying
+    @Query(value = "UPDATE document_embeddings SET question_embedding = CAST(:embeddingVector AS vector) " +
+                   "WHERE document_id = :documentId",
+           nativeQuery = true)
+    int updateQuestionEmbedding(
+        @Param("documentId") Long documentId,
+        @Param("embeddingVector") String embeddingVector
+    );
+
+    /**
+     * Centroide (promedio de embeddings) y número de documentos de cada materia.
+     */
+    @Query(value = "SELECT d.materia AS materia, COUNT(*) AS documents, " +
+                   "CAST(AVG(e.embedding) AS text) AS centroid " +
+                   "FROM document_embeddings e " +
+                   "JOIN legal_documents d ON e.document_id = d.id " +
+                   "WHERE d.materia IS NOT NULL " +
+                   "GROUP BY d.materia",
+           nativeQuery = true)
+    List<MateriaCentroid> findMateriaCentroids();
+
+    /**
+     * Proyección de findMateriaCentroids.
+     *
+     * getCentroid() es el literal de pgvector ("[0.1,0.2,...]").
+     */
+    interface MateriaCentroid {
+        String getMateria();
+        Long getDocuments();
+        String getCentroid();
+    }
+
+    /**
+     * Proyección de findClosestQuestion.
+     */
+    interface QuestionSimilarity {
+        Long getDocumentId();
+        Double getSimilarity();
+    }
+
     /**
      * Elimina embeddings de documentos de una fuente específica.
      */
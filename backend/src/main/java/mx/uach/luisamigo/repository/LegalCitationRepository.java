@@ -0,0 +1,36 @@
+package mx.uach.luisamigo.repository;
+
+import mx.uach.luisamigo.domain.LegalCitation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Acceso a la tabla legal_citations (citas normalizadas de cada documento).
+ *
+ * La ingesta escribe aquí las citas extraídas de cada documento, solo con
+ * luisamigo.rag.citation-lookup activado. Es un insert por lotes sin lectura ni entidad propia;
+ * la búsqueda por cita está en DocumentEmbeddingRepository.findByCitation porque regresa embeddings.
+ */
+@Repository
+public class LegalCitationRepository {
+
+    private static final String INSERT =
+        "INSERT INTO legal_citations (document_id, law, article, fraction) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LegalCitationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertAll(long documentId, List<LegalCitation> citations) {
+        if (citations.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, citations.stream()
+            .map(citation -> new Object[] {documentId, citation.law(), citation.article(), citation.fraction()})
+            .toList());
+    }
+}
@@ -52,6 +52,33 @@ public interface LegalDocumentRepository extends JpaRepository<LegalDocument, Lo
      */
     void deleteBySource(String source);
 
+    /**
+     * IDs de los documentos de una fuente (para notificar su borrado).
+     */
+    @Query("SELECT d.id FROM LegalDocument d WHERE d.source = :source")
+    List<Long> findIdsBySource(@Param("source") String source);
+
+    /**
+     * Columnas que usa el índice de preguntas (FaqIndex), sin cargar entidades completas.
+     */
+    interface FaqRow {
+        Long getId();
+        String getQuestion();
+        String getAnswer();
+        String getMateria();
+        String getLawReference();
+        String getSource();
+    }
+
+    @Query("SELECT d.id AS id, d.question AS question, d.answer AS answer, d.materia AS materia, " +
+           "d.lawReference AS lawReference, d.source AS source FROM LegalDocument d")
+    List<FaqRow> findFaqRows();
+
+    @Query("SELECT d.id AS id, d.question AS question, d.answer AS answer, d.materia AS materia, " +
+           "d.lawReference AS lawReference, d.source AS source FROM LegalDocument d " +
+           "WHERE d.id BETWEEN :fromId AND :toId")
+    List<FaqRow> findFaqRowsByIdBetween(@Param("fromId") long fromId, @Param("toId") long toId);
+
     /**
      * Busca documentos por materia y nivel de semestre.
      */
@@ -0,0 +1,104 @@
+package mx.uach.luisamigo.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Acceso a la tabla semantic_answer_cache (respuestas generadas compartidas entre nodos).
+ *
+ * Usa JdbcTemplate en lugar de una entidad JPA: la tabla es opcional (luisamigo.rag.semantic-cache)
+ * y no debe participar en la validación del esquema de Hibernate.
+ */
+@Repository
+public class SemanticAnswerCacheRepository {
+
+    private static final String FIND_CLOSEST = """
+        SELECT c.id, c.response, 1 - (c.query_embedding <=> CAST(? AS vector)) AS similarity
+        FROM semantic_answer_cache c
+        WHERE c.expires_at > NOW()
+          AND c.materia IS NOT DISTINCT FROM CAST(? AS text)
+          AND c.semester_level IS NOT DISTINCT FROM CAST(? AS integer)
+        ORDER BY c.query_embedding <=> CAST(? AS vector)
+        LIMIT 1
+        """;
+
+    private static final String INSERT = """
+        INSERT INTO semantic_answer_cache
+            (query_embedding, materia, semester_level, document_ids, response, created_at, expires_at)
+        VALUES (CAST(? AS vector), ?, ?, ?, CAST(? AS jsonb), NOW(), ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SemanticAnswerCacheRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Entrada vigente más cercana a la consulta con los mismos filtros.
+     *
+     * @param queryVector Embedding de la consulta serializado como "[0.1,0.2,...]"
+     */
+    public Optional<CachedAnswer> findClosest(String queryVector, String materia, Integer semesterLevel) {
+        List<CachedAnswer> rows = jdbcTemplate.query(FIND_CLOSEST,
+            (rs, rowNum) -> new CachedAnswer(rs.getLong("id"), rs.getString("response"), rs.getDouble("similarity")),
+            queryVector, materia, semesterLevel, queryVector);
+        return rows.stream().findFirst();
+    }
+
+    public void insert(
+        String queryVector,
+        String materia,
+        Integer semesterLevel,
+        List<Long> documentIds,
+        String responseJson,
+        Instant expiresAt
+    ) {
+        jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement(INSERT);
+            Array ids = connection.createArrayOf("bigint", documentIds.toArray());
+            statement.setString(1, queryVector);
+            statement.setString(2, materia);
+            statement.setObject(3, semesterLevel, Types.INTEGER);
+            statement.setArray(4, ids);
+            statement.setString(5, responseJson);
+            statement.setTimestamp(6, Timestamp.from(expiresAt));
+            return statement;
+        });
+    }
+
+    /**
+     * Elimina todas las entradas (el corpus cambió).
+     */
+    public int deleteAll() {
+        return jdbcTemplate.update("DELETE FROM semantic_answer_cache");
+    }
+
+    /**
+     * Elimina las entradas que citan algún documento en el rango de ids [fromId, toId].
+     */
+    public int deleteReferencing(long fromId, long toId) {
+        return jdbcTemplate.update(
+            "DELETE FROM semantic_answer_cache c " +
+            "WHERE EXISTS (SELECT 1 FROM unnest(c.document_ids) AS doc_id WHERE doc_id BETWEEN ? AND ?)",
+            fromId, toId);
+    }
+
+    public int deleteExpired() {
+        return jdbcTemplate.update("DELETE FROM semantic_answer_cache WHERE expires_at <= NOW()");
+    }
+
+    /**
+     * Fila de semantic_answer_cache con la similitud a la consulta.
+     *
+     * @param response AskResponse serializado en JSON
+     */
+    public record CachedAnswer(long id, String response, double similarity) {}
+}
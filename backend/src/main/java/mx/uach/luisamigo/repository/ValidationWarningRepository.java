@@ -0,0 +1,40 @@
+package mx.uach.luisamigo.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Acceso a la tabla answer_validation_warnings (respuestas con posibles alucinaciones).
+ *
+ * Registro de auditoría: AnswerValidationService inserta una fila por respuesta con warnings si
+ * luisamigo.rag.validation.persist-warnings está activo. La aplicación nunca la lee (se revisa
+ * fuera de ella), así que basta un INSERT con los warnings y los ids de documentos como arrays.
+ */
+@Repository
+public class ValidationWarningRepository {
+
+    private static final String INSERT = """
+        INSERT INTO answer_validation_warnings (question, answer, mode, warnings, document_ids, created_at)
+        VALUES (?, ?, ?, ?, ?, NOW())
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ValidationWarningRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insert(String question, String answer, String mode, List<String> warnings, List<Long> documentIds) {
+        jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement(INSERT);
+            statement.setString(1, question);
+            statement.setString(2, answer);
+            statement.setString(3, mode);
+            statement.setArray(4, connection.createArrayOf("text", warnings.toArray()));
+            statement.setArray(5, connection.createArrayOf("bigint", documentIds.toArray()));
+            return statement;
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package mx.uach.luisamigo.service.ingestion;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Autómata de Aho-Corasick: encuentra todas las ocurrencias de un conjunto fijo de patrones en
+ * una sola pasada lineal sobre el texto. Se construye una vez; es inmutable y thread-safe.
+ *
+ * @param <T> Valor asociado a cada patrón
+ */
+final class AhoCorasick<T> {
+
+    private static final class Node<T> {
+        private final Map<Character, Node<T>> next = new HashMap<>();
+        private Node<T> fail;
+        private final List<Match<T>> outputs = new ArrayList<>();
+    }
+
+    /**
+     * Ocurrencia de un patrón: [start, end) en el texto recorrido.
+     */
+    record Match<T>(int start, int end, T value) {}
+
+    private final Node<T> root = new Node<>();
+
+    AhoCorasick(Map<String, T> patterns) {
+        for (Map.Entry<String, T> pattern : patterns.entrySet()) {
+            Node<T> node = root;
+            for (char c : pattern.getKey().toCharArray()) {
+                node = node.next.computeIfAbsent(c, k -> new Node<>());
+            }
+            // start/end relativos al final del patrón; se ajustan al encontrarlo
+            node.outputs.add(new Match<>(-pattern.getKey().length(), 0, pattern.getValue()));
+        }
+
+        // Links de falla por niveles (BFS); cada nodo hereda las salidas de su link
+        Queue<Node<T>> queue = new ArrayDeque<>();
+        for (Node<T> child : root.next.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node<T> node = queue.poll();
+            for (Map.Entry<Character, Node<T>> edge : node.next.entrySet()) {
+                Node<T> child = edge.getValue();
+                Node<T> fail = node.fail;
+                while (fail != null && !fail.next.containsKey(edge.getKey())) {
+                    fail = fail.fail;
+                }
+                child.fail = fail == null ? root : fail.next.get(edge.getKey());
+                child.outputs.addAll(child.fail.outputs);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Todas las ocurrencias (incluidas las traslapadas), ordenadas por posición final.
+     */
+    List<Match<T>> findAll(CharSequence text) {
+        List<Match<T>> matches = new ArrayList<>();
+        Node<T> node = root;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            while (node != root && !node.next.containsKey(c)) {
+                node = node.fail;
+            }
+            node = node.next.getOrDefault(c, root);
+            for (Match<T> output : node.outputs) {
+                matches.add(new Match<>(i + 1 + output.start(), i + 1, output.value()));
+            }
+        }
+        return matches;
+    }
+}
@@ -1,9 +1,11 @@
 package mx.uach.luisamigo.service.ingestion;
 
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.ToIntFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -18,16 +20,37 @@ public class ChunkingService {
     private static final int DEFAULT_OVERLAP = 100;
     private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("[.!?;]\\s+");
 
+    private final TokenizerService tokenizerService;
+
+    public ChunkingService(TokenizerService tokenizerService) {
+        this.tokenizerService = tokenizerService;
+    }
+
     /**
      * Divide un texto en chunks con tamaño y overlap configurables.
      */
     public List<String> chunkText(String text, int maxChunkSize, int overlap) {
+        return chunk(text, maxChunkSize, overlap, String::length);
+    }
+
+    /**
+     * Divide un texto en chunks de a lo más maxTokens tokens (cl100k_base, la codificación de los
+     * modelos de embeddings). El overlap se sigue midiendo en caracteres.
+     */
+    public List<String> chunkTextByTokens(String text, int maxTokens, int overlapChars) {
+        return chunk(text, maxTokens, overlapChars, tokenizerService::countTokens);
+    }
+
+    /**
+     * Agrupa oraciones mientras quepan en maxSize, medido con la función size (caracteres o tokens).
+     */
+    private List<String> chunk(String text, int maxSize, int overlap, ToIntFunction<String> size) {
         if (text == null || text.isBlank()) {
             return List.of();
         }
 
         // Si el texto es menor al tamaño máximo, retornar como único chunk
-        if (text.length() <= maxChunkSize) {
+        if (size.applyAsInt(text) <= maxSize) {
             return List.of(text);
         }
 
@@ -38,10 +61,10 @@ public class ChunkingService {
         int currentSize = 0;
 
         for (String sentence : sentences) {
-            int sentenceLength = sentence.length();
+            int sentenceLength = size.applyAsInt(sentence);
 
             // Si agregar esta oración excede el límite
-            if (currentSize + sentenceLength > maxChunkSize && currentSize > 0) {
+            if (currentSize + sentenceLength > maxSize && currentSize > 0) {
                 // Guardar chunk actual
                 chunks.add(currentChunk.toString().trim());
 
@@ -53,7 +76,7 @@ public class ChunkingService {
                 String overlapText = getOverlapText(chunks.get(chunks.size() - 1), overlap);
                 if (!overlapText.isEmpty()) {
                     currentChunk.append(overlapText).append(" ");
-                    currentSize = overlapText.length() + 1;
+                    currentSize = size.applyAsInt(overlapText) + 1;
                 }
             }
 
@@ -135,6 +158,13 @@ public class ChunkingService {
         return text != null && text.length() > maxChunkSize;
     }
 
+    /**
+     * Verifica si un texto excede maxTokens tokens.
+     */
+    public boolean needsChunkingByTokens(String text, int maxTokens) {
+        return text != null && tokenizerService.countTokens(text) > maxTokens;
+    }
+
     /**
      * Calcula el número aproximado de chunks que generará un texto.
      */
@@ -26,10 +26,9 @@ public class DatasetLoader {
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
 
-    public DatasetLoader(ObjectMapper objectMapper) {
-        // Create WebClient directly without using injected builder
-        // to avoid potential configuration conflicts
-        this.webClient = WebClient.builder()
+    public DatasetLoader(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
+        // El builder es prototype: los defaults de este cliente no afectan a los demás
+        this.webClient = webClientBuilder
             .baseUrl(HF_DATASETS_API)
             .defaultHeader("User-Agent", "Mozilla/5.0 (compatible; Luis-Amigo/0.1.0)")
             .defaultHeader("Accept", "application/json")
@@ -10,6 +10,7 @@ public class IngestionConfig {
     private final boolean skipExisting;
     private final int maxChunkSize;
     private final int chunkOverlap;
+    private final int maxChunkTokens;
 
     private IngestionConfig(Builder builder) {
         this.batchSize = builder.batchSize;
@@ -17,6 +18,7 @@ public class IngestionConfig {
         this.skipExisting = builder.skipExisting;
         this.maxChunkSize = builder.maxChunkSize;
         this.chunkOverlap = builder.chunkOverlap;
+        this.maxChunkTokens = builder.maxChunkTokens;
     }
 
     public static IngestionConfig defaultConfig() {
@@ -33,6 +35,12 @@ public class IngestionConfig {
     public boolean isSkipExisting() { return skipExisting; }
     public int getMaxChunkSize() { return maxChunkSize; }
     public int getChunkOverlap() { return chunkOverlap; }
+    public int getMaxChunkTokens() { return maxChunkTokens; }
+
+    /**
+     * Si el tamaño de chunk se mide en tokens (maxChunkTokens > 0) en lugar de caracteres.
+     */
+    public boolean isTokenChunking() { return maxChunkTokens > 0; }
 
     public static class Builder {
         private int batchSize = 50;
@@ -40,6 +48,7 @@ public class IngestionConfig {
         private boolean skipExisting = true;
         private int maxChunkSize = 1000;
         private int chunkOverlap = 100;
+        private int maxChunkTokens = 0; // 0 = medir chunks en caracteres (maxChunkSize)
 
         public Builder batchSize(int batchSize) {
             this.batchSize = batchSize;
@@ -66,6 +75,11 @@ public class IngestionConfig {
             return this;
         }
 
+        public Builder maxChunkTokens(int maxChunkTokens) {
+            this.maxChunkTokens = maxChunkTokens;
+            return this;
+        }
+
         public IngestionConfig build() {
             return new IngestionConfig(this);
         }
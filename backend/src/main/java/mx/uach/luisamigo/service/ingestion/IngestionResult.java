@@ -2,6 +2,7 @@ package mx.uach.luisamigo.service.ingestion;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Resultado de un proceso de ingesta.
@@ -15,7 +16,8 @@ public record IngestionResult(
     int documentsFailed,
     Instant startTime,
     Instant endTime,
-    String errorMessage
+    String errorMessage,
+    List<IngestionStageStats> stageStats
 ) {
     public Duration duration() {
         return Duration.between(startTime, endTime);
@@ -23,14 +25,20 @@ public record IngestionResult(
 
     public static IngestionResult success(int totalDocuments, int processed, int skipped,
                                           Instant startTime, Instant endTime) {
+        return success(totalDocuments, processed, skipped, startTime, endTime, List.of());
+    }
+
+    public static IngestionResult success(int totalDocuments, int processed, int skipped,
+                                          Instant startTime, Instant endTime,
+                                          List<IngestionStageStats> stageStats) {
         return new IngestionResult(
-            true, totalDocuments, processed, skipped, 0, startTime, endTime, null
+            true, totalDocuments, processed, skipped, 0, startTime, endTime, null, stageStats
         );
     }
 
     public static IngestionResult failure(String errorMessage, Instant startTime, Instant endTime) {
         return new IngestionResult(
-            false, 0, 0, 0, 0, startTime, endTime, errorMessage
+            false, 0, 0, 0, 0, startTime, endTime, errorMessage, List.of()
         );
     }
 }
@@ -1,7 +1,11 @@
 package mx.uach.luisamigo.service.ingestion;
 
 import mx.uach.luisamigo.client.embedding.EmbeddingClient;
+import mx.uach.luisamigo.client.embedding.EmbeddingClientFactory;
+import mx.uach.luisamigo.config.RagProperties;
 import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
+import mx.uach.luisamigo.service.vectorstore.MateriaClassifier;
 import mx.uach.luisamigo.service.vectorstore.VectorStoreService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,7 +14,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -24,31 +30,49 @@ public class IngestionServiceImpl implements IngestionService {
     private static final String BARCENAS_SOURCE = "Barcenas-Juridico-Mexicano-Dataset";
     private static final String BARCENAS_URL = "https://huggingface.co/datasets/Danielbrdz/Barcenas-Juridico-Mexicano-Dataset";
 
+    // Nombres de etapas reportadas en IngestionResult.stageStats
+    static final String STAGE_NORMALIZE = "normalize";
+    static final String STAGE_CHUNK = "chunk";
+    static final String STAGE_EMBED = "embed";
+    static final String STAGE_STORE = "store";
+
     private final DatasetLoader datasetLoader;
     private final TextNormalizer textNormalizer;
+    private final LegalReferenceMatcher legalReferenceMatcher;
     private final ChunkingService chunkingService;
-    private final EmbeddingClient embeddingClient;
+    private final EmbeddingClientFactory embeddingClientFactory;
     private final VectorStoreService vectorStoreService;
+    private final TokenizerService tokenizerService;
+    private final MateriaClassifier materiaClassifier;
+    private final RagProperties ragProperties;
 
     public IngestionServiceImpl(
             DatasetLoader datasetLoader,
             TextNormalizer textNormalizer,
+            LegalReferenceMatcher legalReferenceMatcher,
             ChunkingService chunkingService,
-            EmbeddingClient embeddingClient,
-            VectorStoreService vectorStoreService) {
+            EmbeddingClientFactory embeddingClientFactory,
+            VectorStoreService vectorStoreService,
+            TokenizerService tokenizerService,
+            MateriaClassifier materiaClassifier,
+            RagProperties ragProperties) {
         this.datasetLoader = datasetLoader;
         this.textNormalizer = textNormalizer;
+        this.legalReferenceMatcher = legalReferenceMatcher;
         this.chunkingService = chunkingService;
-        this.embeddingClient = embeddingClient;
+        this.embeddingClientFactory = embeddingClientFactory;
         this.vectorStoreService = vectorStoreService;
+        this.tokenizerService = tokenizerService;
+        this.materiaClassifier = materiaClassifier;
+        this.ragProperties = ragProperties;
     }
 
     @Override
     @Transactional
     public IngestionResult ingestBarcerasDataset(IngestionConfig config) {
         Instant startTime = Instant.now();
-        log.info("Starting ingestion of Barcenas dataset with config: batchSize={}, maxChunkSize={}, chunkOverlap={}",
-            config.getBatchSize(), config.getMaxChunkSize(), config.getChunkOverlap());
+        log.info("Starting ingestion of Barcenas dataset with config: batchSize={}, maxChunkSize={}, maxChunkTokens={}, chunkOverlap={}",
+            config.getBatchSize(), config.getMaxChunkSize(), config.getMaxChunkTokens(), config.getChunkOverlap());
 
         try {
             // 1. Cargar dataset desde Hugging Face
@@ -68,6 +92,8 @@ public class IngestionServiceImpl implements IngestionService {
             }
 
             // 3. Procesar en batches
+            EmbeddingClient embeddingClient = embeddingClientFactory.getClient();
+            StageTimer timer = new StageTimer();
             int processed = 0;
             int skipped = 0;
             int failed = 0;
@@ -89,6 +115,7 @@ public class IngestionServiceImpl implements IngestionService {
                     }
 
                     // Normalizar textos
+                    long stageStart = System.nanoTime();
                     String normalizedQuestion = textNormalizer.normalize(entry.question());
                     String normalizedAnswer = textNormalizer.normalize(entry.answer());
 
@@ -101,37 +128,54 @@ public class IngestionServiceImpl implements IngestionService {
                         .question(normalizedQuestion)
                         .answer(normalizedAnswer)
                         .lawReference(lawReference)
+                        .legalReferences(legalReferenceMatcher.encode(legalReferenceMatcher.scan(normalizedAnswer)))
                         .materia(inferMateria(entry))
                         .source(BARCENAS_SOURCE)
                         .sourceUrl(BARCENAS_URL)
                         .build();
+                    stageStart = timer.record(STAGE_NORMALIZE, stageStart, 1);
 
                     // Generar texto para embedding (pregunta + respuesta)
                     String embeddingText = normalizedQuestion + " " + normalizedAnswer;
 
                     // Verificar si necesita chunking
-                    if (chunkingService.needsChunking(embeddingText, config.getMaxChunkSize())) {
+                    boolean needsChunking = config.isTokenChunking()
+                        ? chunkingService.needsChunkingByTokens(embeddingText, config.getMaxChunkTokens())
+                        : chunkingService.needsChunking(embeddingText, config.getMaxChunkSize());
+                    if (needsChunking) {
                         log.debug("Document {} requires chunking", externalId);
-                        List<String> chunks = chunkingService.chunkText(
-                            embeddingText,
-                            config.getMaxChunkSize(),
-                            config.getChunkOverlap()
-                        );
+                        List<String> chunks = config.isTokenChunking()
+                            ? chunkingService.chunkTextByTokens(embeddingText, config.getMaxChunkTokens(), config.getChunkOverlap())
+                            : chunkingService.chunkText(embeddingText, config.getMaxChunkSize(), config.getChunkOverlap());
 
                         // Por ahora usar solo el primer chunk
                         // TODO: En futuro, considerar estrategia multi-chunk
                         embeddingText = chunks.get(0);
                     }
+                    stageStart = timer.record(STAGE_CHUNK, stageStart, 1);
 
                     // Generar embedding
                     float[] embedding = embeddingClient.generateEmbedding(embeddingText);
 
+                    // Materia por centroide más cercano; las palabras clave quedan de respaldo
+                    materiaClassifier.classifyDocument(embedding)
+                        .ifPresent(classification -> document.setMateria(classification.materia()));
+
+                    // Embedding solo de la pregunta, para la respuesta directa (luisamigo.rag.direct-match)
+                    float[] questionEmbedding = ragProperties.getDirectMatch().isEnabled()
+                        ? embeddingClient.generateEmbedding(normalizedQuestion)
+                        : null;
+                    timer.record(STAGE_EMBED, stageStart, 1);
+
                     // Agregar a batch
-                    batch.add(new VectorStoreService.DocumentWithEmbedding(document, embedding));
+                    batch.add(new VectorStoreService.DocumentWithEmbedding(document, embedding, questionEmbedding,
+                        legalReferenceMatcher.citations(normalizedAnswer)));
 
                     // Persistir batch cuando alcance el tamaño configurado
                     if (batch.size() >= config.getBatchSize()) {
+                        long storeStart = System.nanoTime();
                         int stored = vectorStoreService.storeBatch(batch);
+                        timer.record(STAGE_STORE, storeStart, batch.size());
                         processed += stored;
                         log.info("Progress: {}/{} documents processed", processed, totalDocuments);
                         batch.clear();
@@ -145,7 +189,9 @@ public class IngestionServiceImpl implements IngestionService {
 
             // Persistir batch restante
             if (!batch.isEmpty()) {
+                long storeStart = System.nanoTime();
                 int stored = vectorStoreService.storeBatch(batch);
+                timer.record(STAGE_STORE, storeStart, batch.size());
                 processed += stored;
                 batch.clear();
             }
@@ -154,7 +200,13 @@ public class IngestionServiceImpl implements IngestionService {
             log.info("Ingestion completed: processed={}, skipped={}, failed={}, total={}",
                 processed, skipped, failed, totalDocuments);
 
-            return IngestionResult.success(totalDocuments, processed, skipped, startTime, endTime);
+            List<IngestionStageStats> stageStats = timer.snapshot();
+            for (IngestionStageStats stats : stageStats) {
+                log.info("Stage '{}': {} docs in {} ms ({} docs/sec)", stats.stage(), stats.documents(),
+                    String.format("%.1f", stats.totalMillis()), String.format("%.1f", stats.documentsPerSecond()));
+            }
+
+            return IngestionResult.success(totalDocuments, processed, skipped, startTime, endTime, stageStats);
 
         } catch (Exception e) {
             log.error("Fatal error during ingestion", e);
@@ -208,11 +260,12 @@ public class IngestionServiceImpl implements IngestionService {
             List<DatasetLoader.BarcerasDatasetEntry> entries = datasetLoader.loadBarcerasDataset();
             int documentCount = entries.size();
 
-            // Estimaciones basadas en experiencia con APIs de embeddings
+            // Conteo exacto con cl100k_base (codificación de text-embedding-3-*) del texto que se embebe
             // OpenAI text-embedding-3-small: ~$0.00002 per 1K tokens
-            // Promedio de 200 tokens por documento (pregunta + respuesta)
-            double tokensPerDocument = 200.0;
-            double totalTokens = documentCount * tokensPerDocument;
+            long totalTokens = 0;
+            for (DatasetLoader.BarcerasDatasetEntry entry : entries) {
+                totalTokens += tokenizerService.countTokens(entry.question() + " " + entry.answer());
+            }
             double costPer1kTokens = 0.00002;
             double estimatedCost = (totalTokens / 1000.0) * costPer1kTokens;
 
@@ -221,7 +274,7 @@ public class IngestionServiceImpl implements IngestionService {
 
             String breakdown = String.format(
                 "Documents: %d\n" +
-                "Estimated tokens: %.0f\n" +
+                "Estimated tokens: %d (cl100k_base)\n" +
                 "Processing rate: ~50 docs/min\n" +
                 "API: OpenAI text-embedding-3-small ($%.5f per 1K tokens)",
                 documentCount, totalTokens, costPer1kTokens
@@ -260,6 +313,7 @@ public class IngestionServiceImpl implements IngestionService {
 
     /**
      * Intenta inferir la materia del documento basado en el contenido.
+     * Respaldo de MateriaClassifier cuando aún no hay centroides o la clasificación es incierta.
      */
     private String inferMateria(DatasetLoader.BarcerasDatasetEntry entry) {
         String text = (entry.question() + " " + entry.answer()).toLowerCase();
@@ -287,4 +341,30 @@ public class IngestionServiceImpl implements IngestionService {
         // Por defecto
         return "General";
     }
+
+    /**
+     * Acumula tiempo y documentos por etapa durante una ejecución de ingesta.
+     * No es thread-safe: cada ingesta crea su propia instancia.
+     */
+    private static class StageTimer {
+        private final Map<String, long[]> totals = new LinkedHashMap<>();
+
+        /**
+         * Registra la etapa desde stageStart hasta ahora y retorna el instante actual,
+         * para encadenar la medición de la siguiente etapa.
+         */
+        long record(String stage, long stageStart, int documents) {
+            long now = System.nanoTime();
+            long[] total = totals.computeIfAbsent(stage, k -> new long[2]);
+            total[0] += now - stageStart;
+            total[1] += documents;
+            return now;
+        }
+
+        List<IngestionStageStats> snapshot() {
+            List<IngestionStageStats> stats = new ArrayList<>(totals.size());
+            totals.forEach((stage, total) -> stats.add(new IngestionStageStats(stage, (int) total[1], total[0])));
+            return stats;
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package mx.uach.luisamigo.service.ingestion;
+
+/**
+ * Tiempo acumulado de una etapa del pipeline de ingesta.
+ * Permite comparar el throughput (docs/seg) de cada etapa de forma independiente.
+ */
+public record IngestionStageStats(
+    String stage,
+    int documents,
+    long totalNanos
+) {
+    public double totalMillis() {
+        return totalNanos / 1_000_000.0;
+    }
+
+    public double documentsPerSecond() {
+        if (totalNanos == 0) {
+            return 0.0;
+        }
+        return documents / (totalNanos / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,385 @@
+package mx.uach.luisamigo.service.ingestion;
+
+import mx.uach.luisamigo.domain.LegalCitation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extrae referencias legales (números de artículo y leyes) de un texto en una sola pasada, con un
+ * autómata de Aho-Corasick precompilado sobre el texto en minúsculas y sin acentos.
+ *
+ * - Artículos: "artículo 123", "art. 27 bis", "artículos 14 y 16", "Artículo 1o." → 123, 27 bis, 14, 16, 1
+ * - Leyes: nombres y siglas conocidos ("Ley Federal del Trabajo", "LFT") → clave canónica (lft)
+ * - Citas completas: "artículo 123, fracción IV, constitucional", "fracción II del artículo 5 de la LFT"
+ *   → (cpeum, 123, IV), (lft, 5, II)
+ *
+ * Las referencias de cada documento se extraen una vez en la ingesta y se guardan codificadas
+ * (encode/decode) en legal_documents.legal_references; las citas completas van a legal_citations.
+ */
+@Component
+public class LegalReferenceMatcher {
+
+    private static final String ACCENTED = "áéíóúüàèìòùäëïö";
+    private static final String PLAIN = "aeiouuaeiouaeio";
+    private static final String ROMAN = "ivxlcdm";
+    private static final String ARTICLE_PREFIX = "a:";
+    private static final String LAW_PREFIX = "l:";
+    private static final String SEPARATOR = ";";
+    private static final List<String> FRACTION_TRIGGERS = List.of("fraccion", "fracciones", "fracc.", "fr.");
+    private static final List<String> LAW_CONNECTORS = List.of("de la ", "del ", "de los ", "de ");
+
+    /** Alias (en minúsculas, sin acentos) → clave canónica de la ley. */
+    private static final Map<String, String> LAW_ALIASES = lawAliases();
+
+    private enum Kind { ARTICLE, FRACTION, LAW }
+
+    private record Keyword(Kind kind, String law) {}
+
+    private record Parsed(Set<String> articles, Set<String> laws, Set<LegalCitation> citations) {}
+
+    private final AhoCorasick<Keyword> automaton;
+
+    public LegalReferenceMatcher() {
+        Map<String, Keyword> keywords = new LinkedHashMap<>();
+        for (String trigger : List.of("articulo", "articulos", "art.", "arts.", "art")) {
+            keywords.put(trigger, new Keyword(Kind.ARTICLE, null));
+        }
+        for (String trigger : FRACTION_TRIGGERS) {
+            keywords.put(trigger, new Keyword(Kind.FRACTION, null));
+        }
+        LAW_ALIASES.forEach((alias, law) -> keywords.put(alias, new Keyword(Kind.LAW, law)));
+        this.automaton = new AhoCorasick<>(keywords);
+    }
+
+    /**
+     * Referencias mencionadas en el texto.
+     */
+    public References scan(String text) {
+        if (text == null || text.isBlank()) {
+            return References.EMPTY;
+        }
+        Parsed parsed = parse(text);
+        return new References(parsed.articles(), parsed.laws());
+    }
+
+    /**
+     * Citas completas (ley, artículo, fracción) del texto, sin repetidos y en orden de aparición.
+     */
+    public List<LegalCitation> citations(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return List.copyOf(parse(text).citations());
+    }
+
+    private Parsed parse(String text) {
+        String folded = fold(text);
+        List<AhoCorasick.Match<Keyword>> matches = selectLongest(folded, automaton.findAll(folded));
+
+        Map<Integer, String> lawsByStart = new HashMap<>();
+        for (AhoCorasick.Match<Keyword> match : matches) {
+            if (match.value().kind() == Kind.LAW) {
+                lawsByStart.put(match.start(), match.value().law());
+            }
+        }
+
+        Set<String> articles = new LinkedHashSet<>();
+        Set<String> laws = new LinkedHashSet<>();
+        Set<LegalCitation> citations = new LinkedHashSet<>();
+        List<String> pendingFractions = List.of();
+        int pendingAt = -1;
+        int consumed = 0;
+
+        for (AhoCorasick.Match<Keyword> match : matches) {
+            if (match.value().kind() == Kind.LAW) {
+                laws.add(match.value().law());
+                continue;
+            }
+            if (match.start() < consumed) {
+                continue;
+            }
+
+            if (match.value().kind() == Kind.FRACTION) {
+                // "fracción IV del artículo 123": la fracción aplica al artículo que sigue
+                List<String> fractions = new ArrayList<>();
+                int end = parseList(folded, match.end(), fractions, LegalReferenceMatcher::parseRoman);
+                pendingFractions = fractions;
+                pendingAt = afterConnector(folded, end);
+                consumed = end;
+                continue;
+            }
+
+            List<String> numbers = new ArrayList<>();
+            int end = parseList(folded, match.end(), numbers, LegalReferenceMatcher::parseArticle);
+            articles.addAll(numbers);
+
+            List<String> fractions = match.start() == pendingAt ? pendingFractions : List.of();
+            // "artículo 123, fracción IV": la fracción sigue al artículo
+            int next = skip(folded, end, " ,");
+            for (String trigger : FRACTION_TRIGGERS) {
+                if (folded.startsWith(trigger, next) && isBoundary(folded, next + trigger.length(), trigger)) {
+                    List<String> following = new ArrayList<>();
+                    end = parseList(folded, next + trigger.length(), following, LegalReferenceMatcher::parseRoman);
+                    fractions = following;
+                    break;
+                }
+            }
+            consumed = end;
+
+            String law = lawAfter(folded, end, lawsByStart);
+            for (String number : numbers) {
+                if (fractions.isEmpty()) {
+                    citations.add(new LegalCitation(law, number, null));
+                }
+                for (String fraction : fractions) {
+                    citations.add(new LegalCitation(law, number, fraction));
+                }
+            }
+        }
+        return new Parsed(articles, laws, citations);
+    }
+
+    /**
+     * Forma compacta para guardar en legal_documents.legal_references ("a:123;a:27 bis;l:cpeum").
+     */
+    public String encode(References references) {
+        List<String> parts = new ArrayList<>();
+        references.articles().forEach(article -> parts.add(ARTICLE_PREFIX + article));
+        references.laws().forEach(law -> parts.add(LAW_PREFIX + law));
+        return String.join(SEPARATOR, parts);
+    }
+
+    public References decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return References.EMPTY;
+        }
+        Set<String> articles = new LinkedHashSet<>();
+        Set<String> laws = new LinkedHashSet<>();
+        for (String part : encoded.split(SEPARATOR)) {
+            if (part.startsWith(ARTICLE_PREFIX)) {
+                articles.add(part.substring(ARTICLE_PREFIX.length()));
+            } else if (part.startsWith(LAW_PREFIX)) {
+                laws.add(part.substring(LAW_PREFIX.length()));
+            }
+        }
+        return new References(articles, laws);
+    }
+
+    /**
+     * Ocurrencias que empiezan y terminan en límite de palabra, sin traslapes: en cada posición
+     * gana la más larga ("código civil federal" sobre "código civil").
+     */
+    private static List<AhoCorasick.Match<Keyword>> selectLongest(String text, List<AhoCorasick.Match<Keyword>> matches) {
+        List<AhoCorasick.Match<Keyword>> candidates = new ArrayList<>();
+        for (AhoCorasick.Match<Keyword> match : matches) {
+            boolean startsWord = match.start() == 0 || !isWordChar(text.charAt(match.start() - 1));
+            boolean endsWord = match.end() == text.length() || !isWordChar(text.charAt(match.end() - 1))
+                || !isWordChar(text.charAt(match.end()));
+            if (startsWord && endsWord) {
+                candidates.add(match);
+            }
+        }
+        candidates.sort(Comparator.comparingInt((AhoCorasick.Match<Keyword> m) -> m.start())
+            .thenComparing(m -> m.end(), Comparator.reverseOrder()));
+
+        List<AhoCorasick.Match<Keyword>> selected = new ArrayList<>();
+        int lastEnd = 0;
+        for (AhoCorasick.Match<Keyword> match : candidates) {
+            if (match.start() >= lastEnd) {
+                selected.add(match);
+                lastEnd = match.end();
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Un elemento o una lista ("14, 15 y 16", "I y II") después de un disparador. Regresa la
+     * posición donde termina la lista.
+     */
+    private static int parseList(String text, int pos, List<String> values, ItemParser parser) {
+        pos = skip(text, pos, " .");
+        while (true) {
+            StringBuilder value = new StringBuilder();
+            int end = parser.parse(text, pos, value);
+            if (end == pos) {
+                return pos;
+            }
+            values.add(value.toString());
+            pos = end;
+
+            int separator = skip(text, pos, " ");
+            if (separator < text.length() && text.charAt(separator) == ',') {
+                separator++;
+            } else if (text.startsWith("y ", separator) || text.startsWith("e ", separator)) {
+                separator += 2;
+            } else {
+                return pos;
+            }
+            separator = skip(text, separator, " ");
+            StringBuilder lookahead = new StringBuilder();
+            if (parser.parse(text, separator, lookahead) == separator) {
+                return pos;
+            }
+            pos = separator;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ItemParser {
+        /** Lee un elemento en pos y lo agrega a value; regresa el fin, o pos si no hay elemento. */
+        int parse(String text, int pos, StringBuilder value);
+    }
+
+    /**
+     * Número de artículo: "123", "27a", "27 bis"; el ordinal ("1o", "1º", "1°") es el mismo artículo.
+     */
+    private static int parseArticle(String text, int pos, StringBuilder article) {
+        int start = pos;
+        while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos == start) {
+            return start;
+        }
+        article.append(text, start, pos);
+
+        if (pos < text.length() && Character.isLetter(text.charAt(pos))
+            && (pos + 1 == text.length() || !isWordChar(text.charAt(pos + 1)))) {
+            char suffix = text.charAt(pos++);
+            if (suffix != 'o' && suffix != 'º') {
+                article.append(suffix);
+            }
+        } else if (pos < text.length() && text.charAt(pos) == '°') {
+            pos++;
+        }
+
+        int next = skip(text, pos, " .");
+        for (String latin : List.of("bis", "ter", "quater")) {
+            if (text.startsWith(latin, next) && isBoundary(text, next + latin.length(), latin)) {
+                article.append(' ').append(latin);
+                return next + latin.length();
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Fracción en romanos ("iv" → "IV").
+     */
+    private static int parseRoman(String text, int pos, StringBuilder fraction) {
+        int end = pos;
+        while (end < text.length() && ROMAN.indexOf(text.charAt(end)) >= 0) {
+            end++;
+        }
+        if (end == pos || (end < text.length() && isWordChar(text.charAt(end)))) {
+            return pos;
+        }
+        fraction.append(text.substring(pos, end).toUpperCase(Locale.ROOT));
+        return end;
+    }
+
+    /**
+     * Ley indicada justo después de una cita: "constitucional", "de la Constitución", "del CFF".
+     */
+    private static String lawAfter(String text, int pos, Map<Integer, String> lawsByStart) {
+        int start = skip(text, pos, " ,");
+        String law = lawsByStart.get(start);
+        if (law != null) {
+            return law;
+        }
+        for (String connector : LAW_CONNECTORS) {
+            if (text.startsWith(connector, start)) {
+                return lawsByStart.get(start + connector.length());
+            }
+        }
+        return null;
+    }
+
+    private static int afterConnector(String text, int pos) {
+        int start = skip(text, pos, " ,");
+        for (String connector : LAW_CONNECTORS) {
+            if (text.startsWith(connector, start)) {
+                return start + connector.length();
+            }
+        }
+        return start;
+    }
+
+    private static boolean isBoundary(String text, int end, String keyword) {
+        return end == text.length() || !isWordChar(keyword.charAt(keyword.length() - 1))
+            || !isWordChar(text.charAt(end));
+    }
+
+    private static int skip(String text, int pos, String chars) {
+        while (pos < text.length() && chars.indexOf(text.charAt(pos)) >= 0) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Minúsculas y sin acentos, conservando la longitud (las posiciones siguen siendo válidas).
+     */
+    static String fold(String text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int accented = ACCENTED.indexOf(c);
+            chars[i] = Character.isWhitespace(c) ? ' ' : accented >= 0 ? PLAIN.charAt(accented) : c;
+        }
+        return new String(chars);
+    }
+
+    private static Map<String, String> lawAliases() {
+        Map<String, String> aliases = new LinkedHashMap<>();
+        for (String alias : List.of("constitucion politica de los estados unidos mexicanos", "constitucion politica",
+            "constitucion federal", "constitucion mexicana", "constitucion", "constitucional", "constitucionales",
+            "carta magna", "cpeum")) {
+            aliases.put(alias, "cpeum");
+        }
+        aliases.put("ley federal del trabajo", "lft");
+        aliases.put("lft", "lft");
+        aliases.put("ley de amparo", "ley de amparo");
+        aliases.put("codigo civil federal", "ccf");
+        aliases.put("codigo civil", "codigo civil");
+        aliases.put("codigo penal federal", "cpf");
+        aliases.put("codigo penal", "codigo penal");
+        aliases.put("codigo nacional de procedimientos penales", "cnpp");
+        aliases.put("cnpp", "cnpp");
+        aliases.put("codigo federal de procedimientos civiles", "cfpc");
+        aliases.put("codigo de comercio", "ccom");
+        aliases.put("codigo fiscal de la federacion", "cff");
+        aliases.put("ley general de sociedades mercantiles", "lgsm");
+        aliases.put("lgsm", "lgsm");
+        aliases.put("ley general de titulos y operaciones de credito", "lgtoc");
+        aliases.put("ley federal de procedimiento administrativo", "lfpa");
+        aliases.put("ley del seguro social", "lss");
+        return Collections.unmodifiableMap(aliases);
+    }
+
+    /**
+     * Referencias de un texto: números de artículo ("123", "27 bis") y claves de ley ("cpeum").
+     */
+    public record References(Set<String> articles, Set<String> laws) {
+        public static final References EMPTY = new References(Set.of(), Set.of());
+
+        public boolean isEmpty() {
+            return articles.isEmpty() && laws.isEmpty();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package mx.uach.luisamigo.service.ingestion;
 import org.springframework.stereotype.Component;
 
 import java.text.Normalizer;
+import java.util.Locale;
 import java.util.regex.Pattern;
 
 /**
@@ -14,6 +15,15 @@ public class TextNormalizer {
     private static final Pattern MULTIPLE_SPACES = Pattern.compile("\\s+");
     private static final Pattern MULTIPLE_NEWLINES = Pattern.compile("\n{3,}");
     private static final Pattern HTML_TAGS = Pattern.compile("<[^>]+>");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Patrones comunes de referencias legales (extractLegalReference), en orden de preferencia
+    private static final Pattern[] LEGAL_REFERENCE_PATTERNS = {
+        Pattern.compile("(?i)artículo\\s+(\\d+[a-z]?(?:\\s+bis)?(?:\\s+ter)?)"),
+        Pattern.compile("(?i)art\\.?\\s+(\\d+[a-z]?)"),
+        Pattern.compile("(?i)(constitución|código|ley)\\s+[a-záéíóúñ\\s]+", Pattern.CASE_INSENSITIVE)
+    };
 
     /**
      * Normaliza un texto completo.
@@ -40,6 +50,22 @@ public class TextNormalizer {
         return normalized;
     }
 
+    /**
+     * Forma canónica para comparar preguntas por igualdad: normalize() y además minúsculas,
+     * sin acentos ni puntuación (incluidos ¿ y ¡) y con un solo espacio entre palabras.
+     * "¿Qué es el Amparo?" y "que es el amparo" tienen la misma forma canónica.
+     */
+    public String canonicalize(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return normalized;
+        }
+
+        String folded = Normalizer.normalize(normalized.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        folded = DIACRITICS.matcher(folded).replaceAll("");
+        return NON_WORD.matcher(folded).replaceAll(" ").trim();
+    }
+
     /**
      * Limpia texto pero preserva estructura básica.
      */
@@ -91,22 +117,16 @@ public class TextNormalizer {
     }
 
     /**
-     * Extrae referencia legal del texto si existe.
-     * Busca patrones como "Artículo 123", "Art. 45", etc.
+     * Extrae la primera referencia legal del texto, si existe, como texto libre para mostrar.
+     * Busca patrones como "Artículo 123", "Art. 45", etc. Las citas completas y normalizadas
+     * las extrae LegalReferenceMatcher.citations.
      */
     public String extractLegalReference(String text) {
         if (text == null || text.isBlank()) {
             return null;
         }
 
-        // Patrones comunes de referencias legales
-        Pattern[] patterns = {
-            Pattern.compile("(?i)artículo\\s+(\\d+[a-z]?(?:\\s+bis)?(?:\\s+ter)?)"),
-            Pattern.compile("(?i)art\\.?\\s+(\\d+[a-z]?)"),
-            Pattern.compile("(?i)(constitución|código|ley)\\s+[a-záéíóúñ\\s]+", Pattern.CASE_INSENSITIVE)
-        };
-
-        for (Pattern pattern : patterns) {
+        for (Pattern pattern : LEGAL_REFERENCE_PATTERNS) {
             var matcher = pattern.matcher(text);
             if (matcher.find()) {
                 return matcher.group(0).trim();
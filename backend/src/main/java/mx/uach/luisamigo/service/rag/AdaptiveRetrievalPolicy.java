@@ -0,0 +1,99 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decide cuántos documentos recuperados pasan al prompt:
+ *
+ * - Se piden hasta max-top-k (o el topK del request, si es menor)
+ * - Se descartan los que quedan por debajo de min-similarity-score
+ * - Entre los restantes se corta en la mayor caída de similitud entre documentos consecutivos,
+ *   si supera min-drop-off
+ *
+ * Una pregunta casi textual a un par del dataset queda con 1-2 contextos; una que necesita
+ * síntesis conserva los documentos de similitud pareja. Los documentos fijos (búsqueda por cita)
+ * se conservan siempre y el corte se aplica a los que siguen.
+ */
+@Component
+public class AdaptiveRetrievalPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveRetrievalPolicy.class);
+
+    private final RagProperties ragProperties;
+    private final RagProperties.AdaptiveRetrievalConfig config;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary keptDocuments;
+
+    public AdaptiveRetrievalPolicy(RagProperties ragProperties, MeterRegistry meterRegistry) {
+        this.ragProperties = ragProperties;
+        this.config = ragProperties.getAdaptiveRetrieval();
+        this.meterRegistry = meterRegistry;
+        this.keptDocuments = DistributionSummary.builder("luisamigo.rag.retrieval.documents")
+            .description("Retrieved documents passed to the prompt after the adaptive cutoff")
+            .publishPercentiles(0.5, 0.9)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Documentos a pedir al vector store.
+     *
+     * @param requestedTopK topK del request, o null para usar la configuración
+     */
+    public int fetchSize(Integer requestedTopK) {
+        int limit = config.isEnabled() ? ragProperties.getMaxTopK() : ragProperties.getDefaultTopK();
+        return requestedTopK != null ? Math.min(requestedTopK, ragProperties.getMaxTopK()) : limit;
+    }
+
+    /**
+     * Si el mejor candidato alcanza el piso de similitud, es decir, si select() conservará algún
+     * documento no fijo.
+     */
+    public boolean reachesFloor(RetrievalResult candidates) {
+        return candidates.size() > 0 && candidates.topSimilarity() >= ragProperties.getMinSimilarityScore();
+    }
+
+    /**
+     * Aplica el piso de similitud y el corte por caída a los documentos recuperados (orden de rank).
+     * Puede devolver un resultado vacío si ninguno alcanza el piso.
+     */
+    public RetrievalResult select(RetrievalResult candidates) {
+        if (!config.isEnabled() || candidates.size() == 0) {
+            return candidates;
+        }
+
+        double[] similarities = candidates.similarities();
+        int pinned = candidates.pinned();
+        int kept = pinned;
+        while (kept < similarities.length && similarities[kept] >= ragProperties.getMinSimilarityScore()) {
+            kept++;
+        }
+        String cutoff = kept < similarities.length ? "floor" : "none";
+
+        // Mayor caída entre documentos consecutivos por encima del piso
+        int cutAfter = -1;
+        double largestDrop = config.getMinDropOff();
+        for (int i = Math.max(Math.max(config.getMinDocuments(), 1) - 1, pinned); i + 1 < kept; i++) {
+            double drop = similarities[i] - similarities[i + 1];
+            if (drop >= largestDrop) {
+                largestDrop = drop;
+                cutAfter = i;
+            }
+        }
+        if (cutAfter >= 0) {
+            kept = cutAfter + 1;
+            cutoff = "drop_off";
+        }
+
+        keptDocuments.record(kept);
+        meterRegistry.counter("luisamigo.rag.retrieval.cutoff", "reason", cutoff).increment();
+        log.debug("Adaptive retrieval kept {} of {} documents (cutoff: {}, top similarity: {})",
+            kept, candidates.size(), cutoff, String.format("%.3f", candidates.topSimilarity()));
+
+        return candidates.limit(kept);
+    }
+}
@@ -0,0 +1,31 @@
+package mx.uach.luisamigo.service.rag;
+
+/**
+ * Secciones de la respuesta pedagógica estructurada, en el orden en que se presentan al estudiante.
+ * En generación seccionada cada una se pide al LLM en una llamada independiente.
+ */
+public enum AnswerSection {
+
+    SUMMARY("Resumen",
+        "Escribe ÚNICAMENTE el resumen corto de la respuesta (2-3 líneas)."),
+    EXPLANATION("Explicación",
+        "Escribe ÚNICAMENTE la explicación extendida de la respuesta, fundamentada en el contexto y citando "
+            + "los fundamentos jurídicos que contenga."),
+    EXAMPLE("Ejemplo práctico",
+        "Escribe ÚNICAMENTE un ejemplo práctico breve que ilustre la respuesta. Si el contexto no permite "
+            + "construir un ejemplo fundamentado, responde solo con: \"" + AnswerSection.EMPTY_MARKER + "\"");
+
+    /** Respuesta de una sección sin contenido; se omite al unir las secciones. */
+    static final String EMPTY_MARKER = "Sin ejemplo disponible.";
+
+    private final String heading;
+    private final String instruction;
+
+    AnswerSection(String heading, String instruction) {
+        this.heading = heading;
+        this.instruction = instruction;
+    }
+
+    public String getHeading() { return heading; }
+    public String getInstruction() { return instruction; }
+}
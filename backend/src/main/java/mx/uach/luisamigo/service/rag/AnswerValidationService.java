@@ -0,0 +1,141 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.repository.ValidationWarningRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta la validación anti-alucinación (HallucinationValidator) según el modo configurado:
+ *
+ * - INLINE: valida antes de devolver la respuesta (despliegues estrictos)
+ * - ASYNC: encola la validación y responde sin esperarla
+ * - SAMPLED: como ASYNC, pero solo para una fracción de las respuestas
+ *
+ * El ejecutor en segundo plano está acotado (workers + cola); si se llena, la validación se
+ * descarta y se cuenta, nunca frena al request. Los warnings se guardan en
+ * answer_validation_warnings y se exponen como métricas (luisamigo.rag.validation*).
+ */
+@Component
+public class AnswerValidationService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerValidationService.class);
+
+    private final RagProperties.ValidationConfig config;
+    private final HallucinationValidator hallucinationValidator;
+    private final ValidationWarningRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+
+    public AnswerValidationService(
+        RagProperties ragProperties,
+        HallucinationValidator hallucinationValidator,
+        ValidationWarningRepository repository,
+        MeterRegistry meterRegistry
+    ) {
+        this.config = ragProperties.getValidation();
+        this.hallucinationValidator = hallucinationValidator;
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+
+        int workers = Math.max(1, config.getWorkers());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            workers, workers, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+            task -> {
+                Thread thread = new Thread(task, "answer-validation-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            (task, pool) -> {
+                record("dropped");
+                log.debug("Validation queue full; skipping validation");
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+        meterRegistry.gauge("luisamigo.rag.validation.queue", executor.getQueue(), Queue::size);
+    }
+
+    /**
+     * Valida la respuesta contra los documentos de contexto. En modo INLINE bloquea hasta terminar;
+     * en los demás regresa de inmediato.
+     */
+    public void validate(String question, String answer, List<DocumentEmbedding> contextDocuments) {
+        RagProperties.ValidationConfig.Mode mode = config.getMode();
+        switch (mode) {
+            case INLINE -> run(mode, question, answer, contextDocuments);
+            case ASYNC -> executor.execute(() -> run(mode, question, answer, contextDocuments));
+            case SAMPLED -> {
+                if (ThreadLocalRandom.current().nextDouble() < config.getSampleRate()) {
+                    executor.execute(() -> run(mode, question, answer, contextDocuments));
+                } else {
+                    record("skipped");
+                }
+            }
+        }
+    }
+
+    private void run(
+        RagProperties.ValidationConfig.Mode mode,
+        String question,
+        String answer,
+        List<DocumentEmbedding> contextDocuments
+    ) {
+        try {
+            List<LegalDocument> documents = contextDocuments.stream()
+                .map(DocumentEmbedding::getDocument)
+                .toList();
+
+            HallucinationValidator.ValidationResult validation = Timer.builder("luisamigo.rag.validation.latency")
+                .tag("mode", modeTag(mode))
+                .register(meterRegistry)
+                .record(() -> hallucinationValidator.validate(answer, documents));
+
+            if (!validation.hasWarnings()) {
+                record("valid");
+                return;
+            }
+            record("warnings");
+            meterRegistry.counter("luisamigo.rag.validation.warnings").increment(validation.warnings().size());
+            log.warn("Validation warnings detected: {}", validation.warnings());
+
+            if (config.isPersistWarnings()) {
+                List<Long> documentIds = documents.stream().map(LegalDocument::getId).toList();
+                repository.insert(question, answer, mode.name(), validation.warnings(), documentIds);
+            }
+        } catch (RuntimeException e) {
+            // La validación solo aporta señal de calidad: una falla nunca afecta la respuesta
+            record("failed");
+            log.warn("Answer validation failed: {}", e.getMessage());
+        }
+    }
+
+    private void record(String result) {
+        meterRegistry.counter("luisamigo.rag.validation", "mode", modeTag(config.getMode()), "result", result)
+            .increment();
+    }
+
+    private static String modeTag(RagProperties.ValidationConfig.Mode mode) {
+        return mode.name().toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,95 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalCitation;
+import mx.uach.luisamigo.service.ingestion.LegalReferenceMatcher;
+import mx.uach.luisamigo.service.vectorstore.SearchFilters;
+import mx.uach.luisamigo.service.vectorstore.VectorStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Búsqueda directa por cita: si la pregunta menciona un artículo de una ley identificable
+ * ("artículo 123 constitucional", "art. 61 de la LFT"), busca en el índice legal_citations los
+ * documentos que lo citan. Esos documentos se anteponen a los resultados vectoriales
+ * (RetrievalResult.withPinned), así que una pregunta por un artículo concreto siempre los tiene
+ * en el contexto aunque su embedding no sea el más cercano.
+ *
+ * Las citas sin ley ("el artículo 5") no se buscan: son ambiguas entre leyes.
+ * Una falla del índice nunca interrumpe la respuesta: se sigue solo con la búsqueda vectorial.
+ */
+@Component
+public class CitationRetriever {
+
+    private static final Logger log = LoggerFactory.getLogger(CitationRetriever.class);
+
+    private final RagProperties.CitationLookupConfig config;
+    private final LegalReferenceMatcher referenceMatcher;
+    private final VectorStoreService vectorStoreService;
+    private final MeterRegistry meterRegistry;
+
+    public CitationRetriever(
+        RagProperties ragProperties,
+        LegalReferenceMatcher referenceMatcher,
+        VectorStoreService vectorStoreService,
+        MeterRegistry meterRegistry
+    ) {
+        this.config = ragProperties.getCitationLookup();
+        this.referenceMatcher = referenceMatcher;
+        this.vectorStoreService = vectorStoreService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Documentos que citan los artículos mencionados en la pregunta (vacío si no menciona ninguno).
+     */
+    public List<DocumentEmbedding> find(String question, float[] queryEmbedding, SearchFilters filters) {
+        if (!config.isEnabled()) {
+            return List.of();
+        }
+        List<LegalCitation> citations = referenceMatcher.citations(question).stream()
+            .filter(citation -> citation.law() != null)
+            .limit(config.getMaxCitations())
+            .toList();
+        if (citations.isEmpty()) {
+            return List.of();
+        }
+
+        try {
+            List<DocumentEmbedding> documents = new ArrayList<>();
+            Set<Long> seen = new HashSet<>();
+            for (LegalCitation citation : citations) {
+                int remaining = config.getMaxDocuments() - documents.size();
+                if (remaining <= 0) {
+                    break;
+                }
+                for (DocumentEmbedding embedding : vectorStoreService.findByCitation(
+                        citation, queryEmbedding, remaining, filters)) {
+                    if (seen.add(embedding.getId())) {
+                        documents.add(embedding);
+                    }
+                }
+            }
+
+            record(documents.isEmpty() ? "miss" : "hit");
+            log.debug("Citation lookup for {}: {} documents", citations, documents.size());
+            return documents;
+        } catch (RuntimeException e) {
+            record("error");
+            log.warn("Citation lookup failed, using vector search only: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void record(String result) {
+        meterRegistry.counter("luisamigo.rag.citation_lookup", "result", result).increment();
+    }
+}
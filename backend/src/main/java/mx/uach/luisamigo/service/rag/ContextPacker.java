@@ -0,0 +1,310 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Empaqueta los documentos recuperados en un presupuesto de tokens para el contexto del prompt:
+ *
+ * - Descarta pasajes casi duplicados de uno mejor rankeado (Jaccard de shingles de 3 palabras)
+ * - Reparte el presupuesto por peso = similitud / (1 + rankDecay * rank); lo que un documento
+ *   corto no usa pasa a los siguientes
+ * - Un documento que no cabe en su asignación se recorta a sus oraciones más relevantes para la
+ *   pregunta (solapamiento de términos), conservando el orden original
+ */
+@Component
+public class ContextPacker {
+
+    private static final Logger log = LoggerFactory.getLogger(ContextPacker.class);
+
+    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("(?<=[.!?;])\\s+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final String GAP = " [...] ";
+    private static final int GAP_TOKENS = 4;
+    private static final double MIN_WEIGHT = 0.05;
+    private static final double LEAD_SENTENCE_BONUS = 0.1; // la primera oración suele ser la definición
+
+    private static final Set<String> STOPWORDS = Set.of(
+        "que", "los", "las", "del", "por", "para", "con", "una", "uno", "unos", "unas", "como", "mas",
+        "pero", "sus", "ser", "son", "este", "esta", "esto", "estos", "estas", "ese", "esa", "eso",
+        "entre", "cual", "cuales", "sobre", "sin", "hay", "cuando", "donde", "quien", "tiene", "puede",
+        "debe", "dice", "sea", "fue", "han", "muy", "tambien", "segun", "hasta", "desde", "otro", "otra"
+    );
+
+    private final RagProperties.ContextPackingConfig config;
+    private final TokenizerService tokenizerService;
+    private final Counter duplicatesDropped;
+
+    public ContextPacker(RagProperties ragProperties, TokenizerService tokenizerService, MeterRegistry meterRegistry) {
+        this.config = ragProperties.getContextPacking();
+        this.tokenizerService = tokenizerService;
+        this.duplicatesDropped = Counter.builder("luisamigo.rag.context.duplicates")
+            .description("Retrieved passages dropped as near-duplicates of a better ranked one")
+            .register(meterRegistry);
+    }
+
+    public PackedContext pack(String question, RetrievalResult retrieval) {
+        List<Candidate> candidates = new ArrayList<>(retrieval.size());
+        int originalTokens = 0;
+        int duplicates = 0;
+
+        for (int rank = 0; rank < retrieval.size(); rank++) {
+            DocumentEmbedding embedding = retrieval.documents().get(rank);
+            Candidate candidate = new Candidate(embedding, rank, retrieval.similarities()[rank]);
+            originalTokens += candidate.fullTokens;
+
+            if (config.isEnabled() && isDuplicate(candidate, candidates)) {
+                duplicates++;
+                continue;
+            }
+            candidates.add(candidate);
+        }
+
+        if (!config.isEnabled()) {
+            List<PackedContext.Passage> passages = candidates.stream().map(Candidate::full).toList();
+            return new PackedContext(passages, originalTokens, originalTokens, 0);
+        }
+
+        Set<String> queryTerms = terms(question);
+        List<PackedContext.Passage> passages = new ArrayList<>(candidates.size());
+        int remaining = config.getMaxContextTokens();
+        double remainingWeight = candidates.stream().mapToDouble(this::weight).sum();
+        int packedTokens = 0;
+
+        for (Candidate candidate : candidates) {
+            double weight = weight(candidate);
+            int share = (int) (remaining * weight / remainingWeight);
+            int allocation = Math.min(remaining, Math.max(share, config.getMinDocumentTokens()));
+            remainingWeight -= weight;
+
+            if (allocation < config.getMinDocumentTokens()) {
+                break; // presupuesto agotado: el resto de documentos no entra
+            }
+
+            PackedContext.Passage passage = candidate.fullTokens <= allocation
+                ? candidate.full()
+                : trim(candidate, allocation, queryTerms);
+            if (passage == null) {
+                continue;
+            }
+            passages.add(passage);
+            remaining -= passage.tokens();
+            packedTokens += passage.tokens();
+        }
+
+        if (duplicates > 0) {
+            duplicatesDropped.increment(duplicates);
+        }
+        log.debug("Context packed: {} -> {} tokens, {} of {} documents kept, {} duplicates dropped",
+            originalTokens, packedTokens, passages.size(), retrieval.size(), duplicates);
+
+        return new PackedContext(passages, originalTokens, packedTokens, duplicates);
+    }
+
+    private double weight(Candidate candidate) {
+        return Math.max(MIN_WEIGHT, candidate.similarity) / (1 + config.getRankDecay() * candidate.rank);
+    }
+
+    private boolean isDuplicate(Candidate candidate, List<Candidate> accepted) {
+        for (Candidate other : accepted) {
+            if (jaccard(candidate.shingles, other.shingles) >= config.getDuplicateThreshold()) {
+                log.debug("Dropping document {} as near-duplicate of {}",
+                    candidate.document.getId(), other.document.getId());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Recorta un documento a su asignación: la pregunta original si cabe y luego las oraciones de la
+     * respuesta de mayor relevancia que quepan, emitidas en su orden original.
+     */
+    private PackedContext.Passage trim(Candidate candidate, int allocation, Set<String> queryTerms) {
+        String docQuestion = candidate.question;
+        int questionTokens = candidate.questionTokens;
+        if (questionTokens > allocation / 3) {
+            docQuestion = null;  // la pregunta no debe desplazar a la respuesta
+            questionTokens = 0;
+        }
+        int available = allocation - questionTokens;
+
+        String[] sentences = SENTENCE_BOUNDARY.split(candidate.answer.strip());
+        int[] sentenceTokens = new int[sentences.length];
+        Integer[] order = new Integer[sentences.length];
+        double[] scores = new double[sentences.length];
+        for (int i = 0; i < sentences.length; i++) {
+            sentenceTokens[i] = tokenizerService.countTokens(sentences[i]);
+            scores[i] = relevance(sentences[i], queryTerms) + (i == 0 ? LEAD_SENTENCE_BONUS : 0);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+
+        boolean[] selected = new boolean[sentences.length];
+        int used = 0;
+        for (int i : order) {
+            int cost = sentenceTokens[i] + (used > 0 ? GAP_TOKENS : 0);
+            if (used + cost <= available) {
+                selected[i] = true;
+                used += cost;
+            }
+        }
+
+        String answer;
+        if (used == 0) {
+            // Ni la oración más relevante cabe completa: se corta a la asignación
+            answer = tokenizerService.truncate(sentences[order[0]], available);
+            used = tokenizerService.countTokens(answer);
+            if (answer.isBlank()) {
+                return null;
+            }
+        } else {
+            answer = join(sentences, selected);
+        }
+
+        return new PackedContext.Passage(candidate.document, docQuestion, answer, questionTokens + used, true);
+    }
+
+    /**
+     * Une las oraciones seleccionadas; los huecos entre oraciones no contiguas se marcan con [...].
+     */
+    private static String join(String[] sentences, boolean[] selected) {
+        StringBuilder text = new StringBuilder();
+        int last = -1;
+        for (int i = 0; i < sentences.length; i++) {
+            if (!selected[i]) {
+                continue;
+            }
+            if (last >= 0) {
+                text.append(i == last + 1 ? " " : GAP);
+            } else if (i > 0) {
+                text.append("[...] ");
+            }
+            text.append(sentences[i]);
+            last = i;
+        }
+        if (last < sentences.length - 1) {
+            text.append(" [...]");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Términos compartidos con la pregunta, normalizado por la longitud de la oración.
+     */
+    private static double relevance(String sentence, Set<String> queryTerms) {
+        Set<String> sentenceTerms = terms(sentence);
+        if (sentenceTerms.isEmpty()) {
+            return 0.0;
+        }
+        int shared = 0;
+        for (String term : sentenceTerms) {
+            if (queryTerms.contains(term)) {
+                shared++;
+            }
+        }
+        return shared / Math.sqrt(sentenceTerms.size());
+    }
+
+    /**
+     * Términos de contenido: minúsculas, sin acentos, sin stopwords ni palabras de menos de 3 letras.
+     */
+    static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        for (String word : words(text)) {
+            if (word.length() >= 3 && !STOPWORDS.contains(word)) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    private static List<String> words(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD)).replaceAll("");
+        List<String> words = new ArrayList<>();
+        for (String word : NON_WORD.split(folded)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static Set<String> shingles(String text) {
+        List<String> words = words(text);
+        Set<String> shingles = new HashSet<>();
+        if (words.size() < 3) {
+            shingles.addAll(words);
+            return shingles;
+        }
+        for (int i = 0; i + 3 <= words.size(); i++) {
+            shingles.add(words.get(i) + ' ' + words.get(i + 1) + ' ' + words.get(i + 2));
+        }
+        return shingles;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (String shingle : smaller) {
+            if (larger.contains(shingle)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    /**
+     * Documento candidato con sus conteos de tokens precalculados.
+     */
+    private final class Candidate {
+        private final DocumentEmbedding document;
+        private final int rank;
+        private final double similarity;
+        private final String question;
+        private final String answer;
+        private final int questionTokens;
+        private final int fullTokens;
+        private final Set<String> shingles;
+
+        Candidate(DocumentEmbedding document, int rank, double similarity) {
+            LegalDocument doc = document.getDocument();
+            this.document = document;
+            this.rank = rank;
+            this.similarity = similarity;
+            this.question = doc.getQuestion() != null && !doc.getQuestion().isBlank() ? doc.getQuestion() : null;
+            this.answer = doc.getAnswer() != null ? doc.getAnswer() : "";
+            this.questionTokens = tokenizerService.countTokens(question);
+            this.fullTokens = questionTokens + tokenizerService.countTokens(answer);
+            this.shingles = shingles(answer);
+        }
+
+        PackedContext.Passage full() {
+            return new PackedContext.Passage(document, question, answer, fullTokens, false);
+        }
+    }
+}
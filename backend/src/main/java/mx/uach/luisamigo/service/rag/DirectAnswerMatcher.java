@@ -0,0 +1,63 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.service.vectorstore.SearchFilters;
+import mx.uach.luisamigo.service.vectorstore.VectorStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Busca un par del dataset cuya pregunta coincide casi textualmente con la del estudiante
+ * (similitud del embedding de la pregunta ≥ min-similarity). Con una coincidencia, la respuesta
+ * almacenada se entrega tal cual y se omiten la recuperación completa y el LLM.
+ */
+@Component
+public class DirectAnswerMatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectAnswerMatcher.class);
+
+    private final RagProperties.DirectMatchConfig config;
+    private final VectorStoreService vectorStoreService;
+    private final MeterRegistry meterRegistry;
+
+    public DirectAnswerMatcher(RagProperties ragProperties, VectorStoreService vectorStoreService, MeterRegistry meterRegistry) {
+        this.config = ragProperties.getDirectMatch();
+        this.vectorStoreService = vectorStoreService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Coincidencia directa para la consulta, o vacío si está deshabilitado o no alcanza el umbral.
+     * Una falla en la búsqueda se trata como "sin coincidencia" para no bloquear el flujo normal.
+     */
+    public Optional<VectorStoreService.QuestionMatch> match(float[] queryEmbedding, SearchFilters filters) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+
+        Optional<VectorStoreService.QuestionMatch> closest;
+        try {
+            closest = vectorStoreService.findClosestQuestion(queryEmbedding, filters);
+        } catch (RuntimeException e) {
+            log.warn("Direct match lookup failed, falling back to generation: {}", e.getMessage());
+            meterRegistry.counter("luisamigo.rag.direct_match", "result", "error").increment();
+            return Optional.empty();
+        }
+
+        Optional<VectorStoreService.QuestionMatch> match = closest
+            .filter(candidate -> candidate.similarity() >= config.getMinSimilarity());
+        meterRegistry.counter("luisamigo.rag.direct_match", "result", match.isPresent() ? "hit" : "miss").increment();
+        closest.ifPresent(candidate -> log.debug("Closest dataset question: document {} (similarity {})",
+            candidate.embedding().getDocument().getId(), String.format("%.3f", candidate.similarity())));
+
+        return match;
+    }
+}
@@ -0,0 +1,282 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.dto.request.AskRequest;
+import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.dto.response.SourceReference;
+import mx.uach.luisamigo.repository.LegalDocumentRepository;
+import mx.uach.luisamigo.service.ingestion.TextNormalizer;
+import mx.uach.luisamigo.service.vectorstore.CorpusChangedEvent;
+import mx.uach.luisamigo.service.vectorstore.CorpusVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Índice en memoria de preguntas exactas: responde una pregunta repetida (misma forma canónica y
+ * materia) antes de generar el embedding, sin búsqueda ni LLM.
+ *
+ * - Entradas del dataset: una por pregunta de LegalDocument, con su respuesta y fuente; se
+ *   siembran al arrancar (solo las columnas necesarias, sin entidades completas)
+ * - Entradas generadas: respuestas del LLM ya entregadas, en un LRU acotado
+ *
+ * Ambas se mantienen con CorpusChangedEvent (local o de otro nodo) en lugar de resembrar por
+ * generación: un alta carga solo los ids del evento; un borrado elimina las entradas que citan
+ * documentos borrados. Un alta no afecta a las generadas, porque siguen respaldadas por sus fuentes.
+ * Solo un cambio sin detalle (UNKNOWN o alta sin ids) vuelve a sembrar todo.
+ *
+ * Si se borra el documento que ganó una pregunta compartida por varios, la pregunta deja de
+ * responderse desde el dataset hasta la siguiente siembra completa.
+ */
+@Component
+public class FaqIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FaqIndex.class);
+
+    /**
+     * Respuesta indexada.
+     */
+    public record Entry(String answer, List<SourceReference> sources, Origin origin, long corpusVersion) {}
+
+    public enum Origin { DATASET, GENERATED }
+
+    private record Key(String question, String materia) {}
+
+    private final RagProperties.FaqIndexConfig config;
+    private final TextNormalizer textNormalizer;
+    private final LegalDocumentRepository documentRepository;
+    private final ResponseFormatter responseFormatter;
+    private final CorpusVersion corpusVersion;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Key, Entry> generatedEntries;
+    private final AtomicBoolean seeding = new AtomicBoolean();
+    private final AtomicBoolean seedRequested = new AtomicBoolean();
+    private final Object datasetLock = new Object();
+    private volatile Map<Key, Entry> datasetEntries = new ConcurrentHashMap<>();
+    private List<CorpusChangedEvent> changesDuringSeed;  // no null mientras corre una siembra; protegido por datasetLock
+    private volatile boolean seeded;
+    private volatile long lastSeedAttemptNanos;
+    private volatile boolean lastSeedFailed;
+
+    public FaqIndex(
+        RagProperties ragProperties,
+        TextNormalizer textNormalizer,
+        LegalDocumentRepository documentRepository,
+        ResponseFormatter responseFormatter,
+        CorpusVersion corpusVersion,
+        MeterRegistry meterRegistry
+    ) {
+        this.config = ragProperties.getFaqIndex();
+        this.textNormalizer = textNormalizer;
+        this.documentRepository = documentRepository;
+        this.responseFormatter = responseFormatter;
+        this.corpusVersion = corpusVersion;
+        this.meterRegistry = meterRegistry;
+        int maxGenerated = config.getMaxGeneratedEntries();
+        this.generatedEntries = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxGenerated;
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (config.isEnabled() && config.isSeedFromDataset()) {
+            seedAsync();
+        }
+    }
+
+    /**
+     * Generación actual del corpus; se pasa a remember() para no indexar una respuesta
+     * construida con un corpus que cambió mientras se generaba.
+     */
+    public long corpusVersion() {
+        return corpusVersion.current();
+    }
+
+    /**
+     * Respuesta indexada para la pregunta del request. Los requests con filtro de semestre no se
+     * indexan (el índice solo distingue materia).
+     */
+    public Optional<Entry> lookup(AskRequest request) {
+        if (!indexable(request)) {
+            return Optional.empty();
+        }
+
+        Key key = key(request.question(), request.materia());
+
+        if (config.isSeedFromDataset() && !seeded && !seeding.get()) {
+            seedAsync();
+        }
+
+        Entry entry = datasetEntries.get(key);
+        if (entry == null) {
+            entry = generatedEntries.get(key);
+        }
+
+        meterRegistry.counter("luisamigo.rag.faq_index",
+            "result", entry == null ? "miss" : "hit_" + entry.origin().name().toLowerCase()).increment();
+        return Optional.ofNullable(entry);
+    }
+
+    /**
+     * Indexa una respuesta generada para servirla a la próxima pregunta idéntica.
+     *
+     * @param corpusVersion Generación del corpus al iniciar el request (corpusVersion())
+     */
+    public void remember(AskRequest request, AskResponse response, long corpusVersion) {
+        if (!indexable(request) || !config.isCacheGeneratedAnswers() || corpusVersion != this.corpusVersion.current()) {
+            return;
+        }
+        generatedEntries.put(key(request.question(), request.materia()),
+            new Entry(response.answer(), response.sources(), Origin.GENERATED, corpusVersion));
+    }
+
+    @EventListener
+    public void onCorpusChanged(CorpusChangedEvent event) {
+        if (event.change() != CorpusChangedEvent.Change.STORED) {
+            synchronized (generatedEntries) {
+                generatedEntries.values().removeIf(entry -> entry.sources().isEmpty()
+                    || entry.sources().stream().anyMatch(source -> event.affects(source.documentId(), source.source())));
+            }
+        }
+
+        if (!config.isEnabled() || !config.isSeedFromDataset()) {
+            return;
+        }
+        if (event.change() == CorpusChangedEvent.Change.UNKNOWN
+            || (event.change() == CorpusChangedEvent.Change.STORED && event.documentIds().isEmpty())) {
+            seedAsync();
+            return;
+        }
+        // Una siembra en curso pudo leer la tabla antes de este cambio: lo vuelve a aplicar al terminar
+        synchronized (datasetLock) {
+            if (changesDuringSeed != null) {
+                changesDuringSeed.add(event);
+            }
+        }
+        try {
+            apply(event, datasetEntries);
+        } catch (RuntimeException e) {
+            log.warn("Could not update FAQ index for corpus change: {}; reseeding", e.getMessage());
+            seedAsync();
+        }
+    }
+
+    /**
+     * Aplica un alta (carga las filas de los ids del evento) o un borrado a las entradas del dataset.
+     */
+    private void apply(CorpusChangedEvent event, Map<Key, Entry> entries) {
+        if (event.change() == CorpusChangedEvent.Change.STORED) {
+            for (CorpusChangedEvent.IdRange range : event.documentIds()) {
+                documentRepository.findFaqRowsByIdBetween(range.from(), range.to())
+                    .forEach(row -> add(entries, row, event.generation()));
+            }
+        } else if (event.isDeletion()) {
+            entries.values().removeIf(entry -> entry.sources().stream()
+                .anyMatch(source -> event.affects(source.documentId(), source.source())));
+        }
+    }
+
+    private boolean indexable(AskRequest request) {
+        return config.isEnabled() && request.semesterLevel() == null;
+    }
+
+    /**
+     * Siembra en segundo plano; como máximo una siembra a la vez y, tras una falla, un intento
+     * por seed-retry-interval-seconds. Una petición durante una siembra en curso se atiende con
+     * una siembra más al terminar.
+     */
+    private void seedAsync() {
+        if (lastSeedFailed && System.nanoTime() - lastSeedAttemptNanos
+                < TimeUnit.SECONDS.toNanos(config.getSeedRetryIntervalSeconds())) {
+            return;
+        }
+        seedRequested.set(true);
+        if (seeding.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("faq-index-seed").start(() -> {
+                try {
+                    while (seedRequested.getAndSet(false)) {
+                        seed();
+                    }
+                } finally {
+                    seeding.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Construye las entradas del dataset desde cero y reaplica los cambios llegados mientras tanto.
+     */
+    void seed() {
+        lastSeedAttemptNanos = System.nanoTime();
+        long version = corpusVersion.current();
+        synchronized (datasetLock) {
+            changesDuringSeed = new ArrayList<>();
+        }
+        try {
+            List<LegalDocumentRepository.FaqRow> rows = documentRepository.findFaqRows();
+            Map<Key, Entry> entries = new ConcurrentHashMap<>(rows.size() * 2);
+            rows.forEach(row -> add(entries, row, version));
+
+            List<CorpusChangedEvent> replay;
+            synchronized (datasetLock) {
+                datasetEntries = entries;
+                replay = changesDuringSeed;
+                changesDuringSeed = null;
+            }
+            replay.forEach(event -> apply(event, entries));
+
+            seeded = true;
+            lastSeedFailed = false;
+            log.info("FAQ index seeded with {} questions from {} documents (corpus generation {})",
+                entries.size(), rows.size(), version);
+        } catch (RuntimeException e) {
+            synchronized (datasetLock) {
+                changesDuringSeed = null;
+            }
+            lastSeedFailed = true;
+            log.warn("Could not seed FAQ index from dataset: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Indexa un documento sin materia y con la suya. Si dos documentos comparten la forma canónica
+     * de la pregunta, gana el primero.
+     */
+    private void add(Map<Key, Entry> entries, LegalDocumentRepository.FaqRow row, long version) {
+        if (row.getQuestion() == null || row.getQuestion().isBlank()
+            || row.getAnswer() == null || row.getAnswer().isBlank()) {
+            return;
+        }
+        Entry entry = new Entry(row.getAnswer(),
+            List.of(responseFormatter.buildSource(row.getId(), row.getAnswer(), row.getLawReference(), row.getSource())),
+            Origin.DATASET, version);
+        entries.putIfAbsent(key(row.getQuestion(), null), entry);
+        if (row.getMateria() != null && !row.getMateria().isBlank()) {
+            entries.putIfAbsent(key(row.getQuestion(), row.getMateria()), entry);
+        }
+    }
+
+    private Key key(String question, String materia) {
+        String canonicalMateria = materia == null ? "" : textNormalizer.canonicalize(materia);
+        return new Key(textNormalizer.canonicalize(question), canonicalMateria);
+    }
+}
@@ -1,34 +1,34 @@
 package mx.uach.luisamigo.service.rag;
 
 import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.service.ingestion.LegalReferenceMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 /**
  * Valida respuestas del LLM para detectar posibles alucinaciones.
  * Verifica que las referencias legales mencionadas existan en el contexto proporcionado.
+ *
+ * La respuesta se recorre una sola vez con LegalReferenceMatcher; las referencias del contexto
+ * vienen ya extraídas en la ingesta (legal_documents.legal_references), así que cada referencia
+ * mencionada se verifica con una búsqueda en un HashSet.
  */
 @Component
 public class HallucinationValidator {
 
     private static final Logger log = LoggerFactory.getLogger(HallucinationValidator.class);
 
-    // Patrones para detectar referencias legales en la respuesta
-    private static final Pattern ARTICLE_PATTERN = Pattern.compile(
-        "(?i)artículo\\s+(\\d+[a-z]?(?:\\s+bis)?(?:\\s+ter)?)",
-        Pattern.CASE_INSENSITIVE
-    );
+    private final LegalReferenceMatcher referenceMatcher;
 
-    private static final Pattern LAW_PATTERN = Pattern.compile(
-        "(?i)(Constitución|Código|Ley)\\s+[A-Za-zÁÉÍÓÚáéíóúÑñ\\s]+",
-        Pattern.CASE_INSENSITIVE
-    );
+    public HallucinationValidator(LegalReferenceMatcher referenceMatcher) {
+        this.referenceMatcher = referenceMatcher;
+    }
 
     /**
      * Valida una respuesta del LLM contra el contexto proporcionado.
@@ -43,16 +43,23 @@ public class HallucinationValidator {
 
         List<String> warnings = new ArrayList<>();
 
-        // Extraer referencias mencionadas en la respuesta
-        List<String> mentionedArticles = extractArticles(llmAnswer);
-        List<String> mentionedLaws = extractLaws(llmAnswer);
-
-        // Extraer referencias disponibles en el contexto
-        List<String> contextReferences = extractContextReferences(contextDocuments);
+        // Referencias mencionadas en la respuesta (una pasada)
+        LegalReferenceMatcher.References mentioned = referenceMatcher.scan(llmAnswer);
+        log.debug("Extracted {} article and {} law references from response",
+            mentioned.articles().size(), mentioned.laws().size());
+
+        // Referencias disponibles en el contexto
+        Set<String> contextArticles = new HashSet<>();
+        Set<String> contextLaws = new HashSet<>();
+        for (LegalDocument doc : contextDocuments) {
+            LegalReferenceMatcher.References references = contextReferences(doc);
+            contextArticles.addAll(references.articles());
+            contextLaws.addAll(references.laws());
+        }
 
         // Validar artículos mencionados
-        for (String article : mentionedArticles) {
-            if (!isReferenceInContext(article, contextReferences)) {
+        for (String article : mentioned.articles()) {
+            if (!contextArticles.contains(article)) {
                 String warning = "Posible alucinación: Se menciona '" + article +
                                 "' pero no está en el contexto proporcionado";
                 warnings.add(warning);
@@ -61,9 +68,9 @@ public class HallucinationValidator {
         }
 
         // Validar leyes mencionadas
-        for (String law : mentionedLaws) {
-            if (!isLawInContext(law, contextReferences)) {
-                log.debug("Ley mencionada no encontrada exactamente en contexto: {}", law);
+        for (String law : mentioned.laws()) {
+            if (!contextLaws.contains(law)) {
+                log.debug("Ley mencionada no encontrada en contexto: {}", law);
                 // No agregamos warning para leyes porque puede ser una paráfrasis válida
             }
         }
@@ -75,111 +82,15 @@ public class HallucinationValidator {
     }
 
     /**
-     * Extrae números de artículos mencionados en la respuesta.
-     */
-    private List<String> extractArticles(String text) {
-        List<String> articles = new ArrayList<>();
-        Matcher matcher = ARTICLE_PATTERN.matcher(text);
-
-        while (matcher.find()) {
-            String article = matcher.group(1).trim();
-            articles.add(article);
-        }
-
-        log.debug("Extracted {} article references from response", articles.size());
-        return articles;
-    }
-
-    /**
-     * Extrae nombres de leyes mencionadas en la respuesta.
-     */
-    private List<String> extractLaws(String text) {
-        List<String> laws = new ArrayList<>();
-        Matcher matcher = LAW_PATTERN.matcher(text);
-
-        while (matcher.find()) {
-            String law = matcher.group(0).trim();
-            laws.add(law);
-        }
-
-        log.debug("Extracted {} law references from response", laws.size());
-        return laws;
-    }
-
-    /**
-     * Extrae todas las referencias legales del contexto.
-     */
-    private List<String> extractContextReferences(List<LegalDocument> documents) {
-        List<String> references = new ArrayList<>();
-
-        for (LegalDocument doc : documents) {
-            if (doc.getLawReference() != null && !doc.getLawReference().isBlank()) {
-                references.add(doc.getLawReference());
-            }
-
-            // También extraer referencias del texto de respuesta
-            if (doc.getAnswer() != null) {
-                references.addAll(extractArticles(doc.getAnswer()));
-            }
-        }
-
-        return references;
-    }
-
-    /**
-     * Verifica si una referencia está presente en el contexto.
-     */
-    private boolean isReferenceInContext(String reference, List<String> contextReferences) {
-        String normalizedReference = reference.toLowerCase().trim();
-
-        for (String contextRef : contextReferences) {
-            String normalizedContextRef = contextRef.toLowerCase().trim();
-            if (normalizedContextRef.contains(normalizedReference)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * Verifica si una ley está presente en el contexto (match más flexible).
+     * Referencias del documento: las extraídas en la ingesta o, para documentos anteriores a la
+     * columna legal_references, las de su respuesta y referencia legal.
      */
-    private boolean isLawInContext(String law, List<String> contextReferences) {
-        String normalizedLaw = law.toLowerCase().trim();
-
-        for (String contextRef : contextReferences) {
-            String normalizedContextRef = contextRef.toLowerCase().trim();
-            // Match flexible: si comparten palabras clave
-            if (shareKeywords(normalizedLaw, normalizedContextRef)) {
-                return true;
-            }
+    private LegalReferenceMatcher.References contextReferences(LegalDocument doc) {
+        if (doc.getLegalReferences() != null) {
+            return referenceMatcher.decode(doc.getLegalReferences());
         }
-
-        return false;
-    }
-
-    /**
-     * Verifica si dos strings comparten palabras clave significativas.
-     */
-    private boolean shareKeywords(String str1, String str2) {
-        String[] keywords1 = str1.split("\\s+");
-        String[] keywords2 = str2.split("\\s+");
-
-        int matches = 0;
-        for (String keyword1 : keywords1) {
-            if (keyword1.length() > 3) { // Solo palabras significativas
-                for (String keyword2 : keywords2) {
-                    if (keyword1.equals(keyword2)) {
-                        matches++;
-                        break;
-                    }
-                }
-            }
-        }
-
-        // Si comparten al menos 2 palabras significativas, consideramos match
-        return matches >= 2;
+        String lawReference = doc.getLawReference() != null ? doc.getLawReference() : "";
+        return referenceMatcher.scan(doc.getAnswer() + "\n" + lawReference);
     }
 
     /**
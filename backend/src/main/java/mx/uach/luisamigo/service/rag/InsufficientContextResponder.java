@@ -0,0 +1,183 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.service.vectorstore.VectorStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Redacta la respuesta de "contexto insuficiente" desde plantillas, sin llamar al LLM.
+ *
+ * La plantilla se elige por el motivo de la falla y la materia de la consulta, y se acompaña de
+ * preguntas cercanas del dataset (búsqueda sin filtros) que el estudiante puede usar para reformular.
+ */
+@Component
+public class InsufficientContextResponder {
+
+    private static final Logger log = LoggerFactory.getLogger(InsufficientContextResponder.class);
+
+    /**
+     * Motivo por el que no hubo contexto suficiente.
+     */
+    public enum Reason {
+        NO_DOCUMENTS,   // La búsqueda sin filtros no devolvió documentos
+        FILTERED_OUT,   // Hay documentos, pero ninguno con la materia/semestre solicitados
+        LOW_SIMILARITY, // Se recuperaron documentos, pero todos por debajo de min-similarity-score
+        NOT_ANSWERABLE  // Se recuperó contexto, pero no alcanza para fundamentar la respuesta
+    }
+
+    static final String OPENING =
+        "Con la información disponible no puedo fundamentar con precisión jurídica esta respuesta.";
+    static final String CLOSING =
+        "Te sugiero reformular la pregunta con términos más específicos o consultar con tu profesor.";
+    static final String SUGGESTIONS_HEADER = "Preguntas relacionadas que sí puedo responder:";
+
+    private static final Map<Reason, String> REASON_TEMPLATES = Map.of(
+        Reason.NO_DOCUMENTS,
+            "No encontré material en la base de conocimiento relacionado con tu pregunta.",
+        Reason.FILTERED_OUT,
+            "No encontré material de %s relacionado con tu pregunta en la base de conocimiento.",
+        Reason.LOW_SIMILARITY,
+            "El material más cercano que encontré en la base de conocimiento no está suficientemente relacionado con tu pregunta.",
+        Reason.NOT_ANSWERABLE,
+            "El material que encontré en la base de conocimiento no es suficiente para responder tu pregunta con precisión."
+    );
+
+    // Pista de reformulación por materia (clave sin acentos y en minúsculas)
+    private static final Map<String, String> MATERIA_HINTS = Map.of(
+        "constitucional", "Puedes mencionar el artículo constitucional o el derecho fundamental que te interesa.",
+        "civil", "Puedes precisar la figura civil (contrato, obligación, sucesión, familia) o el artículo del código civil.",
+        "penal", "Puedes precisar el delito, la etapa del procedimiento penal o el artículo del código penal.",
+        "laboral", "Puedes mencionar el artículo de la Ley Federal del Trabajo o la condición de trabajo que te interesa.",
+        "mercantil", "Puedes precisar el acto de comercio, la sociedad mercantil o el título de crédito.",
+        "administrativo", "Puedes precisar el acto administrativo, la autoridad o el procedimiento que te interesa.",
+        "fiscal", "Puedes precisar la contribución, la obligación fiscal o el artículo del Código Fiscal de la Federación.",
+        "amparo", "Puedes precisar el tipo de amparo (directo o indirecto) o el artículo de la Ley de Amparo."
+    );
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final RagProperties.InsufficientContextConfig config;
+    private final VectorStoreService vectorStoreService;
+    private final MeterRegistry meterRegistry;
+
+    public InsufficientContextResponder(
+        RagProperties ragProperties,
+        VectorStoreService vectorStoreService,
+        MeterRegistry meterRegistry
+    ) {
+        this.config = ragProperties.getInsufficientContext();
+        this.vectorStoreService = vectorStoreService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * true si la respuesta debe seguir redactándola el LLM (luisamigo.rag.insufficient-context.use-llm).
+     */
+    public boolean usesLlm() {
+        return config.isUseLlm();
+    }
+
+    /**
+     * Registra una respuesta de contexto insuficiente por motivo y modo (plantilla o LLM).
+     */
+    public void recordResponse(Reason reason) {
+        meterRegistry.counter("luisamigo.rag.insufficient_context",
+            "reason", reason.name().toLowerCase(),
+            "mode", config.isUseLlm() ? "llm" : "template"
+        ).increment();
+    }
+
+    /**
+     * Redacta la respuesta desde la plantilla del motivo y la materia.
+     *
+     * @param reason Motivo de la falla
+     * @param materia Materia solicitada (opcional)
+     * @param queryEmbedding Embedding de la pregunta para buscar sugerencias, o null si no se generó
+     * @return Respuesta (sin disclaimer; lo agrega ResponseFormatter)
+     */
+    public String respond(Reason reason, String materia, float[] queryEmbedding) {
+        recordResponse(reason);
+
+        boolean hasMateria = materia != null && !materia.isBlank();
+        StringBuilder answer = new StringBuilder(OPENING).append("\n\n");
+        answer.append(reason == Reason.FILTERED_OUT
+            ? REASON_TEMPLATES.get(reason).formatted(hasMateria ? "la materia " + materia.strip() : "los filtros indicados")
+            : REASON_TEMPLATES.get(reason));
+
+        String hint = hasMateria ? MATERIA_HINTS.get(normalize(materia)) : null;
+        if (hint != null) {
+            answer.append(' ').append(hint);
+        }
+
+        List<String> suggestions = reason == Reason.NO_DOCUMENTS ? List.of() : suggestions(queryEmbedding);
+        if (!suggestions.isEmpty()) {
+            answer.append("\n\n").append(SUGGESTIONS_HEADER).append('\n');
+            suggestions.forEach(suggestion -> answer.append("- ").append(suggestion).append('\n'));
+        } else {
+            answer.append("\n");
+        }
+
+        answer.append('\n').append(CLOSING);
+
+        log.debug("Insufficient context answered from template. Reason: {}, materia: {}, suggestions: {}",
+            reason, materia, suggestions.size());
+        return answer.toString();
+    }
+
+    /**
+     * Preguntas del dataset más cercanas a la consulta (sin filtros), con su materia si la tienen.
+     * Una falla en la búsqueda no impide responder: se omiten las sugerencias.
+     */
+    List<String> suggestions(float[] queryEmbedding) {
+        if (queryEmbedding == null || config.getMaxSuggestions() <= 0) {
+            return List.of();
+        }
+
+        RetrievalResult nearby;
+        try {
+            nearby = RetrievalResult.score(queryEmbedding,
+                vectorStoreService.findSimilar(queryEmbedding, config.getMaxSuggestions() * 2));
+        } catch (RuntimeException e) {
+            log.warn("Could not load reformulation suggestions: {}", e.getMessage());
+            return List.of();
+        }
+
+        Set<String> seen = new LinkedHashSet<>();
+        List<String> suggestions = new ArrayList<>(config.getMaxSuggestions());
+        for (int i = 0; i < nearby.size() && suggestions.size() < config.getMaxSuggestions(); i++) {
+            LegalDocument doc = nearby.documents().get(i).getDocument();
+            String question = doc.getQuestion();
+            if (nearby.similarities()[i] < config.getMinSuggestionSimilarity()
+                || question == null || question.isBlank() || !seen.add(normalize(question))) {
+                continue;
+            }
+            suggestions.add(doc.getMateria() != null && !doc.getMateria().isBlank()
+                ? question.strip() + " (" + doc.getMateria().strip() + ")"
+                : question.strip());
+        }
+        return suggestions;
+    }
+
+    /**
+     * Minúsculas, sin acentos y con espacios colapsados.
+     */
+    private static String normalize(String text) {
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text.strip().toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+            .replaceAll("");
+        return WHITESPACE.matcher(folded).replaceAll(" ");
+    }
+}
@@ -0,0 +1,87 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.client.llm.LLMConfig;
+import mx.uach.luisamigo.config.RagProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Elige entre el modelo rápido y el fuerte según la confianza de la recuperación:
+ *
+ * - Similitud del mejor documento (una pregunta casi textual del dataset)
+ * - Ventaja del mejor sobre el segundo (un documento claramente dominante, no varios parecidos)
+ * - Longitud del contexto (mucho contexto = respuesta que requiere síntesis)
+ *
+ * Las señales y la decisión se publican como métricas para ajustar los umbrales.
+ */
+@Component
+public class ModelRoutingPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelRoutingPolicy.class);
+
+    private final RagProperties.ModelRoutingConfig config;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary topSimilarity;
+    private final DistributionSummary scoreGap;
+
+    public ModelRoutingPolicy(RagProperties ragProperties, MeterRegistry meterRegistry) {
+        this.config = ragProperties.getModelRouting();
+        this.meterRegistry = meterRegistry;
+        this.topSimilarity = DistributionSummary.builder("luisamigo.rag.retrieval.top_similarity")
+            .description("Cosine similarity of the best retrieved document")
+            .publishPercentiles(0.1, 0.5, 0.9)
+            .register(meterRegistry);
+        this.scoreGap = DistributionSummary.builder("luisamigo.rag.retrieval.score_gap")
+            .description("Similarity gap between the first and second retrieved documents")
+            .publishPercentiles(0.1, 0.5, 0.9)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Nivel de modelo para una pregunta con contexto recuperado.
+     */
+    public LLMConfig.ModelTier select(RetrievalResult retrieval) {
+        topSimilarity.record(retrieval.topSimilarity());
+        scoreGap.record(retrieval.scoreGap());
+
+        String reason;
+        LLMConfig.ModelTier tier = LLMConfig.ModelTier.STRONG;
+        if (!config.isEnabled()) {
+            reason = "disabled";
+        } else if (retrieval.topSimilarity() < config.getMinTopSimilarity()) {
+            reason = "low_similarity";
+        } else if (retrieval.scoreGap() < config.getMinScoreGap()) {
+            reason = "ambiguous";
+        } else if (retrieval.contextChars() > config.getMaxContextChars()) {
+            reason = "long_context";
+        } else {
+            reason = "confident";
+            tier = LLMConfig.ModelTier.FAST;
+        }
+
+        log.debug("Model tier {} ({}): topSimilarity={}, gap={}, contextChars={}", tier, reason,
+            String.format("%.3f", retrieval.topSimilarity()), String.format("%.3f", retrieval.scoreGap()),
+            retrieval.contextChars());
+        count(tier, reason);
+        return tier;
+    }
+
+    /**
+     * Nivel de modelo para la respuesta de contexto insuficiente (no hay nada que sintetizar).
+     */
+    public LLMConfig.ModelTier selectForInsufficientContext() {
+        LLMConfig.ModelTier tier = config.isEnabled() && config.isInsufficientContextFast()
+            ? LLMConfig.ModelTier.FAST
+            : LLMConfig.ModelTier.STRONG;
+        count(tier, "insufficient_context");
+        return tier;
+    }
+
+    private void count(LLMConfig.ModelTier tier, String reason) {
+        meterRegistry.counter("luisamigo.rag.model.tier", "tier", tier.name().toLowerCase(), "reason", reason)
+            .increment();
+    }
+}
@@ -0,0 +1,36 @@
+package mx.uach.luisamigo.service.rag;
+
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+
+import java.util.List;
+
+/**
+ * Contexto listo para el prompt tras el empaquetado por presupuesto de tokens.
+ *
+ * @param passages Pasajes admitidos, en orden de rank
+ * @param originalTokens Tokens del contexto completo antes de empaquetar (todos los documentos)
+ * @param packedTokens Tokens de los pasajes admitidos
+ * @param droppedDuplicates Documentos descartados por ser casi duplicados de uno mejor rankeado
+ */
+public record PackedContext(
+    List<Passage> passages,
+    int originalTokens,
+    int packedTokens,
+    int droppedDuplicates
+) {
+
+    /**
+     * Un documento recuperado con su texto (posiblemente recortado) para el prompt.
+     *
+     * @param question Pregunta original del documento, o null si no cupo o no existe
+     * @param answer Respuesta completa o sus oraciones más relevantes
+     * @param trimmed true si la respuesta se recortó para caber en su asignación
+     */
+    public record Passage(
+        DocumentEmbedding document,
+        String question,
+        String answer,
+        int tokens,
+        boolean trimmed
+    ) {}
+}
@@ -0,0 +1,162 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.exception.PipelineTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Alcance estructurado de un request del pipeline RAG: cada etapa corre en su propio hilo virtual
+ * con un deadline, y al cerrar el alcance se cancelan las etapas que sigan en curso. Las etapas de
+ * base de datos no se interrumpen (ver PipelineStage.interruptible): terminan solas y su resultado
+ * se descarta.
+ *
+ * Equivale a StructuredTaskScope (preview en Java 21) sin flags de compilación: fork() lanza una
+ * etapa y join() espera su resultado hasta el menor entre el tope de la etapa y lo que queda del
+ * presupuesto total del request. Usar con try-with-resources.
+ */
+public final class PipelineScope implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineScope.class);
+
+    /**
+     * Etapa lanzada con fork().
+     */
+    public static final class Fork<T> {
+        private final PipelineStage stage;
+        private final Future<T> future;
+        private final long startNanos;
+        private final long deadlineNanos;
+
+        private Fork(PipelineStage stage, Future<T> future, long startNanos, long deadlineNanos) {
+            this.stage = stage;
+            this.future = future;
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public PipelineStage stage() {
+            return stage;
+        }
+    }
+
+    private final RagProperties.PipelineConfig config;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Fork<?>> forks = new ArrayList<>();
+    private final long requestDeadlineNanos;
+
+    PipelineScope(RagProperties.PipelineConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.requestDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getTotalBudgetMs());
+    }
+
+    /**
+     * Lanza una etapa en un hilo virtual; su deadline empieza a correr ahora.
+     */
+    public <T> Fork<T> fork(PipelineStage stage, Callable<T> task) {
+        long now = System.nanoTime();
+        long deadline = Math.min(now + TimeUnit.MILLISECONDS.toNanos(stage.budgetMs(config)), requestDeadlineNanos);
+        Fork<T> fork = new Fork<>(stage, executor.submit(task), now, deadline);
+        synchronized (forks) {
+            forks.add(fork);
+        }
+        return fork;
+    }
+
+    /**
+     * Espera el resultado de la etapa. Una excepción de la etapa se relanza tal cual; si vence
+     * el deadline la etapa se cancela y se lanza PipelineTimeoutException.
+     */
+    public <T> T join(Fork<T> fork) {
+        try {
+            T result = fork.future.get(Math.max(0, fork.deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            record(fork, "ok");
+            return result;
+        } catch (TimeoutException e) {
+            cancel(fork);
+            record(fork, "timeout");
+            throw new PipelineTimeoutException(
+                "Stage " + fork.stage + " exceeded its deadline of " + budgetMs(fork) + "ms", fork.stage.name());
+        } catch (ExecutionException e) {
+            record(fork, "error");
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Stage " + fork.stage + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            // El hilo del request fue cancelado: se cancelan también las etapas en curso
+            Thread.currentThread().interrupt();
+            cancelAll();
+            record(fork, "cancelled");
+            throw new PipelineTimeoutException("Request cancelled during stage " + fork.stage, fork.stage.name());
+        }
+    }
+
+    /**
+     * Como join(), pero una etapa opcional que falla o vence su deadline devuelve fallback.
+     */
+    public <T> T joinOrDefault(Fork<T> fork, T fallback) {
+        try {
+            return join(fork);
+        } catch (RuntimeException e) {
+            log.warn("Optional stage {} skipped: {}", fork.stage, e.getMessage());
+            return fallback;
+        }
+    }
+
+    /**
+     * Ejecuta una etapa y espera su resultado.
+     */
+    public <T> T run(PipelineStage stage, Callable<T> task) {
+        return join(fork(stage, task));
+    }
+
+    /**
+     * Milisegundos que quedan del presupuesto total del request.
+     */
+    public long remainingMs() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(requestDeadlineNanos - System.nanoTime()));
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+        // Sin shutdownNow(): las etapas no interrumpibles que sigan en curso terminan por su cuenta
+        executor.shutdown();
+    }
+
+    private void cancelAll() {
+        synchronized (forks) {
+            forks.forEach(PipelineScope::cancel);
+        }
+    }
+
+    private static void cancel(Fork<?> fork) {
+        fork.future.cancel(fork.stage.interruptible());
+    }
+
+    private void record(Fork<?> fork, String outcome) {
+        meterRegistry.timer("luisamigo.rag.pipeline.stage", "stage", fork.stage.name().toLowerCase(), "outcome", outcome)
+            .record(System.nanoTime() - fork.startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static long budgetMs(Fork<?> fork) {
+        return TimeUnit.NANOSECONDS.toMillis(fork.deadlineNanos - fork.startNanos);
+    }
+}
@@ -0,0 +1,24 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Abre un PipelineScope por request con el presupuesto de luisamigo.rag.pipeline.
+ */
+@Component
+public class PipelineScopeFactory {
+
+    private final RagProperties.PipelineConfig config;
+    private final MeterRegistry meterRegistry;
+
+    public PipelineScopeFactory(RagProperties ragProperties, MeterRegistry meterRegistry) {
+        this.config = ragProperties.getPipeline();
+        this.meterRegistry = meterRegistry;
+    }
+
+    public PipelineScope open() {
+        return new PipelineScope(config, meterRegistry);
+    }
+}
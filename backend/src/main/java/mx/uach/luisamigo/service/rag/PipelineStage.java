@@ -0,0 +1,33 @@
+package mx.uach.luisamigo.service.rag;
+
+import mx.uach.luisamigo.config.RagProperties;
+
+/**
+ * Etapas del pipeline RAG con deadline propio (luisamigo.rag.pipeline.*).
+ */
+public enum PipelineStage {
+    EMBED,
+    LOOKUP,
+    RETRIEVE,
+    GENERATE,
+    VALIDATE;
+
+    long budgetMs(RagProperties.PipelineConfig config) {
+        return switch (this) {
+            case EMBED -> config.getEmbedMs();
+            case LOOKUP -> config.getLookupMs();
+            case RETRIEVE -> config.getRetrieveMs();
+            case GENERATE -> config.getGenerateMs();
+            case VALIDATE -> config.getValidateMs();
+        };
+    }
+
+    /**
+     * Si la etapa puede interrumpirse al cancelarla. Las etapas que consultan Postgres no: interrumpir
+     * un hilo dentro de una llamada JDBC puede cerrar o dejar inservible la conexión del pool, así que
+     * se dejan terminar y su resultado se descarta.
+     */
+    boolean interruptible() {
+        return this == EMBED || this == GENERATE;
+    }
+}
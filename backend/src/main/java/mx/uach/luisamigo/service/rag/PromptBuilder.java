@@ -1,16 +1,25 @@
 package mx.uach.luisamigo.service.rag;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.client.llm.LLMPrompt;
 import mx.uach.luisamigo.domain.DocumentEmbedding;
 import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Construye el prompt para el LLM usando el template definido en la documentación.
  * Incluye el contexto recuperado y la pregunta del usuario.
+ *
+ * SYSTEM_PROMPT se envía como bloque de sistema separado e idéntico en cada request para que
+ * los proveedores lo sirvan desde su cache de prefijo; el contexto y la pregunta van en el bloque de usuario.
  */
 @Component
 public class PromptBuilder {
@@ -54,28 +63,117 @@ public class PromptBuilder {
              "Esto es material académico y no constituye asesoría jurídica profesional."
         """;
 
+    private static final String CONTEXT_HEADER = "## Contexto Proporcionado\n\n"
+        + "A continuación se te proporciona el contexto jurídico relevante recuperado de nuestra base de conocimiento:\n\n"
+        + "---\n";
+    private static final String QUESTION_HEADER = "\n## Pregunta del Estudiante\n\n";
+    private static final String ANSWER_INSTRUCTIONS = "## Tu Respuesta\n\n"
+        + "Proporciona una respuesta clara, fundamentada y pedagógica siguiendo las reglas anteriores.\n";
+    private static final String SECTION_INSTRUCTIONS_FOOTER = "\nNo incluyas encabezados, otras secciones "
+        + "ni el descargo de responsabilidad: se agregan al unir la respuesta.\n";
+    private static final int SECTION_INSTRUCTIONS_LENGTH = 400;
+    private static final int PASSAGE_OVERHEAD = 120; // "CONTEXTO n:", "[Fuente: ]", etiquetas y separadores
+
+    private final TokenizerService tokenizerService;
+    private final ContextPacker contextPacker;
+    private final DistributionSummary unpackedPromptTokens;
+    private final DistributionSummary packedPromptTokens;
+
+    public PromptBuilder(TokenizerService tokenizerService, ContextPacker contextPacker, MeterRegistry meterRegistry) {
+        this.tokenizerService = tokenizerService;
+        this.contextPacker = contextPacker;
+        this.unpackedPromptTokens = promptTokensSummary("unpacked", meterRegistry);
+        this.packedPromptTokens = promptTokensSummary("packed", meterRegistry);
+    }
+
+    private static DistributionSummary promptTokensSummary(String stage, MeterRegistry meterRegistry) {
+        return DistributionSummary.builder("luisamigo.rag.prompt.tokens")
+            .description("Prompt tokens before and after context packing")
+            .tag("stage", stage)
+            .publishPercentiles(0.5, 0.95)
+            .register(meterRegistry);
+    }
+
     /**
      * Construye el prompt completo para el LLM.
      *
      * @param question Pregunta del usuario
      * @param retrievedDocuments Documentos recuperados del vector store
-     * @return Prompt completo listo para enviar al LLM
+     * @return Prompt (sistema + contexto y pregunta) listo para enviar al LLM
      */
-    public String buildPrompt(String question, List<DocumentEmbedding> retrievedDocuments) {
-        log.debug("Building prompt with {} retrieved documents", retrievedDocuments.size());
+    public LLMPrompt buildPrompt(String question, List<DocumentEmbedding> retrievedDocuments) {
+        return buildPrompt(question, new RetrievalResult(retrievedDocuments, new double[retrievedDocuments.size()]));
+    }
 
-        StringBuilder promptBuilder = new StringBuilder();
-        promptBuilder.append(SYSTEM_PROMPT);
-        promptBuilder.append("\n\n");
+    /**
+     * Construye el prompt con el contexto empaquetado en el presupuesto de tokens
+     * (luisamigo.rag.context-packing). El texto se arma en una sola pasada sobre un buffer pre-dimensionado.
+     *
+     * @param question Pregunta del usuario
+     * @param retrieval Documentos recuperados con su similitud a la pregunta
+     * @return Prompt (sistema + contexto y pregunta) listo para enviar al LLM
+     */
+    public LLMPrompt buildPrompt(String question, RetrievalResult retrieval) {
+        log.debug("Building prompt with {} retrieved documents", retrieval.size());
+
+        PackedContext context = contextPacker.pack(question, retrieval);
+        StringBuilder promptBuilder = appendContextAndQuestion(question, context, ANSWER_INSTRUCTIONS.length());
+
+        // Instrucción final
+        promptBuilder.append(ANSWER_INSTRUCTIONS);
+
+        LLMPrompt finalPrompt = new LLMPrompt(SYSTEM_PROMPT, promptBuilder.toString());
+        int packedTokens = recordTokens(finalPrompt, context);
+
+        log.debug("Prompt built successfully. Total length: {} characters, {} tokens",
+            finalPrompt.length(), packedTokens);
+
+        return finalPrompt;
+    }
+
+    /**
+     * Construye un prompt por sección de la respuesta (generación seccionada). Todos comparten
+     * sistema, contexto y pregunta byte a byte; solo difiere la instrucción final, de modo que el
+     * prefijo común se sirve desde la cache del proveedor en las llamadas concurrentes.
+     *
+     * @param question Pregunta del usuario
+     * @param retrieval Documentos recuperados con su similitud a la pregunta
+     * @return Prompt de cada sección, en el orden de AnswerSection
+     */
+    public Map<AnswerSection, LLMPrompt> buildSectionPrompts(String question, RetrievalResult retrieval) {
+        log.debug("Building section prompts with {} retrieved documents", retrieval.size());
+
+        PackedContext context = contextPacker.pack(question, retrieval);
+        StringBuilder promptBuilder = appendContextAndQuestion(question, context, SECTION_INSTRUCTIONS_LENGTH);
+        int prefixLength = promptBuilder.length();
+
+        Map<AnswerSection, LLMPrompt> prompts = new EnumMap<>(AnswerSection.class);
+        for (AnswerSection section : AnswerSection.values()) {
+            promptBuilder.setLength(prefixLength);
+            promptBuilder.append("## Tu Respuesta: ").append(section.getHeading()).append("\n\n")
+                .append(section.getInstruction()).append('\n')
+                .append(SECTION_INSTRUCTIONS_FOOTER);
+            prompts.put(section, new LLMPrompt(SYSTEM_PROMPT, promptBuilder.toString()));
+        }
+
+        int packedTokens = recordTokens(prompts.get(AnswerSection.EXPLANATION), context);
+        log.debug("Section prompts built. {} sections, ~{} tokens each", prompts.size(), packedTokens);
+
+        return prompts;
+    }
+
+    /**
+     * Arma contexto y pregunta en un buffer pre-dimensionado con margen para la instrucción final.
+     */
+    private StringBuilder appendContextAndQuestion(String question, PackedContext context, int instructionsLength) {
+        StringBuilder promptBuilder = new StringBuilder(estimateLength(question, context) + instructionsLength);
 
         // Construir contexto
-        promptBuilder.append("## Contexto Proporcionado\n\n");
-        promptBuilder.append("A continuación se te proporciona el contexto jurídico relevante recuperado de nuestra base de conocimiento:\n\n");
-        promptBuilder.append("---\n");
+        promptBuilder.append(CONTEXT_HEADER);
 
         int contextNumber = 1;
-        for (DocumentEmbedding embedding : retrievedDocuments) {
-            LegalDocument doc = embedding.getDocument();
+        for (PackedContext.Passage passage : context.passages()) {
+            LegalDocument doc = passage.document().getDocument();
 
             promptBuilder.append("CONTEXTO ").append(contextNumber).append(":\n");
             promptBuilder.append("[Fuente: ").append(doc.getSource()).append("]\n");
@@ -90,29 +188,58 @@ public class PromptBuilder {
 
             promptBuilder.append("\n");
 
-            if (doc.getQuestion() != null && !doc.getQuestion().isBlank()) {
-                promptBuilder.append("Pregunta Original: ").append(doc.getQuestion()).append("\n");
+            if (passage.question() != null) {
+                promptBuilder.append("Pregunta Original: ").append(passage.question()).append("\n");
             }
 
-            promptBuilder.append("Respuesta: ").append(doc.getAnswer()).append("\n");
+            promptBuilder.append(passage.trimmed() ? "Respuesta (extracto): " : "Respuesta: ")
+                .append(passage.answer()).append("\n");
             promptBuilder.append("\n---\n");
 
             contextNumber++;
         }
 
         // Agregar pregunta del usuario
-        promptBuilder.append("\n## Pregunta del Estudiante\n\n");
+        promptBuilder.append(QUESTION_HEADER);
         promptBuilder.append(question);
         promptBuilder.append("\n\n");
 
-        // Instrucción final
-        promptBuilder.append("## Tu Respuesta\n\n");
-        promptBuilder.append("Proporciona una respuesta clara, fundamentada y pedagógica siguiendo las reglas anteriores.\n");
+        return promptBuilder;
+    }
 
-        String finalPrompt = promptBuilder.toString();
-        log.debug("Prompt built successfully. Total length: {} characters", finalPrompt.length());
+    /**
+     * Registra los tokens del prompt antes y después del empaquetado del contexto.
+     * Tokens sin empaquetar = los del prompt final con el contexto completo en lugar del empaquetado.
+     */
+    private int recordTokens(LLMPrompt prompt, PackedContext context) {
+        int packedTokens = countTokens(prompt);
+        int unpackedTokens = packedTokens - context.packedTokens() + context.originalTokens();
+        unpackedPromptTokens.record(unpackedTokens);
+        packedPromptTokens.record(packedTokens);
+        return packedTokens;
+    }
 
-        return finalPrompt;
+    /**
+     * Capacidad del buffer: partes fijas + pasajes + margen por los encabezados de cada contexto.
+     */
+    private static int estimateLength(String question, PackedContext context) {
+        int length = CONTEXT_HEADER.length() + QUESTION_HEADER.length() + question.length() + 2;
+        for (PackedContext.Passage passage : context.passages()) {
+            LegalDocument doc = passage.document().getDocument();
+            length += PASSAGE_OVERHEAD + passage.answer().length()
+                + (passage.question() != null ? passage.question().length() : 0)
+                + (doc.getSource() != null ? doc.getSource().length() : 0)
+                + (doc.getLawReference() != null ? doc.getLawReference().length() : 0)
+                + (doc.getMateria() != null ? doc.getMateria().length() : 0);
+        }
+        return length;
+    }
+
+    /**
+     * Tokens del prompt completo (sistema + usuario).
+     */
+    public int countTokens(LLMPrompt prompt) {
+        return tokenizerService.countTokens(prompt.system()) + tokenizerService.countTokens(prompt.user());
     }
 
     /**
@@ -121,14 +248,14 @@ public class PromptBuilder {
      * @param question Pregunta del usuario
      * @return Prompt indicando falta de contexto
      */
-    public String buildInsufficientContextPrompt(String question) {
-        return SYSTEM_PROMPT + "\n\n" +
+    public LLMPrompt buildInsufficientContextPrompt(String question) {
+        return new LLMPrompt(SYSTEM_PROMPT,
                "## Contexto Proporcionado\n\n" +
                "No se encontró contexto jurídico relevante en la base de conocimiento.\n\n" +
                "## Pregunta del Estudiante\n\n" +
                question + "\n\n" +
                "## Tu Respuesta\n\n" +
                "Indica claramente que no puedes responder con precisión jurídica por falta de contexto. " +
-               "Sugiere al estudiante reformular la pregunta o consultar con su profesor.";
+               "Sugiere al estudiante reformular la pregunta o consultar con su profesor.");
     }
 }
@@ -2,6 +2,8 @@ package mx.uach.luisamigo.service.rag;
 
 import mx.uach.luisamigo.dto.request.AskRequest;
 import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.dto.response.AskStreamEvent;
+import reactor.core.publisher.Flux;
 
 /**
  * Servicio principal del pipeline RAG (Retrieval-Augmented Generation).
@@ -28,6 +30,16 @@ public interface RAGService {
      */
     AskResponse ask(AskRequest request);
 
+    /**
+     * Igual que {@link #ask(AskRequest)} pero emite la respuesta conforme el LLM la genera.
+     * Emite primero las fuentes recuperadas, luego los fragmentos de la respuesta y al final
+     * el disclaimer y la metadata.
+     *
+     * @param request Pregunta y filtros opcionales (materia, semester_level)
+     * @return Flux de eventos del stream
+     */
+    Flux<AskStreamEvent> askStream(AskRequest request);
+
     /**
      * Valida que el sistema RAG esté completamente funcional.
      * Verifica disponibilidad de LLM, embedding client y vector store.
@@ -5,19 +5,31 @@ import mx.uach.luisamigo.client.embedding.EmbeddingClientFactory;
 import mx.uach.luisamigo.client.llm.LLMClient;
 import mx.uach.luisamigo.client.llm.LLMClientFactory;
 import mx.uach.luisamigo.client.llm.LLMConfig;
+import mx.uach.luisamigo.client.llm.LLMPrompt;
+import mx.uach.luisamigo.client.llm.LLMResponse;
+import mx.uach.luisamigo.client.llm.RoutingDecision;
 import mx.uach.luisamigo.domain.DocumentEmbedding;
-import mx.uach.luisamigo.domain.LegalDocument;
 import mx.uach.luisamigo.dto.request.AskRequest;
 import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.dto.response.AskStreamEvent;
+import mx.uach.luisamigo.dto.response.SourceReference;
+import mx.uach.luisamigo.exception.EmbeddingException;
 import mx.uach.luisamigo.exception.InsufficientContextException;
+import mx.uach.luisamigo.exception.LLMProviderException;
+import mx.uach.luisamigo.exception.PipelineTimeoutException;
+import mx.uach.luisamigo.service.vectorstore.MateriaClassifier;
 import mx.uach.luisamigo.service.vectorstore.SearchFilters;
 import mx.uach.luisamigo.service.vectorstore.VectorStoreService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implementación del servicio RAG (Retrieval-Augmented Generation).
@@ -34,7 +46,18 @@ public class RAGServiceImpl implements RAGService {
     private final EmbeddingClientFactory embeddingClientFactory;
     private final PromptBuilder promptBuilder;
     private final ResponseFormatter responseFormatter;
-    private final HallucinationValidator hallucinationValidator;
+    private final AnswerValidationService answerValidationService;
+    private final ModelRoutingPolicy modelRoutingPolicy;
+    private final SectionedAnswerGenerator sectionedAnswerGenerator;
+    private final InsufficientContextResponder insufficientContextResponder;
+    private final AdaptiveRetrievalPolicy adaptiveRetrievalPolicy;
+    private final DirectAnswerMatcher directAnswerMatcher;
+    private final CitationRetriever citationRetriever;
+    private final MateriaClassifier materiaClassifier;
+    private final FaqIndex faqIndex;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final RequestCoalescer requestCoalescer;
+    private final PipelineScopeFactory pipelineScopeFactory;
 
     public RAGServiceImpl(
         VectorStoreService vectorStoreService,
@@ -42,92 +65,296 @@ public class RAGServiceImpl implements RAGService {
         EmbeddingClientFactory embeddingClientFactory,
         PromptBuilder promptBuilder,
         ResponseFormatter responseFormatter,
-        HallucinationValidator hallucinationValidator
+        AnswerValidationService answerValidationService,
+        ModelRoutingPolicy modelRoutingPolicy,
+        SectionedAnswerGenerator sectionedAnswerGenerator,
+        InsufficientContextResponder insufficientContextResponder,
+        AdaptiveRetrievalPolicy adaptiveRetrievalPolicy,
+        DirectAnswerMatcher directAnswerMatcher,
+        CitationRetriever citationRetriever,
+        MateriaClassifier materiaClassifier,
+        FaqIndex faqIndex,
+        SemanticAnswerCache semanticAnswerCache,
+        RequestCoalescer requestCoalescer,
+        PipelineScopeFactory pipelineScopeFactory
     ) {
         this.vectorStoreService = vectorStoreService;
         this.llmClientFactory = llmClientFactory;
         this.embeddingClientFactory = embeddingClientFactory;
         this.promptBuilder = promptBuilder;
         this.responseFormatter = responseFormatter;
-        this.hallucinationValidator = hallucinationValidator;
+        this.answerValidationService = answerValidationService;
+        this.modelRoutingPolicy = modelRoutingPolicy;
+        this.sectionedAnswerGenerator = sectionedAnswerGenerator;
+        this.insufficientContextResponder = insufficientContextResponder;
+        this.adaptiveRetrievalPolicy = adaptiveRetrievalPolicy;
+        this.directAnswerMatcher = directAnswerMatcher;
+        this.citationRetriever = citationRetriever;
+        this.materiaClassifier = materiaClassifier;
+        this.faqIndex = faqIndex;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.requestCoalescer = requestCoalescer;
+        this.pipelineScopeFactory = pipelineScopeFactory;
     }
 
     @Override
     public AskResponse ask(AskRequest request) {
+        // Un request idéntico en curso comparte su respuesta (single-flight)
+        return requestCoalescer.ask(request, () -> answer(request));
+    }
+
+    private AskResponse answer(AskRequest request) {
         long startTime = System.currentTimeMillis();
         log.info("Processing RAG request. Question: '{}'", request.question());
 
+        // Paso 0: Pregunta repetida (misma forma canónica y materia), sin embedding ni LLM
+        long corpusVersion = faqIndex.corpusVersion();
+        Optional<FaqIndex.Entry> indexed = faqIndex.lookup(request);
+        if (indexed.isPresent()) {
+            long processingTime = System.currentTimeMillis() - startTime;
+            log.info("RAG request answered from FAQ index ({}). Processing time: {}ms",
+                indexed.get().origin(), processingTime);
+            return responseFormatter.formatIndexedResponse(indexed.get(), request.materia(), processingTime);
+        }
+
+        float[] queryEmbedding = null;
+        // Cada etapa corre en un hilo virtual con deadline; al salir se cancelan las que sigan en curso.
+        // El alcance sigue abierto en los catch: la respuesta de contexto insuficiente también usa su presupuesto
+        PipelineScope scope = pipelineScopeFactory.open();
         try {
-            // Paso 1: Generar embedding de la pregunta
-            log.debug("Step 1: Generating query embedding");
-            EmbeddingClient embeddingClient = embeddingClientFactory.getClient();
-            float[] queryEmbedding = embeddingClient.generateEmbedding(request.question());
-            log.debug("Query embedding generated. Dimensions: {}", queryEmbedding.length);
-
-            // Paso 2: Buscar documentos similares en vector store
-            log.debug("Step 2: Searching for similar documents (topK={})", request.topK());
+            // Paso 1: Embedding de la pregunta
+            queryEmbedding = scope.run(PipelineStage.EMBED, () -> embedQuestion(request));
+            float[] embedding = queryEmbedding;
             SearchFilters filters = buildSearchFilters(request);
-            List<DocumentEmbedding> retrievedDocuments = vectorStoreService.findSimilar(
-                queryEmbedding,
-                request.topK(),
-                filters
-            );
+
+            // Respuesta directa, cache semántico y recuperación son independientes: se lanzan juntas
+            // y la recuperación (especulativa) se descarta si alguna de las otras acierta
+            PipelineScope.Fork<Optional<VectorStoreService.QuestionMatch>> directMatchFork =
+                scope.fork(PipelineStage.LOOKUP, () -> directAnswerMatcher.match(embedding, filters));
+            PipelineScope.Fork<Optional<AskResponse>> cachedFork =
+                scope.fork(PipelineStage.LOOKUP, () -> semanticAnswerCache.lookup(request, embedding));
+            PipelineScope.Fork<RetrievalResult> retrievalFork =
+                scope.fork(PipelineStage.RETRIEVE, () -> retrieveDocuments(request, embedding));
+
+            // Respuesta directa: pregunta casi idéntica a la de un par del dataset, sin LLM
+            Optional<VectorStoreService.QuestionMatch> directMatch = scope.joinOrDefault(directMatchFork, Optional.empty());
+            if (directMatch.isPresent()) {
+                long processingTime = System.currentTimeMillis() - startTime;
+                log.info("RAG request answered by direct match (similarity {}). Processing time: {}ms",
+                    String.format("%.3f", directMatch.get().similarity()), processingTime);
+                return responseFormatter.formatDirectMatchResponse(
+                    directMatch.get().embedding(), directMatch.get().similarity(), request.materia(), processingTime);
+            }
+
+            // Paráfrasis de una pregunta ya respondida (cache compartido entre nodos)
+            Optional<AskResponse> cached = scope.joinOrDefault(cachedFork, Optional.empty());
+            if (cached.isPresent()) {
+                long processingTime = System.currentTimeMillis() - startTime;
+                log.info("RAG request answered from semantic cache. Processing time: {}ms", processingTime);
+                return responseFormatter.formatCachedResponse(cached.get(), request.materia(), processingTime);
+            }
+
+            // Paso 2: Documentos similares
+            RetrievalResult candidates = scope.join(retrievalFork);
+            RetrievalResult retrieval = adaptiveRetrievalPolicy.select(candidates);
+            List<DocumentEmbedding> retrievedDocuments = retrieval.documents();
 
             // Verificar si hay documentos suficientes
             if (retrievedDocuments.size() < MIN_DOCUMENTS_FOR_RESPONSE) {
                 log.warn("Insufficient context: only {} documents found", retrievedDocuments.size());
-                return handleInsufficientContext(request, startTime);
+                return handleInsufficientContext(
+                    scope, request, insufficientContextReason(request, candidates), queryEmbedding, startTime);
             }
 
             log.info("Retrieved {} documents from vector store", retrievedDocuments.size());
 
-            // Paso 3: Construir prompt con contexto
-            log.debug("Step 3: Building prompt with context");
-            String prompt = promptBuilder.buildPrompt(request.question(), retrievedDocuments);
-
-            // Paso 4: Llamar al LLM
-            log.debug("Step 4: Calling LLM");
+            // Pasos 3 y 4: Construir prompt con contexto y llamar al LLM
+            // (modelo rápido o fuerte según la confianza de la recuperación)
             LLMClient llmClient = llmClientFactory.getClient();
-            LLMConfig llmConfig = LLMConfig.defaultConfig();
-            String llmAnswer = llmClient.generateResponse(prompt, llmConfig);
-            log.debug("LLM response received. Length: {} characters", llmAnswer.length());
-
-            // Paso 5: Validar respuesta (anti-hallucination)
+            LLMConfig.ModelTier tier = modelRoutingPolicy.select(retrieval);
+            LLMResponse llmResponse = scope.run(PipelineStage.GENERATE, () -> {
+                if (sectionedAnswerGenerator.isEnabled()) {
+                    log.debug("Steps 3-4: Building section prompts and calling LLM concurrently");
+                    return sectionedAnswerGenerator.generate(
+                        llmClient, promptBuilder.buildSectionPrompts(request.question(), retrieval), tier);
+                }
+                log.debug("Steps 3-4: Building prompt with context and calling LLM");
+                LLMPrompt prompt = promptBuilder.buildPrompt(request.question(), retrieval);
+                return llmClient.generate(prompt, LLMConfig.builder().tier(tier).build());
+            });
+            String llmAnswer = llmResponse.content();
+            log.debug("LLM response received from {} ({}). Length: {} characters",
+                llmResponse.provider(), llmResponse.routing().describe(), llmAnswer.length());
+
+            // Paso 5: Validar respuesta (anti-hallucination); fuera del camino crítico salvo en modo inline,
+            // que queda acotado por el deadline de VALIDATE (si vence, la respuesta sale sin validar)
             log.debug("Step 5: Validating response for hallucinations");
-            List<LegalDocument> contextDocuments = retrievedDocuments.stream()
-                .map(DocumentEmbedding::getDocument)
-                .collect(Collectors.toList());
-
-            HallucinationValidator.ValidationResult validation =
-                hallucinationValidator.validate(llmAnswer, contextDocuments);
-
-            if (validation.hasWarnings()) {
-                log.warn("Validation warnings detected: {}", validation.warnings());
-                // En producción, podrías rechazar la respuesta o marcarla con warnings
-            }
+            scope.joinOrDefault(scope.fork(PipelineStage.VALIDATE, () -> {
+                answerValidationService.validate(request.question(), llmAnswer, retrievedDocuments);
+                return Boolean.TRUE;
+            }), Boolean.FALSE);
 
             // Paso 6: Formatear respuesta con fuentes
             log.debug("Step 6: Formatting response");
             long processingTime = System.currentTimeMillis() - startTime;
             AskResponse response = responseFormatter.formatResponse(
-                llmAnswer,
+                llmResponse,
                 retrievedDocuments,
                 request.materia(),
                 processingTime
             );
+            faqIndex.remember(request, response, corpusVersion);
+            semanticAnswerCache.store(request, queryEmbedding, retrievedDocuments, response, corpusVersion);
 
             log.info("RAG request completed successfully. Processing time: {}ms", processingTime);
             return response;
 
         } catch (InsufficientContextException e) {
             log.warn("Insufficient context for question: {}", request.question());
-            return handleInsufficientContext(request, startTime);
+            return handleInsufficientContext(
+                scope, request, InsufficientContextResponder.Reason.NOT_ANSWERABLE, queryEmbedding, startTime);
+        } catch (LLMProviderException | EmbeddingException | PipelineTimeoutException e) {
+            // Propagar para que GlobalExceptionHandler responda 503/504 en lugar de 500
+            log.error("Provider error processing RAG request: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Error processing RAG request", e);
             throw new RuntimeException("Error processing request: " + e.getMessage(), e);
+        } finally {
+            scope.close();
         }
     }
 
+    @Override
+    public Flux<AskStreamEvent> askStream(AskRequest request) {
+        // Un stream idéntico en curso se comparte; quien se une a mitad recibe los eventos emitidos
+        return requestCoalescer.stream(request, () -> streamAnswer(request));
+    }
+
+    private Flux<AskStreamEvent> streamAnswer(AskRequest request) {
+        return Flux.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            log.info("Processing streaming RAG request. Question: '{}'", request.question());
+
+            long corpusVersion = faqIndex.corpusVersion();
+            Optional<FaqIndex.Entry> indexed = faqIndex.lookup(request);
+            if (indexed.isPresent()) {
+                log.info("Streaming RAG request answered from FAQ index ({})", indexed.get().origin());
+                return streamComplete(responseFormatter.formatIndexedResponse(
+                    indexed.get(), request.materia(), System.currentTimeMillis() - startTime));
+            }
+
+            // Etapas previas a la generación con los mismos deadlines que ask(); el stream del LLM
+            // se suscribe después de cerrar el alcance y lo acotan los timeouts del proveedor
+            PipelineScope scope = pipelineScopeFactory.open();
+            try {
+                return streamGeneration(scope, request, corpusVersion, startTime);
+            } finally {
+                scope.close();
+            }
+        }).subscribeOn(Schedulers.boundedElastic()); // Embedding y búsqueda vectorial son bloqueantes
+    }
+
+    /**
+     * Embedding, respuesta directa, cache semántico y recuperación dentro del alcance del request,
+     * y el stream de tokens del LLM con su cierre.
+     */
+    private Flux<AskStreamEvent> streamGeneration(
+        PipelineScope scope,
+        AskRequest request,
+        long corpusVersion,
+        long startTime
+    ) {
+        float[] queryEmbedding = scope.run(PipelineStage.EMBED, () -> embedQuestion(request));
+        SearchFilters filters = buildSearchFilters(request);
+
+        // Mismo fork/join que ask(): la recuperación especulativa se descarta si alguna búsqueda acierta
+        PipelineScope.Fork<Optional<VectorStoreService.QuestionMatch>> directMatchFork =
+            scope.fork(PipelineStage.LOOKUP, () -> directAnswerMatcher.match(queryEmbedding, filters));
+        PipelineScope.Fork<Optional<AskResponse>> cachedFork =
+            scope.fork(PipelineStage.LOOKUP, () -> semanticAnswerCache.lookup(request, queryEmbedding));
+        PipelineScope.Fork<RetrievalResult> retrievalFork =
+            scope.fork(PipelineStage.RETRIEVE, () -> retrieveDocuments(request, queryEmbedding));
+
+        Optional<VectorStoreService.QuestionMatch> directMatch = scope.joinOrDefault(directMatchFork, Optional.empty());
+        if (directMatch.isPresent()) {
+            AskResponse response = responseFormatter.formatDirectMatchResponse(directMatch.get().embedding(),
+                directMatch.get().similarity(), request.materia(), System.currentTimeMillis() - startTime);
+            log.info("Streaming RAG request answered by direct match. Processing time: {}ms",
+                response.metadata().processingTimeMs());
+            return streamComplete(response);
+        }
+
+        Optional<AskResponse> cached = scope.joinOrDefault(cachedFork, Optional.empty());
+        if (cached.isPresent()) {
+            log.info("Streaming RAG request answered from semantic cache");
+            return streamComplete(responseFormatter.formatCachedResponse(
+                cached.get(), request.materia(), System.currentTimeMillis() - startTime));
+        }
+
+        RetrievalResult candidates;
+        InsufficientContextResponder.Reason reason = null;
+        try {
+            candidates = scope.join(retrievalFork);
+        } catch (InsufficientContextException e) {
+            candidates = RetrievalResult.empty();
+            reason = InsufficientContextResponder.Reason.NOT_ANSWERABLE;
+        }
+        RetrievalResult retrieval = adaptiveRetrievalPolicy.select(candidates);
+        List<DocumentEmbedding> documents = retrieval.documents();
+        boolean sufficientContext = documents.size() >= MIN_DOCUMENTS_FOR_RESPONSE;
+
+        if (!sufficientContext) {
+            if (reason == null) {
+                reason = insufficientContextReason(request, candidates);
+            }
+            if (!insufficientContextResponder.usesLlm()) {
+                return streamTemplateResponse(request, reason, queryEmbedding, startTime);
+            }
+            insufficientContextResponder.recordResponse(reason);
+        }
+
+        LLMPrompt prompt = sufficientContext
+            ? promptBuilder.buildPrompt(request.question(), retrieval)
+            : promptBuilder.buildInsufficientContextPrompt(request.question());
+        List<SourceReference> sources = responseFormatter.buildSources(documents);
+
+        LLMClient llmClient = llmClientFactory.getClient();
+        LLMConfig.ModelTier tier = sufficientContext
+            ? modelRoutingPolicy.select(retrieval)
+            : modelRoutingPolicy.selectForInsufficientContext();
+        LLMConfig llmConfig = LLMConfig.builder().stream(true).tier(tier).build();
+        StringBuilder answer = new StringBuilder();
+        AtomicReference<RoutingDecision> routing = new AtomicReference<>();
+
+        Flux<AskStreamEvent> tokens = llmClient.streamResponse(prompt, llmConfig, routing::set)
+            .doOnNext(answer::append)
+            .map(AskStreamEvent::token);
+
+        // Al terminar el stream: validar la respuesta completa y cerrar con disclaimer + metadata
+        Flux<AskStreamEvent> tail = Mono.fromSupplier(() -> {
+            if (sufficientContext) {
+                answerValidationService.validate(request.question(), answer.toString(), documents);
+            }
+            long processingTime = System.currentTimeMillis() - startTime;
+            log.info("Streaming RAG request completed. Processing time: {}ms", processingTime);
+            AskResponse.ResponseMetadata metadata =
+                responseFormatter.buildMetadata(documents.size(), request.materia(), processingTime, routing.get());
+            if (sufficientContext) {
+                AskResponse response = new AskResponse(
+                    answer + "\n\n" + AskResponse.DEFAULT_DISCLAIMER, sources, metadata);
+                faqIndex.remember(request, response, corpusVersion);
+                semanticAnswerCache.store(request, queryEmbedding, documents, response, corpusVersion);
+            }
+            return metadata;
+        }).flatMapMany(metadata -> Flux.just(
+            AskStreamEvent.disclaimer(AskResponse.DEFAULT_DISCLAIMER),
+            AskStreamEvent.done(metadata)
+        ));
+
+        return Flux.concat(Flux.just(AskStreamEvent.sources(sources)), tokens, tail);
+    }
+
     @Override
     public boolean isHealthy() {
         try {
@@ -148,14 +375,74 @@ public class RAGServiceImpl implements RAGService {
         }
     }
 
+    /**
+     * Genera el embedding de la pregunta.
+     */
+    private float[] embedQuestion(AskRequest request) {
+        log.debug("Step 1: Generating query embedding");
+        EmbeddingClient embeddingClient = embeddingClientFactory.getClient();
+        float[] queryEmbedding = embeddingClient.generateEmbedding(request.question());
+        log.debug("Query embedding generated. Dimensions: {}", queryEmbedding.length);
+        return queryEmbedding;
+    }
+
+    /**
+     * Recupera los documentos candidatos más similares a la pregunta, con su similitud.
+     * Si la pregunta cita un artículo concreto, los documentos que lo citan van primero.
+     * Si no indica materia y la clasificación es confiable (MateriaClassifier), se busca solo dentro
+     * de la materia clasificada; se vuelve al corpus completo si esa búsqueda no trae suficientes
+     * documentos o su mejor documento no alcanza el piso de similitud.
+     * El corte adaptativo (AdaptiveRetrievalPolicy) se aplica después.
+     */
+    private RetrievalResult retrieveDocuments(AskRequest request, float[] queryEmbedding) {
+        int fetchSize = adaptiveRetrievalPolicy.fetchSize(request.topK());
+        log.debug("Step 2: Searching for similar documents (topK={})", fetchSize);
+        SearchFilters filters = buildSearchFilters(request);
+        RetrievalResult result = null;
+        if (filters.getMateria() == null) {
+            Optional<MateriaClassifier.Classification> inferred = materiaClassifier.classifyQuery(queryEmbedding);
+            if (inferred.isPresent()) {
+                RetrievalResult filtered = RetrievalResult.score(queryEmbedding, vectorStoreService.findSimilar(
+                    queryEmbedding,
+                    fetchSize,
+                    buildSearchFilters(request, inferred.get().materia())
+                ));
+                boolean useFiltered = filtered.size() >= MIN_DOCUMENTS_FOR_RESPONSE
+                    && adaptiveRetrievalPolicy.reachesFloor(filtered);
+                log.debug("Inferred materia {} (similarity={}, margin={}); {}", inferred.get().materia(),
+                    inferred.get().similarity(), inferred.get().margin(),
+                    useFiltered ? "using filtered results" : "falling back to the full corpus");
+                if (useFiltered) {
+                    result = filtered;
+                }
+            }
+        }
+        if (result == null) {
+            result = RetrievalResult.score(queryEmbedding, vectorStoreService.findSimilar(
+                queryEmbedding,
+                fetchSize,
+                filters
+            ));
+        }
+        List<DocumentEmbedding> cited = citationRetriever.find(request.question(), queryEmbedding, filters);
+        return result.withPinned(queryEmbedding, cited);
+    }
+
     /**
      * Construye los filtros de búsqueda desde el request.
      */
     private SearchFilters buildSearchFilters(AskRequest request) {
+        return buildSearchFilters(request, request.materia());
+    }
+
+    /**
+     * Filtros del request con la materia indicada (la del request o la inferida).
+     */
+    private SearchFilters buildSearchFilters(AskRequest request, String materia) {
         SearchFilters.Builder builder = SearchFilters.builder();
 
-        if (request.materia() != null && !request.materia().isBlank()) {
-            builder.materia(request.materia());
+        if (materia != null && !materia.isBlank()) {
+            builder.materia(materia);
         }
 
         if (request.semesterLevel() != null) {
@@ -166,21 +453,77 @@ public class RAGServiceImpl implements RAGService {
     }
 
     /**
-     * Maneja el caso de contexto insuficiente.
+     * Motivo de una recuperación sin documentos útiles: candidatos bajo el piso de similitud,
+     * filtros que dejaron fuera al corpus, o ningún documento.
+     */
+    private InsufficientContextResponder.Reason insufficientContextReason(AskRequest request, RetrievalResult candidates) {
+        if (candidates.size() > 0) {
+            return InsufficientContextResponder.Reason.LOW_SIMILARITY;
+        }
+        return buildSearchFilters(request).hasFilters()
+            ? InsufficientContextResponder.Reason.FILTERED_OUT
+            : InsufficientContextResponder.Reason.NO_DOCUMENTS;
+    }
+
+    /**
+     * Emite una respuesta ya completa con la misma secuencia de eventos que una respuesta generada.
+     */
+    private Flux<AskStreamEvent> streamComplete(AskResponse response) {
+        String answer = response.answer().replace(response.disclaimer(), "").strip();
+        return Flux.just(
+            AskStreamEvent.sources(response.sources()),
+            AskStreamEvent.token(answer),
+            AskStreamEvent.disclaimer(response.disclaimer()),
+            AskStreamEvent.done(response.metadata())
+        );
+    }
+
+    /**
+     * Emite la respuesta de plantilla con la misma secuencia de eventos que una respuesta generada.
      */
-    private AskResponse handleInsufficientContext(AskRequest request, long startTime) {
+    private Flux<AskStreamEvent> streamTemplateResponse(
+        AskRequest request,
+        InsufficientContextResponder.Reason reason,
+        float[] queryEmbedding,
+        long startTime
+    ) {
+        String answer = insufficientContextResponder.respond(reason, request.materia(), queryEmbedding);
+        long processingTime = System.currentTimeMillis() - startTime;
+        log.info("Streaming RAG request answered from template ({}). Processing time: {}ms", reason, processingTime);
+        return streamComplete(
+            responseFormatter.formatInsufficientContextResponse(answer, reason, request.materia(), processingTime));
+    }
+
+    /**
+     * Maneja el caso de contexto insuficiente: plantilla sin LLM, o el LLM si
+     * luisamigo.rag.insufficient-context.use-llm está activo.
+     */
+    private AskResponse handleInsufficientContext(
+        PipelineScope scope,
+        AskRequest request,
+        InsufficientContextResponder.Reason reason,
+        float[] queryEmbedding,
+        long startTime
+    ) {
+        if (!insufficientContextResponder.usesLlm()) {
+            String answer = insufficientContextResponder.respond(reason, request.materia(), queryEmbedding);
+            long processingTime = System.currentTimeMillis() - startTime;
+            return responseFormatter.formatInsufficientContextResponse(answer, reason, request.materia(), processingTime);
+        }
+
         log.debug("Building insufficient context response");
+        insufficientContextResponder.recordResponse(reason);
 
-        String prompt = promptBuilder.buildInsufficientContextPrompt(request.question());
+        LLMPrompt prompt = promptBuilder.buildInsufficientContextPrompt(request.question());
 
         LLMClient llmClient = llmClientFactory.getClient();
-        LLMConfig llmConfig = LLMConfig.defaultConfig();
-        String llmAnswer = llmClient.generateResponse(prompt, llmConfig);
+        LLMConfig llmConfig = LLMConfig.builder().tier(modelRoutingPolicy.selectForInsufficientContext()).build();
+        LLMResponse llmResponse = scope.run(PipelineStage.GENERATE, () -> llmClient.generate(prompt, llmConfig));
 
         long processingTime = System.currentTimeMillis() - startTime;
 
         return responseFormatter.formatInsufficientContextResponse(
-            llmAnswer,
+            llmResponse,
             request.materia(),
             processingTime
         );
@@ -0,0 +1,124 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.dto.request.AskRequest;
+import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.dto.response.AskStreamEvent;
+import mx.uach.luisamigo.service.ingestion.TextNormalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight de requests idénticos en curso: cuando muchos alumnos hacen la misma pregunta a la
+ * vez, solo el primero paga embedding, búsqueda y generación.
+ *
+ * - ask: los duplicados concurrentes esperan el future del primero y reciben el mismo AskResponse
+ *   (o la misma excepción)
+ * - askStream: el stream del primero se comparte con replay; quien se une a mitad recibe los
+ *   eventos ya emitidos y continúa en vivo
+ *
+ * La llave es la pregunta canónica (TextNormalizer.canonicalize) más materia, semestre y topK.
+ * La entrada se libera al terminar, así que solo se coalescen requests simultáneos.
+ */
+@Component
+public class RequestCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestCoalescer.class);
+
+    private record Key(String question, String materia, Integer semesterLevel, Integer topK) {}
+
+    private final RagProperties.CoalescingConfig config;
+    private final TextNormalizer textNormalizer;
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, CompletableFuture<AskResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, Flux<AskStreamEvent>> inFlightStreams = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(RagProperties ragProperties, TextNormalizer textNormalizer, MeterRegistry meterRegistry) {
+        this.config = ragProperties.getCoalescing();
+        this.textNormalizer = textNormalizer;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("luisamigo.rag.coalescing.in_flight", inFlight, Map::size);
+        meterRegistry.gauge("luisamigo.rag.coalescing.in_flight_streams", inFlightStreams, Map::size);
+    }
+
+    /**
+     * Ejecuta work, o espera el resultado de un request idéntico que ya está en curso.
+     */
+    public AskResponse ask(AskRequest request, Supplier<AskResponse> work) {
+        if (!config.isEnabled()) {
+            return work.get();
+        }
+        Key key = key(request);
+        CompletableFuture<AskResponse> future = new CompletableFuture<>();
+        CompletableFuture<AskResponse> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            record("ask", "follower");
+            log.debug("Joining in-flight request for '{}'", key.question());
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        record("ask", "leader");
+        try {
+            AskResponse response = work.get();
+            future.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Devuelve el stream de work, compartido con los requests idénticos que lleguen mientras
+     * sigue en curso. Continúa mientras quede algún suscriptor; cuando todos los clientes se
+     * desconectan se cancela la generación.
+     */
+    public Flux<AskStreamEvent> stream(AskRequest request, Supplier<Flux<AskStreamEvent>> work) {
+        if (!config.isEnabled()) {
+            return Flux.defer(work);
+        }
+        return Flux.defer(() -> {
+            Key key = key(request);
+            AtomicReference<Flux<AskStreamEvent>> created = new AtomicReference<>();
+            Flux<AskStreamEvent> shared = inFlightStreams.computeIfAbsent(key, k -> {
+                created.set(Flux.defer(work)
+                    .doFinally(signal -> inFlightStreams.remove(k, created.get()))
+                    .replay()
+                    .refCount());
+                return created.get();
+            });
+            boolean leader = shared == created.get();
+            record("stream", leader ? "leader" : "follower");
+            if (!leader) {
+                log.debug("Joining in-flight stream for '{}'", key.question());
+            }
+            return shared;
+        });
+    }
+
+    private Key key(AskRequest request) {
+        String materia = request.materia() != null && !request.materia().isBlank() ? request.materia().strip() : null;
+        return new Key(textNormalizer.canonicalize(request.question()), materia, request.semesterLevel(), request.topK());
+    }
+
+    private void record(String mode, String role) {
+        meterRegistry.counter("luisamigo.rag.coalescing", "mode", mode, "role", role).increment();
+    }
+}
@@ -1,5 +1,7 @@
 package mx.uach.luisamigo.service.rag;
 
+import mx.uach.luisamigo.client.llm.LLMResponse;
+import mx.uach.luisamigo.client.llm.RoutingDecision;
 import mx.uach.luisamigo.domain.DocumentEmbedding;
 import mx.uach.luisamigo.domain.LegalDocument;
 import mx.uach.luisamigo.dto.response.AskResponse;
@@ -11,6 +13,7 @@ import org.springframework.stereotype.Component;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Formatea respuestas del RAG system con referencias a fuentes citadas.
@@ -20,49 +23,36 @@ public class ResponseFormatter {
 
     private static final Logger log = LoggerFactory.getLogger(ResponseFormatter.class);
 
+    /** Ruteo reportado en la metadata cuando la respuesta es la almacenada en el dataset. */
+    public static final String DIRECT_MATCH_ROUTING = "direct_match";
+
+    /** Ruteo reportado en la metadata cuando la respuesta sale del cache semántico compartido. */
+    public static final String SEMANTIC_CACHE_ROUTING = "semantic_cache";
+
+    /** Ruteo reportado en la metadata cuando la respuesta sale del índice de preguntas frecuentes. */
+    public static final String FAQ_INDEX_ROUTING = "faq_index";
+
     /**
      * Formatea la respuesta del LLM con las fuentes recuperadas.
      *
-     * @param llmAnswer Respuesta del LLM
+     * @param llmResponse Respuesta del LLM con el proveedor que la generó
      * @param retrievedDocuments Documentos recuperados del vector store
      * @param materia Materia filtrada (opcional)
      * @param processingTimeMs Tiempo de procesamiento en ms
      * @return AskResponse formateado con fuentes
      */
     public AskResponse formatResponse(
-        String llmAnswer,
+        LLMResponse llmResponse,
         List<DocumentEmbedding> retrievedDocuments,
         String materia,
         long processingTimeMs
     ) {
         log.debug("Formatting response with {} sources", retrievedDocuments.size());
 
-        // Construir lista de referencias de fuentes
-        List<SourceReference> sources = new ArrayList<>();
-        for (DocumentEmbedding embedding : retrievedDocuments) {
-            LegalDocument doc = embedding.getDocument();
-
-            // Construir texto de la fuente (extracto de la respuesta)
-            String sourceText = buildSourceText(doc);
-
-            SourceReference sourceRef = new SourceReference(
-                doc.getId(),
-                sourceText,
-                doc.getLawReference(),
-                doc.getSource(),
-                null // similarity score no está calculado aún
-            );
-
-            sources.add(sourceRef);
-        }
-
-        // Construir metadata
-        AskResponse.ResponseMetadata metadata = new AskResponse.ResponseMetadata(
-            retrievedDocuments.size(),
-            materia,
-            Instant.now(),
-            processingTimeMs
-        );
+        String llmAnswer = llmResponse.content();
+        List<SourceReference> sources = buildSources(retrievedDocuments);
+        AskResponse.ResponseMetadata metadata = buildMetadata(
+            retrievedDocuments.size(), materia, processingTimeMs, llmResponse.routing());
 
         // Asegurar que la respuesta incluye el disclaimer
         String finalAnswer = ensureDisclaimer(llmAnswer);
@@ -73,11 +63,61 @@ public class ResponseFormatter {
         return new AskResponse(finalAnswer, sources, metadata);
     }
 
+    /**
+     * Construye la lista de referencias de fuentes a partir de los documentos recuperados.
+     */
+    public List<SourceReference> buildSources(List<DocumentEmbedding> retrievedDocuments) {
+        List<SourceReference> sources = new ArrayList<>(retrievedDocuments.size());
+        for (DocumentEmbedding embedding : retrievedDocuments) {
+            sources.add(buildSource(embedding.getDocument()));
+        }
+        return sources;
+    }
+
+    /**
+     * Referencia a la fuente de un documento (extracto de la respuesta).
+     */
+    public SourceReference buildSource(LegalDocument doc) {
+        return buildSource(doc.getId(), doc.getAnswer(), doc.getLawReference(), doc.getSource());
+    }
+
+    /**
+     * Referencia a la fuente a partir de columnas sueltas (proyecciones sin la entidad completa).
+     */
+    public SourceReference buildSource(Long documentId, String answer, String lawReference, String source) {
+        return new SourceReference(
+            documentId,
+            buildSourceText(answer),
+            lawReference,
+            source,
+            null // similarity score no está calculado aún
+        );
+    }
+
+    /**
+     * Construye la metadata de la respuesta, incluyendo la decisión de ruteo del LLM si se conoce.
+     */
+    public AskResponse.ResponseMetadata buildMetadata(
+        int documentsRetrieved,
+        String materia,
+        long processingTimeMs,
+        RoutingDecision routing
+    ) {
+        return new AskResponse.ResponseMetadata(
+            documentsRetrieved,
+            materia,
+            Instant.now(),
+            processingTimeMs,
+            routing != null ? routing.provider() : null,
+            routing != null ? routing.model() : null,
+            routing != null ? routing.describe() : null
+        );
+    }
+
     /**
      * Construye el texto de la fuente (extracto de máximo 200 caracteres).
      */
-    private String buildSourceText(LegalDocument doc) {
-        String answer = doc.getAnswer();
+    private String buildSourceText(String answer) {
         if (answer == null || answer.isBlank()) {
             return "";
         }
@@ -90,12 +130,90 @@ public class ResponseFormatter {
         return answer.substring(0, 197) + "...";
     }
 
+    /**
+     * Formatea la respuesta directa: la respuesta almacenada del par del dataset cuya pregunta
+     * coincide con la del estudiante, con ese documento como única fuente y sin LLM.
+     */
+    public AskResponse formatDirectMatchResponse(
+        DocumentEmbedding matchedDocument,
+        double similarity,
+        String materia,
+        long processingTimeMs
+    ) {
+        log.debug("Formatting direct match response (similarity {})", similarity);
+
+        AskResponse.ResponseMetadata metadata = new AskResponse.ResponseMetadata(
+            1, materia, Instant.now(), processingTimeMs, null, null, DIRECT_MATCH_ROUTING);
+        String answer = ensureDisclaimer(matchedDocument.getDocument().getAnswer());
+
+        return new AskResponse(answer, buildSources(List.of(matchedDocument)), metadata);
+    }
+
+    /**
+     * Formatea una respuesta servida desde el índice de preguntas frecuentes (FaqIndex): misma
+     * respuesta y fuentes que la indexada, con el tiempo de esta petición.
+     */
+    public AskResponse formatIndexedResponse(FaqIndex.Entry entry, String materia, long processingTimeMs) {
+        AskResponse.ResponseMetadata metadata = new AskResponse.ResponseMetadata(
+            entry.sources().size(), materia, Instant.now(), processingTimeMs, null, null, FAQ_INDEX_ROUTING);
+
+        return new AskResponse(ensureDisclaimer(entry.answer()), entry.sources(), metadata);
+    }
+
+    /**
+     * Formatea una respuesta del cache semántico: respuesta y fuentes originales, con la metadata
+     * de esta petición (el proveedor y modelo originales se conservan como referencia).
+     */
+    public AskResponse formatCachedResponse(AskResponse cached, String materia, long processingTimeMs) {
+        AskResponse.ResponseMetadata original = cached.metadata();
+        AskResponse.ResponseMetadata metadata = new AskResponse.ResponseMetadata(
+            original != null ? original.documentsRetrieved() : cached.sources().size(),
+            materia,
+            Instant.now(),
+            processingTimeMs,
+            original != null ? original.llmProvider() : null,
+            original != null ? original.llmModel() : null,
+            SEMANTIC_CACHE_ROUTING
+        );
+
+        return new AskResponse(ensureDisclaimer(cached.answer()), cached.sources(), metadata);
+    }
+
+    /**
+     * Une las secciones generadas por separado en una sola respuesta, en el orden de AnswerSection y
+     * con su encabezado. Las secciones ausentes, vacías o marcadas sin contenido se omiten.
+     *
+     * @param sections Texto de cada sección devuelto por el LLM
+     * @return Respuesta completa (sin disclaimer; lo agrega formatResponse)
+     */
+    public String stitchSections(Map<AnswerSection, String> sections) {
+        StringBuilder answer = new StringBuilder();
+        for (AnswerSection section : AnswerSection.values()) {
+            String text = sections.get(section);
+            if (text == null || text.isBlank() || text.strip().equals(AnswerSection.EMPTY_MARKER)) {
+                continue;
+            }
+            if (!answer.isEmpty()) {
+                answer.append("\n\n");
+            }
+            answer.append("**").append(section.getHeading()).append("**\n\n").append(stripDisclaimer(text.strip()));
+        }
+        return answer.toString();
+    }
+
+    /**
+     * Quita el disclaimer si el modelo lo repitió dentro de una sección, para que aparezca una sola vez al final.
+     */
+    private static String stripDisclaimer(String text) {
+        return text.replace(AskResponse.DEFAULT_DISCLAIMER, "").strip();
+    }
+
     /**
      * Asegura que la respuesta incluye el disclaimer académico.
      * Si no está presente, lo agrega al final.
      */
     private String ensureDisclaimer(String answer) {
-        String disclaimer = "Esto es material académico y no constituye asesoría jurídica profesional.";
+        String disclaimer = AskResponse.DEFAULT_DISCLAIMER;
 
         if (answer.contains(disclaimer)) {
             return answer;
@@ -109,21 +227,34 @@ public class ResponseFormatter {
      * Formatea una respuesta de error cuando no hay contexto suficiente.
      */
     public AskResponse formatInsufficientContextResponse(
-        String llmAnswer,
+        LLMResponse llmResponse,
         String materia,
         long processingTimeMs
     ) {
         log.debug("Formatting insufficient context response");
 
-        AskResponse.ResponseMetadata metadata = new AskResponse.ResponseMetadata(
-            0,
-            materia,
-            Instant.now(),
-            processingTimeMs
-        );
+        AskResponse.ResponseMetadata metadata = buildMetadata(0, materia, processingTimeMs, llmResponse.routing());
 
-        String finalAnswer = ensureDisclaimer(llmAnswer);
+        String finalAnswer = ensureDisclaimer(llmResponse.content());
 
         return new AskResponse(finalAnswer, List.of(), metadata);
     }
+
+    /**
+     * Formatea la respuesta de contexto insuficiente redactada desde plantilla (sin LLM).
+     * La metadata no lleva proveedor ni modelo; el ruteo indica la plantilla y el motivo.
+     */
+    public AskResponse formatInsufficientContextResponse(
+        String templateAnswer,
+        InsufficientContextResponder.Reason reason,
+        String materia,
+        long processingTimeMs
+    ) {
+        log.debug("Formatting insufficient context response from template ({})", reason);
+
+        AskResponse.ResponseMetadata metadata = new AskResponse.ResponseMetadata(
+            0, materia, Instant.now(), processingTimeMs, null, null, "template " + reason.name().toLowerCase());
+
+        return new AskResponse(ensureDisclaimer(templateAnswer), List.of(), metadata);
+    }
 }
@@ -0,0 +1,115 @@
+package mx.uach.luisamigo.service.rag;
+
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.service.vectorstore.VectorMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Documentos recuperados junto con su similitud coseno a la pregunta (mismo orden, mayor a menor).
+ * Expone las señales de confianza usadas para elegir el modelo.
+ *
+ * Los primeros pinned documentos vienen de la búsqueda directa por cita (CitationRetriever): van
+ * antes de los resultados vectoriales sin importar su similitud y el corte adaptativo los conserva.
+ */
+public record RetrievalResult(List<DocumentEmbedding> documents, double[] similarities, int pinned) {
+
+    public RetrievalResult(List<DocumentEmbedding> documents, double[] similarities) {
+        this(documents, similarities, 0);
+    }
+
+    /**
+     * Calcula la similitud de cada documento con el embedding de la pregunta.
+     */
+    public static RetrievalResult score(float[] queryEmbedding, List<DocumentEmbedding> documents) {
+        double[] similarities = new double[documents.size()];
+        for (int i = 0; i < similarities.length; i++) {
+            similarities[i] = VectorMath.cosine(queryEmbedding, documents.get(i).getEmbeddingArray());
+        }
+        return new RetrievalResult(documents, similarities);
+    }
+
+    public static RetrievalResult empty() {
+        return new RetrievalResult(List.of(), new double[0]);
+    }
+
+    /**
+     * Antepone los documentos citados (fijos) a este resultado, sin repetir documentos.
+     */
+    public RetrievalResult withPinned(float[] queryEmbedding, List<DocumentEmbedding> cited) {
+        if (cited.isEmpty()) {
+            return this;
+        }
+        Set<Long> citedIds = new HashSet<>();
+        List<DocumentEmbedding> merged = new ArrayList<>(cited.size() + documents.size());
+        for (DocumentEmbedding embedding : cited) {
+            if (citedIds.add(embedding.getId())) {
+                merged.add(embedding);
+            }
+        }
+        int pinnedCount = merged.size();
+        double[] mergedSimilarities = new double[pinnedCount + documents.size()];
+        for (int i = 0; i < pinnedCount; i++) {
+            mergedSimilarities[i] = VectorMath.cosine(queryEmbedding, merged.get(i).getEmbeddingArray());
+        }
+        for (int i = 0; i < documents.size(); i++) {
+            if (!citedIds.contains(documents.get(i).getId())) {
+                mergedSimilarities[merged.size()] = similarities[i];
+                merged.add(documents.get(i));
+            }
+        }
+        return new RetrievalResult(merged, Arrays.copyOf(mergedSimilarities, merged.size()), pinnedCount);
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Los primeros n documentos con su similitud.
+     */
+    public RetrievalResult limit(int n) {
+        if (n >= documents.size()) {
+            return this;
+        }
+        return new RetrievalResult(documents.subList(0, n), Arrays.copyOf(similarities, n), Math.min(pinned, n));
+    }
+
+    /**
+     * Similitud del mejor documento (0 si no hay documentos).
+     */
+    public double topSimilarity() {
+        return similarities.length > 0 ? similarities[0] : 0.0;
+    }
+
+    /**
+     * Ventaja del mejor documento sobre el segundo; con un solo documento es su similitud completa.
+     */
+    public double scoreGap() {
+        if (similarities.length == 0) {
+            return 0.0;
+        }
+        return similarities.length == 1 ? similarities[0] : similarities[0] - similarities[1];
+    }
+
+    /**
+     * Caracteres de contexto que irían al prompt (preguntas y respuestas de los documentos).
+     */
+    public int contextChars() {
+        int chars = 0;
+        for (DocumentEmbedding embedding : documents) {
+            LegalDocument doc = embedding.getDocument();
+            chars += length(doc.getQuestion()) + length(doc.getAnswer());
+        }
+        return chars;
+    }
+
+    private static int length(String text) {
+        return text != null ? text.length() : 0;
+    }
+}
@@ -0,0 +1,116 @@
+package mx.uach.luisamigo.service.rag;
+
+import jakarta.annotation.PreDestroy;
+import mx.uach.luisamigo.client.llm.LLMClient;
+import mx.uach.luisamigo.client.llm.LLMConfig;
+import mx.uach.luisamigo.client.llm.LLMPrompt;
+import mx.uach.luisamigo.client.llm.LLMResponse;
+import mx.uach.luisamigo.config.RagProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Genera la respuesta estructurada pidiendo cada sección (resumen, explicación, ejemplo) en una
+ * llamada concurrente al LLM, con un tope de tokens por sección, y las une con ResponseFormatter.
+ *
+ * Las llamadas son bloqueantes (esperan E/S del proveedor), por lo que corren en hilos virtuales.
+ * Si falla el ejemplo la respuesta se entrega sin él; si falla el resumen o la explicación se propaga el error.
+ * Al fallar o al interrumpirse el hilo que espera (deadline de GENERATE en PipelineScope) se
+ * interrumpen las llamadas que sigan en curso, para no gastar tokens ni permisos del rate limiter.
+ */
+@Component
+public class SectionedAnswerGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SectionedAnswerGenerator.class);
+
+    private final RagProperties.SectionedGenerationConfig config;
+    private final ResponseFormatter responseFormatter;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SectionedAnswerGenerator(RagProperties ragProperties, ResponseFormatter responseFormatter) {
+        this.config = ragProperties.getSectionedGeneration();
+        this.responseFormatter = responseFormatter;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Lanza una llamada por sección y espera a todas.
+     *
+     * @param llmClient Cliente LLM
+     * @param prompts Prompt de cada sección (PromptBuilder.buildSectionPrompts)
+     * @param tier Modelo rápido o fuerte, el mismo para todas las secciones
+     * @return Respuesta unida; el ruteo reportado es el de la explicación
+     * @throws CancellationException si el hilo que espera es interrumpido
+     */
+    public LLMResponse generate(LLMClient llmClient, Map<AnswerSection, LLMPrompt> prompts, LLMConfig.ModelTier tier) {
+        long startTime = System.currentTimeMillis();
+
+        Map<AnswerSection, Future<LLMResponse>> calls = new EnumMap<>(AnswerSection.class);
+        prompts.forEach((section, prompt) -> {
+            LLMConfig llmConfig = LLMConfig.builder().maxTokens(maxTokens(section)).tier(tier).build();
+            calls.put(section, executor.submit(() -> llmClient.generate(prompt, llmConfig)));
+        });
+
+        Map<AnswerSection, String> sections = new EnumMap<>(AnswerSection.class);
+        LLMResponse main = null;
+        try {
+            for (Map.Entry<AnswerSection, Future<LLMResponse>> call : calls.entrySet()) {
+                AnswerSection section = call.getKey();
+                LLMResponse response;
+                try {
+                    response = call.getValue().get();
+                } catch (ExecutionException e) {
+                    RuntimeException cause = e.getCause() instanceof RuntimeException runtime
+                        ? runtime
+                        : new CompletionException(e.getCause());
+                    if (section == AnswerSection.EXAMPLE) {
+                        log.warn("Example section failed, answering without it: {}", cause.getMessage());
+                        continue;
+                    }
+                    throw cause;
+                }
+                sections.put(section, response.content());
+                if (main == null || section == AnswerSection.EXPLANATION) {
+                    main = response;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Sectioned answer generation interrupted");
+        } finally {
+            // Sin efecto sobre las llamadas ya terminadas; interrumpe las que sigan en curso
+            calls.values().forEach(pending -> pending.cancel(true));
+        }
+
+        log.debug("Sectioned answer generated in {}ms ({} of {} sections)",
+            System.currentTimeMillis() - startTime, sections.size(), prompts.size());
+
+        return new LLMResponse(responseFormatter.stitchSections(sections), main.routing());
+    }
+
+    private int maxTokens(AnswerSection section) {
+        return switch (section) {
+            case SUMMARY -> config.getSummaryMaxTokens();
+            case EXPLANATION -> config.getExplanationMaxTokens();
+            case EXAMPLE -> config.getExampleMaxTokens();
+        };
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,185 @@
+package mx.uach.luisamigo.service.rag;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.dto.request.AskRequest;
+import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.repository.SemanticAnswerCacheRepository;
+import mx.uach.luisamigo.service.vectorstore.CorpusChangedEvent;
+import mx.uach.luisamigo.service.vectorstore.CorpusVersion;
+import mx.uach.luisamigo.service.vectorstore.VectorMath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache semántico de respuestas en PostgreSQL, compartido por todos los nodos del backend.
+ *
+ * Guarda el embedding de la consulta (con índice HNSW), los filtros (materia, semestre), los ids de
+ * los documentos recuperados y el AskResponse serializado. Una consulta con los mismos filtros y
+ * similitud ≥ min-similarity con una entrada vigente reutiliza su respuesta sin recuperar ni generar.
+ *
+ * Las entradas expiran por TTL y se eliminan las que citan documentos borrados (CorpusChangedEvent).
+ * Una falla del cache nunca interrumpe la respuesta: se registra y se sigue sin cache.
+ */
+@Component
+public class SemanticAnswerCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticAnswerCache.class);
+
+    private final RagProperties.SemanticCacheConfig config;
+    private final SemanticAnswerCacheRepository repository;
+    private final ObjectMapper objectMapper;
+    private final CorpusVersion corpusVersion;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong lastPurgeNanos = new AtomicLong(System.nanoTime());
+
+    public SemanticAnswerCache(
+        RagProperties ragProperties,
+        SemanticAnswerCacheRepository repository,
+        ObjectMapper objectMapper,
+        CorpusVersion corpusVersion,
+        MeterRegistry meterRegistry
+    ) {
+        this.config = ragProperties.getSemanticCache();
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.corpusVersion = corpusVersion;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Respuesta cacheada para una paráfrasis cercana de la consulta con los mismos filtros.
+     */
+    public Optional<AskResponse> lookup(AskRequest request, float[] queryEmbedding) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+
+        try {
+            Optional<SemanticAnswerCacheRepository.CachedAnswer> closest = repository.findClosest(
+                VectorMath.toPgVector(queryEmbedding), materiaKey(request.materia()), request.semesterLevel());
+
+            Optional<SemanticAnswerCacheRepository.CachedAnswer> hit = closest
+                .filter(cached -> cached.similarity() >= config.getMinSimilarity());
+            closest.ifPresent(cached -> log.debug("Closest cached answer {} (similarity {})",
+                cached.id(), String.format("%.3f", cached.similarity())));
+            record(hit.isPresent() ? "hit" : "miss");
+
+            if (hit.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(objectMapper.readValue(hit.get().response(), AskResponse.class));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Semantic cache lookup failed, continuing without cache: {}", e.getMessage());
+            record("error");
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Guarda una respuesta generada, en segundo plano para no sumar latencia a la petición.
+     * No se guarda si el corpus cambió mientras se generaba.
+     *
+     * @param corpusVersionAtStart Generación del corpus al iniciar la petición
+     */
+    public void store(
+        AskRequest request,
+        float[] queryEmbedding,
+        List<DocumentEmbedding> documents,
+        AskResponse response,
+        long corpusVersionAtStart
+    ) {
+        if (!config.isEnabled() || queryEmbedding == null) {
+            return;
+        }
+
+        Thread.ofVirtual().name("semantic-cache-store").start(() -> {
+            if (corpusVersionAtStart != corpusVersion.current()) {
+                return;
+            }
+            try {
+                List<Long> documentIds = documents.stream().map(doc -> doc.getDocument().getId()).toList();
+                repository.insert(
+                    VectorMath.toPgVector(queryEmbedding),
+                    materiaKey(request.materia()),
+                    request.semesterLevel(),
+                    documentIds,
+                    objectMapper.writeValueAsString(response),
+                    Instant.now().plus(Duration.ofHours(config.getTtlHours()))
+                );
+                purgeExpiredIfDue();
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.warn("Could not store answer in semantic cache: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Invalida según el cambio del corpus. Como la tabla es compartida, solo el nodo donde ocurrió
+     * el cambio la modifica:
+     *
+     * - Borrado con ids: elimina las respuestas que citan esos documentos
+     * - Alta: nada; las respuestas cacheadas siguen respaldadas por sus fuentes (las acota el TTL)
+     * - Cambio desconocido o borrado sin ids: vacía la tabla
+     *
+     * El borrado va en un hilo virtual: el evento llega en afterCommit, donde la conexión de la
+     * transacción aún está ligada al hilo y un DELETE en ella no se confirmaría.
+     */
+    @EventListener
+    public void onCorpusChanged(CorpusChangedEvent event) {
+        if (!config.isEnabled() || event.remote() || event.change() == CorpusChangedEvent.Change.STORED) {
+            return;
+        }
+        Thread.ofVirtual().name("semantic-cache-invalidate").start(() -> {
+            try {
+                int deleted = 0;
+                if (event.isDeletion() && !event.documentIds().isEmpty()) {
+                    for (CorpusChangedEvent.IdRange range : event.documentIds()) {
+                        deleted += repository.deleteReferencing(range.from(), range.to());
+                    }
+                } else {
+                    deleted = repository.deleteAll();
+                }
+                log.info("Semantic cache invalidated after corpus change (generation {}): {} entries",
+                    event.generation(), deleted);
+            } catch (RuntimeException e) {
+                log.warn("Could not invalidate semantic cache after corpus change: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void purgeExpiredIfDue() {
+        long last = lastPurgeNanos.get();
+        long now = System.nanoTime();
+        if (now - last < TimeUnit.SECONDS.toNanos(config.getPurgeIntervalSeconds())
+            || !lastPurgeNanos.compareAndSet(last, now)) {
+            return;
+        }
+        int purged = repository.deleteExpired();
+        log.debug("Purged {} expired semantic cache entries", purged);
+    }
+
+    private void record(String result) {
+        meterRegistry.counter("luisamigo.rag.semantic_cache", "result", result).increment();
+    }
+
+    /**
+     * Materia en minúsculas y sin espacios extremos, para que "Civil" y "civil" compartan entradas.
+     */
+    private static String materiaKey(String materia) {
+        return materia == null || materia.isBlank() ? null : materia.strip().toLowerCase(Locale.ROOT);
+    }
+}
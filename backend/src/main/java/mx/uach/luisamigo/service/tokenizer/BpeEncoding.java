@@ -0,0 +1,72 @@
+package mx.uach.luisamigo.service.tokenizer;
+
+/**
+ * Codificaciones BPE soportadas, con su regex de pre-tokenización y su tabla de merges
+ * empaquetada en resources/tokenizer (formato .tiktoken: token en base64 + rank, comprimido con gzip).
+ */
+public enum BpeEncoding {
+
+    /**
+     * gpt-4, gpt-3.5-turbo y text-embedding-3-*.
+     */
+    CL100K_BASE(
+        "cl100k_base",
+        "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+",
+        100_256
+    ),
+
+    /**
+     * gpt-4o, gpt-4.1 y la familia o1/o3.
+     */
+    O200K_BASE(
+        "o200k_base",
+        String.join("|",
+            "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+(?i:'s|'t|'re|'ve|'m|'ll|'d)?",
+            "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*(?i:'s|'t|'re|'ve|'m|'ll|'d)?",
+            "\\p{N}{1,3}",
+            " ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*",
+            "\\s*[\\r\\n]+",
+            "\\s+(?!\\S)",
+            "\\s+"),
+        199_998
+    );
+
+    private final String encodingName;
+    private final String pattern;
+    private final int vocabularySize;
+
+    BpeEncoding(String encodingName, String pattern, int vocabularySize) {
+        this.encodingName = encodingName;
+        this.pattern = pattern;
+        this.vocabularySize = vocabularySize;
+    }
+
+    /**
+     * Codificación usada por un modelo. Los modelos de Anthropic no publican su tokenizer;
+     * para ellos se usa cl100k_base como aproximación cercana.
+     */
+    public static BpeEncoding forModel(String model) {
+        if (model == null) {
+            return CL100K_BASE;
+        }
+        String normalized = model.toLowerCase();
+        if (normalized.startsWith("gpt-4o") || normalized.startsWith("gpt-4.1") || normalized.startsWith("gpt-5")
+            || normalized.startsWith("o1") || normalized.startsWith("o3") || normalized.startsWith("o4")) {
+            return O200K_BASE;
+        }
+        return CL100K_BASE;
+    }
+
+    public String getEncodingName() { return encodingName; }
+
+    public String getPattern() { return pattern; }
+
+    public int getVocabularySize() { return vocabularySize; }
+
+    /**
+     * Ruta de la tabla de merges en el classpath.
+     */
+    public String getResourcePath() {
+        return "tokenizer/" + encodingName + ".tiktoken.gz";
+    }
+}
@@ -0,0 +1,309 @@
+package mx.uach.luisamigo.service.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tokenizer BPE (byte pair encoding) compatible con tiktoken, en Java puro y sin red.
+ *
+ * - Pre-tokeniza con la regex de la codificación y aplica los merges por rank a los bytes UTF-8 de cada pieza
+ * - Las tablas son inmutables tras la carga: una instancia se comparte entre threads
+ * - Los buffers de trabajo son por thread y las búsquedas no crean objetos, de modo que contar tokens
+ *   no genera basura proporcional al texto
+ *
+ * Los tokens especiales (e.g., <|endoftext|>) se tratan como texto ordinario.
+ */
+public final class BpeTokenizer {
+
+    private static final int NO_RANK = Integer.MAX_VALUE;
+
+    private final BpeEncoding encoding;
+    private final Pattern pattern;
+    private final RankTable ranks;
+    private final byte[][] tokenBytes;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private BpeTokenizer(BpeEncoding encoding, RankTable ranks, byte[][] tokenBytes) {
+        this.encoding = encoding;
+        this.pattern = Pattern.compile(encoding.getPattern(), Pattern.UNICODE_CHARACTER_CLASS);
+        this.ranks = ranks;
+        this.tokenBytes = tokenBytes;
+    }
+
+    /**
+     * Carga la codificación desde su tabla empaquetada en el classpath.
+     */
+    public static BpeTokenizer load(BpeEncoding encoding) throws IOException {
+        InputStream resource = BpeTokenizer.class.getClassLoader().getResourceAsStream(encoding.getResourcePath());
+        if (resource == null) {
+            throw new FileNotFoundException("Tokenizer resource not found: " + encoding.getResourcePath());
+        }
+        try (InputStream in = new GZIPInputStream(resource, 64 * 1024)) {
+            return load(encoding, in);
+        }
+    }
+
+    /**
+     * Carga una tabla en formato .tiktoken (una línea "base64 rank" por token).
+     */
+    static BpeTokenizer load(BpeEncoding encoding, InputStream tiktoken) throws IOException {
+        RankTable ranks = new RankTable(encoding.getVocabularySize());
+        byte[][] tokenBytes = new byte[encoding.getVocabularySize()][];
+        Base64.Decoder decoder = Base64.getDecoder();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(tiktoken, StandardCharsets.US_ASCII));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int space = line.indexOf(' ');
+            if (space <= 0) {
+                continue;
+            }
+            byte[] bytes = decoder.decode(line.substring(0, space));
+            int rank = Integer.parseInt(line, space + 1, line.length(), 10);
+            if (rank >= tokenBytes.length) {
+                tokenBytes = Arrays.copyOf(tokenBytes, rank + 1);
+            }
+            tokenBytes[rank] = bytes;
+            ranks.put(bytes, rank);
+        }
+        if (ranks.size() == 0) {
+            throw new IOException("Empty tokenizer table for " + encoding.getEncodingName());
+        }
+        return new BpeTokenizer(encoding, ranks, tokenBytes);
+    }
+
+    /**
+     * Número de tokens del texto, sin materializar la lista de tokens.
+     */
+    public int countTokens(CharSequence text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        Scratch work = scratch.get();
+        Matcher matcher = pattern.matcher(text);
+        int count = 0;
+        while (matcher.find()) {
+            count += encodePiece(work, text, matcher.start(), matcher.end(), null);
+        }
+        return count;
+    }
+
+    /**
+     * Tokens (ranks) del texto.
+     */
+    public int[] encode(CharSequence text) {
+        if (text == null || text.isEmpty()) {
+            return new int[0];
+        }
+        Scratch work = scratch.get();
+        IntList tokens = new IntList(Math.max(16, text.length() / 3));
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            encodePiece(work, text, matcher.start(), matcher.end(), tokens);
+        }
+        return tokens.toArray();
+    }
+
+    /**
+     * Texto de una secuencia de tokens. Secuencias que cortan un carácter multibyte
+     * producen el carácter de reemplazo U+FFFD.
+     */
+    public String decode(int[] tokens) {
+        int length = 0;
+        for (int token : tokens) {
+            length += tokenBytes(token).length;
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (int token : tokens) {
+            byte[] piece = tokenBytes(token);
+            System.arraycopy(piece, 0, bytes, offset, piece.length);
+            offset += piece.length;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Prefijo del texto con a lo más maxTokens tokens. Corta al final de la última pieza
+     * de pre-tokenización que cabe completa, por lo que nunca parte una palabra ni un carácter.
+     */
+    public String truncate(String text, int maxTokens) {
+        if (text == null || text.isEmpty() || maxTokens <= 0) {
+            return "";
+        }
+        Scratch work = scratch.get();
+        Matcher matcher = pattern.matcher(text);
+        int count = 0;
+        int end = 0;
+        while (matcher.find()) {
+            int pieceTokens = encodePiece(work, text, matcher.start(), matcher.end(), null);
+            if (count + pieceTokens > maxTokens) {
+                return text.substring(0, end);
+            }
+            count += pieceTokens;
+            end = matcher.end();
+        }
+        return text;
+    }
+
+    public BpeEncoding getEncoding() {
+        return encoding;
+    }
+
+    private byte[] tokenBytes(int token) {
+        byte[] bytes = token >= 0 && token < tokenBytes.length ? tokenBytes[token] : null;
+        if (bytes == null) {
+            throw new IllegalArgumentException("Unknown token " + token + " for " + encoding.getEncodingName());
+        }
+        return bytes;
+    }
+
+    /**
+     * Codifica una pieza: si la pieza completa es un token se resuelve con una sola búsqueda;
+     * si no, se aplican los merges de menor rank primero (mismo algoritmo que tiktoken).
+     *
+     * @return Número de tokens de la pieza (los tokens se agregan a out si no es null)
+     */
+    private int encodePiece(Scratch work, CharSequence text, int start, int end, IntList out) {
+        int length = work.utf8(text, start, end);
+        byte[] bytes = work.bytes;
+
+        int whole = ranks.get(bytes, 0, length);
+        if (whole != RankTable.ABSENT) {
+            if (out != null) {
+                out.add(whole);
+            }
+            return 1;
+        }
+
+        // positions[i] = inicio de la parte i; pairRanks[i] = rank de unir las partes i e i+1
+        work.ensureParts(length + 1);
+        int[] positions = work.positions;
+        int[] pairRanks = work.pairRanks;
+        int parts = length + 1;
+        for (int i = 0; i < parts; i++) {
+            positions[i] = i;
+        }
+        for (int i = 0; i < parts; i++) {
+            pairRanks[i] = i + 2 < parts ? rank(bytes, positions[i], positions[i + 2]) : NO_RANK;
+        }
+
+        while (parts > 1) {
+            int minRank = NO_RANK;
+            int minIndex = -1;
+            for (int i = 0; i < parts - 1; i++) {
+                if (pairRanks[i] < minRank) {
+                    minRank = pairRanks[i];
+                    minIndex = i;
+                }
+            }
+            if (minIndex < 0) {
+                break;
+            }
+
+            int i = minIndex;
+            pairRanks[i] = i + 3 < parts ? rank(bytes, positions[i], positions[i + 3]) : NO_RANK;
+            if (i > 0) {
+                pairRanks[i - 1] = i + 2 < parts ? rank(bytes, positions[i - 1], positions[i + 2]) : NO_RANK;
+            }
+            System.arraycopy(positions, i + 2, positions, i + 1, parts - i - 2);
+            System.arraycopy(pairRanks, i + 2, pairRanks, i + 1, parts - i - 2);
+            parts--;
+        }
+
+        if (out != null) {
+            for (int i = 0; i < parts - 1; i++) {
+                out.add(ranks.get(bytes, positions[i], positions[i + 1] - positions[i]));
+            }
+        }
+        return parts - 1;
+    }
+
+    private int rank(byte[] bytes, int from, int to) {
+        int rank = ranks.get(bytes, from, to - from);
+        return rank == RankTable.ABSENT ? NO_RANK : rank;
+    }
+
+    /**
+     * Buffers de trabajo por thread; crecen según la pieza más larga vista.
+     */
+    private static final class Scratch {
+        private byte[] bytes = new byte[256];
+        private int[] positions = new int[257];
+        private int[] pairRanks = new int[257];
+
+        void ensureParts(int size) {
+            if (positions.length < size) {
+                positions = new int[size];
+                pairRanks = new int[size];
+            }
+        }
+
+        /**
+         * Escribe los bytes UTF-8 de text[start, end) en el buffer y retorna la longitud.
+         * Los surrogates sin pareja se codifican como '?' (igual que String.getBytes).
+         */
+        int utf8(CharSequence text, int start, int end) {
+            int maxLength = (end - start) * 3;
+            if (bytes.length < maxLength) {
+                bytes = new byte[maxLength];
+            }
+            byte[] out = bytes;
+            int n = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    out[n++] = (byte) c;
+                } else if (c < 0x800) {
+                    out[n++] = (byte) (0xC0 | (c >> 6));
+                    out[n++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    out[n++] = (byte) (0xF0 | (codePoint >> 18));
+                    out[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    out[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    out[n++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    out[n++] = '?';
+                } else {
+                    out[n++] = (byte) (0xE0 | (c >> 12));
+                    out[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    out[n++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Lista de ints sin boxing.
+     */
+    private static final class IntList {
+        private int[] values;
+        private int size;
+
+        IntList(int capacity) {
+            values = new int[capacity];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
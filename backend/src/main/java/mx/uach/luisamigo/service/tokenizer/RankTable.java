@@ -0,0 +1,82 @@
+package mx.uach.luisamigo.service.tokenizer;
+
+/**
+ * Tabla hash de direccionamiento abierto de secuencia de bytes → rank BPE.
+ * Las búsquedas reciben un segmento (buffer, offset, longitud) para no crear arrays ni strings
+ * por cada par candidato durante los merges.
+ */
+final class RankTable {
+
+    static final int ABSENT = -1;
+
+    private final byte[][] keys;
+    private final int[] values;
+    private final int mask;
+    private int size;
+
+    RankTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1; // carga <= 0.5
+        this.keys = new byte[capacity][];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    void put(byte[] key, int value) {
+        if (size * 2 >= keys.length) {
+            throw new IllegalStateException("Rank table is full (" + size + " entries)");
+        }
+        int slot = hash(key, 0, key.length) & mask;
+        while (keys[slot] != null) {
+            if (equals(keys[slot], key, 0, key.length)) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * Rank del segmento buffer[offset, offset + length), o ABSENT si no es un token del vocabulario.
+     */
+    int get(byte[] buffer, int offset, int length) {
+        int slot = hash(buffer, offset, length) & mask;
+        byte[] key;
+        while ((key = keys[slot]) != null) {
+            if (equals(key, buffer, offset, length)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * FNV-1a de 32 bits con mezcla final para repartir mejor en tablas potencia de 2.
+     */
+    private static int hash(byte[] buffer, int offset, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = (hash ^ (buffer[i] & 0xFF)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(byte[] key, byte[] buffer, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
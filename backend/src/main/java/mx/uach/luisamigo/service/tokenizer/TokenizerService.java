@@ -0,0 +1,93 @@
+package mx.uach.luisamigo.service.tokenizer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conteo exacto de tokens para presupuestos de prompts, chunking, estimaciones y rate limiting.
+ *
+ * Las tablas BPE se cargan bajo demanda (una vez por codificación). Si una tabla no se puede cargar
+ * se registra un warning y se usa la estimación de ~4 caracteres por token.
+ */
+@Service
+public class TokenizerService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenizerService.class);
+    private static final int APPROX_CHARS_PER_TOKEN = 4;
+
+    private final Map<BpeEncoding, Optional<BpeTokenizer>> tokenizers = new ConcurrentHashMap<>();
+
+    /**
+     * Tokens del texto con la codificación por defecto (cl100k_base).
+     */
+    public int countTokens(String text) {
+        return countTokens(text, BpeEncoding.CL100K_BASE);
+    }
+
+    /**
+     * Tokens del texto con la codificación del modelo dado.
+     */
+    public int countTokens(String text, String model) {
+        return countTokens(text, BpeEncoding.forModel(model));
+    }
+
+    public int countTokens(String text, BpeEncoding encoding) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return tokenizer(encoding)
+            .map(tokenizer -> tokenizer.countTokens(text))
+            .orElseGet(() -> approximateTokens(text));
+    }
+
+    /**
+     * Prefijo del texto que cabe en maxTokens (cl100k_base).
+     */
+    public String truncate(String text, int maxTokens) {
+        return truncate(text, maxTokens, BpeEncoding.CL100K_BASE);
+    }
+
+    public String truncate(String text, int maxTokens, BpeEncoding encoding) {
+        if (text == null) {
+            return null;
+        }
+        return tokenizer(encoding)
+            .map(tokenizer -> tokenizer.truncate(text, maxTokens))
+            .orElseGet(() -> text.length() <= (long) maxTokens * APPROX_CHARS_PER_TOKEN
+                ? text
+                : text.substring(0, maxTokens * APPROX_CHARS_PER_TOKEN));
+    }
+
+    /**
+     * Estimación rápida de tokens (~4 caracteres por token) cuando no hay tabla BPE.
+     */
+    public static int approximateTokens(CharSequence text) {
+        return text == null ? 0 : Math.max(1, text.length() / APPROX_CHARS_PER_TOKEN);
+    }
+
+    /**
+     * Tokenizer de la codificación, o vacío si su tabla no está disponible.
+     */
+    public Optional<BpeTokenizer> tokenizer(BpeEncoding encoding) {
+        return tokenizers.computeIfAbsent(encoding, this::load);
+    }
+
+    private Optional<BpeTokenizer> load(BpeEncoding encoding) {
+        long start = System.currentTimeMillis();
+        try {
+            BpeTokenizer tokenizer = BpeTokenizer.load(encoding);
+            log.info("Loaded {} tokenizer in {} ms", encoding.getEncodingName(), System.currentTimeMillis() - start);
+            return Optional.of(tokenizer);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not load {} tokenizer, falling back to ~4 chars per token: {}",
+                encoding.getEncodingName(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package mx.uach.luisamigo.service.vectorstore;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import mx.uach.luisamigo.config.RagProperties;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Bus de cambios del corpus entre nodos sobre LISTEN/NOTIFY de PostgreSQL, sin broker aparte.
+ *
+ * - Cada CorpusChangedEvent local se envía con pg_notify como JSON compacto: nodo de origen,
+ *   generación, tipo de cambio, fuente y rangos de ids de documentos
+ * - Un hilo virtual escucha el canal en una conexión dedicada (fuera del pool) y republica los
+ *   cambios de otros nodos como CorpusChangedEvent remotos, tras avanzar la generación local
+ * - Si la conexión se pierde, al reconectar se publica un cambio UNKNOWN: pudo haber
+ *   notificaciones perdidas y los caches locales se vacían
+ */
+@Component
+public class CorpusChangeBus {
+
+    private static final Logger log = LoggerFactory.getLogger(CorpusChangeBus.class);
+
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final int MAX_PAYLOAD_BYTES = 7900;  // NOTIFY admite hasta 8000 bytes
+
+    /**
+     * Mensaje en el canal. Los rangos van como pares [desde, hasta].
+     */
+    record Notification(String node, long generation, CorpusChangedEvent.Change change, String source, List<long[]> ids) {}
+
+    private final RagProperties.CorpusChangeBusConfig config;
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final CorpusVersion corpusVersion;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile boolean running;
+    private volatile Thread listener;
+    private volatile Connection connection;
+
+    public CorpusChangeBus(
+        RagProperties ragProperties,
+        DataSourceProperties dataSourceProperties,
+        JdbcTemplate jdbcTemplate,
+        ObjectMapper objectMapper,
+        CorpusVersion corpusVersion,
+        ApplicationEventPublisher eventPublisher
+    ) {
+        this.config = ragProperties.getCorpusChangeBus();
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.corpusVersion = corpusVersion;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (!CHANNEL_NAME.matcher(config.getChannel()).matches()) {
+            log.error("Invalid corpus change channel name '{}'; cluster cache invalidation disabled", config.getChannel());
+            return;
+        }
+        running = true;
+        listener = Thread.ofVirtual().name("corpus-change-listener").start(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread thread = listener;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        closeQuietly(connection);
+    }
+
+    /**
+     * Reenvía a los demás nodos un cambio ocurrido en este. El envío va en un hilo virtual: el
+     * evento llega en afterCommit, donde la conexión de la transacción aún está ligada al hilo.
+     */
+    @EventListener
+    public void onCorpusChanged(CorpusChangedEvent event) {
+        if (!running || event.remote()) {
+            return;
+        }
+        String payload = encode(event);
+        Thread.ofVirtual().name("corpus-change-notify").start(() -> {
+            try {
+                jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, config.getChannel(), payload);
+                log.debug("Corpus change notified: {}", payload);
+            } catch (RuntimeException e) {
+                log.warn("Could not notify corpus change to other nodes: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void listen() {
+        boolean missedNotifications = false;
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                connection = conn;
+                try (Statement statement = conn.createStatement()) {
+                    statement.execute("LISTEN " + config.getChannel());
+                }
+                log.info("Listening for corpus changes on channel {} (node {})", config.getChannel(), nodeId);
+                if (missedNotifications) {
+                    publishRemote(CorpusChangedEvent.Change.UNKNOWN, null, List.of());
+                }
+
+                PGConnection pgConnection = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) config.getPollTimeoutMillis());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Corpus change listener disconnected, retrying in {}s: {}",
+                    config.getReconnectDelaySeconds(), e.getMessage());
+            } finally {
+                connection = null;
+            }
+            missedNotifications = true;
+            try {
+                TimeUnit.SECONDS.sleep(config.getReconnectDelaySeconds());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Republica localmente el cambio de otro nodo; los propios se ignoran.
+     */
+    void receive(String payload) {
+        Notification notification;
+        try {
+            notification = objectMapper.readValue(payload, Notification.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed corpus change notification: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(notification.node())) {
+            return;
+        }
+        List<CorpusChangedEvent.IdRange> ranges = notification.ids() == null ? List.of()
+            : notification.ids().stream().map(pair -> new CorpusChangedEvent.IdRange(pair[0], pair[1])).toList();
+        log.debug("Corpus change from node {} (generation {}): {} {}",
+            notification.node(), notification.generation(), notification.change(), notification.source());
+        publishRemote(notification.change(), notification.source(), ranges);
+    }
+
+    private void publishRemote(CorpusChangedEvent.Change change, String source, List<CorpusChangedEvent.IdRange> ranges) {
+        eventPublisher.publishEvent(new CorpusChangedEvent(corpusVersion.advance(), change, source, ranges, true));
+    }
+
+    /**
+     * JSON del evento; si los rangos no caben en el límite de NOTIFY se omiten y los receptores
+     * invalidan por fuente (o todo).
+     */
+    String encode(CorpusChangedEvent event) {
+        List<long[]> ids = event.documentIds().stream().map(range -> new long[]{range.from(), range.to()}).toList();
+        String payload = write(new Notification(nodeId, event.generation(), event.change(), event.source(), ids));
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            payload = write(new Notification(nodeId, event.generation(), event.change(), event.source(), List.of()));
+        }
+        return payload;
+    }
+
+    private String write(Notification notification) {
+        try {
+            return objectMapper.writeValueAsString(notification);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize corpus change notification", e);
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            log.debug("Error closing corpus change listener connection: {}", e.getMessage());
+        }
+    }
+}
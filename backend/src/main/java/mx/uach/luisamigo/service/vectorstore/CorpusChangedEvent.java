@@ -0,0 +1,83 @@
+package mx.uach.luisamigo.service.vectorstore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Evento publicado tras confirmarse una escritura del corpus (almacenamiento o borrado), en este
+ * nodo o en otro (CorpusChangeBus). Los caches derivados del corpus lo escuchan para invalidar
+ * sus entradas: un borrado solo afecta a las que citan los documentos borrados.
+ *
+ * @param generation Generación local del corpus tras el cambio (CorpusVersion)
+ * @param change Tipo de cambio; UNKNOWN si no se sabe qué cambió (p. ej. notificaciones perdidas)
+ * @param source Fuente de los documentos, o null si son de varias o se desconoce
+ * @param documentIds Rangos de ids de LegalDocument afectados (vacío si se desconocen)
+ * @param remote true si el cambio ocurrió en otro nodo
+ */
+public record CorpusChangedEvent(
+    long generation,
+    Change change,
+    String source,
+    List<IdRange> documentIds,
+    boolean remote
+) {
+
+    public enum Change { STORED, DELETED, UNKNOWN }
+
+    /**
+     * Rango cerrado de ids [from, to].
+     */
+    public record IdRange(long from, long to) {
+
+        public boolean contains(long id) {
+            return id >= from && id <= to;
+        }
+    }
+
+    public CorpusChangedEvent {
+        documentIds = documentIds != null ? List.copyOf(documentIds) : List.of();
+    }
+
+    /**
+     * Cambio local sin detalle: invalida todo.
+     */
+    public CorpusChangedEvent(long generation) {
+        this(generation, Change.UNKNOWN, null, List.of(), false);
+    }
+
+    public boolean isDeletion() {
+        return change == Change.DELETED;
+    }
+
+    /**
+     * Indica si el cambio puede invalidar algo construido con el documento dado. Los borrados
+     * comparan por id (o por fuente si no traen ids); cualquier otro cambio afecta a todo.
+     */
+    public boolean affects(Long documentId, String documentSource) {
+        if (change != Change.DELETED) {
+            return true;
+        }
+        if (!documentIds.isEmpty()) {
+            return documentId != null && documentIds.stream().anyMatch(range -> range.contains(documentId));
+        }
+        return source == null || Objects.equals(source, documentSource);
+    }
+
+    /**
+     * Comprime ids en rangos consecutivos (las ingestas asignan ids contiguos).
+     */
+    public static List<IdRange> ranges(Collection<Long> ids) {
+        long[] sorted = ids.stream().filter(Objects::nonNull).mapToLong(Long::longValue).sorted().distinct().toArray();
+        List<IdRange> ranges = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= sorted.length; i++) {
+            if (i == sorted.length || sorted[i] != sorted[i - 1] + 1) {
+                ranges.add(new IdRange(sorted[start], sorted[i - 1]));
+                start = i;
+            }
+        }
+        return ranges;
+    }
+}
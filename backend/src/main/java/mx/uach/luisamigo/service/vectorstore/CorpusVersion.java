@@ -0,0 +1,32 @@
+package mx.uach.luisamigo.service.vectorstore;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generación del corpus: contador que VectorStoreServiceImpl incrementa en cada escritura
+ * (almacenamiento o borrado de documentos).
+ *
+ * Cada cambio (local o de otro nodo) avanza la generación antes de publicar su CorpusChangedEvent.
+ * Los caches derivados del corpus toman la generación al empezar a calcular un resultado y no lo
+ * guardan si cambió mientras tanto; las entradas ya guardadas se invalidan con el evento.
+ */
+@Component
+public class CorpusVersion {
+
+    private final AtomicLong generation = new AtomicLong();
+
+    public long current() {
+        return generation.get();
+    }
+
+    /**
+     * Marca un cambio del corpus.
+     *
+     * @return La nueva generación
+     */
+    public long advance() {
+        return generation.incrementAndGet();
+    }
+}
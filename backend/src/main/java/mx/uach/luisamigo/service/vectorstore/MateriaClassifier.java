@@ -0,0 +1,217 @@
+package mx.uach.luisamigo.service.vectorstore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.repository.DocumentEmbeddingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Clasificador de materia por centroide más cercano.
+ *
+ * El centroide de cada materia es el promedio de los embeddings de sus documentos (AVG de pgvector),
+ * normalizado. Clasificar es un producto punto contra cada centroide: la materia más cercana se
+ * acepta si su similitud supera min-similarity y aventaja a la segunda por min-margin.
+ *
+ * - Ingesta: etiqueta cada documento nuevo (en lugar de las palabras clave, que quedan de respaldo)
+ * - Consultas (filter-queries, apagado por defecto): una pregunta sin materia se busca solo dentro
+ *   de la materia clasificada; RAGServiceImpl vuelve al corpus completo si esa búsqueda no alcanza
+ *   el piso de similitud
+ *
+ * Los centroides se calculan al arrancar y se recalculan tras cada cambio del corpus
+ * (CorpusChangedEvent, local o de otro nodo), agrupando los cambios de refresh-delay-seconds.
+ * Sin centroides (corpus vacío o consulta fallida) no se clasifica nada.
+ */
+@Component
+public class MateriaClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(MateriaClassifier.class);
+
+    /**
+     * Materia más cercana con su similitud y su ventaja sobre la segunda.
+     */
+    public record Classification(String materia, double similarity, double margin) {}
+
+    /**
+     * Centroides normalizados (una fila por materia).
+     */
+    private record Centroids(List<String> materias, float[][] vectors) {
+        static final Centroids EMPTY = new Centroids(List.of(), new float[0][]);
+    }
+
+    private final RagProperties.MateriaClassifierConfig config;
+    private final DocumentEmbeddingRepository embeddingRepository;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private volatile Centroids centroids = Centroids.EMPTY;
+
+    public MateriaClassifier(
+        RagProperties ragProperties,
+        DocumentEmbeddingRepository embeddingRepository,
+        MeterRegistry meterRegistry
+    ) {
+        this.config = ragProperties.getMateriaClassifier();
+        this.embeddingRepository = embeddingRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        meterRegistry.gauge("luisamigo.vectorstore.materia_centroids", this, classifier -> classifier.centroids.materias().size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refreshAsync(0);
+    }
+
+    @EventListener
+    public void onCorpusChanged(CorpusChangedEvent event) {
+        refreshAsync(config.getRefreshDelaySeconds());
+    }
+
+    /**
+     * Materia para filtrar la búsqueda de una pregunta que no la indica.
+     */
+    public Optional<Classification> classifyQuery(float[] queryEmbedding) {
+        return config.isFilterQueries() ? classify(queryEmbedding, "query") : Optional.empty();
+    }
+
+    /**
+     * Materia de un documento nuevo en la ingesta.
+     */
+    public Optional<Classification> classifyDocument(float[] embedding) {
+        return config.isClassifyDocuments() ? classify(embedding, "document") : Optional.empty();
+    }
+
+    private Optional<Classification> classify(float[] embedding, String target) {
+        Centroids current = centroids;
+        if (!config.isEnabled() || embedding == null) {
+            return Optional.empty();
+        }
+        if (current.materias().isEmpty()) {
+            record(target, "unavailable");
+            return Optional.empty();
+        }
+
+        double norm = 0.0;
+        for (float value : embedding) {
+            norm += value * value;
+        }
+        if (norm == 0.0) {
+            return Optional.empty();
+        }
+
+        // Un producto punto por centroide; se guardan el mejor y el segundo
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double secondScore = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < current.vectors().length; c++) {
+            float[] centroid = current.vectors()[c];
+            if (centroid.length != embedding.length) {
+                continue;
+            }
+            double dot = 0.0;
+            for (int i = 0; i < centroid.length; i++) {
+                dot += centroid[i] * embedding[i];
+            }
+            if (dot > bestScore) {
+                secondScore = bestScore;
+                bestScore = dot;
+                best = c;
+            } else if (dot > secondScore) {
+                secondScore = dot;
+            }
+        }
+        if (best < 0) {
+            record(target, "unavailable");
+            return Optional.empty();
+        }
+
+        double similarity = bestScore / Math.sqrt(norm);
+        double margin = secondScore == Double.NEGATIVE_INFINITY ? similarity : (bestScore - secondScore) / Math.sqrt(norm);
+        boolean confident = similarity >= config.getMinSimilarity() && margin >= config.getMinMargin();
+        record(target, confident ? "confident" : "uncertain");
+        if (!confident) {
+            return Optional.empty();
+        }
+        return Optional.of(new Classification(current.materias().get(best), similarity, margin));
+    }
+
+    /**
+     * Recalcula en segundo plano; los cambios que lleguen mientras espera se agrupan en un solo
+     * recálculo.
+     */
+    private void refreshAsync(long delaySeconds) {
+        if (!config.isEnabled() || !refreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("materia-centroids").start(() -> {
+            try {
+                TimeUnit.SECONDS.sleep(delaySeconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                refreshPending.set(false);
+                return;
+            }
+            refreshPending.set(false);
+            refresh();
+        });
+    }
+
+    /**
+     * Carga los centroides de las materias con al menos min-documents documentos, excepto las
+     * excluidas (p. ej. "General", que no es una partición real del corpus).
+     */
+    void refresh() {
+        try {
+            List<String> materias = new ArrayList<>();
+            List<float[]> vectors = new ArrayList<>();
+            for (DocumentEmbeddingRepository.MateriaCentroid row : embeddingRepository.findMateriaCentroids()) {
+                if (row.getMateria() == null || row.getDocuments() < config.getMinDocuments()
+                    || config.getExcludedMaterias().stream().anyMatch(row.getMateria()::equalsIgnoreCase)) {
+                    continue;
+                }
+                float[] centroid = normalize(VectorMath.fromPgVector(row.getCentroid()));
+                if (centroid != null) {
+                    materias.add(row.getMateria());
+                    vectors.add(centroid);
+                }
+            }
+            centroids = new Centroids(List.copyOf(materias), vectors.toArray(new float[0][]));
+            log.info("Materia centroids refreshed: {}", materias);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh materia centroids: {}", e.getMessage());
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0.0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0.0) {
+            return null;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+
+    private void record(String target, String result) {
+        meterRegistry.counter("luisamigo.vectorstore.materia_classifier", "target", target, "result", result).increment();
+    }
+}
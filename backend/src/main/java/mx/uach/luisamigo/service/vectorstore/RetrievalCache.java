@@ -0,0 +1,215 @@
+package mx.uach.luisamigo.service.vectorstore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache en memoria de los resultados de findSimilar, acotado por LRU.
+ *
+ * La llave es el SimHash de la consulta (signo contra hiperplanos aleatorios fijos) más los filtros
+ * canónicos y el topK; el valor son solo los ids de los embeddings (y de sus documentos) y su
+ * similitud. Un acierto se valida con el coseno exacto contra la consulta guardada.
+ *
+ * Invalidación por CorpusChangedEvent (local o de otro nodo): un borrado elimina solo las entradas
+ * que contienen documentos borrados; cualquier otro cambio vacía el cache, porque un documento nuevo
+ * puede entrar en cualquier top-K. Un resultado calculado antes de un cambio y guardado después se
+ * descarta comparando la generación del corpus bajo el mismo lock que la invalidación.
+ */
+@Component
+public class RetrievalCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RetrievalCache.class);
+
+    private static final long HYPERPLANE_SEED = 0x5EED_1A5L;
+
+    private final RagProperties.RetrievalCacheConfig config;
+    private final CorpusVersion corpusVersion;
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, float[][]> hyperplanes = new ConcurrentHashMap<>();
+    private final Map<Key, Entry> entries;
+
+    public RetrievalCache(RagProperties ragProperties, CorpusVersion corpusVersion, MeterRegistry meterRegistry) {
+        this.config = ragProperties.getRetrievalCache();
+        this.corpusVersion = corpusVersion;
+        this.meterRegistry = meterRegistry;
+        int maxEntries = config.getMaxEntries();
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Ids de embeddings (en orden de similitud) de una búsqueda previa equivalente.
+     */
+    public Optional<List<Long>> lookup(float[] queryEmbedding, int topK, SearchFilters filters) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+        Key key = key(queryEmbedding, topK, filters);
+        Entry entry = entries.get(key);
+        String result;
+        if (entry == null) {
+            result = "miss";
+        } else if (VectorMath.cosine(queryEmbedding, entry.query()) < config.getMinSimilarity()) {
+            result = "rejected";
+        } else {
+            result = "hit";
+        }
+        meterRegistry.counter("luisamigo.vectorstore.retrieval_cache", "result", result).increment();
+        if (!"hit".equals(result)) {
+            return Optional.empty();
+        }
+        log.debug("Retrieval cache hit for topK={}: {} documents, top score {}",
+            topK, entry.ids().length, entry.scores().length > 0 ? entry.scores()[0] : 0.0);
+        return Optional.of(entry.idList());
+    }
+
+    /**
+     * Guarda el resultado de una búsqueda hecha con la generación del corpus indicada; si el corpus
+     * cambió mientras tanto, el resultado no se guarda.
+     *
+     * La generación avanza antes de publicar el CorpusChangedEvent, y la comparación y el put se
+     * hacen bajo el lock del mapa que también toma onCorpusChanged: o el put ve la generación nueva
+     * y no guarda, o guarda antes de que la invalidación recorra el mapa.
+     */
+    public void put(float[] queryEmbedding, int topK, SearchFilters filters,
+                    List<DocumentEmbedding> results, long generation) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long[] ids = new long[results.size()];
+        long[] documentIds = new long[results.size()];
+        float[] scores = new float[results.size()];
+        for (int i = 0; i < ids.length; i++) {
+            DocumentEmbedding embedding = results.get(i);
+            ids[i] = embedding.getId();
+            documentIds[i] = embedding.getDocument().getId() != null ? embedding.getDocument().getId() : -1;
+            scores[i] = (float) VectorMath.cosine(queryEmbedding, embedding.getEmbeddingArray());
+        }
+        Key key = key(queryEmbedding, topK, filters);
+        Entry entry = new Entry(queryEmbedding.clone(), ids, documentIds, scores);
+        synchronized (entries) {
+            if (generation == corpusVersion.current()) {
+                entries.put(key, entry);
+            }
+        }
+    }
+
+    @EventListener
+    public void onCorpusChanged(CorpusChangedEvent event) {
+        if (!event.isDeletion() || event.documentIds().isEmpty()) {
+            entries.clear();
+            return;
+        }
+        int before = entries.size();
+        synchronized (entries) {
+            entries.values().removeIf(entry -> entry.references(event));
+        }
+        log.debug("Retrieval cache: {} of {} entries invalidated by deletion (generation {})",
+            before - entries.size(), before, event.generation());
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private Key key(float[] queryEmbedding, int topK, SearchFilters filters) {
+        return new Key(simHash(queryEmbedding), queryEmbedding.length, canonical(filters), topK);
+    }
+
+    /**
+     * Un bit por hiperplano: 1 si la consulta queda de su lado positivo. Consultas con coseno muy
+     * alto caen casi siempre en la misma cubeta.
+     */
+    long simHash(float[] vector) {
+        float[][] planes = hyperplanes.computeIfAbsent(vector.length, this::generateHyperplanes);
+        long signature = 0L;
+        for (int bit = 0; bit < planes.length; bit++) {
+            float[] plane = planes[bit];
+            double dot = 0.0;
+            for (int i = 0; i < vector.length; i++) {
+                dot += plane[i] * vector[i];
+            }
+            if (dot >= 0) {
+                signature |= 1L << bit;
+            }
+        }
+        return signature;
+    }
+
+    private float[][] generateHyperplanes(int dimensions) {
+        Random random = new Random(HYPERPLANE_SEED);
+        int bits = Math.clamp(config.getHashBits(), 1, Long.SIZE);
+        float[][] planes = new float[bits][dimensions];
+        for (float[] plane : planes) {
+            for (int i = 0; i < dimensions; i++) {
+                plane[i] = (float) random.nextGaussian();
+            }
+        }
+        return planes;
+    }
+
+    /**
+     * Filtros en forma canónica (tags ordenados). Materia y fuente se comparan tal cual, igual
+     * que en la búsqueda.
+     */
+    static String canonical(SearchFilters filters) {
+        if (filters == null || !filters.hasFilters()) {
+            return "";
+        }
+        return String.join("|",
+            valueOf(filters.getMateria()),
+            filters.getTags() != null ? String.join(",", new TreeSet<>(filters.getTags())) : "",
+            valueOf(filters.getSemesterLevel()),
+            valueOf(filters.getSourceName()),
+            valueOf(filters.getMinSimilarityScore()));
+    }
+
+    private static String valueOf(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    private record Key(long signature, int dimensions, String filters, int topK) {}
+
+    /**
+     * Resultado guardado: consulta original, ids de embeddings y de sus documentos, y su
+     * similitud con la consulta.
+     */
+    private record Entry(float[] query, long[] ids, long[] documentIds, float[] scores) {
+
+        List<Long> idList() {
+            return Arrays.stream(ids).boxed().toList();
+        }
+
+        boolean references(CorpusChangedEvent event) {
+            for (long documentId : documentIds) {
+                if (event.affects(documentId, null)) {  // borrado con ids: solo compara el id
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package mx.uach.luisamigo.service.vectorstore;
+
+/**
+ * Operaciones sobre vectores de embeddings.
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    /**
+     * Similitud coseno entre dos vectores (misma métrica que el operador <=> de pgvector: 1 - distancia).
+     * Retorna 0 si las dimensiones no coinciden o algún vector es nulo o cero.
+     */
+    public static double cosine(float[] a, float[] b) {
+        if (a == null || b == null || a.length != b.length || a.length == 0) {
+            return 0.0;
+        }
+        double dot = 0.0;
+        double normA = 0.0;
+        double normB = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        if (normA == 0.0 || normB == 0.0) {
+            return 0.0;
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    /**
+     * Vector desde su literal de pgvector ("[0.1,0.2,...]").
+     */
+    public static float[] fromPgVector(String literal) {
+        String cleaned = literal.strip();
+        cleaned = cleaned.substring(1, cleaned.length() - 1);
+        if (cleaned.isBlank()) {
+            return new float[0];
+        }
+        String[] parts = cleaned.split(",");
+        float[] vector = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            vector[i] = Float.parseFloat(parts[i].trim());
+        }
+        return vector;
+    }
+
+    /**
+     * Literal de pgvector ("[0.1,0.2,...]") para usar con CAST(? AS vector).
+     */
+    public static String toPgVector(float[] vector) {
+        StringBuilder sb = new StringBuilder(vector.length * 12 + 2).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(vector[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -1,9 +1,11 @@
 package mx.uach.luisamigo.service.vectorstore;
 
 import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalCitation;
 import mx.uach.luisamigo.domain.LegalDocument;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Servicio para operaciones CRUD en el vector store (PostgreSQL + pgvector).
@@ -64,6 +66,17 @@ public interface VectorStoreService {
      */
     List<DocumentEmbedding> findSimilar(float[] queryEmbedding, int topK, SearchFilters filters);
 
+    /**
+     * Busca los documentos que citan un artículo de una ley (índice legal_citations).
+     *
+     * @param citation Ley y artículo (y opcionalmente fracción) citados
+     * @param queryEmbedding Embedding de la consulta, para ordenar entre documentos que citan lo mismo
+     * @param limit Máximo de documentos
+     * @param filters Filtros de búsqueda (solo se aplica materia, como en findSimilar)
+     * @return Embeddings de los documentos; primero los que citan la misma fracción
+     */
+    List<DocumentEmbedding> findByCitation(LegalCitation citation, float[] queryEmbedding, int limit, SearchFilters filters);
+
     /**
      * Retorna el número total de documentos en el vector store.
      *
@@ -79,8 +92,34 @@ public interface VectorStoreService {
      */
     long countBySource(String sourceName);
 
+    /**
+     * Busca el documento cuya pregunta es la más cercana a la consulta, comparando solo contra
+     * el embedding de la pregunta (no pregunta + respuesta). Respeta el filtro de materia.
+     *
+     * @param queryEmbedding Embedding de la consulta
+     * @param filters Filtros de búsqueda (solo se aplica materia)
+     * @return Documento y similitud coseno, o vacío si ningún documento tiene embedding de pregunta
+     */
+    Optional<QuestionMatch> findClosestQuestion(float[] queryEmbedding, SearchFilters filters);
+
     /**
      * Record helper para pasar documento + embedding juntos.
+     * questionEmbedding es opcional (null si no se genera); citations son las citas del documento
+     * para legal_citations.
+     */
+    record DocumentWithEmbedding(LegalDocument document, float[] embedding, float[] questionEmbedding,
+                                 List<LegalCitation> citations) {
+        public DocumentWithEmbedding(LegalDocument document, float[] embedding, float[] questionEmbedding) {
+            this(document, embedding, questionEmbedding, List.of());
+        }
+
+        public DocumentWithEmbedding(LegalDocument document, float[] embedding) {
+            this(document, embedding, null);
+        }
+    }
+
+    /**
+     * Documento con la similitud de su pregunta a la consulta.
      */
-    record DocumentWithEmbedding(LegalDocument document, float[] embedding) {}
+    record QuestionMatch(DocumentEmbedding embedding, double similarity) {}
 }
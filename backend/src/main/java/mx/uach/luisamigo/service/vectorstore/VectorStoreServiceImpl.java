@@ -2,17 +2,28 @@ package mx.uach.luisamigo.service.vectorstore;
 
 import mx.uach.luisamigo.client.embedding.EmbeddingClient;
 import mx.uach.luisamigo.client.embedding.EmbeddingClientFactory;
+import mx.uach.luisamigo.config.RagProperties;
 import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalCitation;
 import mx.uach.luisamigo.domain.LegalDocument;
 import mx.uach.luisamigo.repository.DocumentEmbeddingRepository;
+import mx.uach.luisamigo.repository.LegalCitationRepository;
 import mx.uach.luisamigo.repository.LegalDocumentRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Implementación de VectorStoreService.
@@ -25,16 +36,31 @@ public class VectorStoreServiceImpl implements VectorStoreService {
 
     private final LegalDocumentRepository documentRepository;
     private final DocumentEmbeddingRepository embeddingRepository;
+    private final LegalCitationRepository citationRepository;
+    private final RagProperties.CitationLookupConfig citationLookup;
     private final EmbeddingClientFactory embeddingClientFactory;
+    private final CorpusVersion corpusVersion;
+    private final RetrievalCache retrievalCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     public VectorStoreServiceImpl(
         LegalDocumentRepository documentRepository,
         DocumentEmbeddingRepository embeddingRepository,
-        EmbeddingClientFactory embeddingClientFactory
+        LegalCitationRepository citationRepository,
+        RagProperties ragProperties,
+        EmbeddingClientFactory embeddingClientFactory,
+        CorpusVersion corpusVersion,
+        RetrievalCache retrievalCache,
+        ApplicationEventPublisher eventPublisher
     ) {
         this.documentRepository = documentRepository;
         this.embeddingRepository = embeddingRepository;
+        this.citationRepository = citationRepository;
+        this.citationLookup = ragProperties.getCitationLookup();
         this.embeddingClientFactory = embeddingClientFactory;
+        this.corpusVersion = corpusVersion;
+        this.retrievalCache = retrievalCache;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -55,6 +81,7 @@ public class VectorStoreServiceImpl implements VectorStoreService {
         );
 
         DocumentEmbedding savedEmbedding = embeddingRepository.save(documentEmbedding);
+        corpusChanged(CorpusChangedEvent.Change.STORED, savedDocument.getSource(), List.of(savedDocument.getId()));
         log.info("Document stored successfully. ID: {}, external_id: {}",
             savedDocument.getId(), savedDocument.getExternalId());
 
@@ -67,6 +94,8 @@ public class VectorStoreServiceImpl implements VectorStoreService {
         log.info("Storing batch of {} documents", documentsWithEmbeddings.size());
 
         int successCount = 0;
+        List<Long> storedIds = new ArrayList<>(documentsWithEmbeddings.size());
+        Set<String> sources = new HashSet<>();
         EmbeddingClient embeddingClient = embeddingClientFactory.getClient();
 
         for (DocumentWithEmbedding item : documentsWithEmbeddings) {
@@ -85,6 +114,19 @@ public class VectorStoreServiceImpl implements VectorStoreService {
                     1  // embedding_version
                 );
 
+                if (item.questionEmbedding() != null) {
+                    embeddingRepository.updateQuestionEmbedding(
+                        savedDocument.getId(), serializeEmbedding(item.questionEmbedding()));
+                }
+
+                // Citas normalizadas para la búsqueda directa por artículo; sin citation-lookup la
+                // tabla puede no existir y un INSERT fallido abortaría la transacción del lote
+                if (citationLookup.isEnabled()) {
+                    citationRepository.insertAll(savedDocument.getId(), item.citations());
+                }
+
+                storedIds.add(savedDocument.getId());
+                sources.add(savedDocument.getSource());
                 successCount++;
 
             } catch (Exception e) {
@@ -92,6 +134,10 @@ public class VectorStoreServiceImpl implements VectorStoreService {
             }
         }
 
+        if (successCount > 0) {
+            corpusChanged(CorpusChangedEvent.Change.STORED,
+                sources.size() == 1 ? sources.iterator().next() : null, storedIds);
+        }
         log.info("Batch storage complete. Success: {}/{}", successCount, documentsWithEmbeddings.size());
         return successCount;
     }
@@ -101,8 +147,10 @@ public class VectorStoreServiceImpl implements VectorStoreService {
     public boolean deleteDocument(Long documentId) {
         log.debug("Deleting document with ID: {}", documentId);
 
-        if (documentRepository.existsById(documentId)) {
+        Optional<LegalDocument> document = documentRepository.findById(documentId);
+        if (document.isPresent()) {
             documentRepository.deleteById(documentId);
+            corpusChanged(CorpusChangedEvent.Change.DELETED, document.get().getSource(), List.of(documentId));
             log.info("Document deleted successfully. ID: {}", documentId);
             return true;
         }
@@ -116,11 +164,44 @@ public class VectorStoreServiceImpl implements VectorStoreService {
     public int deleteBySource(String sourceName) {
         log.info("Deleting all documents from source: {}", sourceName);
 
-        long countBefore = documentRepository.countBySource(sourceName);
+        List<Long> documentIds = documentRepository.findIdsBySource(sourceName);
         documentRepository.deleteBySource(sourceName);
+        corpusChanged(CorpusChangedEvent.Change.DELETED, sourceName, documentIds);
+
+        log.info("Deleted {} documents from source: {}", documentIds.size(), sourceName);
+        return documentIds.size();
+    }
 
-        log.info("Deleted {} documents from source: {}", countBefore, sourceName);
-        return (int) countBefore;
+    /**
+     * Avanza la generación del corpus y publica CorpusChangedEvent al confirmarse la transacción,
+     * para que ningún cache se reconstruya con datos aún no visibles. CorpusChangeBus lo reenvía
+     * a los demás nodos.
+     */
+    private void corpusChanged(CorpusChangedEvent.Change change, String source, List<Long> documentIds) {
+        List<CorpusChangedEvent.IdRange> ranges = CorpusChangedEvent.ranges(documentIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publishCorpusChange(change, source, ranges);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publishCorpusChange(change, source, ranges);
+            }
+        });
+    }
+
+    private void publishCorpusChange(CorpusChangedEvent.Change change, String source,
+                                     List<CorpusChangedEvent.IdRange> ranges) {
+        eventPublisher.publishEvent(new CorpusChangedEvent(corpusVersion.advance(), change, source, ranges, false));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<QuestionMatch> findClosestQuestion(float[] queryEmbedding, SearchFilters filters) {
+        return embeddingRepository.findClosestQuestion(serializeEmbedding(queryEmbedding), filters.getMateria())
+            .flatMap(closest -> embeddingRepository.findByDocumentId(closest.getDocumentId())
+                .map(embedding -> new QuestionMatch(embedding, closest.getSimilarity())));
     }
 
     @Override
@@ -134,6 +215,13 @@ public class VectorStoreServiceImpl implements VectorStoreService {
     public List<DocumentEmbedding> findSimilar(float[] queryEmbedding, int topK, SearchFilters filters) {
         log.debug("Searching for {} similar documents with filters: {}", topK, filters.hasFilters());
 
+        Optional<List<DocumentEmbedding>> cached = retrievalCache.lookup(queryEmbedding, topK, filters)
+            .flatMap(this::loadInOrder);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long generation = corpusVersion.current();
+
         String queryVector = serializeEmbedding(queryEmbedding);
 
         List<DocumentEmbedding> results;
@@ -157,9 +245,38 @@ public class VectorStoreServiceImpl implements VectorStoreService {
         }
 
         log.info("Found {} similar documents", results.size());
+        retrievalCache.put(queryEmbedding, topK, filters, results, generation);
         return results;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<DocumentEmbedding> findByCitation(LegalCitation citation, float[] queryEmbedding, int limit,
+                                                  SearchFilters filters) {
+        return embeddingRepository.findByCitation(citation.law(), citation.article(), citation.fraction(),
+            filters.getMateria(), serializeEmbedding(queryEmbedding), limit);
+    }
+
+    /**
+     * Carga por id los embeddings de un resultado cacheado, en el orden original. Si alguno ya no
+     * existe se ignora el cache y se repite la búsqueda.
+     */
+    private Optional<List<DocumentEmbedding>> loadInOrder(List<Long> embeddingIds) {
+        Map<Long, DocumentEmbedding> byId = new HashMap<>();
+        for (DocumentEmbedding embedding : embeddingRepository.findAllById(embeddingIds)) {
+            byId.put(embedding.getId(), embedding);
+        }
+        List<DocumentEmbedding> ordered = new ArrayList<>(embeddingIds.size());
+        for (Long id : embeddingIds) {
+            DocumentEmbedding embedding = byId.get(id);
+            if (embedding == null) {
+                return Optional.empty();
+            }
+            ordered.add(embedding);
+        }
+        return Optional.of(ordered);
+    }
+
     @Override
     public long countDocuments() {
         return documentRepository.count();
@@ -175,12 +292,6 @@ public class VectorStoreServiceImpl implements VectorStoreService {
      * Formato: "[0.1, 0.2, 0.3, ...]"
      */
     private String serializeEmbedding(float[] embedding) {
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < embedding.length; i++) {
-            if (i > 0) sb.append(",");
-            sb.append(embedding[i]);
-        }
-        sb.append("]");
-        return sb.toString();
+        return VectorMath.toPgVector(embedding);
     }
 }
@@ -0,0 +1,63 @@
+package mx.uach.luisamigo.client.hedging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de la ventana de latencias del hedging.
+ */
+class LatencyTrackerTest {
+
+    @Test
+    @DisplayName("Sin muestras suficientes no hay umbral")
+    void noThresholdDuringWarmUp() {
+        // Given
+        LatencyTracker tracker = new LatencyTracker(64, 32, 0.95);
+
+        // When
+        for (int i = 0; i < 31; i++) {
+            tracker.record(1_000_000);
+        }
+
+        // Then
+        assertThat(tracker.threshold()).isNull();
+    }
+
+    @Test
+    @DisplayName("El umbral es el percentil configurado de la ventana")
+    void thresholdIsPercentileOfWindow() {
+        // Given: 80 muestras de 1 a 80 ms (el percentil se recalcula cada 16 muestras)
+        LatencyTracker tracker = new LatencyTracker(100, 1, 0.95);
+
+        // When
+        for (int ms = 1; ms <= 80; ms++) {
+            tracker.record(Duration.ofMillis(ms).toNanos());
+        }
+
+        // Then: p95 de 1..80 ms = 76 ms
+        assertThat(tracker.threshold()).isEqualTo(Duration.ofMillis(76));
+    }
+
+    @Test
+    @DisplayName("Las muestras viejas salen de la ventana")
+    void oldSamplesLeaveWindow() {
+        // Given: una ventana llena de latencias altas
+        LatencyTracker tracker = new LatencyTracker(32, 16, 0.5);
+        for (int i = 0; i < 32; i++) {
+            tracker.record(Duration.ofMillis(500).toNanos());
+        }
+        assertThat(tracker.threshold()).isEqualTo(Duration.ofMillis(500));
+
+        // When: el proveedor se vuelve rápido
+        for (int i = 0; i < 32; i++) {
+            tracker.record(Duration.ofMillis(10).toNanos());
+        }
+
+        // Then
+        assertThat(tracker.threshold()).isEqualTo(Duration.ofMillis(10));
+    }
+}
@@ -0,0 +1,193 @@
+package mx.uach.luisamigo.client.hedging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.HedgingProperties;
+import mx.uach.luisamigo.exception.LLMProviderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas del hedging de requests con llamadas simuladas.
+ */
+class RequestHedgerTest {
+
+    private static final String CLIENT = "test-client";
+    private static final long DELAY_MS = 100;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HedgingProperties properties = new HedgingProperties();
+    private RequestHedger hedger;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setWindowSize(32);
+        properties.setMinSamples(16);
+        properties.setMinDelayMs(DELAY_MS);
+        properties.setMaxExtraRatio(1.0);
+        properties.setMaxCredits(1);
+        hedger = new RequestHedger(properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Una primaria que responde antes del delay no dispara duplicado")
+    void noHedgeBeforeDelay() {
+        // Given
+        warmUp();
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        String result = hedger.execute(CLIENT, () -> {
+            calls.incrementAndGet();
+            sleep(10);
+            return "primaria";
+        });
+
+        // Then
+        assertThat(result).isEqualTo("primaria");
+        assertThat(calls).hasValue(1);
+        assertThat(counter("luisamigo.hedge.fired")).isZero();
+    }
+
+    @Test
+    @DisplayName("Tras el delay dispara un duplicado; gana el más rápido y la primaria se cancela")
+    void hedgeWinsAndPrimaryIsCancelled() throws Exception {
+        // Given: la primaria se cuelga y el duplicado responde rápido
+        warmUp();
+        CountDownLatch primaryInterrupted = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> call = () -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    primaryInterrupted.countDown();
+                }
+                return "primaria";
+            }
+            return "duplicado";
+        };
+
+        // When
+        long start = System.nanoTime();
+        String result = hedger.execute(CLIENT, call);
+
+        // Then
+        assertThat(result).isEqualTo("duplicado");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(DELAY_MS, 2_000L);
+        assertThat(counter("luisamigo.hedge.fired")).isEqualTo(1);
+        assertThat(counter("luisamigo.hedge.won")).isEqualTo(1);
+        assertThat(primaryInterrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Sin créditos en el presupuesto no dispara duplicados")
+    void respectsBudget() {
+        // Given: ningún request aporta créditos
+        properties.setMaxExtraRatio(0);
+        warmUp();
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        String result = hedger.execute(CLIENT, () -> {
+            calls.incrementAndGet();
+            sleep(DELAY_MS * 3);
+            return "primaria";
+        });
+
+        // Then
+        assertThat(result).isEqualTo("primaria");
+        assertThat(calls).hasValue(1);
+        assertThat(counter("luisamigo.hedge.budget_denied")).isEqualTo(1);
+        assertThat(counter("luisamigo.hedge.fired")).isZero();
+    }
+
+    @Test
+    @DisplayName("Un error de la primaria no le gana a un duplicado en curso")
+    void primaryErrorDoesNotBeatRunningHedge() {
+        // Given: la primaria falla después de que sale el duplicado, que responde más tarde
+        warmUp();
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> call = () -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(DELAY_MS + 50);
+                throw new LLMProviderException("503", "test");
+            }
+            sleep(150);
+            return "duplicado";
+        };
+
+        // When / Then
+        assertThat(hedger.execute(CLIENT, call)).isEqualTo("duplicado");
+    }
+
+    @Test
+    @DisplayName("Si la primaria falla antes del delay se relanza su error sin disparar duplicado")
+    void primaryFailureBeforeDelayIsRethrown() {
+        // Given
+        warmUp();
+        LLMProviderException failure = new LLMProviderException("400", "test");
+        AtomicInteger calls = new AtomicInteger();
+
+        // When / Then
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> hedger.execute(CLIENT, () -> {
+            calls.incrementAndGet();
+            throw failure;
+        })).isSameAs(failure);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(DELAY_MS);
+        sleep(DELAY_MS * 2);
+        assertThat(calls).hasValue(1);
+        assertThat(counter("luisamigo.hedge.fired")).isZero();
+    }
+
+    @Test
+    @DisplayName("Si ambas fallan se relanza el error de la primaria")
+    void bothFailRethrowsPrimaryError() {
+        // Given
+        warmUp();
+        LLMProviderException primaryFailure = new LLMProviderException("timeout primaria", "test");
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> call = () -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(DELAY_MS + 50);
+                throw primaryFailure;
+            }
+            throw new LLMProviderException("timeout duplicado", "test");
+        };
+
+        // When / Then
+        assertThatThrownBy(() -> hedger.execute(CLIENT, call)).isSameAs(primaryFailure);
+    }
+
+    /**
+     * Llena la ventana de latencias con llamadas rápidas para que haya umbral (el delay queda en min-delay-ms).
+     */
+    private void warmUp() {
+        for (int i = 0; i < properties.getWindowSize(); i++) {
+            hedger.execute(CLIENT, () -> "ok");
+        }
+    }
+
+    private double counter(String name) {
+        return meterRegistry.counter(name, "client", CLIENT).count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
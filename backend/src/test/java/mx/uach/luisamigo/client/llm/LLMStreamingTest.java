@@ -0,0 +1,132 @@
+package mx.uach.luisamigo.client.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.client.hedging.RequestHedger;
+import mx.uach.luisamigo.client.ratelimit.ProviderRateLimiterRegistry;
+import mx.uach.luisamigo.config.HedgingProperties;
+import mx.uach.luisamigo.config.LLMProperties;
+import mx.uach.luisamigo.config.RateLimitProperties;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
+import mx.uach.luisamigo.exception.LLMProviderException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas del parseo incremental de SSE de los clientes LLM (respuestas simuladas, sin red).
+ */
+class LLMStreamingTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TokenizerService tokenizerService = new TokenizerService();
+
+    @Test
+    @DisplayName("OpenAI: emite delta.content de cada chunk y termina en [DONE]")
+    void openAiStreamsDeltas() {
+        // Given: un stream SSE de chat completions
+        String body = """
+            data: {"choices":[{"delta":{"role":"assistant"}}]}
+
+            data: {"choices":[{"delta":{"content":"El artículo "}}]}
+
+            data: {"choices":[{"delta":{"content":"123"}}]}
+
+            data: {"choices":[{"delta":{},"finish_reason":"stop"}]}
+
+            data: [DONE]
+
+            """;
+        OpenAIClient client = new OpenAIClient(llmProperties(), stubBuilder(HttpStatus.OK, body),
+            rateLimiterRegistry(), requestHedger(), objectMapper, new LLMUsageMetrics(meterRegistry), tokenizerService);
+
+        // When: se consume el stream
+        List<String> tokens = client.streamResponse("¿Qué dice el artículo 123?", LLMConfig.defaultConfig())
+            .collectList()
+            .block();
+
+        // Then: solo se emiten los fragmentos de texto, en orden
+        assertThat(tokens).containsExactly("El artículo ", "123");
+    }
+
+    @Test
+    @DisplayName("Anthropic: emite solo content_block_delta e ignora ping y message_start")
+    void anthropicStreamsContentBlockDeltas() {
+        // Given: un stream SSE de messages con eventos de control intercalados
+        String body = """
+            event: message_start
+            data: {"type":"message_start","message":{"id":"msg_1"}}
+
+            event: ping
+            data: {"type":"ping"}
+
+            event: content_block_delta
+            data: {"type":"content_block_delta","index":0,"delta":{"type":"text_delta","text":"Hola"}}
+
+            event: content_block_delta
+            data: {"type":"content_block_delta","index":0,"delta":{"type":"text_delta","text":", alumno"}}
+
+            event: message_stop
+            data: {"type":"message_stop"}
+
+            """;
+        AnthropicClient client = new AnthropicClient(llmProperties(), stubBuilder(HttpStatus.OK, body),
+            rateLimiterRegistry(), requestHedger(), objectMapper, new LLMUsageMetrics(meterRegistry), tokenizerService);
+
+        // When: se consume el stream
+        String answer = String.join("", client.streamResponse("Hola", LLMConfig.defaultConfig())
+            .collectList()
+            .block());
+
+        // Then: la concatenación es la respuesta completa
+        assertThat(answer).isEqualTo("Hola, alumno");
+    }
+
+    @Test
+    @DisplayName("Un error HTTP del proveedor se propaga como LLMProviderException")
+    void mapsHttpErrorToProviderException() {
+        // Given: el proveedor responde 401
+        OpenAIClient client = new OpenAIClient(llmProperties(), stubBuilder(HttpStatus.UNAUTHORIZED, "{}"),
+            rateLimiterRegistry(), requestHedger(), objectMapper, new LLMUsageMetrics(meterRegistry), tokenizerService);
+
+        // When / Then
+        assertThatThrownBy(() -> client.streamResponse("Hola", LLMConfig.defaultConfig()).blockLast())
+            .isInstanceOf(LLMProviderException.class);
+    }
+
+    private WebClient.Builder stubBuilder(HttpStatus status, String body) {
+        return WebClient.builder().exchangeFunction(request -> Mono.just(
+            ClientResponse.create(status)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .body(body)
+                .build()
+        ));
+    }
+
+    private LLMProperties llmProperties() {
+        LLMProperties properties = new LLMProperties();
+        properties.getOpenai().setApiKey("sk-test");
+        properties.getAnthropic().setApiKey("sk-ant-test");
+        return properties;
+    }
+
+    private ProviderRateLimiterRegistry rateLimiterRegistry() {
+        return new ProviderRateLimiterRegistry(new RateLimitProperties(), meterRegistry);
+    }
+
+    private RequestHedger requestHedger() {
+        return new RequestHedger(new HedgingProperties(), meterRegistry);
+    }
+}
@@ -0,0 +1,157 @@
+package mx.uach.luisamigo.client.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.client.hedging.RequestHedger;
+import mx.uach.luisamigo.client.ratelimit.ProviderRateLimiterRegistry;
+import mx.uach.luisamigo.config.HedgingProperties;
+import mx.uach.luisamigo.config.LLMProperties;
+import mx.uach.luisamigo.config.RateLimitProperties;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas del envío del bloque de sistema cacheable y del registro de tokens de cache.
+ */
+class PromptCachingTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TokenizerService tokenizerService = new TokenizerService();
+    private final AtomicReference<JsonNode> sentBody = new AtomicReference<>();
+
+    @Test
+    @DisplayName("Anthropic: envía el sistema como bloque con cache_control y registra lecturas de cache")
+    void anthropicMarksSystemBlockAndRecordsCacheReads() {
+        // Given: una respuesta con 1800 tokens de entrada servidos desde cache
+        String response = """
+            {"id":"msg_1","type":"message","role":"assistant","model":"claude",
+             "content":[{"type":"text","text":"Respuesta"}],
+             "usage":{"input_tokens":120,"output_tokens":40,
+                      "cache_creation_input_tokens":0,"cache_read_input_tokens":1800}}
+            """;
+        AnthropicClient client = new AnthropicClient(llmProperties(), capturingBuilder(response),
+            rateLimiterRegistry(), requestHedger(), objectMapper, new LLMUsageMetrics(meterRegistry), tokenizerService);
+
+        // When
+        String answer = client.generateResponse(new LLMPrompt("Reglas estáticas", "Contexto y pregunta"),
+            LLMConfig.defaultConfig());
+
+        // Then: el sistema va fuera de messages, marcado como efímero
+        assertThat(answer).isEqualTo("Respuesta");
+        JsonNode body = sentBody.get();
+        assertThat(body.path("system").path(0).path("text").asText()).isEqualTo("Reglas estáticas");
+        assertThat(body.path("system").path(0).path("cache_control").path("type").asText()).isEqualTo("ephemeral");
+        assertThat(body.path("messages")).hasSize(1);
+        assertThat(tokens("Anthropic", "cache_read")).isEqualTo(1800);
+        assertThat(tokens("Anthropic", "input")).isEqualTo(120);
+    }
+
+    @Test
+    @DisplayName("OpenAI: envía el sistema como primer mensaje y separa los tokens cacheados")
+    void openAiSendsLeadingSystemMessageAndRecordsCachedTokens() {
+        // Given: 1500 de 2000 tokens de prompt servidos desde cache
+        String response = """
+            {"id":"c1","object":"chat.completion","created":1,"model":"gpt-4",
+             "choices":[{"index":0,"message":{"role":"assistant","content":"Respuesta"},"finish_reason":"stop"}],
+             "usage":{"prompt_tokens":2000,"completion_tokens":50,"total_tokens":2050,
+                      "prompt_tokens_details":{"cached_tokens":1500}}}
+            """;
+        OpenAIClient client = new OpenAIClient(llmProperties(), capturingBuilder(response),
+            rateLimiterRegistry(), requestHedger(), objectMapper, new LLMUsageMetrics(meterRegistry), tokenizerService);
+
+        // When
+        client.generateResponse(new LLMPrompt("Reglas estáticas", "Contexto y pregunta"), LLMConfig.defaultConfig());
+
+        // Then: el prefijo estable es el mensaje de sistema
+        JsonNode messages = sentBody.get().path("messages");
+        assertThat(messages.path(0).path("role").asText()).isEqualTo("system");
+        assertThat(messages.path(1).path("role").asText()).isEqualTo("user");
+        assertThat(tokens("OpenAI", "cache_read")).isEqualTo(1500);
+        assertThat(tokens("OpenAI", "input")).isEqualTo(500);
+    }
+
+    private double tokens(String provider, String type) {
+        var counter = meterRegistry.find("luisamigo.llm.tokens").tag("provider", provider).tag("type", type).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    /**
+     * WebClient que serializa y guarda el body enviado y responde con el JSON dado.
+     */
+    private WebClient.Builder capturingBuilder(String responseJson) {
+        ExchangeStrategies strategies = ExchangeStrategies.withDefaults();
+        return WebClient.builder().exchangeFunction(request -> capture(request, strategies)
+            .then(Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(responseJson)
+                .build())));
+    }
+
+    private Mono<Void> capture(ClientRequest request, ExchangeStrategies strategies) {
+        MockClientHttpRequest mockRequest = new MockClientHttpRequest(HttpMethod.POST, "/");
+        return request.body().insert(mockRequest, new BodyInserter.Context() {
+                @Override
+                public List<HttpMessageWriter<?>> messageWriters() {
+                    return strategies.messageWriters();
+                }
+
+                @Override
+                public Optional<ServerHttpRequest> serverRequest() {
+                    return Optional.empty();
+                }
+
+                @Override
+                public Map<String, Object> hints() {
+                    return Map.of();
+                }
+            })
+            .then(Mono.defer(() -> mockRequest.getBodyAsString()))
+            .doOnNext(json -> {
+                try {
+                    sentBody.set(objectMapper.readTree(json));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            })
+            .then();
+    }
+
+    private LLMProperties llmProperties() {
+        LLMProperties properties = new LLMProperties();
+        properties.getOpenai().setApiKey("sk-test");
+        properties.getAnthropic().setApiKey("sk-ant-test");
+        return properties;
+    }
+
+    private ProviderRateLimiterRegistry rateLimiterRegistry() {
+        return new ProviderRateLimiterRegistry(new RateLimitProperties(), meterRegistry);
+    }
+
+    private RequestHedger requestHedger() {
+        return new RequestHedger(new HedgingProperties(), meterRegistry);
+    }
+}
@@ -0,0 +1,294 @@
+package mx.uach.luisamigo.client.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.LLMProperties;
+import mx.uach.luisamigo.exception.LLMProviderException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas del ruteo entre proveedores con proveedores simulados.
+ */
+class RoutingLLMClientTest {
+
+    private static final LLMPrompt PROMPT = new LLMPrompt("Sistema", "Pregunta");
+
+    @Test
+    @DisplayName("Hace failover transparente al siguiente proveedor y lo registra en la decisión")
+    void failsOverWhenPreferredProviderFails() {
+        // Given: OpenAI (preferido) caído y Anthropic sano
+        FakeClient openai = new FakeClient("OpenAI");
+        FakeClient anthropic = new FakeClient("Anthropic");
+        openai.failing.set(true);
+        RoutingLLMClient router = router(openai, anthropic, properties(30000));
+
+        // When
+        LLMResponse response = router.generate(PROMPT, LLMConfig.defaultConfig());
+
+        // Then
+        assertThat(response.content()).isEqualTo("respuesta de Anthropic");
+        assertThat(response.routing().reason()).isEqualTo(RoutingDecision.Reason.FAILOVER);
+        assertThat(response.routing().failedProviders()).containsExactly("OpenAI");
+        assertThat(response.routing().describe()).isEqualTo("failover from OpenAI");
+    }
+
+    @Test
+    @DisplayName("Abre el circuito tras fallos consecutivos y lo cierra con un probe half-open exitoso")
+    void opensCircuitAndRestoresWithProbe() throws InterruptedException {
+        // Given: un circuito que se reabre a prueba a los 50 ms
+        FakeClient openai = new FakeClient("OpenAI");
+        FakeClient anthropic = new FakeClient("Anthropic");
+        RoutingLLMClient router = router(openai, anthropic, properties(50));
+        openai.failing.set(true);
+
+        // When: tres fallos consecutivos del preferido
+        for (int i = 0; i < 3; i++) {
+            router.generate(PROMPT, LLMConfig.defaultConfig());
+        }
+
+        // Then: el preferido queda fuera de servicio y ya no recibe tráfico
+        assertThat(router.health("OpenAI").state()).isEqualTo(ProviderHealth.State.OPEN);
+        int callsWhileOpen = openai.calls.get();
+        assertThat(router.generate(PROMPT, LLMConfig.defaultConfig()).provider()).isEqualTo("Anthropic");
+        assertThat(openai.calls.get()).isEqualTo(callsWhileOpen);
+
+        // When: se recupera y pasa el tiempo de apertura
+        openai.failing.set(false);
+        Thread.sleep(60);
+        LLMResponse probe = router.generate(PROMPT, LLMConfig.defaultConfig());
+
+        // Then: el probe lo reincorpora, con el timeout normal porque lleva la request del usuario
+        assertThat(probe.routing().reason()).isEqualTo(RoutingDecision.Reason.PROBE);
+        assertThat(probe.provider()).isEqualTo("OpenAI");
+        assertThat(router.health("OpenAI").state()).isEqualTo(ProviderHealth.State.CLOSED);
+        assertThat(openai.lastTimeoutSeconds).isEqualTo(LLMConfig.defaultConfig().getTimeoutSeconds());
+    }
+
+    @Test
+    @DisplayName("Un probe rechazado con 4xx devuelve el circuito a OPEN y permite otro probe")
+    void rejectedProbeReturnsToOpen() throws InterruptedException {
+        // Given: el preferido con el circuito abierto y listo para probe
+        FakeClient openai = new FakeClient("OpenAI");
+        FakeClient anthropic = new FakeClient("Anthropic");
+        RoutingLLMClient router = router(openai, anthropic, properties(50));
+        openCircuit(router.health("OpenAI"));
+        openai.failing.set(true);
+        openai.status = HttpStatus.BAD_REQUEST;
+        Thread.sleep(60);
+
+        // When: el probe recibe un error del request
+        assertThatThrownBy(() -> router.generate(PROMPT, LLMConfig.defaultConfig()))
+            .isInstanceOf(LLMProviderException.class);
+
+        // Then: no queda en HALF_OPEN; pasado el tiempo de apertura otro probe lo reincorpora
+        assertThat(router.health("OpenAI").state()).isEqualTo(ProviderHealth.State.OPEN);
+        openai.failing.set(false);
+        Thread.sleep(60);
+        assertThat(router.generate(PROMPT, LLMConfig.defaultConfig()).routing().reason())
+            .isEqualTo(RoutingDecision.Reason.PROBE);
+        assertThat(router.health("OpenAI").state()).isEqualTo(ProviderHealth.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Un probe en streaming cancelado antes del primer fragmento devuelve el circuito a OPEN")
+    void cancelledStreamProbeReturnsToOpen() {
+        // Given: el preferido listo para probe y un stream que no emite
+        FakeClient openai = new FakeClient("OpenAI");
+        FakeClient anthropic = new FakeClient("Anthropic");
+        RoutingLLMClient router = router(openai, anthropic, properties(0));
+        openCircuit(router.health("OpenAI"));
+        openai.stream = Flux.never();
+
+        // When: el consumidor cancela
+        Disposable subscription = router.streamResponse(PROMPT, LLMConfig.defaultConfig()).subscribe();
+        assertThat(router.health("OpenAI").state()).isEqualTo(ProviderHealth.State.HALF_OPEN);
+        subscription.dispose();
+
+        // Then
+        assertThat(router.health("OpenAI").state()).isEqualTo(ProviderHealth.State.OPEN);
+    }
+
+    @Test
+    @DisplayName("Un probe en streaming que completa sin fragmentos cierra el circuito")
+    void emptyStreamProbeClosesCircuit() {
+        // Given
+        FakeClient openai = new FakeClient("OpenAI");
+        FakeClient anthropic = new FakeClient("Anthropic");
+        RoutingLLMClient router = router(openai, anthropic, properties(0));
+        openCircuit(router.health("OpenAI"));
+        openai.stream = Flux.empty();
+
+        // When
+        router.streamResponse(PROMPT, LLMConfig.defaultConfig()).blockLast();
+
+        // Then: el proveedor respondió; el probe lo cuenta como éxito
+        assertThat(router.health("OpenAI").state()).isEqualTo(ProviderHealth.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Prefiere al proveedor no preferido si su latencia reciente es mucho menor")
+    void routesByLatency() {
+        // Given: OpenAI (preferido) lento y Anthropic rápido, ambos con muestras
+        FakeClient openai = new FakeClient("OpenAI");
+        FakeClient anthropic = new FakeClient("Anthropic");
+        RoutingLLMClient router = router(openai, anthropic, properties(30000));
+        router.health("OpenAI").recordSuccess(4000);
+        router.health("Anthropic").recordSuccess(800);
+
+        // When
+        LLMResponse response = router.generate(PROMPT, LLMConfig.defaultConfig());
+
+        // Then
+        assertThat(response.provider()).isEqualTo("Anthropic");
+        assertThat(response.routing().reason()).isEqualTo(RoutingDecision.Reason.LATENCY);
+    }
+
+    @Test
+    @DisplayName("En streaming hace failover solo si el error ocurre antes del primer fragmento")
+    void streamFailsOverBeforeFirstToken() {
+        // Given: el preferido falla al iniciar el stream
+        FakeClient openai = new FakeClient("OpenAI");
+        FakeClient anthropic = new FakeClient("Anthropic");
+        openai.failing.set(true);
+        RoutingLLMClient router = router(openai, anthropic, properties(30000));
+        List<RoutingDecision> decisions = new ArrayList<>();
+
+        // When
+        List<String> tokens = router.streamResponse(PROMPT, LLMConfig.defaultConfig(), decisions::add)
+            .collectList()
+            .block();
+
+        // Then: el stream completo viene del segundo proveedor
+        assertThat(tokens).containsExactly("Anthropic", "-stream");
+        assertThat(decisions.get(decisions.size() - 1).reason()).isEqualTo(RoutingDecision.Reason.FAILOVER);
+    }
+
+    @Test
+    @DisplayName("Un 4xx del proveedor se relanza sin failover ni penalizar su salud")
+    void clientErrorsDoNotFailOver() {
+        // Given: el preferido rechaza el request (p. ej. prompt demasiado grande)
+        FakeClient openai = new FakeClient("OpenAI");
+        FakeClient anthropic = new FakeClient("Anthropic");
+        openai.failing.set(true);
+        openai.status = HttpStatus.PAYLOAD_TOO_LARGE;
+        RoutingLLMClient router = router(openai, anthropic, properties(30000));
+
+        // When / Then: el error llega al llamador y el otro proveedor no recibe el request
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> router.generate(PROMPT, LLMConfig.defaultConfig()))
+                .isInstanceOf(LLMProviderException.class)
+                .hasCauseInstanceOf(WebClientResponseException.class);
+        }
+        assertThat(anthropic.calls.get()).isZero();
+        assertThat(router.health("OpenAI").state()).isEqualTo(ProviderHealth.State.CLOSED);
+
+        // Y en streaming tampoco hay failover
+        assertThatThrownBy(() -> router.streamResponse(PROMPT, LLMConfig.defaultConfig()).blockLast())
+            .isInstanceOf(LLMProviderException.class);
+        assertThat(anthropic.calls.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("Un 429 sí cuenta como falla del proveedor y hace failover")
+    void rateLimitFailsOver() {
+        // Given
+        FakeClient openai = new FakeClient("OpenAI");
+        FakeClient anthropic = new FakeClient("Anthropic");
+        openai.failing.set(true);
+        openai.status = HttpStatus.TOO_MANY_REQUESTS;
+        RoutingLLMClient router = router(openai, anthropic, properties(30000));
+
+        // When
+        LLMResponse response = router.generate(PROMPT, LLMConfig.defaultConfig());
+
+        // Then
+        assertThat(response.provider()).isEqualTo("Anthropic");
+        assertThat(response.routing().failedProviders()).containsExactly("OpenAI");
+    }
+
+    private RoutingLLMClient router(FakeClient openai, FakeClient anthropic, LLMProperties properties) {
+        return new RoutingLLMClient(List.of(openai, anthropic), properties, new SimpleMeterRegistry());
+    }
+
+    private void openCircuit(ProviderHealth health) {
+        for (int i = 0; i < health.config().getFailureThreshold(); i++) {
+            health.recordFailure(System.nanoTime());
+        }
+        assertThat(health.state()).isEqualTo(ProviderHealth.State.OPEN);
+    }
+
+    private LLMProperties properties(long openDurationMs) {
+        LLMProperties properties = new LLMProperties();
+        properties.setProvider("openai");
+        properties.getRouting().setOpenDurationMs(openDurationMs);
+        return properties;
+    }
+
+    /**
+     * Cliente simulado que responde o falla según el flag: con timeout en generateResponse y con
+     * el status configurado en streaming, envueltos como lo hacen los clientes reales.
+     */
+    private static class FakeClient implements LLMClient {
+        private final String name;
+        private final AtomicBoolean failing = new AtomicBoolean();
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile HttpStatus status;
+        private volatile Flux<String> stream;
+        private volatile int lastTimeoutSeconds;
+
+        FakeClient(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String generateResponse(LLMPrompt prompt, LLMConfig config) {
+            calls.incrementAndGet();
+            lastTimeoutSeconds = config.getTimeoutSeconds();
+            if (failing.get()) {
+                throw status != null
+                    ? new LLMProviderException(status.toString(), name, httpError(status))
+                    : new LLMProviderException("timeout", name, new TimeoutException());
+            }
+            return "respuesta de " + name;
+        }
+
+        @Override
+        public Flux<String> streamResponse(LLMPrompt prompt, LLMConfig config) {
+            calls.incrementAndGet();
+            if (failing.get()) {
+                HttpStatus error = status != null ? status : HttpStatus.SERVICE_UNAVAILABLE;
+                return Flux.error(new LLMProviderException(error.toString(), name, httpError(error)));
+            }
+            return stream != null ? stream : Flux.just(name, "-stream");
+        }
+
+        @Override
+        public boolean isAvailable() { return true; }
+
+        @Override
+        public String getProviderName() { return name; }
+
+        @Override
+        public String getModelName() { return name.toLowerCase() + "-model"; }
+
+        @Override
+        public double estimateCost(int estimatedTokens) { return 0; }
+
+        private static WebClientResponseException httpError(HttpStatus status) {
+            return WebClientResponseException.create(status.value(), status.getReasonPhrase(), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package mx.uach.luisamigo.client.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RateLimitProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas unitarias del pool de API keys (sin llamadas de red).
+ */
+class ApiKeyPoolTest {
+
+    @Test
+    @DisplayName("Tras un 429 expulsa la key y reintenta de inmediato con otra")
+    void retriesOnAnotherKeyAfterTooManyRequests() {
+        // Given: dos keys y un Retry-After largo para la primera
+        ApiKeyPool pool = new ApiKeyPool("test", List.of("sk-a", "sk-b"), true,
+            new RateLimitProperties.Limits(), new SimpleMeterRegistry());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "60");
+        List<String> usedKeys = new ArrayList<>();
+
+        // When: la key que recibe la primera llamada responde 429
+        long start = System.nanoTime();
+        ResponseEntity<String> response = pool.execute(10, apiKey -> {
+            usedKeys.add(apiKey);
+            if (usedKeys.size() == 1) {
+                throw WebClientResponseException.create(429, "Too Many Requests", headers, new byte[0], StandardCharsets.UTF_8);
+            }
+            return ResponseEntity.ok(apiKey);
+        });
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then: el reintento usó la otra key sin esperar el Retry-After
+        assertThat(usedKeys).hasSize(2);
+        assertThat(usedKeys.get(1)).isNotEqualTo(usedKeys.get(0));
+        assertThat(response.getBody()).isEqualTo(usedKeys.get(1));
+        assertThat(elapsedMs).isLessThan(1000);
+
+        // And: mientras dure la pausa, todas las requests van a la key sana
+        for (int i = 0; i < 5; i++) {
+            assertThat(pool.execute(1, ResponseEntity::ok).getBody()).isEqualTo(usedKeys.get(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Elige la key con más cuota restante reportada por el proveedor")
+    void selectsKeyWithMostRemainingQuota() {
+        // Given: dos keys con 100 RPM; el proveedor reporta que a la primera le quedan 5
+        RateLimitProperties.Limits limits = new RateLimitProperties.Limits();
+        limits.setRequestsPerMinute(100);
+        ApiKeyPool pool = new ApiKeyPool("test", List.of("sk-a", "sk-b"), true, limits, new SimpleMeterRegistry());
+
+        HttpHeaders lowQuota = new HttpHeaders();
+        lowQuota.set("x-ratelimit-remaining-requests", "5");
+        ProviderRateLimiter first = pool.limiters().get(0);
+        first.release(first.acquire(1, System.nanoTime() + TimeUnit.SECONDS.toNanos(1)), 200, lowQuota);
+
+        // When: se seleccionan keys varias veces
+        // Then: siempre gana la segunda, sin importar el punto de inicio rotatorio
+        for (int i = 0; i < 4; i++) {
+            assertThat(pool.select().apiKey()).isEqualTo("sk-b");
+        }
+    }
+
+    @Test
+    @DisplayName("Un stream exitoso sincroniza la cuota con los headers de la respuesta")
+    void streamSyncsQuotaFromResponseHeaders() {
+        // Given: dos keys con 100 RPM y un stream cuya respuesta reporta 5 requests restantes
+        RateLimitProperties.Limits limits = new RateLimitProperties.Limits();
+        limits.setRequestsPerMinute(100);
+        ApiKeyPool pool = new ApiKeyPool("test", List.of("sk-a", "sk-b"), true, limits, new SimpleMeterRegistry());
+
+        HttpHeaders lowQuota = new HttpHeaders();
+        lowQuota.set("x-ratelimit-remaining-requests", "5");
+        List<String> usedKeys = new ArrayList<>();
+
+        // When: el stream se consume completo
+        List<String> chunks = pool.stream(1, apiKey -> {
+            usedKeys.add(apiKey);
+            return Mono.just(ResponseEntity.ok().headers(lowQuota).body(Flux.just("a", "b")));
+        }).collectList().block(Duration.ofSeconds(5));
+
+        // Then: se emitió el cuerpo y la key usada quedó con menos cuota que la otra
+        assertThat(chunks).containsExactly("a", "b");
+        assertThat(usedKeys).hasSize(1);
+        for (int i = 0; i < 4; i++) {
+            assertThat(pool.select().apiKey()).isNotEqualTo(usedKeys.get(0));
+        }
+    }
+}
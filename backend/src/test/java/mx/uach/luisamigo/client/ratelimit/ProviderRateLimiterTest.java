@@ -0,0 +1,91 @@
+package mx.uach.luisamigo.client.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RateLimitProperties;
+import mx.uach.luisamigo.exception.ProviderThrottledException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas unitarias del rate limiter adaptativo (sin llamadas de red), a través de un pool de una
+ * sola key como lo usan los clientes.
+ */
+class ProviderRateLimiterTest {
+
+    @Test
+    @DisplayName("Reintenta tras un 429 respetando Retry-After y reduce la concurrencia")
+    void retriesAfterTooManyRequests() {
+        // Given: una sola key con concurrencia inicial 8
+        RateLimitProperties.Limits limits = new RateLimitProperties.Limits();
+        limits.setBackoffMs(10);
+        ApiKeyPool pool = new ApiKeyPool("test", List.of("sk-a"), true, limits, new SimpleMeterRegistry());
+        ProviderRateLimiter limiter = pool.limiters().get(0);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "0.05");
+        AtomicInteger calls = new AtomicInteger();
+
+        // When: la primera llamada recibe 429 y la segunda tiene éxito
+        long start = System.nanoTime();
+        ResponseEntity<String> response = pool.execute(10, apiKey -> {
+            if (calls.incrementAndGet() == 1) {
+                throw WebClientResponseException.create(429, "Too Many Requests", headers, new byte[0], StandardCharsets.UTF_8);
+            }
+            return ResponseEntity.ok("ok");
+        });
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // Then: se esperó el Retry-After y el límite de concurrencia bajó multiplicativamente
+        assertThat(response.getBody()).isEqualTo("ok");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(elapsed).isGreaterThanOrEqualTo(Duration.ofMillis(45));
+        assertThat(limiter.getConcurrencyLimit()).isLessThan(8.0);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Falla con ProviderThrottledException si la cuota RPM no alcanza antes del deadline")
+    void throttlesWhenQuotaExhausted() {
+        // Given: 1 request por minuto y espera máxima de 50 ms
+        RateLimitProperties.Limits limits = new RateLimitProperties.Limits();
+        limits.setRequestsPerMinute(1);
+        limits.setMaxWaitMs(50);
+        ApiKeyPool pool = new ApiKeyPool("test", List.of("sk-a"), true, limits, new SimpleMeterRegistry());
+
+        // When / Then: la primera pasa, la segunda agota el deadline en cola
+        pool.execute(1, apiKey -> ResponseEntity.ok("first"));
+        assertThatThrownBy(() -> pool.execute(1, apiKey -> ResponseEntity.ok("second")))
+            .isInstanceOf(ProviderThrottledException.class);
+    }
+
+    @Test
+    @DisplayName("Interpreta headers de cuota de OpenAI y Anthropic")
+    void parsesProviderQuotaHeaders() {
+        HttpHeaders openai = new HttpHeaders();
+        openai.set("x-ratelimit-remaining-requests", "0");
+        openai.set("x-ratelimit-reset-requests", "1m30.5s");
+
+        RateLimitHeaders parsed = RateLimitHeaders.from(openai);
+        assertThat(parsed.remainingRequests()).isZero();
+        assertThat(parsed.requestsReset()).isEqualTo(Duration.ofMillis(90_500));
+
+        HttpHeaders anthropic = new HttpHeaders();
+        anthropic.set("anthropic-ratelimit-tokens-remaining", "1200");
+        anthropic.set(HttpHeaders.RETRY_AFTER, "7");
+
+        RateLimitHeaders parsedAnthropic = RateLimitHeaders.from(anthropic);
+        assertThat(parsedAnthropic.remainingTokens()).isEqualTo(1200L);
+        assertThat(parsedAnthropic.retryAfter()).isEqualTo(Duration.ofSeconds(7));
+    }
+}
@@ -0,0 +1,105 @@
+package mx.uach.luisamigo.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas unitarias del pre-calentamiento del cliente HTTP contra un servidor local.
+ */
+class HttpClientWarmupTest {
+
+    private final AtomicInteger headRequests = new AtomicInteger();
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private HttpClientWarmup warmup;
+    private HttpClientProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+            .port(0)
+            .route(routes -> routes.head("/v1/models", (request, response) -> {
+                headRequests.incrementAndGet();
+                return response.send();
+            }))
+            .bindNow();
+
+        properties = new HttpClientProperties();
+        properties.setHttp2(false);
+        properties.setMetrics(false);
+        WebClientConfig config = new WebClientConfig();
+        connectionProvider = config.connectionProvider(properties);
+        HttpClient httpClient = config.httpClient(connectionProvider, properties);
+        warmup = new HttpClientWarmup(httpClient, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+        connectionProvider.dispose();
+    }
+
+    @Test
+    @DisplayName("Está desactivado por defecto y no envía requests al arrancar")
+    void disabledByDefault() {
+        // Given: la configuración por defecto con una URL configurada
+        properties.getWarmup().setUrls(List.of(url()));
+
+        // When: la aplicación termina de arrancar
+        warmup.warmup();
+
+        // Then: no se contactó a ningún host
+        assertThat(properties.getWarmup().isEnabled()).isFalse();
+        assertThat(headRequests.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("Abre connections-per-host conexiones hacia cada URL")
+    void preconnectsConfiguredHosts() {
+        // Given: warmup activado con 3 conexiones por host
+        HttpClientProperties.WarmupConfig config = properties.getWarmup();
+        config.setEnabled(true);
+        config.setConnectionsPerHost(3);
+        config.setUrls(List.of(url()));
+
+        // When
+        Long connections = warmup.preconnectAll(config).block(Duration.ofSeconds(10));
+
+        // Then: un HEAD por conexión
+        assertThat(connections).isEqualTo(3L);
+        assertThat(headRequests.get()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Un host inaccesible no hace fallar el warmup")
+    void toleratesUnreachableHosts() {
+        // Given: una URL válida y otra hacia un puerto cerrado
+        HttpClientProperties.WarmupConfig config = properties.getWarmup();
+        config.setEnabled(true);
+        config.setConnectionsPerHost(1);
+        config.setUrls(List.of("http://localhost:1/v1/models", url()));
+
+        // When
+        Long connections = warmup.preconnectAll(config).block(Duration.ofSeconds(10));
+
+        // Then: solo cuenta la conexión exitosa
+        assertThat(connections).isEqualTo(1L);
+        assertThat(headRequests.get()).isEqualTo(1);
+    }
+
+    private String url() {
+        return "http://localhost:" + server.port() + "/v1/models";
+    }
+}
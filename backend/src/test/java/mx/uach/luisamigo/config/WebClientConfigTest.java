@@ -0,0 +1,80 @@
+package mx.uach.luisamigo.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.core.publisher.Mono;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas unitarias del cliente HTTP compartido (servidor local, sin red externa).
+ */
+class WebClientConfigTest {
+
+    private final WebClientConfig config = new WebClientConfig();
+
+    @Test
+    @DisplayName("Convierte llaves de host en direcciones, con 443 como puerto por defecto")
+    void parsesHostKeys() {
+        InetSocketAddress https = WebClientConfig.remoteAddress("api.openai.com");
+        assertThat(https.getHostString()).isEqualTo("api.openai.com");
+        assertThat(https.getPort()).isEqualTo(443);
+
+        InetSocketAddress withPort = WebClientConfig.remoteAddress("localhost:8080");
+        assertThat(withPort.getHostString()).isEqualTo("localhost");
+        assertThat(withPort.getPort()).isEqualTo(8080);
+    }
+
+    @Test
+    @DisplayName("Los WebClient comparten el pool y reutilizan la conexión entre requests")
+    void reusesPooledConnections() throws InterruptedException {
+        // Given: un servidor local y un pool específico para su host
+        DisposableServer server = HttpServer.create()
+            .port(0)
+            .handle((request, response) -> response.sendString(Mono.just(request.remoteAddress().toString())))
+            .bindNow();
+
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setHttp2(false);
+        properties.setMetrics(false);
+        properties.setHosts(Map.of("localhost:" + server.port(), new HttpClientProperties.PoolConfig()));
+        ConnectionProvider connectionProvider = config.connectionProvider(properties);
+
+        // La conexión vuelve al pool de forma asíncrona, después de entregar el cuerpo
+        CountDownLatch released = new CountDownLatch(1);
+
+        try {
+            ReactorClientHttpConnector connector = config.clientHttpConnector(config.httpClient(connectionProvider, properties)
+                .observe((connection, state) -> {
+                    if (state == ConnectionObserver.State.RELEASED) {
+                        released.countDown();
+                    }
+                }));
+            String baseUrl = "http://localhost:" + server.port();
+
+            // When: dos clientes distintos hacen requests secuenciales
+            String first = config.webClientBuilder(connector).baseUrl(baseUrl).build()
+                .get().retrieve().bodyToMono(String.class).block(Duration.ofSeconds(5));
+            assertThat(released.await(5, TimeUnit.SECONDS)).isTrue();
+            String second = config.webClientBuilder(connector).baseUrl(baseUrl).build()
+                .get().retrieve().bodyToMono(String.class).block(Duration.ofSeconds(5));
+
+            // Then: el servidor vio el mismo puerto de origen (la conexión volvió al pool)
+            assertThat(first).isNotBlank().isEqualTo(second);
+        } finally {
+            server.disposeNow();
+            connectionProvider.dispose();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package mx.uach.luisamigo.service.ingestion;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.client.embedding.EmbeddingClientFactory;
+import mx.uach.luisamigo.client.embedding.LocalHashEmbeddingClient;
+import mx.uach.luisamigo.config.EmbeddingProperties;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalCitation;
+import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.repository.DocumentEmbeddingRepository;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
+import mx.uach.luisamigo.service.vectorstore.MateriaClassifier;
+import mx.uach.luisamigo.service.vectorstore.SearchFilters;
+import mx.uach.luisamigo.service.vectorstore.VectorStoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.assertj.core.data.Offset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmark offline del pipeline de ingesta.
+ * Ejecuta IngestionServiceImpl completo con el proveedor de embeddings local y un vector store
+ * en memoria, de modo que corre sin red ni base de datos y reporta docs/seg por etapa.
+ * Fuera de la suite por defecto; se ejecuta con mvn test -Pbenchmark.
+ */
+@Tag("benchmark")
+class IngestionBenchmarkTest {
+
+    private static final int DOCUMENT_COUNT = 2_000;
+
+    private static final String[] TOPICS = {
+        "el juicio de amparo", "el contrato de compraventa", "la jornada máxima de trabajo",
+        "el delito de fraude", "la sociedad anónima", "el acto administrativo",
+        "la patria potestad", "los derechos humanos", "la prescripción adquisitiva"
+    };
+
+    private LocalHashEmbeddingClient localClient;
+    private InMemoryVectorStore vectorStore;
+    private IngestionServiceImpl ingestionService;
+    private final TokenizerService tokenizerService = new TokenizerService();
+
+    @BeforeEach
+    void setUp() {
+        EmbeddingProperties properties = new EmbeddingProperties();
+        properties.setProvider("local");
+        localClient = new LocalHashEmbeddingClient(properties);
+
+        EmbeddingClientFactory factory = mock(EmbeddingClientFactory.class);
+        when(factory.getClient()).thenReturn(localClient);
+
+        DatasetLoader datasetLoader = mock(DatasetLoader.class);
+        when(datasetLoader.loadBarcerasDataset()).thenReturn(syntheticDataset(DOCUMENT_COUNT));
+
+        vectorStore = new InMemoryVectorStore();
+        ingestionService = new IngestionServiceImpl(
+            datasetLoader,
+            new TextNormalizer(),
+            new LegalReferenceMatcher(),
+            new ChunkingService(tokenizerService),
+            factory,
+            vectorStore,
+            tokenizerService,
+            new MateriaClassifier(new RagProperties(), mock(DocumentEmbeddingRepository.class), new SimpleMeterRegistry()),
+            new RagProperties()
+        );
+    }
+
+    @Test
+    @DisplayName("El embedding local es determinístico y normalizado")
+    void localEmbeddingIsDeterministic() {
+        float[] first = localClient.generateEmbedding("¿Qué es el amparo en México?");
+        float[] second = localClient.generateEmbedding("¿Qué es el amparo en México?");
+        float[] other = localClient.generateEmbedding("¿Cuál es la jornada máxima de trabajo?");
+
+        assertThat(first).hasSize(1536).containsExactly(second);
+        assertThat(norm(first)).isCloseTo(1.0, Offset.offset(1e-4));
+        assertThat(dot(first, other)).isLessThan(dot(first, second));
+    }
+
+    @Test
+    @DisplayName("Reporta throughput por etapa del pipeline de ingesta completo")
+    void reportsThroughputPerStage() {
+        // Given: un dataset sintético y configuración por defecto
+        IngestionConfig config = IngestionConfig.builder().batchSize(50).build();
+
+        // When: se ejecuta la ingesta completa
+        IngestionResult result = ingestionService.ingestBarcerasDataset(config);
+
+        // Then: todos los documentos llegan al vector store y cada etapa reporta tiempos
+        assertThat(result.success()).isTrue();
+        assertThat(result.documentsProcessed()).isEqualTo(DOCUMENT_COUNT);
+        assertThat(vectorStore.stored).hasSize(DOCUMENT_COUNT);
+        assertThat(result.stageStats())
+            .extracting(IngestionStageStats::stage)
+            .containsExactly(
+                IngestionServiceImpl.STAGE_NORMALIZE,
+                IngestionServiceImpl.STAGE_CHUNK,
+                IngestionServiceImpl.STAGE_EMBED,
+                IngestionServiceImpl.STAGE_STORE
+            );
+        assertThat(result.stageStats()).allSatisfy(stats -> {
+            assertThat(stats.documents()).isEqualTo(DOCUMENT_COUNT);
+            assertThat(stats.totalNanos()).isPositive();
+        });
+
+        System.out.println("\n=== BENCHMARK DE INGESTA (" + DOCUMENT_COUNT + " docs) ===");
+        result.stageStats().forEach(stats ->
+            System.out.printf("%-10s %10.1f ms %12.1f docs/seg%n",
+                stats.stage(), stats.totalMillis(), stats.documentsPerSecond()));
+        System.out.printf("%-10s %10d ms%n", "total", result.duration().toMillis());
+    }
+
+    /**
+     * Genera entradas determinísticas con longitudes variadas (algunas requieren chunking).
+     */
+    private static List<DatasetLoader.BarcerasDatasetEntry> syntheticDataset(int count) {
+        Random random = new Random(42);
+        List<DatasetLoader.BarcerasDatasetEntry> entries = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            String topic = TOPICS[i % TOPICS.length];
+            String question = "¿Qué establece la legislación mexicana sobre " + topic + " en el caso " + i + "?";
+
+            StringBuilder answer = new StringBuilder();
+            int sentences = 2 + random.nextInt(20);
+            for (int s = 0; s < sentences; s++) {
+                answer.append("De acuerdo con el artículo ").append(1 + random.nextInt(400))
+                    .append(" del Código Civil Federal, ").append(topic)
+                    .append(" se rige por principios de legalidad y seguridad jurídica. ");
+            }
+
+            entries.add(new DatasetLoader.BarcerasDatasetEntry(question, answer.toString(), null));
+        }
+
+        return entries;
+    }
+
+    private static double norm(float[] vector) {
+        return Math.sqrt(dot(vector, vector));
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Vector store en memoria: mide el costo del pipeline sin la latencia de PostgreSQL.
+     */
+    private static class InMemoryVectorStore implements VectorStoreService {
+        private final List<DocumentWithEmbedding> stored = new ArrayList<>();
+
+        @Override
+        public Long storeDocument(LegalDocument document, float[] embedding) {
+            stored.add(new DocumentWithEmbedding(document, embedding));
+            return (long) stored.size();
+        }
+
+        @Override
+        public int storeBatch(List<DocumentWithEmbedding> documentsWithEmbeddings) {
+            stored.addAll(documentsWithEmbeddings);
+            return documentsWithEmbeddings.size();
+        }
+
+        @Override
+        public boolean deleteDocument(Long documentId) {
+            return false;
+        }
+
+        @Override
+        public int deleteBySource(String sourceName) {
+            return 0;
+        }
+
+        @Override
+        public List<DocumentEmbedding> findSimilar(float[] queryEmbedding, int topK) {
+            return List.of();
+        }
+
+        @Override
+        public List<DocumentEmbedding> findSimilar(float[] queryEmbedding, int topK, SearchFilters filters) {
+            return List.of();
+        }
+
+        @Override
+        public List<DocumentEmbedding> findByCitation(LegalCitation citation, float[] queryEmbedding, int limit,
+                                                      SearchFilters filters) {
+            return List.of();
+        }
+
+        @Override
+        public Optional<QuestionMatch> findClosestQuestion(float[] queryEmbedding, SearchFilters filters) {
+            return Optional.empty();
+        }
+
+        @Override
+        public long countDocuments() {
+            return stored.size();
+        }
+
+        @Override
+        public long countBySource(String sourceName) {
+            return stored.size();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package mx.uach.luisamigo.service.ingestion;
+
+import mx.uach.luisamigo.domain.LegalCitation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas del extractor de referencias legales con autómata de Aho-Corasick.
+ */
+class LegalReferenceMatcherTest {
+
+    private final LegalReferenceMatcher matcher = new LegalReferenceMatcher();
+
+    @Test
+    @DisplayName("Extrae artículos en sus distintas formas, sin importar acentos ni mayúsculas")
+    void extractsArticleNumbers() {
+        // When
+        LegalReferenceMatcher.References references = matcher.scan(
+            "El ARTÍCULO 123 y el art. 27 bis regulan esto; ver también los artículos 14, 15 y 16, "
+                + "el Articulo 1o. y el artículo 4° de la Constitución.");
+
+        // Then
+        assertThat(references.articles()).containsExactly("123", "27 bis", "14", "15", "16", "1", "4");
+        assertThat(references.laws()).containsExactly("cpeum");
+    }
+
+    @Test
+    @DisplayName("Las leyes se reconocen por nombre o sigla y gana el nombre más largo")
+    void extractsLongestLawNames() {
+        // When
+        LegalReferenceMatcher.References references = matcher.scan(
+            "Según el Código Civil Federal y la LFT, aplica la Ley Federal del Trabajo.");
+
+        // Then
+        assertThat(references.laws()).containsExactly("ccf", "lft");
+        assertThat(references.articles()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Solo reconoce palabras completas")
+    void requiresWordBoundaries() {
+        LegalReferenceMatcher.References references = matcher.scan(
+            "El arte de la argumentación y la constitucionalidad de las leyes en la práctica 2024.");
+
+        assertThat(references.isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Las citas completas asocian ley y fracción al artículo, antes o después de él")
+    void extractsFullCitations() {
+        // When
+        List<LegalCitation> citations = matcher.citations(
+            "Conforme al artículo 123, fracción IV, constitucional y a la fracción II del artículo 5 de la LFT, "
+                + "así como los artículos 14 y 16 de la Constitución y el artículo 8.");
+
+        // Then
+        assertThat(citations).containsExactly(
+            new LegalCitation("cpeum", "123", "IV"),
+            new LegalCitation("lft", "5", "II"),
+            new LegalCitation("cpeum", "14", null),
+            new LegalCitation("cpeum", "16", null),
+            new LegalCitation(null, "8", null));
+    }
+
+    @Test
+    @DisplayName("encode y decode conservan las referencias")
+    void encodesAndDecodes() {
+        // Given
+        LegalReferenceMatcher.References references = matcher.scan("Artículo 17 bis de la Ley de Amparo");
+
+        // When
+        String encoded = matcher.encode(references);
+
+        // Then
+        assertThat(encoded).isEqualTo("a:17 bis;l:ley de amparo");
+        assertThat(matcher.decode(encoded)).isEqualTo(references);
+        assertThat(matcher.decode(null).isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,98 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static mx.uach.luisamigo.support.TestDocuments.embedding;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas del corte adaptativo de documentos recuperados.
+ */
+class AdaptiveRetrievalPolicyTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RagProperties properties = new RagProperties();
+    private final AdaptiveRetrievalPolicy policy = new AdaptiveRetrievalPolicy(properties, meterRegistry);
+
+    @Test
+    @DisplayName("Una pregunta casi textual se queda con el documento dominante")
+    void cutsAtLargestDropOff() {
+        // When
+        RetrievalResult selected = policy.select(retrieval(0.95, 0.82, 0.80, 0.78, 0.75));
+
+        // Then
+        assertThat(selected.size()).isEqualTo(1);
+        assertThat(meterRegistry.counter("luisamigo.rag.retrieval.cutoff", "reason", "drop_off").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Con similitudes parejas se conservan todos los documentos sobre el piso")
+    void keepsEvenlyScoredDocumentsAboveFloor() {
+        // When
+        RetrievalResult selected = policy.select(retrieval(0.84, 0.82, 0.80, 0.77, 0.74, 0.66, 0.60));
+
+        // Then: se corta en min-similarity-score (0.7), no por caída
+        assertThat(selected.similarities()).containsExactly(0.84, 0.82, 0.80, 0.77, 0.74);
+        assertThat(meterRegistry.counter("luisamigo.rag.retrieval.cutoff", "reason", "floor").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Si ningún documento alcanza el piso el resultado queda vacío")
+    void emptyWhenAllBelowFloor() {
+        // When
+        RetrievalResult selected = policy.select(retrieval(0.65, 0.60));
+
+        // Then
+        assertThat(selected.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Indica si el mejor candidato alcanza el piso (respaldo de la búsqueda por materia)")
+    void reportsWhetherTopCandidateReachesFloor() {
+        assertThat(policy.reachesFloor(retrieval(0.72, 0.60))).isTrue();
+        assertThat(policy.reachesFloor(retrieval(0.65, 0.60))).isFalse();
+        assertThat(policy.reachesFloor(retrieval())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Los documentos fijos por cita se conservan aunque queden bajo el piso")
+    void keepsPinnedDocuments() {
+        // Given: dos documentos citados con similitud baja antes de los vectoriales
+        RetrievalResult candidates = retrieval(0.55, 0.62, 0.93, 0.80, 0.65);
+        RetrievalResult pinned = new RetrievalResult(candidates.documents(), candidates.similarities(), 2);
+
+        // When
+        RetrievalResult selected = policy.select(pinned);
+
+        // Then: fijos + el vectorial dominante
+        assertThat(selected.similarities()).containsExactly(0.55, 0.62, 0.93);
+        assertThat(selected.pinned()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Se piden max-top-k documentos salvo que el request pida menos; deshabilitado usa default-top-k")
+    void fetchSizeHonoursRequestAndConfig() {
+        assertThat(policy.fetchSize(null)).isEqualTo(20);
+        assertThat(policy.fetchSize(3)).isEqualTo(3);
+
+        properties.getAdaptiveRetrieval().setEnabled(false);
+        assertThat(policy.fetchSize(null)).isEqualTo(5);
+        assertThat(policy.select(retrieval(0.95, 0.5)).size()).isEqualTo(2);
+    }
+
+    private static RetrievalResult retrieval(double... similarities) {
+        List<DocumentEmbedding> documents = new ArrayList<>();
+        for (int i = 0; i < similarities.length; i++) {
+            documents.add(embedding("Pregunta " + i, "Respuesta " + i));
+        }
+        return new RetrievalResult(documents, similarities);
+    }
+}
@@ -0,0 +1,135 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.repository.ValidationWarningRepository;
+import mx.uach.luisamigo.service.ingestion.LegalReferenceMatcher;
+import mx.uach.luisamigo.support.TestDocuments;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de los modos de validación anti-alucinación.
+ */
+class AnswerValidationServiceTest {
+
+    private static final String HALLUCINATED = "Según el artículo 999 de la Ley Federal del Trabajo, la jornada es de ocho horas.";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RagProperties properties = new RagProperties();
+    private final ValidationWarningRepository repository = mock(ValidationWarningRepository.class);
+    private final List<DocumentEmbedding> context = List.of(withReference(42L, "Artículo 61 LFT",
+        "El artículo 61 establece la duración máxima de la jornada."));
+
+    @Test
+    @DisplayName("En modo inline la validación termina antes de responder y guarda los warnings")
+    void inlineValidatesBeforeReturning() {
+        // Given
+        properties.getValidation().setMode(RagProperties.ValidationConfig.Mode.INLINE);
+        AnswerValidationService service = service(new HallucinationValidator(new LegalReferenceMatcher()));
+
+        // When
+        service.validate("¿Cuál es la jornada?", HALLUCINATED, context);
+
+        // Then
+        verify(repository).insert(eq("¿Cuál es la jornada?"), eq(HALLUCINATED), eq("INLINE"),
+            anyList(), eq(List.of(42L)));
+        assertThat(meterRegistry.counter("luisamigo.rag.validation", "mode", "inline", "result", "warnings").count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.counter("luisamigo.rag.validation.warnings").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("En modo async la respuesta no espera a la validación")
+    void asyncDoesNotBlockCaller() throws Exception {
+        // Given: un validador que tarda hasta que se libera el latch
+        CountDownLatch release = new CountDownLatch(1);
+        HallucinationValidator slowValidator = mock(HallucinationValidator.class);
+        when(slowValidator.validate(any(), anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new HallucinationValidator.ValidationResult(false, List.of("Posible alucinación"));
+        });
+        AnswerValidationService service = service(slowValidator);
+
+        // When
+        long start = System.nanoTime();
+        service.validate("¿Cuál es la jornada?", HALLUCINATED, context);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertThat(elapsedMs).isLessThan(500);
+        verify(repository, never()).insert(any(), any(), any(), anyList(), anyList());
+        release.countDown();
+        verify(repository, timeout(2_000)).insert(any(), eq(HALLUCINATED), eq("ASYNC"), anyList(), anyList());
+    }
+
+    @Test
+    @DisplayName("Con la cola llena la validación se descarta en lugar de frenar el request")
+    void dropsWhenQueueIsFull() throws Exception {
+        // Given: un worker ocupado y una cola de uno
+        properties.getValidation().setWorkers(1);
+        properties.getValidation().setQueueCapacity(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HallucinationValidator slowValidator = mock(HallucinationValidator.class);
+        when(slowValidator.validate(any(), anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new HallucinationValidator.ValidationResult(true, List.of());
+        });
+        AnswerValidationService service = service(slowValidator);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            service.validate("pregunta " + i, "respuesta", context);
+        }
+        release.countDown();
+
+        // Then
+        assertThat(meterRegistry.counter("luisamigo.rag.validation", "mode", "async", "result", "dropped").count())
+            .isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("En modo sampled solo se valida la fracción configurada")
+    void sampledSkipsOutsideSample() {
+        // Given
+        properties.getValidation().setMode(RagProperties.ValidationConfig.Mode.SAMPLED);
+        properties.getValidation().setSampleRate(0.0);
+        HallucinationValidator validator = mock(HallucinationValidator.class);
+        AnswerValidationService service = service(validator);
+
+        // When
+        service.validate("¿Cuál es la jornada?", HALLUCINATED, context);
+
+        // Then
+        verify(validator, never()).validate(any(), anyList());
+        assertThat(meterRegistry.counter("luisamigo.rag.validation", "mode", "sampled", "result", "skipped").count())
+            .isEqualTo(1);
+    }
+
+    private AnswerValidationService service(HallucinationValidator validator) {
+        return new AnswerValidationService(properties, validator, repository, meterRegistry);
+    }
+
+    private static DocumentEmbedding withReference(long documentId, String lawReference, String answer) {
+        LegalDocument doc = TestDocuments.withId(TestDocuments.document("Pregunta", answer), documentId);
+        doc.setLawReference(lawReference);
+        return TestDocuments.embedding(doc);
+    }
+}
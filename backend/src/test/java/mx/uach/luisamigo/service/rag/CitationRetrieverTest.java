@@ -0,0 +1,76 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalCitation;
+import mx.uach.luisamigo.service.ingestion.LegalReferenceMatcher;
+import mx.uach.luisamigo.service.vectorstore.SearchFilters;
+import mx.uach.luisamigo.service.vectorstore.VectorStoreService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.List;
+
+import static mx.uach.luisamigo.support.TestDocuments.embedding;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de la búsqueda directa por cita.
+ */
+class CitationRetrieverTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RagProperties properties = new RagProperties();
+    private final VectorStoreService vectorStoreService = mock(VectorStoreService.class);
+    private final CitationRetriever retriever =
+        new CitationRetriever(properties, new LegalReferenceMatcher(), vectorStoreService, meterRegistry);
+    private final float[] query = {1f, 0f};
+
+    @Test
+    @DisplayName("Una pregunta por un artículo constitucional pone primero los documentos que lo citan")
+    void pinsDocumentsCitingTheArticle() {
+        // Given
+        DocumentEmbedding cited = embedding(1L, new float[] {0.2f, 1f});
+        DocumentEmbedding vectorHit = embedding(2L, new float[] {1f, 0.1f});
+        when(vectorStoreService.findByCitation(eq(new LegalCitation("cpeum", "123", null)), eq(query), eq(3), any()))
+            .thenReturn(List.of(cited));
+
+        // When
+        List<DocumentEmbedding> documents = retriever.find(
+            "¿Qué establece el artículo 123 constitucional?", query, SearchFilters.empty());
+        RetrievalResult merged = RetrievalResult.score(query, List.of(vectorHit, cited)).withPinned(query, documents);
+
+        // Then: el citado va primero y no se repite
+        assertThat(merged.documents()).containsExactly(cited, vectorHit);
+        assertThat(merged.pinned()).isEqualTo(1);
+        assertThat(meterRegistry.counter("luisamigo.rag.citation_lookup", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Sin una ley identificable no se consulta el índice")
+    void skipsCitationsWithoutLaw() {
+        assertThat(retriever.find("¿Qué dice el artículo 5?", query, SearchFilters.empty())).isEmpty();
+        assertThat(retriever.find("¿Qué es el amparo?", query, SearchFilters.empty())).isEmpty();
+
+        verifyNoInteractions(vectorStoreService);
+    }
+
+    @Test
+    @DisplayName("Una falla del índice deja solo la búsqueda vectorial")
+    void fallsBackOnFailure() {
+        when(vectorStoreService.findByCitation(any(), any(), anyInt(), any()))
+            .thenThrow(new DataAccessResourceFailureException("relation \"legal_citations\" does not exist"));
+
+        assertThat(retriever.find("artículo 61 de la LFT", query, SearchFilters.empty())).isEmpty();
+        assertThat(meterRegistry.counter("luisamigo.rag.citation_lookup", "result", "error").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,121 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static mx.uach.luisamigo.support.TestDocuments.embedding;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas del empaquetado del contexto en el presupuesto de tokens.
+ */
+class ContextPackerTest {
+
+    private static final String QUESTION = "¿Cuál es la jornada máxima de trabajo nocturna?";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenizerService tokenizerService = new TokenizerService();
+
+    @Test
+    @DisplayName("Documentos cortos dentro del presupuesto se incluyen completos")
+    void keepsShortDocumentsIntact() {
+        // Given
+        ContextPacker packer = packer(1500);
+        RetrievalResult retrieval = retrieval(
+            embedding("¿Qué es la jornada nocturna?", "La jornada nocturna es la comprendida entre las veinte y las seis horas."),
+            embedding("¿Qué es el salario?", "El salario es la retribución que debe pagar el patrón al trabajador."));
+
+        // When
+        PackedContext context = packer.pack(QUESTION, retrieval);
+
+        // Then
+        assertThat(context.passages()).hasSize(2).noneMatch(PackedContext.Passage::trimmed);
+        assertThat(context.packedTokens()).isEqualTo(context.originalTokens());
+    }
+
+    @Test
+    @DisplayName("Recorta un documento largo a sus oraciones relevantes dentro del presupuesto")
+    void trimsLongDocumentToRelevantSentences() {
+        // Given: una respuesta larga con una sola oración sobre la jornada nocturna
+        String filler = "El patrón debe proporcionar capacitación y adiestramiento conforme a los planes aprobados. ";
+        String answer = filler.repeat(20)
+            + "La jornada máxima de trabajo nocturna es de siete horas. "
+            + filler.repeat(20);
+        ContextPacker packer = packer(120);
+
+        // When
+        PackedContext context = packer.pack(QUESTION, retrieval(embedding("¿Jornada?", answer)));
+
+        // Then: cabe en el presupuesto y conserva la oración relevante
+        PackedContext.Passage passage = context.passages().get(0);
+        assertThat(passage.trimmed()).isTrue();
+        assertThat(context.packedTokens()).isLessThanOrEqualTo(120);
+        assertThat(context.originalTokens()).isGreaterThan(600);
+        assertThat(passage.answer()).contains("La jornada máxima de trabajo nocturna es de siete horas.");
+    }
+
+    @Test
+    @DisplayName("Descarta pasajes casi duplicados de uno mejor rankeado")
+    void dropsNearDuplicates() {
+        // Given: el segundo documento repite al primero con una palabra distinta
+        String answer = "La duración máxima de la jornada será de ocho horas la diurna, siete la nocturna "
+            + "y siete horas y media la mixta, de acuerdo con el artículo 61 de la Ley Federal del Trabajo.";
+        ContextPacker packer = packer(1500);
+        RetrievalResult retrieval = retrieval(
+            embedding("¿Jornada máxima?", answer),
+            embedding("¿Duración de la jornada?", answer.replace("Federal", "federal")),
+            embedding("¿Qué es el salario?", "El salario es la retribución que debe pagar el patrón al trabajador."));
+
+        // When
+        PackedContext context = packer.pack(QUESTION, retrieval);
+
+        // Then
+        assertThat(context.droppedDuplicates()).isEqualTo(1);
+        assertThat(context.passages()).extracting(PackedContext.Passage::question)
+            .containsExactly("¿Jornada máxima?", "¿Qué es el salario?");
+        assertThat(meterRegistry.counter("luisamigo.rag.context.duplicates").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("El mejor rankeado recibe más presupuesto que los siguientes")
+    void allocatesMoreToBetterRankedDocuments() {
+        // Given: tres documentos igual de largos, con similitud decreciente
+        String filler = "Las condiciones de trabajo se fijan en el contrato individual o colectivo respectivo. ";
+        ContextPacker packer = packer(300);
+        RetrievalResult retrieval = new RetrievalResult(List.of(
+            embedding("Uno", filler.repeat(15) + "Primera."),
+            embedding("Dos", filler.replace("trabajo", "empleo").repeat(15) + "Segunda."),
+            embedding("Tres", filler.replace("contrato", "convenio").repeat(15) + "Tercera.")
+        ), new double[]{0.9, 0.8, 0.7});
+
+        // When
+        PackedContext context = packer.pack(QUESTION, retrieval);
+
+        // Then
+        List<PackedContext.Passage> passages = context.passages();
+        assertThat(passages).hasSize(3);
+        assertThat(passages.get(0).tokens()).isGreaterThan(passages.get(2).tokens());
+        assertThat(context.packedTokens()).isLessThanOrEqualTo(300);
+    }
+
+    private ContextPacker packer(int maxContextTokens) {
+        RagProperties properties = new RagProperties();
+        properties.getContextPacking().setMaxContextTokens(maxContextTokens);
+        return new ContextPacker(properties, tokenizerService, meterRegistry);
+    }
+
+    private static RetrievalResult retrieval(DocumentEmbedding... documents) {
+        double[] similarities = new double[documents.length];
+        for (int i = 0; i < similarities.length; i++) {
+            similarities[i] = 0.9 - i * 0.05;
+        }
+        return new RetrievalResult(List.of(documents), similarities);
+    }
+}
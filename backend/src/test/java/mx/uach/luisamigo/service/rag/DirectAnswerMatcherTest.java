@@ -0,0 +1,87 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.service.vectorstore.SearchFilters;
+import mx.uach.luisamigo.service.vectorstore.VectorStoreService;
+import mx.uach.luisamigo.support.TestDocuments;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de la respuesta directa desde el dataset.
+ */
+class DirectAnswerMatcherTest {
+
+    private static final float[] QUERY = {1f, 0f};
+    private static final String ANSWER = "La jornada nocturna es la comprendida entre las veinte y las seis horas.";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VectorStoreService vectorStoreService = mock(VectorStoreService.class);
+    private final RagProperties properties = new RagProperties();
+    private final DirectAnswerMatcher matcher = new DirectAnswerMatcher(properties, vectorStoreService, meterRegistry);
+
+    @Test
+    @DisplayName("Una pregunta casi idéntica devuelve la respuesta almacenada con su fuente")
+    void matchesNearlyIdenticalQuestion() {
+        // Given
+        properties.getDirectMatch().setEnabled(true);
+        DocumentEmbedding document = document();
+        when(vectorStoreService.findClosestQuestion(any(), any()))
+            .thenReturn(Optional.of(new VectorStoreService.QuestionMatch(document, 0.97)));
+
+        // When
+        Optional<VectorStoreService.QuestionMatch> match = matcher.match(QUERY, SearchFilters.empty());
+        AskResponse response = new ResponseFormatter().formatDirectMatchResponse(document, 0.97, null, 12);
+
+        // Then
+        assertThat(match).isPresent();
+        assertThat(response.answer()).startsWith(ANSWER).endsWith(AskResponse.DEFAULT_DISCLAIMER);
+        assertThat(response.sources()).hasSize(1);
+        assertThat(response.metadata().routing()).isEqualTo(ResponseFormatter.DIRECT_MATCH_ROUTING);
+        assertThat(response.metadata().llmProvider()).isNull();
+        assertThat(meterRegistry.counter("luisamigo.rag.direct_match", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Por debajo del umbral se sigue el flujo normal")
+    void missesBelowThreshold() {
+        // Given
+        properties.getDirectMatch().setEnabled(true);
+        when(vectorStoreService.findClosestQuestion(any(), any()))
+            .thenReturn(Optional.of(new VectorStoreService.QuestionMatch(document(), 0.91)));
+
+        // When / Then
+        assertThat(matcher.match(QUERY, SearchFilters.empty())).isEmpty();
+        assertThat(meterRegistry.counter("luisamigo.rag.direct_match", "result", "miss").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deshabilitada no consulta el vector store; una falla no interrumpe el flujo")
+    void disabledOrFailingLookupReturnsEmpty() {
+        // Deshabilitada (default)
+        assertThat(matcher.match(QUERY, SearchFilters.empty())).isEmpty();
+        verify(vectorStoreService, never()).findClosestQuestion(any(), any());
+
+        // Falla de la búsqueda
+        properties.getDirectMatch().setEnabled(true);
+        when(vectorStoreService.findClosestQuestion(any(), any())).thenThrow(new IllegalStateException("column missing"));
+        assertThat(matcher.match(QUERY, SearchFilters.empty())).isEmpty();
+    }
+
+    private static DocumentEmbedding document() {
+        return TestDocuments.embedding("¿Qué es la jornada nocturna?", ANSWER, QUERY);
+    }
+}
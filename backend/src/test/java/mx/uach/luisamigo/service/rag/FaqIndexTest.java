@@ -0,0 +1,159 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.dto.request.AskRequest;
+import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.dto.response.SourceReference;
+import mx.uach.luisamigo.repository.LegalDocumentRepository;
+import mx.uach.luisamigo.service.ingestion.TextNormalizer;
+import mx.uach.luisamigo.service.vectorstore.CorpusChangedEvent;
+import mx.uach.luisamigo.service.vectorstore.CorpusVersion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas del índice de preguntas exactas.
+ */
+class FaqIndexTest {
+
+    private static final String ANSWER = "El amparo es el medio de control constitucional que protege los derechos humanos.";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LegalDocumentRepository documentRepository = mock(LegalDocumentRepository.class);
+    private final CorpusVersion corpusVersion = new CorpusVersion();
+    private final RagProperties properties = new RagProperties();
+    private final FaqIndex index = new FaqIndex(properties, new TextNormalizer(), documentRepository,
+        new ResponseFormatter(), corpusVersion, meterRegistry);
+
+    @Test
+    @DisplayName("La forma canónica ignora mayúsculas, acentos, puntuación y espacios")
+    void canonicalizesQuestions() {
+        TextNormalizer normalizer = new TextNormalizer();
+
+        assertThat(normalizer.canonicalize("¿Qué es el  Amparo?")).isEqualTo("que es el amparo");
+        assertThat(normalizer.canonicalize("que es el amparo")).isEqualTo("que es el amparo");
+    }
+
+    @Test
+    @DisplayName("Una pregunta del dataset se responde con su respuesta y fuente, con o sin su materia")
+    void answersDatasetQuestion() {
+        // Given
+        when(documentRepository.findFaqRows()).thenReturn(List.of(row(1L, "¿Qué es el amparo?", "amparo")));
+        index.seed();
+
+        // When / Then
+        FaqIndex.Entry entry = index.lookup(new AskRequest("QUE ES EL AMPARO", null, null, null)).orElseThrow();
+        assertThat(entry.answer()).isEqualTo(ANSWER);
+        assertThat(entry.origin()).isEqualTo(FaqIndex.Origin.DATASET);
+        assertThat(entry.sources()).hasSize(1);
+        assertThat(index.lookup(new AskRequest("¿Qué es el amparo?", "Amparo", null, null))).isPresent();
+        assertThat(index.lookup(new AskRequest("¿Qué es el amparo?", "civil", null, null))).isEmpty();
+        assertThat(index.lookup(new AskRequest("¿Qué es el amparo?", null, 3, null))).isEmpty();
+        assertThat(meterRegistry.counter("luisamigo.rag.faq_index", "result", "hit_dataset").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Una respuesta generada se sirve a la misma pregunta hasta que se borra una de sus fuentes")
+    void servesGeneratedAnswerUntilItsSourceIsDeleted() {
+        // Given
+        properties.getFaqIndex().setSeedFromDataset(false);
+        AskRequest request = new AskRequest("¿Cuál es la jornada nocturna?", "laboral", null, null);
+        AskResponse response = new AskResponse("Siete horas.",
+            List.of(new SourceReference(42L, "La jornada nocturna...", "Artículo 61 LFT", "test", null)), null);
+        index.remember(request, response, index.corpusVersion());
+
+        // When / Then
+        assertThat(index.lookup(new AskRequest("cual es la jornada nocturna", "Laboral", null, null)))
+            .get().extracting(FaqIndex.Entry::answer).isEqualTo("Siete horas.");
+
+        // Una ingesta o el borrado de otro documento no la afectan
+        index.onCorpusChanged(new CorpusChangedEvent(corpusVersion.advance(), CorpusChangedEvent.Change.STORED,
+            "test", CorpusChangedEvent.ranges(List.of(100L, 101L)), false));
+        index.onCorpusChanged(deletion(7L));
+        assertThat(index.lookup(request)).isPresent();
+
+        index.onCorpusChanged(deletion(42L));
+        assertThat(index.lookup(request)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("No indexa una respuesta construida con un corpus que cambió durante la generación")
+    void skipsAnswersFromPreviousCorpus() {
+        // Given
+        properties.getFaqIndex().setSeedFromDataset(false);
+        AskRequest request = new AskRequest("¿Qué es el salario?");
+        long versionAtStart = index.corpusVersion();
+        corpusVersion.advance();
+
+        // When
+        index.remember(request, new AskResponse("El salario es...", List.of(), null), versionAtStart);
+
+        // Then
+        assertThat(index.lookup(request)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Un alta agrega solo los documentos del evento y un borrado quita los suyos, sin resembrar")
+    void updatesDatasetEntriesIncrementally() {
+        // Given
+        when(documentRepository.findFaqRows()).thenReturn(List.of(row(1L, "¿Qué es el amparo?", null)));
+        index.seed();
+        AskRequest amparo = new AskRequest("¿Qué es el amparo?");
+        AskRequest salario = new AskRequest("¿Qué es el salario mínimo?");
+        when(documentRepository.findFaqRowsByIdBetween(100L, 100L))
+            .thenReturn(List.of(row(100L, "¿Qué es el salario mínimo?", "laboral")));
+
+        // When: una ingesta agrega el documento 100
+        index.onCorpusChanged(new CorpusChangedEvent(corpusVersion.advance(), CorpusChangedEvent.Change.STORED,
+            "test", CorpusChangedEvent.ranges(List.of(100L)), false));
+
+        // Then: las entradas previas siguen sirviéndose y se agrega la nueva
+        assertThat(index.lookup(amparo)).isPresent();
+        assertThat(index.lookup(salario)).isPresent();
+
+        // When: otro nodo borra el documento 1
+        index.onCorpusChanged(deletion(1L));
+
+        // Then
+        assertThat(index.lookup(amparo)).isEmpty();
+        assertThat(index.lookup(salario)).isPresent();
+        verify(documentRepository, times(1)).findFaqRows();
+    }
+
+    private CorpusChangedEvent deletion(long documentId) {
+        return new CorpusChangedEvent(corpusVersion.advance(), CorpusChangedEvent.Change.DELETED, "test",
+            CorpusChangedEvent.ranges(List.of(documentId)), true);
+    }
+
+    private static LegalDocumentRepository.FaqRow row(Long id, String question, String materia) {
+        return new LegalDocumentRepository.FaqRow() {
+            @Override
+            public Long getId() { return id; }
+
+            @Override
+            public String getQuestion() { return question; }
+
+            @Override
+            public String getAnswer() { return ANSWER; }
+
+            @Override
+            public String getMateria() { return materia; }
+
+            @Override
+            public String getLawReference() { return null; }
+
+            @Override
+            public String getSource() { return "test"; }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package mx.uach.luisamigo.service.rag;
+
+import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.service.ingestion.LegalReferenceMatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de la validación de referencias legales contra el contexto.
+ */
+class HallucinationValidatorTest {
+
+    private final LegalReferenceMatcher matcher = new LegalReferenceMatcher();
+    private final HallucinationValidator validator = new HallucinationValidator(matcher);
+
+    @Test
+    @DisplayName("Usa las referencias extraídas en la ingesta y avisa de los artículos que no están en el contexto")
+    void usesStoredReferences() {
+        // Given: referencias guardadas en la ingesta
+        LegalDocument doc = new LegalDocument("ext-1", "Pregunta", "Respuesta sin citas", "test");
+        doc.setLegalReferences("a:123;a:27 bis;l:cpeum");
+
+        // When
+        HallucinationValidator.ValidationResult result = validator.validate(
+            "El artículo 123 y el artículo 27 bis de la Constitución, así como el artículo 12.", List.of(doc));
+
+        // Then: "12" ya no coincide por subcadena con "123"
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.warnings()).singleElement().asString().contains("'12'");
+    }
+
+    @Test
+    @DisplayName("Los documentos sin referencias guardadas se analizan en el momento")
+    void scansDocumentsWithoutStoredReferences() {
+        LegalDocument doc = new LegalDocument("ext-2", "Pregunta",
+            "La jornada máxima está en el artículo 61 de la LFT.", "test");
+        doc.setLawReference("Artículo 5 LFT");
+
+        HallucinationValidator.ValidationResult result = validator.validate(
+            "Conforme a los artículos 5 y 61 de la Ley Federal del Trabajo.", List.of(doc));
+
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.hasWarnings()).isFalse();
+    }
+}
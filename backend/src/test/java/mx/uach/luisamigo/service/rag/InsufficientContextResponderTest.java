@@ -0,0 +1,92 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalDocument;
+import mx.uach.luisamigo.service.vectorstore.VectorStoreService;
+import mx.uach.luisamigo.support.TestDocuments;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de la respuesta de contexto insuficiente redactada desde plantillas.
+ */
+class InsufficientContextResponderTest {
+
+    private static final float[] QUERY = {1f, 0f};
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VectorStoreService vectorStoreService = mock(VectorStoreService.class);
+    private final InsufficientContextResponder responder =
+        new InsufficientContextResponder(new RagProperties(), vectorStoreService, meterRegistry);
+
+    @Test
+    @DisplayName("Filtrado por materia: plantilla de la materia con preguntas cercanas de otras materias")
+    void filteredOutSuggestsNearbyQuestions() {
+        // Given: dos preguntas cercanas, una repetida y una lejana
+        when(vectorStoreService.findSimilar(any(), anyInt())).thenReturn(List.of(
+            document("¿Qué es la jornada nocturna?", "laboral", new float[]{0.95f, 0.3f}),
+            document("¿Qué es la jornada  nocturna? ", "laboral", new float[]{0.9f, 0.4f}),
+            document("¿Qué es el salario mínimo?", "laboral", new float[]{0.8f, 0.6f}),
+            document("¿Qué es el amparo directo?", "amparo", new float[]{0.1f, 1f})));
+
+        // When
+        String answer = responder.respond(InsufficientContextResponder.Reason.FILTERED_OUT, "Laboral", QUERY);
+
+        // Then
+        assertThat(answer)
+            .startsWith(InsufficientContextResponder.OPENING)
+            .contains("No encontré material de la materia Laboral")
+            .contains("Ley Federal del Trabajo")
+            .contains(InsufficientContextResponder.SUGGESTIONS_HEADER
+                + "\n- ¿Qué es la jornada nocturna? (laboral)\n- ¿Qué es el salario mínimo? (laboral)\n")
+            .doesNotContain("amparo directo")
+            .endsWith(InsufficientContextResponder.CLOSING);
+        assertThat(meterRegistry.counter("luisamigo.rag.insufficient_context",
+            "reason", "filtered_out", "mode", "template").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Sin documentos no se buscan sugerencias")
+    void noDocumentsSkipsSuggestions() {
+        // When
+        String answer = responder.respond(InsufficientContextResponder.Reason.NO_DOCUMENTS, null, QUERY);
+
+        // Then
+        assertThat(answer).contains("No encontré material en la base de conocimiento")
+            .doesNotContain(InsufficientContextResponder.SUGGESTIONS_HEADER);
+        verify(vectorStoreService, never()).findSimilar(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Una falla al buscar sugerencias no impide responder")
+    void suggestionFailureStillAnswers() {
+        // Given
+        when(vectorStoreService.findSimilar(any(), anyInt())).thenThrow(new IllegalStateException("db down"));
+
+        // When
+        String answer = responder.respond(InsufficientContextResponder.Reason.NOT_ANSWERABLE, "penal", QUERY);
+
+        // Then
+        assertThat(answer).contains("no es suficiente", "código penal")
+            .doesNotContain(InsufficientContextResponder.SUGGESTIONS_HEADER);
+    }
+
+    private static DocumentEmbedding document(String question, String materia, float[] embedding) {
+        LegalDocument doc = TestDocuments.document(question, "respuesta");
+        doc.setMateria(materia);
+        return TestDocuments.embedding(doc, embedding);
+    }
+}
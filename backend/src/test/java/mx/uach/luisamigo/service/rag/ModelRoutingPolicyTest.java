@@ -0,0 +1,93 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.client.llm.LLMConfig;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static mx.uach.luisamigo.support.TestDocuments.embedding;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas del ruteo entre modelo rápido y fuerte según la confianza de la recuperación.
+ */
+class ModelRoutingPolicyTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ModelRoutingPolicy policy = new ModelRoutingPolicy(enabledProperties(), meterRegistry);
+
+    @Test
+    @DisplayName("Una pregunta casi textual con un documento dominante va al modelo rápido")
+    void confidentRetrievalUsesFastModel() {
+        // Given: el mejor documento es casi idéntico a la pregunta y el segundo está lejos
+        float[] query = {1f, 0f, 0f};
+        RetrievalResult retrieval = RetrievalResult.score(query, List.of(
+            embedding("Pregunta", "Respuesta corta", new float[]{0.99f, 0.05f, 0f}),
+            embedding("Pregunta", "Otra respuesta", new float[]{0.5f, 0.8f, 0f})
+        ));
+
+        // When
+        LLMConfig.ModelTier tier = policy.select(retrieval);
+
+        // Then
+        assertThat(retrieval.topSimilarity()).isGreaterThan(0.99);
+        assertThat(tier).isEqualTo(LLMConfig.ModelTier.FAST);
+        assertThat(count("fast", "confident")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Similitud baja, documentos empatados o contexto largo escalan al modelo fuerte")
+    void uncertainRetrievalEscalatesToStrongModel() {
+        float[] query = {1f, 0f, 0f};
+
+        // Given / When / Then: similitud baja
+        RetrievalResult lowSimilarity = RetrievalResult.score(query, List.of(
+            embedding("Pregunta", "Respuesta", new float[]{0.6f, 0.8f, 0f})));
+        assertThat(policy.select(lowSimilarity)).isEqualTo(LLMConfig.ModelTier.STRONG);
+
+        // Given / When / Then: dos documentos casi igual de similares
+        RetrievalResult ambiguous = RetrievalResult.score(query, List.of(
+            embedding("Pregunta", "Respuesta A", new float[]{0.99f, 0.05f, 0f}),
+            embedding("Pregunta", "Respuesta B", new float[]{0.99f, 0f, 0.06f})));
+        assertThat(policy.select(ambiguous)).isEqualTo(LLMConfig.ModelTier.STRONG);
+
+        // Given / When / Then: contexto que excede el máximo
+        RetrievalResult longContext = RetrievalResult.score(query, List.of(
+            embedding("Pregunta", "x".repeat(7000), new float[]{1f, 0f, 0f})));
+        assertThat(policy.select(longContext)).isEqualTo(LLMConfig.ModelTier.STRONG);
+
+        assertThat(count("strong", "low_similarity")).isEqualTo(1);
+        assertThat(count("strong", "ambiguous")).isEqualTo(1);
+        assertThat(count("strong", "long_context")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Con el ruteo deshabilitado siempre se usa el modelo fuerte")
+    void disabledRoutingAlwaysUsesStrongModel() {
+        // Given
+        RagProperties properties = new RagProperties();
+        ModelRoutingPolicy disabled = new ModelRoutingPolicy(properties, meterRegistry);
+        RetrievalResult retrieval = RetrievalResult.score(new float[]{1f, 0f}, List.of(
+            embedding("Pregunta", "Respuesta", new float[]{1f, 0f})));
+
+        // When / Then
+        assertThat(disabled.select(retrieval)).isEqualTo(LLMConfig.ModelTier.STRONG);
+        assertThat(disabled.selectForInsufficientContext()).isEqualTo(LLMConfig.ModelTier.STRONG);
+    }
+
+    private double count(String tier, String reason) {
+        var counter = meterRegistry.find("luisamigo.rag.model.tier").tag("tier", tier).tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static RagProperties enabledProperties() {
+        RagProperties properties = new RagProperties();
+        properties.getModelRouting().setEnabled(true);
+        return properties;
+    }
+}
@@ -0,0 +1,138 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.exception.EmbeddingException;
+import mx.uach.luisamigo.exception.PipelineTimeoutException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas del alcance estructurado con deadlines por etapa.
+ */
+class PipelineScopeTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RagProperties properties = new RagProperties();
+
+    @Test
+    @DisplayName("Las etapas independientes corren en paralelo en hilos virtuales")
+    void runsForkedStagesConcurrently() {
+        // Given
+        PipelineScopeFactory factory = new PipelineScopeFactory(properties, meterRegistry);
+        long start = System.nanoTime();
+
+        try (PipelineScope scope = factory.open()) {
+            // When: tres etapas de 200 ms
+            PipelineScope.Fork<Boolean> lookup = scope.fork(PipelineStage.LOOKUP, () -> sleepAndReport(200));
+            PipelineScope.Fork<Boolean> cache = scope.fork(PipelineStage.LOOKUP, () -> sleepAndReport(200));
+            PipelineScope.Fork<Boolean> retrieval = scope.fork(PipelineStage.RETRIEVE, () -> sleepAndReport(200));
+
+            // Then: terminan en el tiempo de una sola
+            assertThat(scope.join(lookup) && scope.join(cache) && scope.join(retrieval)).isTrue();
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(500);
+        assertThat(meterRegistry.timer("luisamigo.rag.pipeline.stage", "stage", "lookup", "outcome", "ok").count())
+            .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Una etapa que vence su deadline se cancela y lanza PipelineTimeoutException")
+    void cancelsStageAfterDeadline() throws Exception {
+        // Given
+        properties.getPipeline().setGenerateMs(50);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        try (PipelineScope scope = new PipelineScopeFactory(properties, meterRegistry).open()) {
+            PipelineScope.Fork<Object> slow = scope.fork(PipelineStage.GENERATE, () -> {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            });
+
+            // When / Then
+            assertThatThrownBy(() -> scope.join(slow))
+                .isInstanceOf(PipelineTimeoutException.class)
+                .extracting(e -> ((PipelineTimeoutException) e).getStage()).isEqualTo("GENERATE");
+        }
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Las etapas de base de datos no se interrumpen al vencer ni al cerrar el alcance")
+    void doesNotInterruptDatabaseStages() throws Exception {
+        // Given: una recuperación que vence su deadline y otra descartada al cerrar el alcance
+        properties.getPipeline().setRetrieveMs(50);
+        CountDownLatch finished = new CountDownLatch(2);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Callable<Object> query = () -> {
+            try {
+                Thread.sleep(200);
+                finished.countDown();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return null;
+        };
+
+        try (PipelineScope scope = new PipelineScopeFactory(properties, meterRegistry).open()) {
+            PipelineScope.Fork<Object> slow = scope.fork(PipelineStage.RETRIEVE, query);
+            scope.fork(PipelineStage.LOOKUP, query);
+
+            // When / Then: el deadline se respeta igual
+            assertThatThrownBy(() -> scope.join(slow)).isInstanceOf(PipelineTimeoutException.class);
+        }
+
+        // Then: ambas terminan por su cuenta
+        assertThat(finished.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(interrupted).isFalse();
+    }
+
+    @Test
+    @DisplayName("El presupuesto total acota el deadline de cada etapa")
+    void totalBudgetCapsStageDeadline() {
+        properties.getPipeline().setTotalBudgetMs(50);
+        properties.getPipeline().setGenerateMs(10_000);
+
+        try (PipelineScope scope = new PipelineScopeFactory(properties, meterRegistry).open()) {
+            assertThatThrownBy(() -> scope.run(PipelineStage.GENERATE, () -> sleepAndReport(1_000)))
+                .isInstanceOf(PipelineTimeoutException.class);
+            assertThat(scope.remainingMs()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("Los errores de una etapa se relanzan tal cual; una etapa opcional cae a su valor por defecto")
+    void propagatesFailuresAndFallsBackForOptionalStages() {
+        properties.getPipeline().setLookupMs(50);
+
+        try (PipelineScope scope = new PipelineScopeFactory(properties, meterRegistry).open()) {
+            EmbeddingException failure = new EmbeddingException("quota exceeded", "openai");
+            assertThatThrownBy(() -> scope.run(PipelineStage.EMBED, () -> {
+                throw failure;
+            })).isSameAs(failure);
+
+            PipelineScope.Fork<Optional<String>> slowLookup =
+                scope.fork(PipelineStage.LOOKUP, () -> sleepAndReport(1_000) ? Optional.of("hit") : Optional.empty());
+            assertThat(scope.joinOrDefault(slowLookup, Optional.empty())).isEmpty();
+        }
+    }
+
+    private static boolean sleepAndReport(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return true;
+    }
+}
@@ -0,0 +1,152 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.dto.request.AskRequest;
+import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.dto.response.AskStreamEvent;
+import mx.uach.luisamigo.exception.LLMProviderException;
+import mx.uach.luisamigo.service.ingestion.TextNormalizer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas de la coalescencia de requests idénticos en curso.
+ */
+class RequestCoalescerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RagProperties properties = new RagProperties();
+    private final RequestCoalescer coalescer = new RequestCoalescer(properties, new TextNormalizer(), meterRegistry);
+
+    @Test
+    @DisplayName("Los duplicados concurrentes reciben la respuesta del primero sin repetir el trabajo")
+    void concurrentDuplicatesShareOneExecution() throws Exception {
+        // Given: el primer request queda generando hasta que se libera el latch
+        int requests = 10;
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        AskResponse response = new AskResponse("Siete horas.", List.of(), null);
+
+        // When: toda la clase pregunta lo mismo, con variaciones de forma
+        List<Future<AskResponse>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                String question = i % 2 == 0 ? "¿Cuál es la jornada nocturna?" : "cual es la JORNADA nocturna";
+                results.add(executor.submit(() -> coalescer.ask(new AskRequest(question, "laboral", null, null), () -> {
+                    executions.incrementAndGet();
+                    await(release);
+                    return response;
+                })));
+            }
+            waitFor("follower", requests - 1);
+            release.countDown();
+
+            // Then
+            for (Future<AskResponse> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(response);
+            }
+        }
+        assertThat(executions).hasValue(1);
+        assertThat(meterRegistry.counter("luisamigo.rag.coalescing", "mode", "ask", "role", "leader").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Filtros distintos no se coalescen; una falla del primero llega a los duplicados")
+    void keysIncludeFiltersAndFailuresPropagate() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        LLMProviderException failure = new LLMProviderException("unavailable", "OpenAI");
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<AskResponse> leader = executor.submit(() -> coalescer.ask(new AskRequest("¿Qué es el amparo?"), () -> {
+                await(release);
+                throw failure;
+            }));
+            waitFor("leader", 1);
+            Future<AskResponse> follower = executor.submit(() ->
+                coalescer.ask(new AskRequest("que es el amparo"), () -> new AskResponse("otra", List.of(), null)));
+            waitFor("follower", 1);
+
+            // When: otra materia no espera al primero
+            AskResponse otherMateria = coalescer.ask(new AskRequest("¿Qué es el amparo?", "constitucional", null, null),
+                () -> new AskResponse("Amparo constitucional.", List.of(), null));
+            release.countDown();
+
+            // Then
+            assertThat(otherMateria.answer()).isEqualTo("Amparo constitucional.");
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCause(failure);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        }
+    }
+
+    @Test
+    @DisplayName("Quien se une a un stream en curso recibe los eventos ya emitidos y continúa en vivo")
+    void streamSubscribersJoinMidStream() {
+        // Given: un stream que el LLM va emitiendo
+        Sinks.Many<AskStreamEvent> llm = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger executions = new AtomicInteger();
+        AskRequest request = new AskRequest("¿Qué es la usucapión?");
+        List<AskStreamEvent> first = new ArrayList<>();
+        List<AskStreamEvent> joined = new ArrayList<>();
+
+        coalescer.stream(request, () -> {
+            executions.incrementAndGet();
+            return llm.asFlux();
+        }).subscribe(first::add);
+        llm.tryEmitNext(AskStreamEvent.sources(List.of()));
+        llm.tryEmitNext(AskStreamEvent.token("La usucapión "));
+
+        // When: un segundo alumno hace la misma pregunta a mitad del stream
+        coalescer.stream(new AskRequest("que es la usucapion"), () -> {
+            executions.incrementAndGet();
+            return Flux.empty();
+        }).subscribe(joined::add);
+        llm.tryEmitNext(AskStreamEvent.token("es la prescripción adquisitiva."));
+        llm.tryEmitComplete();
+
+        // Then
+        assertThat(executions).hasValue(1);
+        assertThat(joined).containsExactlyElementsOf(first).hasSize(3);
+        assertThat(meterRegistry.counter("luisamigo.rag.coalescing", "mode", "stream", "role", "follower").count())
+            .isEqualTo(1);
+
+        // Terminado el stream, un request nuevo vuelve a generar
+        coalescer.stream(request, () -> {
+            executions.incrementAndGet();
+            return Flux.empty();
+        }).blockLast();
+        assertThat(executions).hasValue(2);
+    }
+
+    private void waitFor(String role, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("luisamigo.rag.coalescing", "mode", "ask", "role", role).count() < count
+            && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
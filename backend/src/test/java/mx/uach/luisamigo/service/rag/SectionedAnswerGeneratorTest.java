@@ -0,0 +1,249 @@
+package mx.uach.luisamigo.service.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.client.llm.LLMClient;
+import mx.uach.luisamigo.client.llm.LLMConfig;
+import mx.uach.luisamigo.client.llm.LLMPrompt;
+import mx.uach.luisamigo.client.llm.LLMResponse;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.exception.LLMProviderException;
+import mx.uach.luisamigo.service.tokenizer.TokenizerService;
+import mx.uach.luisamigo.support.TestDocuments;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas de la generación seccionada de la respuesta pedagógica.
+ */
+class SectionedAnswerGeneratorTest {
+
+    private static final String QUESTION = "¿Cuál es la jornada máxima de trabajo nocturna?";
+
+    private final RagProperties properties = new RagProperties();
+    private final SectionedAnswerGenerator generator = new SectionedAnswerGenerator(properties, new ResponseFormatter());
+
+    @Test
+    @DisplayName("Las secciones se piden en paralelo y se unen en orden con su tope de tokens")
+    void generatesSectionsConcurrentlyInOrder() {
+        // Given: cada llamada espera a que las tres estén en curso
+        CountDownLatch allStarted = new CountDownLatch(AnswerSection.values().length);
+        SectionClient client = new SectionClient(allStarted, null);
+
+        // When
+        LLMResponse response = generator.generate(client, prompts(), LLMConfig.ModelTier.FAST);
+
+        // Then
+        assertThat(response.content()).isEqualTo("""
+            **Resumen**
+
+            texto de SUMMARY
+
+            **Explicación**
+
+            texto de EXPLANATION
+
+            **Ejemplo práctico**
+
+            texto de EXAMPLE""");
+        assertThat(client.maxTokens).containsEntry(AnswerSection.SUMMARY, 200)
+            .containsEntry(AnswerSection.EXPLANATION, 900)
+            .containsEntry(AnswerSection.EXAMPLE, 450);
+        assertThat(client.tiers.values()).containsOnly(LLMConfig.ModelTier.FAST);
+    }
+
+    @Test
+    @DisplayName("Si falla el ejemplo se responde sin él")
+    void omitsFailedExample() {
+        // Given
+        SectionClient client = new SectionClient(null, AnswerSection.EXAMPLE);
+
+        // When
+        LLMResponse response = generator.generate(client, prompts(), LLMConfig.ModelTier.STRONG);
+
+        // Then
+        assertThat(response.content()).contains("**Resumen**", "**Explicación**").doesNotContain("Ejemplo");
+    }
+
+    @Test
+    @DisplayName("Si falla una sección obligatoria se propaga el error del proveedor")
+    void propagatesMandatorySectionFailure() {
+        // Given
+        SectionClient client = new SectionClient(null, AnswerSection.SUMMARY);
+
+        // When / Then
+        assertThatThrownBy(() -> generator.generate(client, prompts(), LLMConfig.ModelTier.STRONG))
+            .isInstanceOf(LLMProviderException.class);
+    }
+
+    @Test
+    @DisplayName("Si falla una sección obligatoria se interrumpen las llamadas que siguen en curso")
+    void cancelsPendingSectionsOnFailure() throws InterruptedException {
+        // Given: el resumen falla y el ejemplo tarda
+        SectionClient client = new SectionClient(null, AnswerSection.SUMMARY);
+        client.blocking = AnswerSection.EXAMPLE;
+
+        // When
+        assertThatThrownBy(() -> generator.generate(client, prompts(), LLMConfig.ModelTier.STRONG))
+            .isInstanceOf(LLMProviderException.class);
+
+        // Then: la llamada del ejemplo fue interrumpida en lugar de correr hasta el final
+        assertThat(client.interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Interrumpir el hilo que espera (deadline de GENERATE) interrumpe las secciones")
+    void propagatesCallerInterrupt() throws InterruptedException {
+        // Given: la explicación tarda
+        SectionClient client = new SectionClient(null, null);
+        client.blocking = AnswerSection.EXPLANATION;
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread caller = Thread.ofVirtual().start(() -> {
+            try {
+                generator.generate(client, prompts(), LLMConfig.ModelTier.STRONG);
+            } catch (RuntimeException e) {
+                error.set(e);
+            }
+        });
+        assertThat(client.blockingStarted.await(2, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        caller.interrupt();
+        caller.join(2000);
+
+        // Then
+        assertThat(error.get()).isInstanceOf(CancellationException.class);
+        assertThat(client.interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Los prompts de sección comparten el prefijo y solo difieren en la instrucción final")
+    void sectionPromptsShareContextPrefix() {
+        // When
+        Map<AnswerSection, LLMPrompt> prompts = prompts();
+
+        // Then
+        String summary = prompts.get(AnswerSection.SUMMARY).user();
+        String example = prompts.get(AnswerSection.EXAMPLE).user();
+        String prefix = summary.substring(0, summary.indexOf("## Tu Respuesta"));
+        assertThat(prompts).hasSize(3);
+        assertThat(prefix).contains("jornada nocturna", QUESTION);
+        assertThat(example).startsWith(prefix).contains("ejemplo práctico");
+        assertThat(prompts.get(AnswerSection.SUMMARY).system()).isEqualTo(prompts.get(AnswerSection.EXAMPLE).system());
+        assertThat(summary).doesNotContain(AskResponse.DEFAULT_DISCLAIMER);
+    }
+
+    private static Map<AnswerSection, LLMPrompt> prompts() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TokenizerService tokenizerService = new TokenizerService();
+        PromptBuilder promptBuilder = new PromptBuilder(tokenizerService,
+            new ContextPacker(new RagProperties(), tokenizerService, meterRegistry), meterRegistry);
+        DocumentEmbedding embedding = TestDocuments.embedding("¿Qué es la jornada nocturna?",
+            "La jornada nocturna es la comprendida entre las veinte y las seis horas.");
+        return promptBuilder.buildSectionPrompts(QUESTION, new RetrievalResult(List.of(embedding), new double[]{0.9}));
+    }
+
+    /**
+     * Cliente simulado que identifica la sección por su instrucción y registra la configuración recibida.
+     */
+    private static class SectionClient implements LLMClient {
+        private final CountDownLatch allStarted;
+        private final AnswerSection failing;
+        private final Map<AnswerSection, Integer> maxTokens = new ConcurrentHashMap<>();
+        private final Map<AnswerSection, LLMConfig.ModelTier> tiers = new ConcurrentHashMap<>();
+        private final CountDownLatch blockingStarted = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+        private volatile AnswerSection blocking;
+
+        SectionClient(CountDownLatch allStarted, AnswerSection failing) {
+            this.allStarted = allStarted;
+            this.failing = failing;
+        }
+
+        @Override
+        public String generateResponse(LLMPrompt prompt, LLMConfig config) {
+            AnswerSection section = sectionOf(prompt);
+            maxTokens.put(section, config.getMaxTokens());
+            tiers.put(section, config.getTier());
+            if (allStarted != null) {
+                allStarted.countDown();
+                try {
+                    if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("Sections were not requested concurrently");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (section == failing) {
+                awaitBlockingSection();
+                throw new LLMProviderException("timeout", "Fake");
+            }
+            if (section == blocking) {
+                blockingStarted.countDown();
+                try {
+                    TimeUnit.SECONDS.sleep(30);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw new LLMProviderException("interrupted", "Fake");
+                }
+            }
+            return "texto de " + section + "\n\n" + AskResponse.DEFAULT_DISCLAIMER;
+        }
+
+        /**
+         * Si hay una sección lenta, la falla ocurre cuando esa llamada ya está en curso.
+         */
+        private void awaitBlockingSection() {
+            if (blocking == null) {
+                return;
+            }
+            try {
+                blockingStarted.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static AnswerSection sectionOf(LLMPrompt prompt) {
+            for (AnswerSection section : AnswerSection.values()) {
+                if (prompt.user().contains("## Tu Respuesta: " + section.getHeading() + "\n")) {
+                    return section;
+                }
+            }
+            throw new IllegalArgumentException("Unknown section prompt");
+        }
+
+        @Override
+        public Flux<String> streamResponse(LLMPrompt prompt, LLMConfig config) {
+            return Flux.just(generateResponse(prompt, config));
+        }
+
+        @Override
+        public boolean isAvailable() { return true; }
+
+        @Override
+        public String getProviderName() { return "Fake"; }
+
+        @Override
+        public String getModelName() { return "fake-model"; }
+
+        @Override
+        public double estimateCost(int estimatedTokens) { return 0; }
+    }
+}
@@ -0,0 +1,151 @@
+package mx.uach.luisamigo.service.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.dto.request.AskRequest;
+import mx.uach.luisamigo.dto.response.AskResponse;
+import mx.uach.luisamigo.dto.response.SourceReference;
+import mx.uach.luisamigo.repository.SemanticAnswerCacheRepository;
+import mx.uach.luisamigo.service.vectorstore.CorpusChangedEvent;
+import mx.uach.luisamigo.service.vectorstore.CorpusVersion;
+import mx.uach.luisamigo.support.TestDocuments;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas del cache semántico de respuestas compartido.
+ */
+class SemanticAnswerCacheTest {
+
+    private static final float[] QUERY = {1f, 0f};
+    private static final AskRequest REQUEST = new AskRequest("¿Qué es el amparo?", "Amparo", null, null);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SemanticAnswerCacheRepository repository = mock(SemanticAnswerCacheRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final CorpusVersion corpusVersion = new CorpusVersion();
+    private final RagProperties properties = new RagProperties();
+    private final SemanticAnswerCache cache =
+        new SemanticAnswerCache(properties, repository, objectMapper, corpusVersion, meterRegistry);
+
+    @BeforeEach
+    void enableCache() {
+        properties.getSemanticCache().setEnabled(true);
+    }
+
+    @Test
+    @DisplayName("Una paráfrasis muy cercana con los mismos filtros reutiliza la respuesta y sus fuentes")
+    void reusesAnswerForCloseParaphrase() throws Exception {
+        // Given
+        AskResponse original = response();
+        when(repository.findClosest(anyString(), eq("amparo"), isNull())).thenReturn(Optional.of(
+            new SemanticAnswerCacheRepository.CachedAnswer(7, objectMapper.writeValueAsString(original), 0.985)));
+
+        // When
+        Optional<AskResponse> cached = cache.lookup(REQUEST, QUERY);
+        AskResponse response = new ResponseFormatter().formatCachedResponse(cached.orElseThrow(), "Amparo", 15);
+
+        // Then
+        assertThat(response.answer()).isEqualTo(original.answer());
+        assertThat(response.sources()).isEqualTo(original.sources());
+        assertThat(response.metadata().routing()).isEqualTo(ResponseFormatter.SEMANTIC_CACHE_ROUTING);
+        assertThat(response.metadata().llmProvider()).isEqualTo("OpenAI");
+        assertThat(response.metadata().processingTimeMs()).isEqualTo(15);
+        assertThat(meterRegistry.counter("luisamigo.rag.semantic_cache", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Por debajo del umbral estricto no se reutiliza; una falla del cache no interrumpe")
+    void missesBelowThresholdOrOnFailure() throws Exception {
+        // Given
+        when(repository.findClosest(anyString(), any(), any())).thenReturn(Optional.of(
+            new SemanticAnswerCacheRepository.CachedAnswer(7, objectMapper.writeValueAsString(response()), 0.95)));
+
+        // When / Then
+        assertThat(cache.lookup(REQUEST, QUERY)).isEmpty();
+
+        when(repository.findClosest(anyString(), any(), any())).thenThrow(new IllegalStateException("relation does not exist"));
+        assertThat(cache.lookup(REQUEST, QUERY)).isEmpty();
+        assertThat(meterRegistry.counter("luisamigo.rag.semantic_cache", "result", "error").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Guarda la respuesta con los ids de los documentos, salvo si el corpus cambió durante la generación")
+    void storesUnlessCorpusChanged() {
+        // Given
+        List<DocumentEmbedding> documents = List.of(document());
+
+        // When: corpus sin cambios
+        cache.store(REQUEST, QUERY, documents, response(), corpusVersion.current());
+
+        // Then
+        verify(repository, timeout(2000)).insert(anyString(), eq("amparo"), isNull(), anyList(), anyString(), any());
+
+        // When: el corpus cambió mientras se generaba
+        long versionAtStart = corpusVersion.current();
+        corpusVersion.advance();
+        cache.store(new AskRequest("¿Qué es la suspensión?"), QUERY, documents, response(), versionAtStart);
+
+        // Then
+        verify(repository, after(300).never()).insert(anyString(), isNull(), isNull(), anyList(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Un borrado elimina las respuestas que citan los documentos; un cambio desconocido vacía el cache")
+    void invalidatesOnCorpusChange() {
+        // Borrado local con ids
+        cache.onCorpusChanged(new CorpusChangedEvent(1, CorpusChangedEvent.Change.DELETED, "test",
+            CorpusChangedEvent.ranges(List.of(3L, 4L, 5L, 9L)), false));
+        verify(repository, timeout(2000)).deleteReferencing(3, 5);
+        verify(repository, timeout(2000)).deleteReferencing(9, 9);
+
+        // Altas y cambios de otros nodos no tocan la tabla compartida
+        cache.onCorpusChanged(new CorpusChangedEvent(2, CorpusChangedEvent.Change.STORED, "test", List.of(), false));
+        cache.onCorpusChanged(new CorpusChangedEvent(3, CorpusChangedEvent.Change.UNKNOWN, null, List.of(), true));
+        verify(repository, after(300).never()).deleteAll();
+
+        cache.onCorpusChanged(new CorpusChangedEvent(4));
+        verify(repository, timeout(2000)).deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deshabilitado no toca la tabla")
+    void skipsRepositoryWhenDisabled() {
+
+        properties.getSemanticCache().setEnabled(false);
+        assertThat(cache.lookup(REQUEST, QUERY)).isEmpty();
+        verify(repository, never()).findClosest(anyString(), any(), any());
+    }
+
+    private static AskResponse response() {
+        return new AskResponse(
+            "El amparo protege los derechos humanos.\n\n" + AskResponse.DEFAULT_DISCLAIMER,
+            List.of(new SourceReference(1L, "El amparo...", "Artículo 103 CPEUM", "test", null)),
+            new AskResponse.ResponseMetadata(1, "Amparo", Instant.now(), 2300, "OpenAI", "gpt-4o", "preferred"));
+    }
+
+    private static DocumentEmbedding document() {
+        return TestDocuments.embedding("¿Qué es el amparo?", "El amparo...", QUERY);
+    }
+}
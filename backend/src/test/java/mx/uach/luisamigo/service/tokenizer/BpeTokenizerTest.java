@@ -0,0 +1,98 @@
+package mx.uach.luisamigo.service.tokenizer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas del tokenizer BPE contra tokens de referencia de tiktoken.
+ */
+class BpeTokenizerTest {
+
+    private static BpeTokenizer cl100k;
+    private static BpeTokenizer o200k;
+
+    @BeforeAll
+    static void loadTables() throws IOException {
+        cl100k = BpeTokenizer.load(BpeEncoding.CL100K_BASE);
+        o200k = BpeTokenizer.load(BpeEncoding.O200K_BASE);
+    }
+
+    @Test
+    @DisplayName("Produce los mismos tokens que tiktoken para cl100k_base y o200k_base")
+    void matchesReferenceTokens() {
+        assertThat(cl100k.encode("hello world")).containsExactly(15339, 1917);
+        assertThat(o200k.encode("hello world")).containsExactly(24912, 2375);
+
+        assertThat(cl100k.encode("¿Qué es el juicio de amparo?"))
+            .containsExactly(31282, 66806, 1560, 658, 10479, 11518, 409, 1097, 1768, 78, 30);
+        assertThat(o200k.encode("¿Qué es el juicio de amparo?"))
+            .containsExactly(68156, 878, 650, 98183, 334, 939, 109921, 30);
+
+        assertThat(cl100k.encode("Artículo 123 CPEUM")).containsExactly(9470, 49591, 220, 4513, 356, 1777, 2864);
+        assertThat(o200k.encode("Artículo 123 CPEUM")).containsExactly(182049, 220, 7633, 363, 3111, 4540);
+    }
+
+    @Test
+    @DisplayName("encode/decode es reversible y countTokens coincide con encode")
+    void roundTripsAndCounts() {
+        String text = "La jornada diurna es de ocho horas.\n\n  Emoji 😀, 中文 y “comillas”…\t123456789";
+
+        int[] tokens = cl100k.encode(text);
+
+        assertThat(cl100k.decode(tokens)).isEqualTo(text);
+        assertThat(cl100k.countTokens(text)).isEqualTo(tokens.length);
+        assertThat(cl100k.countTokens("")).isZero();
+    }
+
+    @Test
+    @DisplayName("truncate respeta el presupuesto sin partir palabras")
+    void truncatesAtPieceBoundary() {
+        String text = "El amparo procede contra actos de autoridad que violen derechos humanos.";
+
+        String truncated = cl100k.truncate(text, 5);
+
+        assertThat(cl100k.countTokens(truncated)).isLessThanOrEqualTo(5);
+        assertThat(text).startsWith(truncated);
+        assertThat(truncated).isNotEmpty();
+        assertThat(text.charAt(truncated.length())).isEqualTo(' ');
+        assertThat(cl100k.truncate(text, 1_000)).isEqualTo(text);
+    }
+
+    @Test
+    @DisplayName("Una instancia se puede compartir entre threads")
+    void isThreadSafe() throws Exception {
+        String text = "Artículo 27. La propiedad de las tierras y aguas comprendidas dentro de los límites del territorio nacional. ";
+        int expected = cl100k.countTokens(text.repeat(50));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> cl100k.countTokens(text.repeat(50))));
+            }
+            for (Future<Integer> result : results) {
+                assertThat(result.get()).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Elige la codificación según el modelo")
+    void selectsEncodingForModel() {
+        assertThat(BpeEncoding.forModel("gpt-4")).isEqualTo(BpeEncoding.CL100K_BASE);
+        assertThat(BpeEncoding.forModel("text-embedding-3-small")).isEqualTo(BpeEncoding.CL100K_BASE);
+        assertThat(BpeEncoding.forModel("gpt-4o-mini")).isEqualTo(BpeEncoding.O200K_BASE);
+        assertThat(BpeEncoding.forModel("claude-3-haiku-20240307")).isEqualTo(BpeEncoding.CL100K_BASE);
+    }
+}
@@ -0,0 +1,76 @@
+package mx.uach.luisamigo.service.tokenizer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark offline del tokenizer BPE: mide el throughput de countTokens y encode sobre texto
+ * jurídico sintético, con calentamiento previo para que el JIT compile el camino caliente.
+ * Fuera de la suite por defecto; se ejecuta con mvn test -Pbenchmark.
+ */
+@Tag("benchmark")
+class TokenizerBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 50;
+
+    private static String corpus;
+
+    @BeforeAll
+    static void buildCorpus() {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            text.append("De acuerdo con el artículo ").append(1 + random.nextInt(400))
+                .append(" de la Ley Federal del Trabajo, la jornada máxima es de ")
+                .append(6 + random.nextInt(3)).append(" horas; ¿procede el amparo en este caso?\n");
+        }
+        corpus = text.toString();
+    }
+
+    @Test
+    @DisplayName("Reporta throughput de countTokens y encode por codificación")
+    void reportsThroughput() throws IOException {
+        System.out.println("\n=== BENCHMARK DEL TOKENIZER (" + corpus.length() / 1024 + " KB de texto) ===");
+
+        for (BpeEncoding encoding : BpeEncoding.values()) {
+            long loadStart = System.nanoTime();
+            BpeTokenizer tokenizer = BpeTokenizer.load(encoding);
+            double loadMillis = (System.nanoTime() - loadStart) / 1e6;
+
+            int tokens = tokenizer.countTokens(corpus);
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                tokenizer.countTokens(corpus);
+                tokenizer.encode(corpus);
+            }
+
+            long countNanos = 0;
+            long encodeNanos = 0;
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                assertThat(tokenizer.countTokens(corpus)).isEqualTo(tokens);
+                countNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                assertThat(tokenizer.encode(corpus)).hasSize(tokens);
+                encodeNanos += System.nanoTime() - start;
+            }
+
+            System.out.printf("%-12s carga %7.1f ms  countTokens %6.1f MB/s  encode %6.1f MB/s  (%d tokens)%n",
+                encoding.getEncodingName(), loadMillis,
+                megabytesPerSecond(countNanos), megabytesPerSecond(encodeNanos), tokens);
+        }
+    }
+
+    private static double megabytesPerSecond(long totalNanos) {
+        double bytes = (double) corpus.length() * MEASURED_ITERATIONS;
+        return bytes / (1024 * 1024) / (totalNanos / 1e9);
+    }
+}
@@ -0,0 +1,87 @@
+package mx.uach.luisamigo.service.vectorstore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mx.uach.luisamigo.config.RagProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Pruebas del bus de cambios del corpus entre nodos (sin base de datos: se prueba el formato
+ * de las notificaciones y su republicación local).
+ */
+class CorpusChangeBusTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CorpusVersion localVersion = new CorpusVersion();
+    private final List<Object> published = new ArrayList<>();
+    private final CorpusChangeBus localBus = bus(localVersion, published);
+    private final CorpusChangeBus otherNode = bus(new CorpusVersion(), new ArrayList<>());
+
+    @Test
+    @DisplayName("El cambio de otro nodo se republica como evento remoto y avanza la generación local")
+    void republishesChangesFromOtherNodes() {
+        // Given: otro nodo borró los documentos 10-12 y 20
+        CorpusChangedEvent change = new CorpusChangedEvent(57, CorpusChangedEvent.Change.DELETED, "barcenas",
+            CorpusChangedEvent.ranges(List.of(12L, 10L, 11L, 20L)), false);
+
+        // When
+        localBus.receive(otherNode.encode(change));
+
+        // Then
+        assertThat(published).singleElement().isInstanceOfSatisfying(CorpusChangedEvent.class, event -> {
+            assertThat(event.remote()).isTrue();
+            assertThat(event.generation()).isEqualTo(localVersion.current()).isEqualTo(1);
+            assertThat(event.change()).isEqualTo(CorpusChangedEvent.Change.DELETED);
+            assertThat(event.source()).isEqualTo("barcenas");
+            assertThat(event.documentIds()).containsExactly(
+                new CorpusChangedEvent.IdRange(10, 12), new CorpusChangedEvent.IdRange(20, 20));
+            assertThat(event.affects(11L, "barcenas")).isTrue();
+            assertThat(event.affects(13L, "barcenas")).isFalse();
+        });
+    }
+
+    @Test
+    @DisplayName("Ignora sus propias notificaciones y las mal formadas")
+    void ignoresOwnAndMalformedNotifications() {
+        localBus.receive(localBus.encode(new CorpusChangedEvent(3)));
+        localBus.receive("{not json");
+
+        assertThat(published).isEmpty();
+        assertThat(localVersion.current()).isZero();
+    }
+
+    @Test
+    @DisplayName("Si los rangos exceden el límite de NOTIFY se envía solo la fuente")
+    void dropsRangesWhenPayloadIsTooLarge() {
+        // Given: ids no contiguos, un rango por documento
+        List<Long> scattered = LongStream.range(0, 2000).map(i -> i * 2).boxed().toList();
+        CorpusChangedEvent change = new CorpusChangedEvent(8, CorpusChangedEvent.Change.DELETED, "barcenas",
+            CorpusChangedEvent.ranges(scattered), false);
+
+        // When
+        String payload = otherNode.encode(change);
+        localBus.receive(payload);
+
+        // Then: el receptor invalida por fuente
+        assertThat(payload.getBytes(StandardCharsets.UTF_8).length).isLessThan(8000);
+        CorpusChangedEvent received = (CorpusChangedEvent) published.get(0);
+        assertThat(received.documentIds()).isEmpty();
+        assertThat(received.affects(1L, "barcenas")).isTrue();
+        assertThat(received.affects(1L, "otra")).isFalse();
+    }
+
+    private CorpusChangeBus bus(CorpusVersion version, List<Object> events) {
+        return new CorpusChangeBus(new RagProperties(), new DataSourceProperties(), mock(JdbcTemplate.class),
+            objectMapper, version, events::add);
+    }
+}
@@ -0,0 +1,131 @@
+package mx.uach.luisamigo.service.vectorstore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.repository.DocumentEmbeddingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas del clasificador de materia por centroide más cercano.
+ */
+class MateriaClassifierTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RagProperties properties = new RagProperties();
+    private final DocumentEmbeddingRepository repository = mock(DocumentEmbeddingRepository.class);
+    private final MateriaClassifier classifier = new MateriaClassifier(properties, repository, meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        // El filtrado de consultas está apagado por defecto
+        properties.getMateriaClassifier().setFilterQueries(true);
+    }
+
+    @Test
+    @DisplayName("Clasifica en la materia cuyo centroide es el más cercano")
+    void classifiesNearestCentroid() {
+        // Given
+        when(repository.findMateriaCentroids()).thenReturn(List.of(
+            centroid("Laboral", 50, "[2,0,0]"),
+            centroid("Penal", 40, "[0,3,0]")
+        ));
+        classifier.refresh();
+
+        // When
+        Optional<MateriaClassifier.Classification> result = classifier.classifyQuery(new float[] {0.9f, 0.1f, 0f});
+
+        // Then
+        assertThat(result).isPresent();
+        assertThat(result.get().materia()).isEqualTo("Laboral");
+        assertThat(result.get().similarity()).isGreaterThan(0.9);
+        assertThat(meterRegistry.counter("luisamigo.vectorstore.materia_classifier",
+            "target", "query", "result", "confident").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Sin margen suficiente entre las dos materias más cercanas no clasifica")
+    void uncertainWhenMarginIsSmall() {
+        // Given
+        when(repository.findMateriaCentroids()).thenReturn(List.of(
+            centroid("Laboral", 50, "[1,0,0]"),
+            centroid("Penal", 40, "[0,1,0]")
+        ));
+        classifier.refresh();
+
+        // When
+        Optional<MateriaClassifier.Classification> result = classifier.classifyDocument(new float[] {1f, 1f, 0f});
+
+        // Then
+        assertThat(result).isEmpty();
+        assertThat(meterRegistry.counter("luisamigo.vectorstore.materia_classifier",
+            "target", "document", "result", "uncertain").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Ignora las materias excluidas y las que tienen pocos documentos")
+    void skipsExcludedAndSmallMaterias() {
+        // Given: "General" está excluida y "Mercantil" no llega a min-documents
+        when(repository.findMateriaCentroids()).thenReturn(List.of(
+            centroid("General", 500, "[1,0,0]"),
+            centroid("Mercantil", 3, "[0,1,0]"),
+            centroid("Civil", 30, "[0,0,1]")
+        ));
+        classifier.refresh();
+
+        // When / Then
+        assertThat(classifier.classifyQuery(new float[] {1f, 0f, 0f})).isEmpty();
+        assertThat(classifier.classifyQuery(new float[] {0f, 1f, 0f})).isEmpty();
+        assertThat(classifier.classifyQuery(new float[] {0f, 0f, 1f}))
+            .map(MateriaClassifier.Classification::materia)
+            .contains("Civil");
+    }
+
+    @Test
+    @DisplayName("Antes de cargar los centroides no clasifica nada")
+    void unavailableBeforeRefresh() {
+        // When
+        Optional<MateriaClassifier.Classification> result = classifier.classifyQuery(new float[] {1f, 0f, 0f});
+
+        // Then
+        assertThat(result).isEmpty();
+        assertThat(meterRegistry.counter("luisamigo.vectorstore.materia_classifier",
+            "target", "query", "result", "unavailable").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Con el filtrado de consultas desactivado (por defecto) no clasifica preguntas")
+    void respectsFilterQueriesFlag() {
+        // Given
+        assertThat(new RagProperties().getMateriaClassifier().isFilterQueries()).isFalse();
+        properties.getMateriaClassifier().setFilterQueries(false);
+        when(repository.findMateriaCentroids()).thenReturn(List.of(centroid("Laboral", 50, "[1,0,0]")));
+        classifier.refresh();
+
+        // When / Then
+        assertThat(classifier.classifyQuery(new float[] {1f, 0f, 0f})).isEmpty();
+        assertThat(classifier.classifyDocument(new float[] {1f, 0f, 0f})).isPresent();
+    }
+
+    private static DocumentEmbeddingRepository.MateriaCentroid centroid(String materia, long documents, String vector) {
+        return new DocumentEmbeddingRepository.MateriaCentroid() {
+            @Override
+            public String getMateria() { return materia; }
+
+            @Override
+            public Long getDocuments() { return documents; }
+
+            @Override
+            public String getCentroid() { return vector; }
+        };
+    }
+}
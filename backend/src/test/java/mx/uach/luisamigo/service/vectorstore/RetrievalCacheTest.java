@@ -0,0 +1,130 @@
+package mx.uach.luisamigo.service.vectorstore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mx.uach.luisamigo.config.RagProperties;
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static mx.uach.luisamigo.support.TestDocuments.embedding;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas del cache de resultados de búsqueda vectorial.
+ */
+class RetrievalCacheTest {
+
+    private static final int DIMENSIONS = 64;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CorpusVersion corpusVersion = new CorpusVersion();
+    private final RagProperties properties = new RagProperties();
+    private final RetrievalCache cache = new RetrievalCache(properties, corpusVersion, meterRegistry);
+    private final float[] query = randomVector(1);
+    private final List<DocumentEmbedding> results = List.of(embedding(11L, randomVector(2)), embedding(7L, randomVector(3)));
+
+    @Test
+    @DisplayName("La misma consulta con filtros equivalentes reutiliza los ids en orden")
+    void hitsForSameQueryAndEquivalentFilters() {
+        // Given
+        SearchFilters filters = SearchFilters.builder().materia("Amparo").tags(Set.of("b", "a")).build();
+        cache.put(query, 20, filters, results, corpusVersion.current());
+
+        // When
+        SearchFilters sameFilters = SearchFilters.builder().materia("Amparo").tags(Set.of("a", "b")).build();
+
+        // Then
+        assertThat(cache.lookup(query.clone(), 20, sameFilters)).contains(List.of(11L, 7L));
+        assertThat(cache.lookup(query, 5, sameFilters)).isEmpty();
+        assertThat(cache.lookup(query, 20, SearchFilters.builder().materia("Penal").build())).isEmpty();
+        assertThat(meterRegistry.counter("luisamigo.vectorstore.retrieval_cache", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Una consulta casi idéntica cae en la misma cubeta; una distinta no acierta")
+    void validatesByExactCosine() {
+        // Given
+        cache.put(query, 20, SearchFilters.empty(), results, corpusVersion.current());
+        float[] nearlySame = query.clone();
+        nearlySame[0] += 1e-4f;
+
+        // When / Then
+        assertThat(cache.simHash(nearlySame)).isEqualTo(cache.simHash(query));
+        assertThat(cache.lookup(nearlySame, 20, SearchFilters.empty())).contains(List.of(11L, 7L));
+        assertThat(cache.lookup(randomVector(4), 20, SearchFilters.empty())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Un borrado invalida solo las entradas que citan el documento; un alta vacía el cache")
+    void invalidatesSelectivelyOnCorpusChange() {
+        // Given
+        cache.put(query, 20, SearchFilters.empty(), results, corpusVersion.current());
+
+        // When: se borra un documento que no está en el resultado
+        cache.onCorpusChanged(deletion(500L));
+
+        // Then
+        assertThat(cache.lookup(query, 20, SearchFilters.empty())).contains(List.of(11L, 7L));
+
+        // When: se borra un documento del resultado
+        cache.onCorpusChanged(deletion(107L));
+
+        // Then
+        assertThat(cache.lookup(query, 20, SearchFilters.empty())).isEmpty();
+
+        cache.put(query, 20, SearchFilters.empty(), results, corpusVersion.current());
+        cache.onCorpusChanged(new CorpusChangedEvent(corpusVersion.advance(), CorpusChangedEvent.Change.STORED,
+            "test", List.of(new CorpusChangedEvent.IdRange(900, 950)), true));
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("No guarda un resultado obtenido con una generación del corpus anterior")
+    void rejectsResultsFromPreviousGeneration() {
+        long generation = corpusVersion.current();
+        corpusVersion.advance();
+
+        cache.put(query, 20, SearchFilters.empty(), results, generation);
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("El cache está acotado y deshabilitado no guarda nada")
+    void isBoundedAndCanBeDisabled() {
+        // Given
+        properties.getRetrievalCache().setMaxEntries(3);
+        RetrievalCache bounded = new RetrievalCache(properties, corpusVersion, meterRegistry);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            bounded.put(randomVector(100 + i), 20, SearchFilters.empty(), results, corpusVersion.current());
+        }
+
+        // Then
+        assertThat(bounded.size()).isLessThanOrEqualTo(3);
+
+        properties.getRetrievalCache().setEnabled(false);
+        cache.put(query, 20, SearchFilters.empty(), results, corpusVersion.current());
+        assertThat(cache.size()).isZero();
+    }
+
+    private static float[] randomVector(long seed) {
+        Random random = new Random(seed);
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private CorpusChangedEvent deletion(long documentId) {
+        return new CorpusChangedEvent(corpusVersion.advance(), CorpusChangedEvent.Change.DELETED, "test",
+            CorpusChangedEvent.ranges(List.of(documentId)), false);
+    }
+}
@@ -0,0 +1,65 @@
+package mx.uach.luisamigo.support;
+
+import mx.uach.luisamigo.domain.DocumentEmbedding;
+import mx.uach.luisamigo.domain.LegalDocument;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Documentos y embeddings de prueba compartidos por las pruebas del pipeline RAG.
+ *
+ * Los ids solo se asignan cuando la prueba los necesita (withId o embedding(long, float[])), como
+ * haría la base de datos al guardar.
+ */
+public final class TestDocuments {
+
+    public static final String SOURCE = "test";
+    public static final String MODEL = "test-model";
+
+    private TestDocuments() {
+    }
+
+    /**
+     * Documento sin guardar; el external id se deriva de la pregunta.
+     */
+    public static LegalDocument document(String question, String answer) {
+        return new LegalDocument("ext-" + question.hashCode(), question, answer, SOURCE);
+    }
+
+    /**
+     * Embedding del documento con el vector dado.
+     */
+    public static DocumentEmbedding embedding(LegalDocument document, float[] vector) {
+        return new DocumentEmbedding(document, vector, MODEL, SOURCE);
+    }
+
+    public static DocumentEmbedding embedding(String question, String answer, float[] vector) {
+        return embedding(document(question, answer), vector);
+    }
+
+    /**
+     * Embedding con vector {1, 0}, para pruebas donde la similitud no importa.
+     */
+    public static DocumentEmbedding embedding(LegalDocument document) {
+        return embedding(document, new float[] {1f, 0f});
+    }
+
+    public static DocumentEmbedding embedding(String question, String answer) {
+        return embedding(document(question, answer));
+    }
+
+    /**
+     * Embedding guardado: id de embedding id y de documento 100 + id, para distinguirlos.
+     */
+    public static DocumentEmbedding embedding(long id, float[] vector) {
+        LegalDocument document = withId(document("Pregunta " + id, "Respuesta " + id), 100 + id);
+        return withId(embedding(document, vector), id);
+    }
+
+    /**
+     * Asigna el id que generaría la base de datos.
+     */
+    public static <T> T withId(T entity, long id) {
+        ReflectionTestUtils.setField(entity, "id", id);
+        return entity;
+    }
+}
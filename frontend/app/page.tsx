@@ -33,7 +33,6 @@ export default function Home() {
         question: input,
         materia: materia || undefined,
         semesterLevel,
-        topK: 5,
       });
 
       const assistantMessage: Message = {
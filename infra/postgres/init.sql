@@ -20,6 +20,9 @@ CREATE TABLE IF NOT EXISTS legal_documents (
     materia VARCHAR(100),
     semester_level INT,
 
+    -- Artículos y leyes citados en la respuesta, extraídos en la ingesta ("a:123;l:cpeum")
+    legal_references TEXT,
+
     -- Información de fuente
     source VARCHAR(255) NOT NULL,
     source_url TEXT,
@@ -50,6 +53,9 @@ CREATE TABLE IF NOT EXISTS document_embeddings (
     -- Vector embedding (1536 dimensiones para text-embedding-3-small)
     embedding vector(1536) NOT NULL,
 
+    -- Embedding solo de la pregunta (respuesta directa, luisamigo.rag.direct-match)
+    question_embedding vector(1536),
+
     -- Metadata del embedding
     model_name VARCHAR(100) NOT NULL,
     model_provider VARCHAR(50) NOT NULL,
@@ -75,6 +81,69 @@ CREATE INDEX IF NOT EXISTS idx_legal_document_tags_tag ON legal_document_tags(ta
 CREATE INDEX IF NOT EXISTS idx_document_embeddings_vector ON document_embeddings
 USING hnsw (embedding vector_cosine_ops);
 
+CREATE INDEX IF NOT EXISTS idx_document_embeddings_question_vector ON document_embeddings
+USING hnsw (question_embedding vector_cosine_ops);
+
+-- Cache semántico de respuestas compartido entre nodos (luisamigo.rag.semantic-cache)
+CREATE TABLE IF NOT EXISTS semantic_answer_cache (
+    id BIGSERIAL PRIMARY KEY,
+
+    -- Embedding de la consulta que generó la respuesta
+    query_embedding vector(1536) NOT NULL,
+
+    -- Filtros de la consulta (la respuesta solo se reutiliza con los mismos)
+    materia VARCHAR(100),
+    semester_level INT,
+
+    -- Documentos recuperados para generar la respuesta
+    document_ids BIGINT[] NOT NULL,
+
+    -- AskResponse serializado
+    response JSONB NOT NULL,
+
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    expires_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_semantic_answer_cache_vector ON semantic_answer_cache
+USING hnsw (query_embedding vector_cosine_ops);
+CREATE INDEX IF NOT EXISTS idx_semantic_answer_cache_expires_at ON semantic_answer_cache(expires_at);
+
+-- Citas normalizadas de cada documento, extraídas en la ingesta (luisamigo.rag.citation-lookup)
+CREATE TABLE IF NOT EXISTS legal_citations (
+    id BIGSERIAL PRIMARY KEY,
+    document_id BIGINT NOT NULL REFERENCES legal_documents(id) ON DELETE CASCADE,
+
+    -- Clave canónica de la ley (cpeum, lft, ...); NULL si el texto no la indica
+    law VARCHAR(50),
+
+    -- Artículo ("123", "27 bis") y fracción en romanos ("IV")
+    article VARCHAR(20) NOT NULL,
+    fraction VARCHAR(10)
+);
+
+CREATE INDEX IF NOT EXISTS idx_legal_citations_law_article ON legal_citations(law, article, fraction);
+CREATE INDEX IF NOT EXISTS idx_legal_citations_article ON legal_citations(article, law);
+CREATE INDEX IF NOT EXISTS idx_legal_citations_document_id ON legal_citations(document_id);
+
+-- Warnings de la validación anti-alucinación, para revisión de calidad (luisamigo.rag.validation)
+CREATE TABLE IF NOT EXISTS answer_validation_warnings (
+    id BIGSERIAL PRIMARY KEY,
+    question TEXT NOT NULL,
+    answer TEXT NOT NULL,
+
+    -- Modo en que se validó (INLINE, ASYNC, SAMPLED)
+    mode VARCHAR(20) NOT NULL,
+    warnings TEXT[] NOT NULL,
+
+    -- Documentos que se dieron como contexto
+    document_ids BIGINT[] NOT NULL,
+
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_answer_validation_warnings_created_at ON answer_validation_warnings(created_at);
+
 -- Trigger para actualizar updated_at automáticamente
 CREATE OR REPLACE FUNCTION update_updated_at_column()
 RETURNS TRIGGER AS $$
@@ -0,0 +1,9 @@
+-- Respuesta directa (luisamigo.rag.direct-match): embedding solo de la pregunta.
+-- Idempotente; para bases creadas antes de esta columna.
+-- Los documentos ya ingestados quedan con question_embedding NULL y no participan en la
+-- respuesta directa hasta volver a ingestarlos.
+
+ALTER TABLE document_embeddings ADD COLUMN IF NOT EXISTS question_embedding vector(1536);
+
+CREATE INDEX IF NOT EXISTS idx_document_embeddings_question_vector ON document_embeddings
+USING hnsw (question_embedding vector_cosine_ops);
@@ -0,0 +1,17 @@
+-- Cache semántico de respuestas compartido entre nodos (luisamigo.rag.semantic-cache).
+-- Idempotente; para bases creadas antes de esta tabla.
+
+CREATE TABLE IF NOT EXISTS semantic_answer_cache (
+    id BIGSERIAL PRIMARY KEY,
+    query_embedding vector(1536) NOT NULL,
+    materia VARCHAR(100),
+    semester_level INT,
+    document_ids BIGINT[] NOT NULL,
+    response JSONB NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    expires_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_semantic_answer_cache_vector ON semantic_answer_cache
+USING hnsw (query_embedding vector_cosine_ops);
+CREATE INDEX IF NOT EXISTS idx_semantic_answer_cache_expires_at ON semantic_answer_cache(expires_at);
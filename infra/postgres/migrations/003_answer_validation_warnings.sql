@@ -0,0 +1,14 @@
+-- Warnings de la validación anti-alucinación (luisamigo.rag.validation.persist-warnings).
+-- Idempotente; para bases creadas antes de esta tabla.
+
+CREATE TABLE IF NOT EXISTS answer_validation_warnings (
+    id BIGSERIAL PRIMARY KEY,
+    question TEXT NOT NULL,
+    answer TEXT NOT NULL,
+    mode VARCHAR(20) NOT NULL,
+    warnings TEXT[] NOT NULL,
+    document_ids BIGINT[] NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_answer_validation_warnings_created_at ON answer_validation_warnings(created_at);
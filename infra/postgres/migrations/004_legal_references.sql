@@ -0,0 +1,6 @@
+-- Artículos y leyes citados en cada respuesta, extraídos en la ingesta (HallucinationValidator).
+-- Idempotente; para bases creadas antes de esta columna. legal_documents.legal_references está
+-- mapeada en la entidad, así que sin esta columna el backend no arranca (ddl-auto: validate).
+-- Los documentos ya ingestados quedan con NULL; el validador escanea su texto en ese caso.
+
+ALTER TABLE legal_documents ADD COLUMN IF NOT EXISTS legal_references TEXT;
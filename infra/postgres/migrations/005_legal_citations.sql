@@ -0,0 +1,16 @@
+-- Índice de citas normalizadas por documento (luisamigo.rag.citation-lookup).
+-- Idempotente; para bases creadas antes de esta tabla. Con citation-lookup activado la ingesta
+-- escribe en ella, así que sin la tabla falla el almacenamiento de cada lote. Los documentos ya
+-- ingestados no tienen citas hasta volver a ingestarlos.
+
+CREATE TABLE IF NOT EXISTS legal_citations (
+    id BIGSERIAL PRIMARY KEY,
+    document_id BIGINT NOT NULL REFERENCES legal_documents(id) ON DELETE CASCADE,
+    law VARCHAR(50),
+    article VARCHAR(20) NOT NULL,
+    fraction VARCHAR(10)
+);
+
+CREATE INDEX IF NOT EXISTS idx_legal_citations_law_article ON legal_citations(law, article, fraction);
+CREATE INDEX IF NOT EXISTS idx_legal_citations_article ON legal_citations(article, law);
+CREATE INDEX IF NOT EXISTS idx_legal_citations_document_id ON legal_citations(document_id);